@@ -0,0 +1,76 @@
+package com.csms.benchmark;
+
+import com.csms.dto.ocpp.AuthorizeRequest;
+import com.csms.dto.ocpp.BootNotificationRequest;
+import com.csms.dto.ocpp.HeartbeatRequest;
+import com.csms.dto.ocpp.MeterValuesRequest;
+import com.csms.dto.ocpp.StatusNotificationRequest;
+import com.csms.websocket.OcppFrame;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame parsing as done by {@code OcppWebSocketHandler.handleMessage}: the streaming
+ * codec against the previous readTree + treeToValue approach, which is kept here as
+ * the baseline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FrameParsingBenchmark {
+
+    private static final Map<String, Class<?>> REQUEST_TYPES = Map.of(
+            "BootNotification", BootNotificationRequest.class,
+            "StatusNotification", StatusNotificationRequest.class,
+            "Heartbeat", HeartbeatRequest.class,
+            "Authorize", AuthorizeRequest.class,
+            "MeterValues", MeterValuesRequest.class
+    );
+
+    @Param({"BootNotification", "StatusNotification", "MeterValues"})
+    private String action;
+
+    private InMemoryCsms csms;
+    private String frame;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        csms = new InMemoryCsms();
+        frame = OcppFrames.forAction(action);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        csms.close();
+    }
+
+    @Benchmark
+    public OcppFrame streamingCodec() throws Exception {
+        return csms.codec.decode(frame);
+    }
+
+    @Benchmark
+    public Object treeModel() throws Exception {
+        JsonNode messageArray = csms.objectMapper.readTree(frame);
+        String frameAction = messageArray.get(2).asText();
+        return csms.objectMapper.treeToValue(messageArray.get(3), REQUEST_TYPES.get(frameAction));
+    }
+}
@@ -0,0 +1,187 @@
+package com.csms.benchmark;
+
+import com.csms.config.JacksonConfig;
+import com.csms.metrics.OcppMetrics;
+import com.csms.model.ChargePointConfiguration;
+import com.csms.model.ChargingStation;
+import com.csms.model.Connector;
+import com.csms.model.IdTag;
+import com.csms.repository.ChargePointConfigurationRepository;
+import com.csms.repository.ChargingStationRepository;
+import com.csms.repository.ConnectorRepository;
+import com.csms.repository.IdTagRepository;
+import com.csms.repository.ReservationRepository;
+import com.csms.repository.TransactionRepository;
+import com.csms.scheduler.StationOfflineDetector;
+import com.csms.scheduler.StationOfflineListener;
+import com.csms.service.AuthorizationService;
+import com.csms.service.ChargingStationRegistry;
+import com.csms.service.ChargingStationService;
+import com.csms.service.ConfigurationService;
+import com.csms.service.ConnectorStateMachine;
+import com.csms.service.DashboardStatsService;
+import com.csms.service.IdAllocationService;
+import com.csms.service.MeterSample;
+import com.csms.service.MeterValueBatchWriter;
+import com.csms.service.MeterValueCodes;
+import com.csms.service.MeterValuePartitions;
+import com.csms.service.MeterValueRollupService;
+import com.csms.service.MeterValueService;
+import com.csms.service.OcppMessageService;
+import com.csms.service.OcppStateSpool;
+import com.csms.service.ReservationService;
+import com.csms.service.StationLivenessTracker;
+import com.csms.service.TransactionService;
+import com.csms.websocket.OcppAdmissionController;
+import com.csms.websocket.OcppJsonCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The OCPP message services wired by hand against {@link InMemoryRepository} stand-ins,
+ * with one registered station ({@link OcppFrames#CHARGE_POINT_ID}, two connectors) and
+ * one accepted ID tag. Meter samples are counted instead of written.
+ * <p>
+ * Paths that allocate ids from Postgres sequences (StartTransaction, ReserveNow) are
+ * not covered: the {@link JdbcTemplate} here has no data source.
+ */
+final class InMemoryCsms implements AutoCloseable {
+
+    final ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+    final OcppJsonCodec codec = new OcppJsonCodec(objectMapper);
+    final DiscardingMeterValueWriter meterValueWriter;
+    final MeterValueService meterValueService;
+    final OcppMessageService messageService;
+
+    private final StationOfflineDetector stationOfflineDetector;
+
+    InMemoryCsms() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate();
+
+        InMemoryRepository<ChargingStation> stations = new InMemoryRepository<>();
+        stations.query("findByChargePointId", args -> stations.stream()
+                .filter(station -> station.getChargePointId().equals(args[0]))
+                .findFirst());
+
+        InMemoryRepository<Connector> connectors = new InMemoryRepository<>();
+        connectors.query("findByChargingStationId", args -> connectors.stream()
+                .filter(connector -> connector.getChargingStation().getId().equals(args[0]))
+                .toList());
+
+        InMemoryRepository<IdTag> idTags = new InMemoryRepository<>();
+        idTags.query("findByIdTag", args -> idTags.stream()
+                .filter(tag -> tag.getIdTag().equals(args[0]))
+                .findFirst());
+
+        InMemoryRepository<ChargePointConfiguration> configurations = new InMemoryRepository<>();
+        configurations.query("findByChargingStationId", args -> configurations.stream()
+                        .filter(config -> config.getChargingStation().getId().equals(args[0]))
+                        .toList())
+                .query("findByChargingStationIdAndConfigKey", args -> configurations.stream()
+                        .filter(config -> config.getChargingStation().getId().equals(args[0])
+                                && Objects.equals(config.getConfigKey(), args[1]))
+                        .findFirst());
+
+        ChargingStationRepository stationRepository = stations.proxy(ChargingStationRepository.class);
+        ConnectorRepository connectorRepository = connectors.proxy(ConnectorRepository.class);
+
+        this.stationOfflineDetector = new StationOfflineDetector(
+                new DefaultListableBeanFactory().getBeanProvider(StationOfflineListener.class),
+                meterRegistry, 300, 2.0, 1000, 1024);
+        StationLivenessTracker livenessTracker =
+                new StationLivenessTracker(jdbcTemplate, stationOfflineDetector, meterRegistry);
+        ChargingStationRegistry registry =
+                new ChargingStationRegistry(stationRepository, meterRegistry);
+        DashboardStatsService dashboardStatsService =
+                new DashboardStatsService(jdbcTemplate, stationOfflineDetector, meterRegistry);
+        ConnectorStateMachine connectorStateMachine =
+                new ConnectorStateMachine(jdbcTemplate, connectorRepository, dashboardStatsService, meterRegistry, true);
+        ChargingStationService chargingStationService = new ChargingStationService(
+                stationRepository, registry, connectorStateMachine, livenessTracker, dashboardStatsService);
+        IdAllocationService idAllocationService = new IdAllocationService(jdbcTemplate, 50, false);
+
+        this.meterValueWriter = new DiscardingMeterValueWriter(meterRegistry);
+        this.meterValueService = new MeterValueService(meterValueWriter);
+        TransactionService transactionService = new TransactionService(
+                new InMemoryRepository<>().proxy(TransactionRepository.class),
+                connectorStateMachine, stationRepository, idAllocationService, dashboardStatsService);
+        AuthorizationService authorizationService =
+                new AuthorizationService(idTags.proxy(IdTagRepository.class), event -> { },
+                        meterRegistry, 100_000, 300, 60);
+        this.messageService = new OcppMessageService(
+                chargingStationService,
+                registry,
+                transactionService,
+                authorizationService,
+                meterValueService,
+                new ReservationService(new InMemoryRepository<>().proxy(ReservationRepository.class), idAllocationService),
+                new ConfigurationService(configurations.proxy(ChargePointConfigurationRepository.class)),
+                idAllocationService,
+                // Disabled: requests go straight to the repositories
+                new OcppStateSpool(objectMapper, jdbcTemplate, null, registry, chargingStationService,
+                        transactionService, meterValueService, meterValueWriter, authorizationService, meterRegistry,
+                        false, "spool", 1 << 20, 1000, 1, 1000),
+                stationOfflineDetector,
+                // Unlimited boots
+                new OcppAdmissionController(meterRegistry, 0, 1, 0, 5, 300),
+                codec,
+                new OcppMetrics(meterRegistry));
+        ReflectionTestUtils.setField(messageService, "defaultHeartbeatInterval", 300);
+
+        ChargingStation station = new ChargingStation();
+        station.setChargePointId(OcppFrames.CHARGE_POINT_ID);
+        station.setIsRegistered(true);
+        station.setRegistrationStatus("Accepted");
+        stationRepository.save(station);
+        for (int connectorId = 1; connectorId <= 2; connectorId++) {
+            Connector connector = new Connector();
+            connector.setChargingStation(station);
+            connector.setConnectorId(connectorId);
+            connectorRepository.save(connector);
+        }
+
+        IdTag idTag = new IdTag();
+        idTag.setIdTag(OcppFrames.ID_TAG);
+        idTags.proxy(IdTagRepository.class).save(idTag);
+
+        registry.get(OcppFrames.CHARGE_POINT_ID);
+    }
+
+    @Override
+    public void close() {
+        stationOfflineDetector.shutdown();
+    }
+
+    /**
+     * Counts samples instead of queueing them for the database flusher.
+     */
+    static final class DiscardingMeterValueWriter extends MeterValueBatchWriter {
+
+        private long samples;
+
+        DiscardingMeterValueWriter(MeterRegistry meterRegistry) {
+            super(new JdbcTemplate(), new MeterValueCodes(new JdbcTemplate()),
+                    new MeterValuePartitions(new JdbcTemplate(), meterRegistry, 7, 0, 0),
+                    new MeterValueRollupService(new JdbcTemplate(), new MeterValueCodes(new JdbcTemplate()),
+                            meterRegistry, 1, 0, 0, 0, 0, 0),
+                    meterRegistry, 1, 1, 1, 0, 0, 1, 1, 1);
+        }
+
+        @Override
+        public void enqueue(List<MeterSample> batch) {
+            samples += batch.size();
+        }
+
+        long getSamples() {
+            return samples;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.csms.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Map-backed stand-in for a Spring Data repository, so services can be benchmarked
+ * without a database.
+ * <p>
+ * The CRUD methods used by the services are implemented generically; derived queries
+ * are registered per method name with {@link #query}. Anything else returns an empty
+ * value for its return type.
+ */
+final class InMemoryRepository<T> implements InvocationHandler {
+
+    private final Map<Object, T> entities = new ConcurrentHashMap<>();
+    private final Map<String, Function<Object[], Object>> queries = new HashMap<>();
+
+    InMemoryRepository<T> query(String methodName, Function<Object[], Object> query) {
+        queries.put(methodName, query);
+        return this;
+    }
+
+    Stream<T> stream() {
+        return entities.values().stream();
+    }
+
+    <R> R proxy(Class<R> repositoryType) {
+        return repositoryType.cast(Proxy.newProxyInstance(
+                repositoryType.getClassLoader(), new Class<?>[]{repositoryType}, this));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> "InMemoryRepository";
+            };
+        }
+
+        Function<Object[], Object> query = queries.get(method.getName());
+        if (query != null) {
+            return query.apply(args != null ? args : new Object[0]);
+        }
+
+        return switch (method.getName()) {
+            case "save", "saveAndFlush" -> save((T) args[0]);
+            case "saveAll" -> {
+                List<T> saved = new ArrayList<>();
+                ((Iterable<T>) args[0]).forEach(entity -> saved.add(save(entity)));
+                yield saved;
+            }
+            case "findById" -> Optional.ofNullable(entities.get(args[0]));
+            case "getReferenceById", "getById" -> entities.get(args[0]);
+            case "existsById" -> entities.containsKey(args[0]);
+            case "findAll" -> args == null ? new ArrayList<>(entities.values()) : emptyValue(method.getReturnType());
+            case "count" -> (long) entities.size();
+            default -> emptyValue(method.getReturnType());
+        };
+    }
+
+    private T save(T entity) {
+        try {
+            Object id = entity.getClass().getMethod("getId").invoke(entity);
+            if (id == null) {
+                id = UUID.randomUUID();
+                entity.getClass().getMethod("setId", UUID.class).invoke(entity, id);
+            }
+            entities.put(id, entity);
+            return entity;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Entity without a UUID id: " + entity.getClass(), e);
+        }
+    }
+
+    private static Object emptyValue(Class<?> type) {
+        if (type == Optional.class) {
+            return Optional.empty();
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            return List.of();
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        return null;
+    }
+}
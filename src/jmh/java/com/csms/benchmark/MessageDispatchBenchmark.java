@@ -0,0 +1,64 @@
+package com.csms.benchmark;
+
+import com.csms.websocket.OcppFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code OcppMessageService.handleMessage} against in-memory repositories, so the numbers
+ * reflect the CSMS's own CPU and allocation cost per message rather than the database.
+ * {@link #decodeAndHandle} adds frame decoding to approximate a whole inbound CALL.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageDispatchBenchmark {
+
+    @Param({"BootNotification", "StatusNotification", "Heartbeat", "Authorize", "MeterValues"})
+    private String action;
+
+    private InMemoryCsms csms;
+    private String frame;
+    private OcppFrame decoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        csms = new InMemoryCsms();
+        frame = OcppFrames.forAction(action);
+        decoded = csms.codec.decode(frame);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        csms.close();
+    }
+
+    @Benchmark
+    public String handle() {
+        return csms.messageService.handleMessage(
+                OcppFrames.CHARGE_POINT_ID, decoded.getMessageId(), decoded.getAction(), decoded.getPayload());
+    }
+
+    @Benchmark
+    public String decodeAndHandle() throws Exception {
+        OcppFrame call = csms.codec.decode(frame);
+        return csms.messageService.handleMessage(
+                OcppFrames.CHARGE_POINT_ID, call.getMessageId(), call.getAction(), call.getPayload());
+    }
+}
@@ -0,0 +1,86 @@
+package com.csms.benchmark;
+
+import com.csms.dto.ocpp.StopTransactionRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code MeterValueService.storeMeterValues}: mapping OCPP sampled values to
+ * {@code MeterSample}s. The batch writer is replaced by a counter, so only the mapping
+ * is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MeterValueMappingBenchmark {
+
+    private static final String[][] MEASURANDS = {
+            {"Energy.Active.Import.Register", null, "Wh"},
+            {"Power.Active.Import", null, "W"},
+            {"Current.Import", "L1", "A"},
+            {"Voltage", "L1-N", "V"}
+    };
+
+    /** Sampled values per message: a periodic sample, and a StopTransaction with buffered data. */
+    @Param({"4", "96"})
+    private int samples;
+
+    private InMemoryCsms csms;
+    private UUID stationId;
+    private List<StopTransactionRequest.MeterValue> meterValues;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        csms = new InMemoryCsms();
+        stationId = UUID.randomUUID();
+        meterValues = new ArrayList<>();
+
+        LocalDateTime timestamp = LocalDateTime.of(2024, 5, 1, 10, 0);
+        for (int i = 0; i < samples; i += MEASURANDS.length) {
+            StopTransactionRequest.MeterValue meterValue = new StopTransactionRequest.MeterValue();
+            meterValue.setTimestamp(timestamp.plusMinutes(i));
+            meterValue.setSampledValue(new ArrayList<>());
+            for (String[] measurand : MEASURANDS) {
+                StopTransactionRequest.MeterValue.SampledValue sampledValue = new StopTransactionRequest.MeterValue.SampledValue();
+                sampledValue.setValue(Integer.toString(15_000 + i));
+                sampledValue.setContext("Sample.Periodic");
+                sampledValue.setMeasurand(measurand[0]);
+                sampledValue.setPhase(measurand[1]);
+                sampledValue.setUnit(measurand[2]);
+                meterValue.getSampledValue().add(sampledValue);
+            }
+            meterValues.add(meterValue);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        csms.close();
+    }
+
+    @Benchmark
+    public long storeMeterValues() {
+        csms.meterValueService.storeMeterValues(stationId, 1, 1042, meterValues);
+        return csms.meterValueWriter.getSamples();
+    }
+}
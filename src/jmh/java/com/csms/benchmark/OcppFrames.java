@@ -0,0 +1,45 @@
+package com.csms.benchmark;
+
+/**
+ * Representative inbound OCPP 1.6 frames, sized like what a single-socket AC charger sends.
+ */
+final class OcppFrames {
+
+    static final String CHARGE_POINT_ID = "CP-BENCH-0001";
+    static final String ID_TAG = "TAG-0001";
+
+    static final String BOOT_NOTIFICATION = "[2,\"9b0a6f39-0001\",\"BootNotification\",{"
+            + "\"chargePointVendor\":\"VendorX\",\"chargePointModel\":\"AC-22kW\","
+            + "\"chargePointSerialNumber\":\"SN-000123\",\"firmwareVersion\":\"1.4.2\"}]";
+
+    static final String STATUS_NOTIFICATION = "[2,\"9b0a6f39-0002\",\"StatusNotification\",{"
+            + "\"connectorId\":1,\"errorCode\":\"NoError\",\"status\":\"Charging\","
+            + "\"timestamp\":\"2024-05-01T10:15:30\"}]";
+
+    static final String HEARTBEAT = "[2,\"9b0a6f39-0003\",\"Heartbeat\",{}]";
+
+    static final String AUTHORIZE = "[2,\"9b0a6f39-0004\",\"Authorize\",{\"idTag\":\"" + ID_TAG + "\"}]";
+
+    static final String METER_VALUES = "[2,\"9b0a6f39-0005\",\"MeterValues\",{"
+            + "\"connectorId\":1,\"transactionId\":1042,\"meterValue\":[{\"timestamp\":\"2024-05-01T10:16:00\","
+            + "\"sampledValue\":["
+            + "{\"value\":\"15320\",\"context\":\"Sample.Periodic\",\"measurand\":\"Energy.Active.Import.Register\",\"unit\":\"Wh\"},"
+            + "{\"value\":\"7260\",\"context\":\"Sample.Periodic\",\"measurand\":\"Power.Active.Import\",\"unit\":\"W\"},"
+            + "{\"value\":\"31\",\"context\":\"Sample.Periodic\",\"measurand\":\"Current.Import\",\"phase\":\"L1\",\"unit\":\"A\"},"
+            + "{\"value\":\"231\",\"context\":\"Sample.Periodic\",\"measurand\":\"Voltage\",\"phase\":\"L1-N\",\"unit\":\"V\"}"
+            + "]}]}]";
+
+    private OcppFrames() {
+    }
+
+    static String forAction(String action) {
+        return switch (action) {
+            case "BootNotification" -> BOOT_NOTIFICATION;
+            case "StatusNotification" -> STATUS_NOTIFICATION;
+            case "Heartbeat" -> HEARTBEAT;
+            case "Authorize" -> AUTHORIZE;
+            case "MeterValues" -> METER_VALUES;
+            default -> throw new IllegalArgumentException("No sample frame for " + action);
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package com.csms.benchmark;
+
+import com.csms.scheduler.StationOfflineDetector;
+import com.csms.scheduler.StationOfflineListener;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code StationOfflineDetector}: re-arming the heartbeat deadline of one station out of
+ * a large fleet, as every inbound frame does. {@code rearm} pushes the deadline back,
+ * which only updates it; {@code changeInterval} switches the whole fleet between a short
+ * and a long HeartbeatInterval on alternate passes, so half the passes bring deadlines
+ * forward and hand them back to the wheel's worker.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OfflineDeadlineBenchmark {
+
+    @Param({"10000", "100000"})
+    private int stations;
+
+    private StationOfflineDetector detector;
+    private String[] chargePointIds;
+    private int next;
+    private int pass;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        detector = new StationOfflineDetector(
+                new StaticListableBeanFactory().getBeanProvider(StationOfflineListener.class),
+                new SimpleMeterRegistry(), 300, 2.0, 1000, 1024);
+        chargePointIds = new String[stations];
+        for (int i = 0; i < stations; i++) {
+            chargePointIds[i] = "CP-" + i;
+            detector.recordActivity(chargePointIds[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        detector.shutdown();
+    }
+
+    @Benchmark
+    public void rearm() {
+        detector.recordActivity(chargePointIds[next()]);
+    }
+
+    @Benchmark
+    public void changeInterval() {
+        detector.setHeartbeatInterval(chargePointIds[next()], (pass & 1) == 0 ? 60 : 300);
+    }
+
+    private int next() {
+        int station = next++;
+        if (next == stations) {
+            next = 0;
+            pass++;
+        }
+        return station;
+    }
+}
@@ -0,0 +1,77 @@
+package com.csms.benchmark;
+
+import com.csms.dto.ocpp.BootNotificationResponse;
+import com.csms.dto.ocpp.HeartbeatResponse;
+import com.csms.dto.ocpp.StartTransactionResponse;
+import com.csms.dto.ocpp.StatusNotificationResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response serialization through the {@code JacksonConfig} ObjectMapper: the payload on
+ * its own, and wrapped in a CALLRESULT frame by the codec against the previous
+ * writeValueAsString + String.format approach, which is kept here as the baseline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseSerializationBenchmark {
+
+    @Param({"BootNotification", "StatusNotification", "Heartbeat", "StartTransaction"})
+    private String action;
+
+    private InMemoryCsms csms;
+    private Object response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        csms = new InMemoryCsms();
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 10, 15, 30);
+        response = switch (action) {
+            case "BootNotification" -> new BootNotificationResponse("Accepted", now, 300);
+            case "StatusNotification" -> new StatusNotificationResponse();
+            case "Heartbeat" -> new HeartbeatResponse(now);
+            case "StartTransaction" -> new StartTransactionResponse(
+                    new StartTransactionResponse.IdTagInfo("Accepted", null, now.plusDays(30)), 1042);
+            default -> throw new IllegalArgumentException(action);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        csms.close();
+    }
+
+    @Benchmark
+    public String payload() throws Exception {
+        return csms.objectMapper.writeValueAsString(response);
+    }
+
+    @Benchmark
+    public String callResultFrame() throws Exception {
+        return csms.codec.encodeCallResult("9b0a6f39-0001", response);
+    }
+
+    @Benchmark
+    public String formattedFrame() throws Exception {
+        String payloadJson = csms.objectMapper.writeValueAsString(response);
+        return String.format("[3,\"%s\",%s]", "9b0a6f39-0001", payloadJson);
+    }
+}
@@ -0,0 +1,58 @@
+package com.csms.config;
+
+import com.csms.metrics.DatabaseTime;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds repository call and commit times into {@link DatabaseTime}, which OCPP handlers
+ * use to report their database time as {@code ocpp.message.db}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor repositoryTimingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(
+                            invocation -> DatabaseTime.add(invocation.getDuration(TimeUnit.NANOSECONDS))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public TransactionExecutionListener commitTimingListener() {
+        return new TransactionExecutionListener() {
+            @Override
+            public void beforeCommit(TransactionExecution transaction) {
+                DatabaseTime.markCommitStart();
+            }
+
+            @Override
+            public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+                DatabaseTime.addSinceCommitStart();
+            }
+
+            @Override
+            public void beforeRollback(TransactionExecution transaction) {
+                DatabaseTime.markCommitStart();
+            }
+
+            @Override
+            public void afterRollback(TransactionExecution transaction, Throwable rollbackFailure) {
+                DatabaseTime.addSinceCommitStart();
+            }
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package com.csms.config;
 
+import com.csms.websocket.OcppAdmissionController;
 import com.csms.websocket.OcppWebSocketHandler;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
@@ -13,10 +14,12 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final OcppWebSocketHandler ocppWebSocketHandler;
+    private final OcppAdmissionController ocppAdmissionController;
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(ocppWebSocketHandler, "/ocpp/{chargePointId}")
+                .addInterceptors(ocppAdmissionController)
                 .setAllowedOrigins("*");
     }
 }
@@ -0,0 +1,67 @@
+package com.csms.controller;
+
+import com.csms.dto.ApiResponse;
+import com.csms.dto.BulkCommandRequest;
+import com.csms.dto.BulkCommandResult;
+import com.csms.dto.BulkCommandStatus;
+import com.csms.service.BulkCommandService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/bulk-commands")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class BulkCommandController {
+
+    private final BulkCommandService bulkCommandService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<BulkCommandStatus>> startJob(@RequestBody BulkCommandRequest request) {
+        BulkCommandStatus status = bulkCommandService.start(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(status));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<BulkCommandStatus>> getJobs() {
+        return ResponseEntity.ok(bulkCommandService.findAll());
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<BulkCommandStatus> getJob(@PathVariable String jobId) {
+        return bulkCommandService.getStatus(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{jobId}/results")
+    public ResponseEntity<List<BulkCommandResult>> getResults(
+            @PathVariable String jobId,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "1000") int limit) {
+
+        return bulkCommandService.getResults(jobId, offset, limit)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJob(@PathVariable String jobId) {
+        return bulkCommandService.subscribe(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<BulkCommandStatus> cancelJob(@PathVariable String jobId) {
+        return bulkCommandService.cancel(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
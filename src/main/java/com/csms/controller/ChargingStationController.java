@@ -1,16 +1,25 @@
 package com.csms.controller;
 
+import com.csms.dto.ApiResponse;
+import com.csms.dto.ChargingStationQuery;
+import com.csms.dto.ChargingStationSummary;
+import com.csms.dto.CursorPage;
+import com.csms.dto.ocpp.*;
 import com.csms.model.ChargingStation;
 import com.csms.model.Connector;
 import com.csms.model.Transaction;
+import com.csms.service.ChargingStationRegistry;
+import com.csms.service.ChargingStationRegistry.StationEntry;
 import com.csms.service.ChargingStationService;
+import com.csms.service.CursorQueryService;
 import com.csms.service.TransactionService;
 import com.csms.service.RemoteCommandService;
-import com.csms.repository.ConnectorRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.UUID;
@@ -24,14 +33,20 @@ import java.util.concurrent.CompletableFuture;
 public class ChargingStationController {
 
     private final ChargingStationService chargingStationService;
+    private final CursorQueryService cursorQueryService;
     private final TransactionService transactionService;
     private final RemoteCommandService remoteCommandService;
-    private final ConnectorRepository connectorRepository;
+    private final ChargingStationRegistry chargingStationRegistry;
 
     @GetMapping
-    public ResponseEntity<List<ChargingStation>> getAllChargingStations() {
-        List<ChargingStation> stations = chargingStationService.findAll();
-        return ResponseEntity.ok(stations);
+    public ResponseEntity<CursorPage<ChargingStationSummary>> getAllChargingStations(ChargingStationQuery query) {
+        return ResponseEntity.ok(cursorQueryService.findStations(query));
+    }
+
+    @GetMapping(produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamChargingStations(ChargingStationQuery query) {
+        StreamingResponseBody body = output -> cursorQueryService.streamStations(query, output);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
     }
 
     @GetMapping("/{chargePointId}")
@@ -43,11 +58,10 @@ public class ChargingStationController {
 
     @GetMapping("/{chargePointId}/connectors")
     public ResponseEntity<List<Connector>> getConnectors(@PathVariable String chargePointId) {
-        return chargingStationService.findByChargePointId(chargePointId)
-                .map(station -> {
-                    List<Connector> connectors = connectorRepository.findByChargingStationId(station.getId());
-                    return ResponseEntity.ok(connectors);
-                })
+        // Served from memory; only stations that are not connected are looked up
+        return chargingStationRegistry.getCached(chargePointId).map(StationEntry::getId)
+                .or(() -> chargingStationService.findByChargePointId(chargePointId).map(ChargingStation::getId))
+                .map(stationId -> ResponseEntity.ok(chargingStationService.getConnectors(stationId)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -62,43 +76,39 @@ public class ChargingStationController {
     }
 
     @PostMapping("/{chargePointId}/remote-start")
-    public CompletableFuture<ResponseEntity<String>> remoteStartTransaction(
+    public CompletableFuture<ResponseEntity<ApiResponse<RemoteStartTransactionResponse>>> remoteStartTransaction(
             @PathVariable String chargePointId,
             @RequestParam String idTag,
             @RequestParam Integer connectorId) {
 
         return remoteCommandService.sendRemoteStartTransaction(chargePointId, idTag, connectorId)
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(ex -> ResponseEntity.badRequest().body("Error: " + ex.getMessage()));
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response)));
     }
 
     @PostMapping("/{chargePointId}/remote-stop")
-    public CompletableFuture<ResponseEntity<String>> remoteStopTransaction(
+    public CompletableFuture<ResponseEntity<ApiResponse<RemoteStopTransactionResponse>>> remoteStopTransaction(
             @PathVariable String chargePointId,
             @RequestParam Integer transactionId) {
 
         return remoteCommandService.sendRemoteStopTransaction(chargePointId, transactionId)
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(ex -> ResponseEntity.badRequest().body("Error: " + ex.getMessage()));
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response)));
     }
 
     @PostMapping("/{chargePointId}/reset")
-    public CompletableFuture<ResponseEntity<String>> resetChargingStation(
+    public CompletableFuture<ResponseEntity<ApiResponse<ResetResponse>>> resetChargingStation(
             @PathVariable String chargePointId,
             @RequestParam(defaultValue = "Soft") String type) {
 
         return remoteCommandService.sendReset(chargePointId, type)
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(ex -> ResponseEntity.badRequest().body("Error: " + ex.getMessage()));
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response)));
     }
 
     @PostMapping("/{chargePointId}/unlock-connector")
-    public CompletableFuture<ResponseEntity<String>> unlockConnector(
+    public CompletableFuture<ResponseEntity<ApiResponse<UnlockConnectorResponse>>> unlockConnector(
             @PathVariable String chargePointId,
             @RequestParam Integer connectorId) {
 
         return remoteCommandService.sendUnlockConnector(chargePointId, connectorId)
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(ex -> ResponseEntity.badRequest().body("Error: " + ex.getMessage()));
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response)));
     }
 }
\ No newline at end of file
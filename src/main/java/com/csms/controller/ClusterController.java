@@ -0,0 +1,51 @@
+package com.csms.controller;
+
+import com.csms.dto.ApiResponse;
+import com.csms.dto.ClusterCallRequest;
+import com.csms.dto.ClusterNodeSummary;
+import com.csms.service.ClusterCommandForwarder;
+import com.csms.service.RemoteCommandService;
+import com.csms.service.StationOwnershipRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/cluster")
+@ConditionalOnProperty(name = "ocpp.cluster.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class ClusterController {
+
+    private final StationOwnershipRegistry stationOwnershipRegistry;
+    private final RemoteCommandService remoteCommandService;
+    private final ClusterCommandForwarder clusterCommandForwarder;
+
+    @GetMapping("/nodes")
+    public ResponseEntity<ApiResponse<List<ClusterNodeSummary>>> getNodes() {
+        return ResponseEntity.ok(ApiResponse.success(stationOwnershipRegistry.getNodes()));
+    }
+
+    /**
+     * Called by the other nodes for charge points connected to this one.
+     */
+    @PostMapping("/stations/{chargePointId}/calls")
+    public CompletableFuture<ResponseEntity<ApiResponse<JsonNode>>> forwardedCall(
+            @PathVariable String chargePointId,
+            @RequestHeader(value = ClusterCommandForwarder.SECRET_HEADER, required = false) String secret,
+            @RequestBody ClusterCallRequest request) {
+
+        if (!clusterCommandForwarder.acceptsSecret(secret)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.error("Invalid cluster secret")));
+        }
+        return remoteCommandService.sendForwardedCommand(chargePointId, request.getAction(), request.getPayload())
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response)));
+    }
+}
@@ -1,5 +1,7 @@
 package com.csms.controller;
 
+import com.csms.dto.ApiResponse;
+import com.csms.dto.ocpp.*;
 import com.csms.model.ChargePointConfiguration;
 import com.csms.service.ConfigurationService;
 import com.csms.service.RemoteCommandService;
@@ -26,20 +28,18 @@ public class ConfigurationController {
     }
 
     @PostMapping("/{chargePointId}/change")
-    public CompletableFuture<ResponseEntity<String>> changeConfiguration(
+    public CompletableFuture<ResponseEntity<ApiResponse<ChangeConfigurationResponse>>> changeConfiguration(
             @PathVariable String chargePointId,
             @RequestParam String key,
             @RequestParam String value) {
 
         return remoteCommandService.sendChangeConfiguration(chargePointId, key, value)
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(ex -> ResponseEntity.badRequest().body("Error: " + ex.getMessage()));
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response)));
     }
 
     @PostMapping("/{chargePointId}/clear-cache")
-    public CompletableFuture<ResponseEntity<String>> clearCache(@PathVariable String chargePointId) {
+    public CompletableFuture<ResponseEntity<ApiResponse<ClearCacheResponse>>> clearCache(@PathVariable String chargePointId) {
         return remoteCommandService.sendClearCache(chargePointId)
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(ex -> ResponseEntity.badRequest().body("Error: " + ex.getMessage()));
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response)));
     }
 }
\ No newline at end of file
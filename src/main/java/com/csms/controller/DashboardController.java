@@ -1,12 +1,14 @@
 package com.csms.controller;
 
 import com.csms.dto.DashboardStats;
-import com.csms.service.ChargingStationService;
-import com.csms.service.TransactionService;
-import com.csms.repository.ConnectorRepository;
+import com.csms.service.DashboardStatsService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/api/dashboard")
@@ -14,27 +16,15 @@ import org.springframework.web.bind.annotation.*;
 @CrossOrigin(origins = "*")
 public class DashboardController {
 
-    private final ChargingStationService chargingStationService;
-    private final TransactionService transactionService;
-    private final ConnectorRepository connectorRepository;
+    private final DashboardStatsService dashboardStatsService;
 
     @GetMapping("/stats")
     public ResponseEntity<DashboardStats> getDashboardStats() {
-        long totalStations = chargingStationService.findAll().size();
-        long offlineStations = chargingStationService.findOfflineStations(10).size(); // 10 min timeout
-        long onlineStations = totalStations - offlineStations;
-        long activeTransactions = transactionService.findActiveTransactions().size();
-
-        long totalConnectors = connectorRepository.count();
-        long availableConnectors = connectorRepository.findByStatus("Available").size();
-        long chargingConnectors = connectorRepository.findByStatus("Charging").size();
-        long faultedConnectors = connectorRepository.findByStatus("Faulted").size();
-
-        DashboardStats stats = new DashboardStats(
-                totalStations, onlineStations, offlineStations, activeTransactions,
-                totalConnectors, availableConnectors, chargingConnectors, faultedConnectors
-        );
+        return ResponseEntity.ok(dashboardStatsService.getStats());
+    }
 
-        return ResponseEntity.ok(stats);
+    @GetMapping(value = "/stats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDashboardStats() throws IOException {
+        return ResponseEntity.ok(dashboardStatsService.subscribe());
     }
 }
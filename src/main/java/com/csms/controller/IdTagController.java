@@ -1,14 +1,24 @@
 package com.csms.controller;
 
+import com.csms.dto.BulkImportResult;
+import com.csms.dto.CursorPage;
+import com.csms.dto.IdTagQuery;
+import com.csms.dto.IdTagSummary;
 import com.csms.model.IdTag;
 import com.csms.repository.IdTagRepository;
 import com.csms.dto.ocpp.StartTransactionResponse.IdTagInfo;
 import com.csms.service.AuthorizationService;
+import com.csms.service.CursorQueryService;
+import com.csms.service.IdTagBulkService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
 
 @RestController
 @RequestMapping("/api/id-tags")
@@ -18,19 +28,51 @@ public class IdTagController {
 
     private final IdTagRepository idTagRepository;
     private final AuthorizationService authorizationService;
+    private final IdTagBulkService idTagBulkService;
+    private final CursorQueryService cursorQueryService;
 
     @GetMapping
-    public ResponseEntity<List<IdTag>> getAllIdTags() {
-        List<IdTag> idTags = idTagRepository.findAll();
-        return ResponseEntity.ok(idTags);
+    public ResponseEntity<CursorPage<IdTagSummary>> getAllIdTags(IdTagQuery query) {
+        return ResponseEntity.ok(cursorQueryService.findIdTags(query));
+    }
+
+    @GetMapping(produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamIdTags(IdTagQuery query) {
+        StreamingResponseBody body = output -> cursorQueryService.streamIdTags(query, output);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
     }
 
     @PostMapping
     public ResponseEntity<IdTag> createIdTag(@RequestBody IdTag idTag) {
         IdTag savedTag = idTagRepository.save(idTag);
+        authorizationService.invalidate(savedTag.getIdTag());
         return ResponseEntity.ok(savedTag);
     }
 
+    @PostMapping(value = "/bulk", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<BulkImportResult> importIdTags(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        String format = contentType.startsWith("text/csv") ? IdTagBulkService.FORMAT_CSV : IdTagBulkService.FORMAT_NDJSON;
+        return ResponseEntity.ok(idTagBulkService.importTags(body, format));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportIdTags(@RequestParam(defaultValue = "ndjson") String format) {
+        if (!IdTagBulkService.FORMAT_CSV.equals(format) && !IdTagBulkService.FORMAT_NDJSON.equals(format)) {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+        MediaType mediaType = IdTagBulkService.FORMAT_CSV.equals(format)
+                ? MediaType.parseMediaType("text/csv")
+                : MediaType.parseMediaType("application/x-ndjson");
+
+        StreamingResponseBody body = output -> idTagBulkService.exportTags(output, format);
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"id-tags." + format + "\"")
+                .body(body);
+    }
+
     @PutMapping("/{idTag}")
     public ResponseEntity<IdTag> updateIdTag(@PathVariable String idTag, @RequestBody IdTag updatedTag) {
         return idTagRepository.findByIdTag(idTag)
@@ -38,7 +80,9 @@ public class IdTagController {
                     existingTag.setStatus(updatedTag.getStatus());
                     existingTag.setExpiryDate(updatedTag.getExpiryDate());
                     existingTag.setParentIdTag(updatedTag.getParentIdTag());
-                    return ResponseEntity.ok(idTagRepository.save(existingTag));
+                    IdTag savedTag = idTagRepository.save(existingTag);
+                    authorizationService.invalidate(idTag);
+                    return ResponseEntity.ok(savedTag);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -54,6 +98,7 @@ public class IdTagController {
         return idTagRepository.findByIdTag(idTag)
                 .map(tag -> {
                     idTagRepository.delete(tag);
+                    authorizationService.invalidate(idTag);
                     return ResponseEntity.ok().<Void>build();
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -1,13 +1,23 @@
 package com.csms.controller;
 
-import com.csms.model.MeterValue;
-import com.csms.service.MeterValueService;
+import com.csms.dto.CursorPage;
+import com.csms.dto.MeterValueExportQuery;
+import com.csms.dto.MeterValueQuery;
+import com.csms.dto.MeterValueReading;
+import com.csms.dto.MeterValueSeries;
+import com.csms.dto.MeterValueSeriesQuery;
+import com.csms.service.CursorQueryService;
+import com.csms.service.MeterValueExportService;
+import com.csms.service.MeterValueRollupService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/meter-values")
@@ -15,19 +25,80 @@ import java.util.UUID;
 @CrossOrigin(origins = "*")
 public class MeterValueController {
 
-    private final MeterValueService meterValueService;
+    private final CursorQueryService cursorQueryService;
+    private final MeterValueRollupService meterValueRollupService;
+    private final MeterValueExportService meterValueExportService;
 
     @GetMapping("/transaction/{transactionId}")
-    public ResponseEntity<List<MeterValue>> getMeterValuesByTransaction(@PathVariable Integer transactionId) {
-        List<MeterValue> meterValues = meterValueService.getMeterValuesByTransaction(transactionId);
-        return ResponseEntity.ok(meterValues);
+    public ResponseEntity<CursorPage<MeterValueReading>> getMeterValuesByTransaction(
+            @PathVariable Integer transactionId,
+            MeterValueQuery query) {
+        return ResponseEntity.ok(cursorQueryService.findMeterValuesByTransaction(transactionId, query));
+    }
+
+    @GetMapping(value = "/transaction/{transactionId}", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamMeterValuesByTransaction(
+            @PathVariable Integer transactionId,
+            MeterValueQuery query) {
+        StreamingResponseBody body = output ->
+                cursorQueryService.streamMeterValuesByTransaction(transactionId, query, output);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
     }
 
     @GetMapping("/connector/{chargingStationId}/{connectorId}")
-    public ResponseEntity<List<MeterValue>> getMeterValuesByConnector(
+    public ResponseEntity<CursorPage<MeterValueReading>> getMeterValuesByConnector(
+            @PathVariable UUID chargingStationId,
+            @PathVariable Integer connectorId,
+            MeterValueQuery query) {
+        return ResponseEntity.ok(cursorQueryService.findMeterValuesByConnector(chargingStationId, connectorId, query));
+    }
+
+    @GetMapping(value = "/connector/{chargingStationId}/{connectorId}", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamMeterValuesByConnector(
             @PathVariable UUID chargingStationId,
-            @PathVariable Integer connectorId) {
-        List<MeterValue> meterValues = meterValueService.getMeterValuesByConnector(chargingStationId, connectorId);
-        return ResponseEntity.ok(meterValues);
+            @PathVariable Integer connectorId,
+            MeterValueQuery query) {
+        StreamingResponseBody body = output ->
+                cursorQueryService.streamMeterValuesByConnector(chargingStationId, connectorId, query, output);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    @GetMapping("/connector/{chargingStationId}/{connectorId}/series")
+    public ResponseEntity<MeterValueSeries> getMeterValueSeries(
+            @PathVariable UUID chargingStationId,
+            @PathVariable Integer connectorId,
+            MeterValueSeriesQuery query) {
+        return ResponseEntity.ok(meterValueRollupService.getSeries(chargingStationId, connectorId, query));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMeterValues(
+            MeterValueExportQuery query,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        meterValueExportService.validate(query, format);
+        MediaType mediaType = switch (format) {
+            case MeterValueExportService.FORMAT_CSV -> MediaType.parseMediaType("text/csv");
+            case MeterValueExportService.FORMAT_NDJSON -> MediaType.parseMediaType("application/x-ndjson");
+            default -> MediaType.APPLICATION_OCTET_STREAM;
+        };
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        StreamingResponseBody body = output -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(output, 1 << 16);
+                meterValueExportService.export(query, format, compressed);
+                compressed.finish();
+            } else {
+                meterValueExportService.export(query, format, output);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"meter-values." + format + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 }
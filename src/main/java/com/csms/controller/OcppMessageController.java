@@ -0,0 +1,31 @@
+package com.csms.controller;
+
+import com.csms.dto.CursorPage;
+import com.csms.dto.OcppMessageEntry;
+import com.csms.dto.OcppMessageQuery;
+import com.csms.service.CursorQueryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/api/ocpp-messages")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class OcppMessageController {
+
+    private final CursorQueryService cursorQueryService;
+
+    @GetMapping
+    public ResponseEntity<CursorPage<OcppMessageEntry>> getMessages(OcppMessageQuery query) {
+        return ResponseEntity.ok(cursorQueryService.findOcppMessages(query));
+    }
+
+    @GetMapping(produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamMessages(OcppMessageQuery query) {
+        StreamingResponseBody body = output -> cursorQueryService.streamOcppMessages(query, output);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+}
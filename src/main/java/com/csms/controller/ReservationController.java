@@ -1,5 +1,7 @@
 package com.csms.controller;
 
+import com.csms.dto.ApiResponse;
+import com.csms.dto.ocpp.*;
 import com.csms.service.RemoteCommandService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -18,7 +20,7 @@ public class ReservationController {
     private final RemoteCommandService remoteCommandService;
 
     @PostMapping("/{chargePointId}/reserve")
-    public CompletableFuture<ResponseEntity<String>> reserveNow(
+    public CompletableFuture<ResponseEntity<ApiResponse<ReserveNowResponse>>> reserveNow(
             @PathVariable String chargePointId,
             @RequestParam Integer connectorId,
             @RequestParam String idTag,
@@ -26,17 +28,15 @@ public class ReservationController {
             @RequestParam(required = false) String parentIdTag) {
 
         return remoteCommandService.sendReserveNow(chargePointId, connectorId, expiryDate, idTag, parentIdTag)
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(ex -> ResponseEntity.badRequest().body("Error: " + ex.getMessage()));
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response)));
     }
 
     @PostMapping("/{chargePointId}/cancel")
-    public CompletableFuture<ResponseEntity<String>> cancelReservation(
+    public CompletableFuture<ResponseEntity<ApiResponse<CancelReservationResponse>>> cancelReservation(
             @PathVariable String chargePointId,
             @RequestParam Integer reservationId) {
 
         return remoteCommandService.sendCancelReservation(chargePointId, reservationId)
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(ex -> ResponseEntity.badRequest().body("Error: " + ex.getMessage()));
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success(response)));
     }
 }
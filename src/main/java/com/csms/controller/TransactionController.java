@@ -1,10 +1,16 @@
 package com.csms.controller;
 
+import com.csms.dto.CursorPage;
+import com.csms.dto.TransactionQuery;
+import com.csms.dto.TransactionSummary;
 import com.csms.model.Transaction;
+import com.csms.service.CursorQueryService;
 import com.csms.service.TransactionService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -15,11 +21,17 @@ import java.util.List;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final CursorQueryService cursorQueryService;
 
     @GetMapping
-    public ResponseEntity<List<Transaction>> getAllTransactions() {
-        List<Transaction> transactions = transactionService.findActiveTransactions();
-        return ResponseEntity.ok(transactions);
+    public ResponseEntity<CursorPage<TransactionSummary>> getAllTransactions(TransactionQuery query) {
+        return ResponseEntity.ok(cursorQueryService.findTransactions(query));
+    }
+
+    @GetMapping(produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamTransactions(TransactionQuery query) {
+        StreamingResponseBody body = output -> cursorQueryService.streamTransactions(query, output);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
     }
 
     @GetMapping("/active")
@@ -34,4 +46,4 @@ public class TransactionController {
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+}
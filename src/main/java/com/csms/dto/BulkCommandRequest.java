@@ -0,0 +1,33 @@
+package com.csms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkCommandRequest {
+    private String action; // Reset, ChangeConfiguration, ClearCache, GetConfiguration, UnlockConnector
+    private Map<String, String> parameters = Map.of(); // type, key, value, connectorId
+    private StationSelector stations = new StationSelector();
+    private Integer concurrency; // per job, capped by ocpp.bulk.max-concurrency-per-job
+
+    /**
+     * Criteria are combined with AND; an explicit ID list is used as given.
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class StationSelector {
+        private List<String> chargePointIds;
+        private String vendor;
+        private String model;
+        private String firmwareVersion;
+        private boolean allStations;
+        private boolean connectedOnly = true;
+    }
+}
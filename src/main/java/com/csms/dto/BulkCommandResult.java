@@ -0,0 +1,15 @@
+package com.csms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkCommandResult {
+    private String chargePointId;
+    private String outcome;
+    private String detail;
+    private long latencyMillis;
+}
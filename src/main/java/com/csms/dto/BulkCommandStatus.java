@@ -0,0 +1,25 @@
+package com.csms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkCommandStatus {
+    private String jobId;
+    private String action;
+    private String state; // Running, Completed, Cancelled
+    private int total;
+    private int completed;
+    private int inFlight;
+    private Map<String, Long> outcomes; // response status or failure, e.g. Accepted, Rejected, Timeout, Unavailable
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+    private long durationMillis;
+    private double stationsPerSecond;
+}
@@ -0,0 +1,19 @@
+package com.csms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkImportResult {
+    private long processed;
+    private long upserted;
+    private long rejected;
+    private long durationMillis;
+    private List<String> errors = new ArrayList<>();
+}
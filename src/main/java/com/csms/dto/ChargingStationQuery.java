@@ -0,0 +1,13 @@
+package com.csms.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ChargingStationQuery extends PageQuery {
+    private String vendor;
+    private String model;
+    private String firmwareVersion;
+    private String registrationStatus;
+}
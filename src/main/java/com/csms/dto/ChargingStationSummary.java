@@ -0,0 +1,21 @@
+package com.csms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChargingStationSummary {
+    private UUID id;
+    private String chargePointId;
+    private String chargePointVendor;
+    private String chargePointModel;
+    private String firmwareVersion;
+    private String registrationStatus;
+    private LocalDateTime lastHeartbeat;
+}
@@ -0,0 +1,17 @@
+package com.csms.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A CALL forwarded by another node to the node that holds the charge point's connection.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ClusterCallRequest {
+    private String action;
+    private JsonNode payload;
+}
@@ -0,0 +1,15 @@
+package com.csms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ClusterNodeSummary {
+    private String nodeId;
+    private String url;
+    private int stations;
+    private boolean self;
+}
@@ -0,0 +1,12 @@
+package com.csms.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class IdTagQuery extends PageQuery {
+    private String status;
+    private String prefix;
+    private String parentIdTag;
+}
@@ -0,0 +1,17 @@
+package com.csms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IdTagSummary {
+    private String idTag;
+    private String parentIdTag;
+    private LocalDateTime expiryDate;
+    private String status;
+}
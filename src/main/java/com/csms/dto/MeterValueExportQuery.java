@@ -0,0 +1,22 @@
+package com.csms.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+public class MeterValueExportQuery {
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from; // inclusive
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to; // exclusive
+
+    private String chargePointId;
+    private Integer transactionId;
+    private String after; // "timestamp,id" of the last row received, to resume an interrupted export
+}
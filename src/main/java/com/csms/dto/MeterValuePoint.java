@@ -0,0 +1,23 @@
+package com.csms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One bucket of a meter value series; a raw reading has all statistics equal to its value.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MeterValuePoint {
+    private LocalDateTime timestamp;
+    private Double min;
+    private Double max;
+    private Double avg;
+    private Double last;
+    private Long count;
+    private String unit;
+}
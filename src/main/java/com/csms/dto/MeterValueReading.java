@@ -0,0 +1,23 @@
+package com.csms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MeterValueReading {
+    private Long id;
+    private Integer connectorId;
+    private Integer transactionId;
+    private LocalDateTime timestamp;
+    private Double meterValue;
+    private String measurand;
+    private String phase;
+    private String unit;
+    private String context;
+    private String location;
+}
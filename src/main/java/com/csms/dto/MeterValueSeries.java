@@ -0,0 +1,15 @@
+package com.csms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MeterValueSeries {
+    private String resolution;
+    private List<MeterValuePoint> points;
+}
@@ -0,0 +1,22 @@
+package com.csms.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+public class MeterValueSeriesQuery {
+    private String measurand = "Energy.Active.Import.Register";
+    private String phase; // unphased values when absent
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from; // inclusive, defaults to a day before to
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to; // exclusive, defaults to now
+
+    private String resolution = "auto"; // auto, raw, 1m, 15m or 1h
+}
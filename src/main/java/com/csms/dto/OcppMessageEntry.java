@@ -0,0 +1,26 @@
+package com.csms.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OcppMessageEntry {
+    private Long id;
+    private LocalDateTime timestamp;
+    private String chargePointId;
+    private String direction;
+    private Integer messageType;
+    private String uniqueId;
+    private String action;
+    private String errorCode;
+    private String errorDescription;
+
+    @JsonRawValue
+    private String payload;
+}
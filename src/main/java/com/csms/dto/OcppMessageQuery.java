@@ -0,0 +1,22 @@
+package com.csms.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+public class OcppMessageQuery extends PageQuery {
+    private String chargePointId;
+    private String action; // replies carry the action of their CALL
+    private String direction; // IN or OUT
+    private String uniqueId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from; // inclusive
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to; // exclusive
+}
@@ -0,0 +1,15 @@
+package com.csms.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Paging parameters shared by the list endpoints, bound from the query string.
+ */
+@Getter
+@Setter
+public class PageQuery {
+    private String cursor;
+    private Integer limit;
+    private String sort; // asc or desc on the listing's key
+}
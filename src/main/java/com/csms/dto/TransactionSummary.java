@@ -0,0 +1,23 @@
+package com.csms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionSummary {
+    private Integer transactionId;
+    private String chargePointId;
+    private Integer connectorId;
+    private String idTag;
+    private LocalDateTime startTimestamp;
+    private LocalDateTime endTimestamp;
+    private Integer startMeterValue;
+    private Integer endMeterValue;
+    private String status;
+    private String reason;
+}
@@ -0,0 +1,12 @@
+package com.csms.dto.ocpp;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResetResponse {
+    private String status; // Accepted, Rejected
+}
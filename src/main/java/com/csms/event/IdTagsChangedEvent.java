@@ -0,0 +1,16 @@
+package com.csms.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Published when ID tags are created, changed or deleted on this node, so cached
+ * authorizations of them can be dropped across the cluster.
+ */
+@Data
+@AllArgsConstructor
+public class IdTagsChangedEvent {
+    private List<String> idTags;
+}
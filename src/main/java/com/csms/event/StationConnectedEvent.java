@@ -0,0 +1,13 @@
+package com.csms.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published when a charge point opens its OCPP WebSocket connection.
+ */
+@Data
+@AllArgsConstructor
+public class StationConnectedEvent {
+    private String chargePointId;
+}
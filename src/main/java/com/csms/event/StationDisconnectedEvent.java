@@ -0,0 +1,13 @@
+package com.csms.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published when a charge point's OCPP WebSocket connection is closed.
+ */
+@Data
+@AllArgsConstructor
+public class StationDisconnectedEvent {
+    private String chargePointId;
+}
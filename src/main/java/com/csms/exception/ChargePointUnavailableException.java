@@ -0,0 +1,16 @@
+package com.csms.exception;
+
+/**
+ * Thrown when a CALL can't be delivered to a charge point: it is not connected, it
+ * disconnected before answering, or too many calls are already queued for it.
+ */
+public class ChargePointUnavailableException extends RuntimeException {
+
+    public ChargePointUnavailableException(String message) {
+        super(message);
+    }
+
+    public ChargePointUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,5 +1,6 @@
 package com.csms.exception;
 
+import com.csms.dto.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -10,6 +11,7 @@ import org.springframework.web.context.request.WebRequest;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 @RestControllerAdvice
 @Slf4j
@@ -38,5 +40,21 @@ public class GlobalExceptionHandler {
 
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorDetails);
     }
-}
 
+    @ExceptionHandler(ChargePointUnavailableException.class)
+    public ResponseEntity<ApiResponse<Void>> handleChargePointUnavailable(ChargePointUnavailableException ex) {
+        log.warn("Charge point unavailable: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse.error(ex.getMessage()));
+    }
+
+    @ExceptionHandler(OcppCallException.class)
+    public ResponseEntity<ApiResponse<Void>> handleOcppCallError(OcppCallException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                .body(ApiResponse.error(ex.getErrorCode() + ": " + ex.getMessage()));
+    }
+
+    @ExceptionHandler(TimeoutException.class)
+    public ResponseEntity<ApiResponse<Void>> handleTimeout(TimeoutException ex) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(ApiResponse.error(ex.getMessage()));
+    }
+}
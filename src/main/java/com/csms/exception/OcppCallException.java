@@ -0,0 +1,17 @@
+package com.csms.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown by OCPP handlers to answer a CALL with a CALLERROR of the given code.
+ */
+@Getter
+public class OcppCallException extends RuntimeException {
+
+    private final String errorCode;
+
+    public OcppCallException(String errorCode, String errorDescription) {
+        super(errorDescription);
+        this.errorCode = errorCode;
+    }
+}
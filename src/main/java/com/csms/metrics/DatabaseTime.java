@@ -0,0 +1,49 @@
+package com.csms.metrics;
+
+/**
+ * Accumulates the time the current thread spends in repository calls and transaction
+ * commits, so OCPP handlers can report their database time separately from total time.
+ * <p>
+ * Only time between {@link #start()} and {@link #stop()} is counted; calls made outside
+ * a handler are ignored.
+ */
+public final class DatabaseTime {
+
+    private static final ThreadLocal<long[]> CURRENT = ThreadLocal.withInitial(() -> new long[]{-1, 0});
+
+    private DatabaseTime() {
+    }
+
+    public static void start() {
+        CURRENT.get()[0] = 0;
+    }
+
+    /**
+     * @return the database time recorded since {@link #start()}, in nanoseconds
+     */
+    public static long stop() {
+        long[] current = CURRENT.get();
+        long nanos = Math.max(current[0], 0);
+        current[0] = -1;
+        return nanos;
+    }
+
+    public static void add(long nanos) {
+        long[] current = CURRENT.get();
+        if (current[0] >= 0) {
+            current[0] += nanos;
+        }
+    }
+
+    public static void markCommitStart() {
+        CURRENT.get()[1] = System.nanoTime();
+    }
+
+    public static void addSinceCommitStart() {
+        long[] current = CURRENT.get();
+        if (current[1] != 0) {
+            add(System.nanoTime() - current[1]);
+            current[1] = 0;
+        }
+    }
+}
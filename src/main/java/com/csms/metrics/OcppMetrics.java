@@ -0,0 +1,83 @@
+package com.csms.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers for OCPP message handling and remote commands, tagged by action and outcome.
+ * The outcome is {@value #OUTCOME_RESULT} for a CALLRESULT, otherwise the CALLERROR code
+ * (or {@code Timeout} for remote commands). See the metric catalog in the README.
+ */
+@Component
+public class OcppMetrics {
+
+    public static final String OUTCOME_RESULT = "CallResult";
+    public static final String OUTCOME_TIMEOUT = "Timeout";
+    public static final String OUTCOME_SEND_FAILED = "SendFailed";
+
+    // Actions are chosen by the charge point, so anything unexpected is folded into one tag
+    private static final Set<String> KNOWN_ACTIONS = Set.of(
+            "BootNotification", "StatusNotification", "Heartbeat", "Authorize", "StartTransaction",
+            "StopTransaction", "MeterValues", "DataTransfer", "DiagnosticsStatusNotification",
+            "FirmwareStatusNotification", "RemoteStartTransaction", "RemoteStopTransaction", "Reset",
+            "UnlockConnector", "ReserveNow", "CancelReservation", "GetConfiguration",
+            "ChangeConfiguration", "ClearCache");
+
+    private static final Set<String> KNOWN_OUTCOMES = Set.of(
+            OUTCOME_RESULT, OUTCOME_TIMEOUT, OUTCOME_SEND_FAILED, "NotImplemented", "NotSupported",
+            "InternalError", "ProtocolError", "SecurityError", "FormationViolation",
+            "PropertyConstraintViolation", "OccurenceConstraintViolation", "TypeConstraintViolation",
+            "GenericError");
+
+    private final MeterRegistry meterRegistry;
+    private final Timer dispatchWaitTimer;
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    public OcppMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.dispatchWaitTimer = Timer.builder("ocpp.dispatch.wait")
+                .description("Time an inbound CALL waits in its station's mailbox before handling")
+                .register(meterRegistry);
+    }
+
+    public void recordMessage(String action, String outcome, long nanos, long databaseNanos) {
+        String actionTag = normalize(action);
+        timer("ocpp.message", actionTag, normalizeOutcome(outcome)).record(nanos, TimeUnit.NANOSECONDS);
+        timer("ocpp.message.db", actionTag, null).record(databaseNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRemoteCommand(String action, String outcome, long nanos) {
+        timer("ocpp.remote.command", normalize(action), normalizeOutcome(outcome)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDispatchWait(long nanos) {
+        dispatchWaitTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String name, String action, String outcome) {
+        return timers.computeIfAbsent(new TimerKey(name, action, outcome), key -> {
+            Timer.Builder builder = Timer.builder(key.name()).tag("action", key.action());
+            if (key.outcome() != null) {
+                builder.tag("outcome", key.outcome());
+            }
+            return builder.register(meterRegistry);
+        });
+    }
+
+    private static String normalize(String action) {
+        return action != null && KNOWN_ACTIONS.contains(action) ? action : "Unknown";
+    }
+
+    private static String normalizeOutcome(String outcome) {
+        return outcome != null && KNOWN_OUTCOMES.contains(outcome) ? outcome : "GenericError";
+    }
+
+    private record TimerKey(String name, String action, String outcome) {
+    }
+}
@@ -11,7 +11,10 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_station", columnList = "charging_station_id, transaction_id"),
+        @Index(name = "idx_transactions_status", columnList = "status, transaction_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,236 @@
+package com.csms.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timer wheel for large numbers of frequently re-armed timeouts.
+ * <p>
+ * Re-arming a timeout only updates its deadline; the worker moves it to the right
+ * bucket lazily when its old bucket comes round, so pushing a deadline back costs O(1)
+ * regardless of how many timeouts are scheduled. Bringing a deadline forward hands the
+ * timeout back to the worker to be re-bucketed.
+ * <p>
+ * Tasks run on the single worker thread and must not block.
+ */
+@Slf4j
+public class HashedWheelTimer implements AutoCloseable {
+
+    private static final int PENDING = 0;
+    private static final int ACTIVE = 1;
+    private static final int EXPIRED = 2;
+    private static final int CANCELLED = 3;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startNanos;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger scheduled = new AtomicInteger();
+    private final Thread worker;
+
+    private volatile boolean running = true;
+    private long tick; // only touched by the worker
+
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (Integer.bitCount(ticksPerWheel) != 1) {
+            throw new IllegalArgumentException("ticksPerWheel must be a power of two: " + ticksPerWheel);
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[ticksPerWheel];
+        for (int i = 0; i < ticksPerWheel; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = ticksPerWheel - 1;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(task, System.nanoTime() + unit.toNanos(delay));
+        scheduled.incrementAndGet();
+        pending.add(timeout);
+        return timeout;
+    }
+
+    public int getScheduledCount() {
+        return scheduled.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long tickDeadline = startNanos + (tick + 1) * tickNanos;
+            long sleepNanos = tickDeadline - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                }
+            }
+
+            transferPending();
+            expireBucket(wheel[(int) (tick & mask)], System.nanoTime());
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            timeout.unlink();
+            if (timeout.state.compareAndSet(PENDING, ACTIVE)) {
+                place(timeout, tick);
+            }
+        }
+    }
+
+    private void expireBucket(Bucket bucket, long now) {
+        // Stop at the current tail so timeouts re-placed into this same bucket wait for the next round
+        Timeout last = bucket.tail;
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout == last ? null : timeout.next;
+            int state = timeout.state.get();
+            if (state == CANCELLED) {
+                timeout.unlink();
+            } else if (state == ACTIVE) {
+                if (timeout.deadline <= now) {
+                    timeout.unlink();
+                    if (timeout.state.compareAndSet(ACTIVE, EXPIRED)) {
+                        scheduled.decrementAndGet();
+                        try {
+                            timeout.task.run();
+                        } catch (Exception e) {
+                            log.error("Timer task failed: {}", e.getMessage(), e);
+                        }
+                    }
+                } else {
+                    // Deadline was pushed back since it was bucketed; move it forward
+                    timeout.unlink();
+                    place(timeout, tick + 1);
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    private void place(Timeout timeout, long earliestTick) {
+        long deadlineTick = (timeout.deadline - startNanos) / tickNanos;
+        long targetTick = Math.max(deadlineTick, earliestTick);
+        wheel[(int) (targetTick & mask)].add(timeout);
+    }
+
+    public final class Timeout {
+
+        private final Runnable task;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private volatile long deadline;
+
+        // Bucket links, only touched by the worker
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Moves the deadline to {@code delay} from now, rescheduling the timeout if it
+         * already fired.
+         */
+        public void rearm(long delay, TimeUnit unit) {
+            long newDeadline = System.nanoTime() + unit.toNanos(delay);
+            long oldDeadline = deadline;
+            deadline = newDeadline;
+
+            int current = state.get();
+            if (current == EXPIRED) {
+                if (state.compareAndSet(EXPIRED, PENDING)) {
+                    scheduled.incrementAndGet();
+                    pending.add(this);
+                }
+            } else if (current == ACTIVE && newDeadline < oldDeadline) {
+                if (state.compareAndSet(ACTIVE, PENDING)) {
+                    pending.add(this);
+                }
+            }
+        }
+
+        public boolean cancel() {
+            while (true) {
+                int current = state.get();
+                if (current == EXPIRED || current == CANCELLED) {
+                    return false;
+                }
+                if (state.compareAndSet(current, CANCELLED)) {
+                    scheduled.decrementAndGet();
+                    return true;
+                }
+            }
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        public long getDeadlineNanos() {
+            return deadline;
+        }
+
+        private void unlink() {
+            if (bucket != null) {
+                bucket.remove(this);
+            }
+        }
+    }
+
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+    }
+}
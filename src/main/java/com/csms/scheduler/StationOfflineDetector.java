@@ -0,0 +1,184 @@
+package com.csms.scheduler;
+
+import com.csms.scheduler.HashedWheelTimer.Timeout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Detects offline stations as soon as their heartbeat deadline passes.
+ * <p>
+ * Each station has a deadline of its {@code HeartbeatInterval} times a grace factor,
+ * re-armed on every inbound frame. Deadlines live in a {@link HashedWheelTimer}, so
+ * re-arming is O(1) and no periodic scan over all stations is needed.
+ */
+@Component
+@Slf4j
+public class StationOfflineDetector {
+
+    private final HashedWheelTimer timer;
+    private final ObjectProvider<StationOfflineListener> listeners;
+    private final int defaultIntervalSeconds;
+    private final double graceFactor;
+
+    private final Map<String, StationDeadline> deadlines = new ConcurrentHashMap<>();
+    private final AtomicInteger offlineCount = new AtomicInteger();
+    private final Counter offlineCounter;
+
+    public StationOfflineDetector(ObjectProvider<StationOfflineListener> listeners,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${ocpp.heartbeat.default-interval:300}") int defaultIntervalSeconds,
+                                  @Value("${ocpp.heartbeat.grace-factor:2.0}") double graceFactor,
+                                  @Value("${ocpp.heartbeat.wheel-tick-ms:1000}") long tickMillis,
+                                  @Value("${ocpp.heartbeat.wheel-size:1024}") int wheelSize) {
+        this.listeners = listeners;
+        this.defaultIntervalSeconds = defaultIntervalSeconds;
+        this.graceFactor = graceFactor;
+        this.timer = new HashedWheelTimer("station-offline-timer", tickMillis, TimeUnit.MILLISECONDS, wheelSize);
+        this.offlineCounter = meterRegistry.counter("ocpp.station.offline.events");
+        meterRegistry.gauge("ocpp.station.offline.deadlines", timer, HashedWheelTimer::getScheduledCount);
+        meterRegistry.gauge("ocpp.station.offline", offlineCount);
+    }
+
+    public void recordActivity(String chargePointId) {
+        StationDeadline deadline = deadlines.get(chargePointId);
+        if (deadline == null) {
+            deadline = deadlines.computeIfAbsent(chargePointId,
+                    id -> new StationDeadline(id, timeoutNanos(defaultIntervalSeconds)));
+        }
+        deadline.arm();
+
+        if (deadline.offline.compareAndSet(true, false)) {
+            offlineCount.decrementAndGet();
+            listeners.orderedStream().forEach(listener -> listener.onStationOnline(chargePointId));
+        }
+    }
+
+    public void setHeartbeatInterval(String chargePointId, int intervalSeconds) {
+        StationDeadline deadline = deadlines.computeIfAbsent(chargePointId,
+                id -> new StationDeadline(id, timeoutNanos(intervalSeconds)));
+        deadline.timeoutNanos = timeoutNanos(intervalSeconds);
+        deadline.arm();
+    }
+
+    /**
+     * Registers a station known from a previous run without raising events for it.
+     *
+     * @param intervalSeconds the station's configured {@code HeartbeatInterval}, or
+     *                        {@code null} for the default
+     */
+    public void seed(String chargePointId, Integer intervalSeconds, long ageNanos) {
+        StationDeadline deadline = new StationDeadline(chargePointId,
+                timeoutNanos(intervalSeconds != null ? intervalSeconds : defaultIntervalSeconds));
+        if (deadlines.putIfAbsent(chargePointId, deadline) != null) {
+            return;
+        }
+        long remaining = deadline.timeoutNanos - ageNanos;
+        if (remaining > 0) {
+            deadline.schedule(remaining);
+        } else {
+            deadline.offline.set(true);
+            offlineCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stops watching a station, e.g. because another node of the cluster serves it now.
+     */
+    public void forget(String chargePointId) {
+        StationDeadline deadline = deadlines.remove(chargePointId);
+        if (deadline == null) {
+            return;
+        }
+        Timeout timeout = deadline.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        if (deadline.offline.compareAndSet(true, false)) {
+            offlineCount.decrementAndGet();
+        }
+    }
+
+    public boolean isOffline(String chargePointId) {
+        StationDeadline deadline = deadlines.get(chargePointId);
+        return deadline != null && deadline.offline.get();
+    }
+
+    /**
+     * Stations currently past their deadline, kept as transitions happen rather than counted.
+     */
+    public int getOfflineCount() {
+        return offlineCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.close();
+    }
+
+    private long timeoutNanos(int intervalSeconds) {
+        return (long) (TimeUnit.SECONDS.toNanos(intervalSeconds) * graceFactor);
+    }
+
+    private void expire(StationDeadline deadline) {
+        // A frame may have re-armed the deadline while the wheel was firing it
+        long remaining = deadline.timeout.getDeadlineNanos() - System.nanoTime();
+        if (remaining > 0) {
+            deadline.timeout.rearm(remaining, TimeUnit.NANOSECONDS);
+            return;
+        }
+
+        if (deadline.offline.compareAndSet(false, true)) {
+            offlineCount.incrementAndGet();
+            offlineCounter.increment();
+            LocalDateTime lastSeen = LocalDateTime.now().minusNanos(deadline.timeoutNanos - remaining);
+            listeners.orderedStream().forEach(listener -> {
+                try {
+                    listener.onStationOffline(deadline.chargePointId, lastSeen);
+                } catch (Exception e) {
+                    log.error("Offline listener failed for {}: {}", deadline.chargePointId, e.getMessage(), e);
+                }
+            });
+        }
+    }
+
+    private final class StationDeadline {
+        private final String chargePointId;
+        private final AtomicBoolean offline = new AtomicBoolean();
+        private volatile long timeoutNanos;
+        private volatile Timeout timeout;
+
+        StationDeadline(String chargePointId, long timeoutNanos) {
+            this.chargePointId = chargePointId;
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        void arm() {
+            Timeout current = timeout;
+            if (current != null) {
+                current.rearm(timeoutNanos, TimeUnit.NANOSECONDS);
+            } else {
+                schedule(timeoutNanos);
+            }
+        }
+
+        synchronized void schedule(long delayNanos) {
+            if (timeout == null) {
+                timeout = timer.schedule(() -> expire(this), delayNanos, TimeUnit.NANOSECONDS);
+            } else {
+                timeout.rearm(delayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
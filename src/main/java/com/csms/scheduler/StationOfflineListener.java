@@ -0,0 +1,16 @@
+package com.csms.scheduler;
+
+import java.time.LocalDateTime;
+
+/**
+ * Receives liveness transitions from {@link StationOfflineDetector}.
+ * Callbacks run on the detector's timer thread or the thread that saw the
+ * station's traffic, so implementations must not block.
+ */
+public interface StationOfflineListener {
+
+    void onStationOffline(String chargePointId, LocalDateTime lastSeen);
+
+    default void onStationOnline(String chargePointId) {
+    }
+}
@@ -1,23 +1,81 @@
 package com.csms.service;
 
+import com.csms.event.IdTagsChangedEvent;
 import com.csms.model.IdTag;
 import com.csms.repository.IdTagRepository;
 import com.csms.dto.ocpp.StartTransactionResponse.IdTagInfo;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class AuthorizationService {
 
     private final IdTagRepository idTagRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Cache<String, IdTagInfo> authorizationCache;
+
+    public AuthorizationService(IdTagRepository idTagRepository,
+                                ApplicationEventPublisher eventPublisher,
+                                MeterRegistry meterRegistry,
+                                @Value("${ocpp.authorization.cache.max-size:100000}") long maxSize,
+                                @Value("${ocpp.authorization.cache.ttl-seconds:300}") long ttlSeconds,
+                                @Value("${ocpp.authorization.cache.negative-ttl-seconds:60}") long negativeTtlSeconds) {
+        this.idTagRepository = idTagRepository;
+        this.eventPublisher = eventPublisher;
+        this.authorizationCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new IdTagInfoExpiry(Duration.ofSeconds(ttlSeconds), Duration.ofSeconds(negativeTtlSeconds)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, authorizationCache, "ocpp.authorization");
+    }
 
     public IdTagInfo authorize(String idTag) {
+        return authorizationCache.get(idTag, this::lookup);
+    }
+
+    /**
+     * Drops the cached result for a tag so the next authorization reads it again, here and,
+     * in a cluster, on the other nodes.
+     */
+    public void invalidate(String idTag) {
+        invalidate(List.of(idTag));
+    }
+
+    public void invalidate(Collection<String> idTags) {
+        if (idTags.isEmpty()) {
+            return;
+        }
+        authorizationCache.invalidateAll(idTags);
+        eventPublisher.publishEvent(new IdTagsChangedEvent(List.copyOf(idTags)));
+    }
+
+    /**
+     * Drops cached results for tags another node has changed, without announcing them again.
+     */
+    public void evict(Collection<String> idTags) {
+        authorizationCache.invalidateAll(idTags);
+    }
+
+    public void invalidateAll() {
+        authorizationCache.invalidateAll();
+    }
+
+    private IdTagInfo lookup(String idTag) {
         Optional<IdTag> tagOpt = idTagRepository.findByIdTag(idTag);
 
         if (tagOpt.isEmpty()) {
@@ -42,4 +100,41 @@ public class AuthorizationService {
         log.info("Authorized ID tag: {}", idTag);
         return new IdTagInfo("Accepted", tag.getParentIdTag(), tag.getExpiryDate());
     }
-}
\ No newline at end of file
+
+    /**
+     * Unknown tags are kept for the shorter negative TTL, and accepted tags never outlive
+     * their expiry date so they flip to Expired on time.
+     */
+    static class IdTagInfoExpiry implements Expiry<String, IdTagInfo> {
+
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        IdTagInfoExpiry(Duration ttl, Duration negativeTtl) {
+            this.ttlNanos = ttl.toNanos();
+            this.negativeTtlNanos = negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String idTag, IdTagInfo info, long currentTime) {
+            if ("Invalid".equals(info.getStatus())) {
+                return negativeTtlNanos;
+            }
+            if ("Accepted".equals(info.getStatus()) && info.getExpiryDate() != null) {
+                long untilExpiry = Duration.between(LocalDateTime.now(), info.getExpiryDate()).toNanos();
+                return Math.max(0, Math.min(ttlNanos, untilExpiry));
+            }
+            return ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String idTag, IdTagInfo info, long currentTime, long currentDuration) {
+            return expireAfterCreate(idTag, info, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String idTag, IdTagInfo info, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
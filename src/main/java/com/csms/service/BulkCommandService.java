@@ -0,0 +1,409 @@
+package com.csms.service;
+
+import com.csms.dto.BulkCommandRequest;
+import com.csms.dto.BulkCommandRequest.StationSelector;
+import com.csms.dto.BulkCommandResult;
+import com.csms.dto.BulkCommandStatus;
+import com.csms.dto.ocpp.*;
+import com.csms.exception.ChargePointUnavailableException;
+import com.csms.exception.OcppCallException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends one remote command to a selection of stations as a background job.
+ * <p>
+ * Jobs fan out through {@link RemoteCommandService} without a thread per station: a job
+ * keeps up to its concurrency limit of commands in flight and launches the next one
+ * from each completion. A node-wide semaphore caps commands in flight across all jobs.
+ * Progress and per-station results are kept in memory for
+ * {@code ocpp.bulk.retention-minutes} and can be polled or followed over SSE.
+ */
+@Service
+@Slf4j
+public class BulkCommandService {
+
+    public static final String STATE_RUNNING = "Running";
+    public static final String STATE_COMPLETED = "Completed";
+    public static final String STATE_CANCELLED = "Cancelled";
+
+    private static final Set<String> ACTIONS =
+            Set.of("Reset", "ChangeConfiguration", "ClearCache", "GetConfiguration", "UnlockConnector");
+    private static final int RESULTS_PER_EVENT = 1000;
+
+    private final RemoteCommandService remoteCommandService;
+    private final StationOwnershipRegistry stationOwnershipRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final Semaphore nodePermits;
+    private final int maxConcurrencyPerJob;
+    private final Duration retention;
+
+    private final Map<String, BulkJob> jobs = new ConcurrentHashMap<>();
+
+    public BulkCommandService(RemoteCommandService remoteCommandService,
+                              StationOwnershipRegistry stationOwnershipRegistry,
+                              JdbcTemplate jdbcTemplate,
+                              @Value("${ocpp.bulk.max-concurrency:2000}") int maxConcurrency,
+                              @Value("${ocpp.bulk.max-concurrency-per-job:500}") int maxConcurrencyPerJob,
+                              @Value("${ocpp.bulk.retention-minutes:60}") int retentionMinutes) {
+        this.remoteCommandService = remoteCommandService;
+        this.stationOwnershipRegistry = stationOwnershipRegistry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.nodePermits = new Semaphore(maxConcurrency);
+        this.maxConcurrencyPerJob = maxConcurrencyPerJob;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+    }
+
+    public BulkCommandStatus start(BulkCommandRequest request) {
+        validate(request);
+        List<String> targets = resolve(request.getStations());
+        int concurrency = request.getConcurrency() != null
+                ? Math.max(1, Math.min(request.getConcurrency(), maxConcurrencyPerJob))
+                : maxConcurrencyPerJob;
+
+        BulkJob job = new BulkJob(UUID.randomUUID().toString(), request, targets, concurrency);
+        jobs.put(job.id, job);
+        log.info("Started bulk {} job {} for {} stations (concurrency {})",
+                request.getAction(), job.id, targets.size(), concurrency);
+        job.pump();
+        return job.status();
+    }
+
+    public List<BulkCommandStatus> findAll() {
+        return jobs.values().stream().map(BulkJob::status).toList();
+    }
+
+    public Optional<BulkCommandStatus> getStatus(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(BulkJob::status);
+    }
+
+    /**
+     * @return results in completion order
+     */
+    public Optional<List<BulkCommandResult>> getResults(String jobId, int offset, int limit) {
+        return Optional.ofNullable(jobs.get(jobId)).map(job -> job.results(offset, limit));
+    }
+
+    public Optional<BulkCommandStatus> cancel(String jobId) {
+        BulkJob job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        job.cancelled = true;
+        job.pump();
+        return Optional.of(job.status());
+    }
+
+    /**
+     * Streams {@code progress} events with the job status and {@code results} events with
+     * the results completed since the previous event, ending with a {@code complete} event.
+     * Events are written by the progress tick, never from command completion threads.
+     */
+    public Optional<SseEmitter> subscribe(String jobId) {
+        BulkJob job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> job.subscribers.remove(subscriber));
+        emitter.onError(e -> job.subscribers.remove(subscriber));
+        job.subscribers.add(subscriber);
+        return Optional.of(emitter);
+    }
+
+    @Scheduled(fixedDelayString = "${ocpp.bulk.progress-interval-ms:1000}")
+    public void publishProgress() {
+        LocalDateTime expiry = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(expiry));
+        // Subscribers of finished jobs are removed after their complete event
+        jobs.values().stream()
+                .filter(job -> !job.subscribers.isEmpty())
+                .forEach(BulkJob::publish);
+    }
+
+    private void validate(BulkCommandRequest request) {
+        if (request.getAction() == null || !ACTIONS.contains(request.getAction())) {
+            throw new IllegalArgumentException("Unsupported bulk action: " + request.getAction()
+                    + " (supported: " + String.join(", ", new TreeSet<>(ACTIONS)) + ")");
+        }
+        Map<String, String> parameters = request.getParameters() != null ? request.getParameters() : Map.of();
+        request.setParameters(parameters);
+        switch (request.getAction()) {
+            case "ChangeConfiguration" -> {
+                require(parameters, "key");
+                require(parameters, "value");
+            }
+            case "UnlockConnector" -> Integer.parseInt(require(parameters, "connectorId"));
+            case "Reset" -> {
+                String type = parameters.getOrDefault("type", "Soft");
+                if (!type.equals("Soft") && !type.equals("Hard")) {
+                    throw new IllegalArgumentException("Reset type must be Soft or Hard");
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private List<String> resolve(StationSelector selector) {
+        if (selector == null) {
+            throw new IllegalArgumentException("A station selector is required");
+        }
+
+        Collection<String> candidates;
+        if (selector.getChargePointIds() != null && !selector.getChargePointIds().isEmpty()) {
+            candidates = new LinkedHashSet<>(selector.getChargePointIds());
+        } else {
+            StringBuilder sql = new StringBuilder("SELECT charge_point_id FROM charging_stations WHERE 1 = 1");
+            List<Object> args = new ArrayList<>();
+            appendCriterion(sql, args, "charge_point_vendor", selector.getVendor());
+            appendCriterion(sql, args, "charge_point_model", selector.getModel());
+            appendCriterion(sql, args, "firmware_version", selector.getFirmwareVersion());
+            if (args.isEmpty() && !selector.isAllStations()) {
+                throw new IllegalArgumentException(
+                        "Station selector is empty; set allStations to target every station");
+            }
+            sql.append(" ORDER BY charge_point_id");
+            candidates = jdbcTemplate.queryForList(sql.toString(), String.class, args.toArray());
+        }
+
+        return candidates.stream()
+                .filter(id -> !selector.isConnectedOnly() || stationOwnershipRegistry.isConnected(id))
+                .toList();
+    }
+
+    private static void appendCriterion(StringBuilder sql, List<Object> args, String column, String value) {
+        if (value != null && !value.isBlank()) {
+            sql.append(" AND ").append(column).append(" = ?");
+            args.add(value);
+        }
+    }
+
+    private static String require(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Parameter '" + name + "' is required");
+        }
+        return value;
+    }
+
+    private CompletableFuture<String> send(String action, Map<String, String> parameters, String chargePointId) {
+        return switch (action) {
+            case "Reset" -> remoteCommandService.sendReset(chargePointId, parameters.getOrDefault("type", "Soft"))
+                    .thenApply(ResetResponse::getStatus);
+            case "ChangeConfiguration" -> remoteCommandService
+                    .sendChangeConfiguration(chargePointId, parameters.get("key"), parameters.get("value"))
+                    .thenApply(ChangeConfigurationResponse::getStatus);
+            case "ClearCache" -> remoteCommandService.sendClearCache(chargePointId)
+                    .thenApply(ClearCacheResponse::getStatus);
+            case "GetConfiguration" -> remoteCommandService.sendGetConfiguration(chargePointId,
+                            parameters.containsKey("keys") ? Arrays.asList(parameters.get("keys").split(",")) : null)
+                    .thenApply(response -> "Accepted");
+            case "UnlockConnector" -> remoteCommandService
+                    .sendUnlockConnector(chargePointId, Integer.valueOf(parameters.get("connectorId")))
+                    .thenApply(UnlockConnectorResponse::getStatus);
+            default -> throw new IllegalArgumentException("Unsupported bulk action: " + action);
+        };
+    }
+
+    private static String failureOutcome(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof OcppCallException callError) {
+            return callError.getErrorCode();
+        }
+        if (cause instanceof TimeoutException) {
+            return "Timeout";
+        }
+        if (cause instanceof ChargePointUnavailableException) {
+            return "Unavailable";
+        }
+        return "Failed";
+    }
+
+    private void onPermitReleased() {
+        // The permit may unblock any running job, not just the one that freed it
+        for (BulkJob job : jobs.values()) {
+            if (!job.finished.get()) {
+                job.pump();
+            }
+        }
+    }
+
+    private final class BulkJob {
+
+        private final String id;
+        private final BulkCommandRequest request;
+        private final List<String> targets;
+        private final int concurrency;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final long startNanos = System.nanoTime();
+
+        private final List<BulkCommandResult> results;
+        private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger pumping = new AtomicInteger();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private int next; // only touched inside pump
+        private volatile boolean cancelled;
+        private volatile LocalDateTime finishedAt;
+        private volatile long durationNanos;
+
+        BulkJob(String id, BulkCommandRequest request, List<String> targets, int concurrency) {
+            this.id = id;
+            this.request = request;
+            this.targets = targets;
+            this.concurrency = concurrency;
+            this.results = new ArrayList<>(targets.size());
+        }
+
+        /**
+         * Launches commands until a limit is reached. Re-entrant calls from completions
+         * that run inline only flag another pass, so the stack never grows per station.
+         */
+        void pump() {
+            if (pumping.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (!cancelled && next < targets.size() && inFlight.get() < concurrency
+                        && nodePermits.tryAcquire()) {
+                    launch(targets.get(next++));
+                }
+                if ((cancelled || next >= targets.size()) && inFlight.get() == 0) {
+                    finish();
+                }
+            } while (pumping.decrementAndGet() != 0);
+        }
+
+        private void launch(String chargePointId) {
+            inFlight.incrementAndGet();
+            long start = System.nanoTime();
+            CompletableFuture<String> command;
+            try {
+                command = send(request.getAction(), request.getParameters(), chargePointId);
+            } catch (RuntimeException e) {
+                command = CompletableFuture.failedFuture(e);
+            }
+            command.whenComplete((status, ex) -> {
+                long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                BulkCommandResult result = ex == null
+                        ? new BulkCommandResult(chargePointId, status, null, latencyMillis)
+                        : new BulkCommandResult(chargePointId, failureOutcome(ex), rootMessage(ex), latencyMillis);
+                record(result);
+                inFlight.decrementAndGet();
+                nodePermits.release();
+                pump();
+                onPermitReleased();
+            });
+        }
+
+        private void record(BulkCommandResult result) {
+            synchronized (results) {
+                results.add(result);
+            }
+            outcomes.computeIfAbsent(String.valueOf(result.getOutcome()), key -> new LongAdder()).increment();
+        }
+
+        private void finish() {
+            if (finished.compareAndSet(false, true)) {
+                durationNanos = System.nanoTime() - startNanos;
+                finishedAt = LocalDateTime.now();
+                BulkCommandStatus status = status();
+                log.info("Bulk {} job {} {}: {} stations in {} ms, outcomes {}", request.getAction(), id,
+                        status.getState().toLowerCase(), status.getCompleted(), status.getDurationMillis(),
+                        status.getOutcomes());
+            }
+        }
+
+        BulkCommandStatus status() {
+            int completed;
+            synchronized (results) {
+                completed = results.size();
+            }
+            Map<String, Long> counts = new TreeMap<>();
+            outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+
+            long elapsedNanos = finished.get() ? durationNanos : System.nanoTime() - startNanos;
+            String state = !finished.get() ? STATE_RUNNING : cancelled ? STATE_CANCELLED : STATE_COMPLETED;
+            double seconds = elapsedNanos / 1e9;
+            return new BulkCommandStatus(id, request.getAction(), state, targets.size(), completed, inFlight.get(),
+                    counts, createdAt, finishedAt, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    seconds > 0 ? completed / seconds : 0);
+        }
+
+        List<BulkCommandResult> results(int offset, int limit) {
+            synchronized (results) {
+                int from = Math.min(Math.max(offset, 0), results.size());
+                int to = Math.min(from + Math.max(limit, 0), results.size());
+                return new ArrayList<>(results.subList(from, to));
+            }
+        }
+
+        synchronized void publish() {
+            BulkCommandStatus status = status();
+            for (Subscriber subscriber : subscribers) {
+                try {
+                    subscriber.emitter.send(SseEmitter.event().name("progress").data(status));
+                    List<BulkCommandResult> batch;
+                    while (!(batch = results(subscriber.cursor, RESULTS_PER_EVENT)).isEmpty()) {
+                        subscriber.emitter.send(SseEmitter.event().name("results").data(batch));
+                        subscriber.cursor += batch.size();
+                    }
+                    if (finished.get()) {
+                        subscriber.emitter.send(SseEmitter.event().name("complete").data(status));
+                        subscriber.emitter.complete();
+                        subscribers.remove(subscriber);
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Dropping bulk job subscriber for {}: {}", id, e.getMessage());
+                    subscribers.remove(subscriber);
+                }
+            }
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private int cursor;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    private static String rootMessage(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        return cause.getMessage();
+    }
+}
@@ -0,0 +1,107 @@
+package com.csms.service;
+
+import com.csms.event.StationConnectedEvent;
+import com.csms.event.StationDisconnectedEvent;
+import com.csms.model.ChargingStation;
+import com.csms.repository.ChargingStationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of connected charging stations keyed by charge point ID.
+ * <p>
+ * Entries are loaded when a station connects or boots and evicted when it disconnects,
+ * so the OCPP message handlers can resolve a station without querying the database on
+ * every frame. Connector state is kept by {@link ConnectorStateMachine}.
+ */
+@Component
+@Slf4j
+public class ChargingStationRegistry {
+
+    private final ChargingStationRepository chargingStationRepository;
+
+    private final Map<String, StationEntry> stations = new ConcurrentHashMap<>();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public ChargingStationRegistry(ChargingStationRepository chargingStationRepository,
+                                   MeterRegistry meterRegistry) {
+        this.chargingStationRepository = chargingStationRepository;
+        this.hitCounter = meterRegistry.counter("ocpp.station.registry.lookups", "result", "hit");
+        this.missCounter = meterRegistry.counter("ocpp.station.registry.lookups", "result", "miss");
+        meterRegistry.gaugeMapSize("ocpp.station.registry.size", Tags.empty(), stations);
+    }
+
+    public Optional<StationEntry> get(String chargePointId) {
+        StationEntry entry = stations.get(chargePointId);
+        if (entry != null) {
+            hitCounter.increment();
+            return Optional.of(entry);
+        }
+        missCounter.increment();
+        return load(chargePointId);
+    }
+
+    /**
+     * @return the entry of a connected station, without loading or counting a lookup
+     */
+    public Optional<StationEntry> getCached(String chargePointId) {
+        return Optional.ofNullable(stations.get(chargePointId));
+    }
+
+    public Optional<StationEntry> load(String chargePointId) {
+        return chargingStationRepository.findByChargePointId(chargePointId).map(this::put);
+    }
+
+    public StationEntry put(ChargingStation station) {
+        StationEntry entry = new StationEntry(station.getId(), station.getChargePointId(), station.getRegistrationStatus());
+        stations.put(station.getChargePointId(), entry);
+        return entry;
+    }
+
+    public void evict(String chargePointId) {
+        stations.remove(chargePointId);
+    }
+
+    public int size() {
+        return stations.size();
+    }
+
+    @EventListener
+    public void onStationConnected(StationConnectedEvent event) {
+        load(event.getChargePointId());
+    }
+
+    @EventListener
+    public void onStationDisconnected(StationDisconnectedEvent event) {
+        evict(event.getChargePointId());
+    }
+
+    @Getter
+    public static class StationEntry {
+        private final UUID id;
+        private final String chargePointId;
+        private volatile String registrationStatus;
+
+        StationEntry(UUID id, String chargePointId, String registrationStatus) {
+            this.id = id;
+            this.chargePointId = chargePointId;
+            this.registrationStatus = registrationStatus;
+        }
+
+        public void setRegistrationStatus(String registrationStatus) {
+            this.registrationStatus = registrationStatus;
+        }
+    }
+}
@@ -3,7 +3,7 @@ package com.csms.service;
 import com.csms.model.ChargingStation;
 import com.csms.model.Connector;
 import com.csms.repository.ChargingStationRepository;
-import com.csms.repository.ConnectorRepository;
+import com.csms.service.ChargingStationRegistry.StationEntry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -20,7 +20,10 @@ import java.util.UUID;
 public class ChargingStationService {
 
     private final ChargingStationRepository chargingStationRepository;
-    private final ConnectorRepository connectorRepository;
+    private final ChargingStationRegistry chargingStationRegistry;
+    private final ConnectorStateMachine connectorStateMachine;
+    private final StationLivenessTracker stationLivenessTracker;
+    private final DashboardStatsService dashboardStatsService;
 
     @Transactional
     public ChargingStation registerChargingStation(String chargePointId,
@@ -51,58 +54,47 @@ public class ChargingStationService {
         }
 
         station.setLastHeartbeat(LocalDateTime.now());
-        return chargingStationRepository.save(station);
+        ChargingStation savedStation = chargingStationRepository.save(station);
+        if (existingStation.isEmpty()) {
+            dashboardStatsService.stationAdded();
+        }
+        chargingStationRegistry.put(savedStation);
+        connectorStateMachine.stationBooted(savedStation.getId());
+        stationLivenessTracker.touch(chargePointId);
+        return savedStation;
     }
 
-    @Transactional
     public void updateHeartbeat(String chargePointId) {
-        chargingStationRepository.findByChargePointId(chargePointId)
-                .ifPresent(station -> {
-                    station.setLastHeartbeat(LocalDateTime.now());
-                    chargingStationRepository.save(station);
-                });
+        // Persisted in batches by the tracker rather than one UPDATE per Heartbeat
+        stationLivenessTracker.touch(chargePointId);
     }
 
     public Optional<ChargingStation> findByChargePointId(String chargePointId) {
         return chargingStationRepository.findByChargePointId(chargePointId);
     }
 
-    public List<ChargingStation> findAll() {
-        return chargingStationRepository.findAll();
+    /**
+     * Applied in memory and written back in batches by {@link ConnectorStateMachine}.
+     */
+    public ConnectorStateMachine.Outcome updateConnectorStatus(StationEntry station,
+                                                               Integer connectorId,
+                                                               String status,
+                                                               String errorCode,
+                                                               String info,
+                                                               String vendorId,
+                                                               String vendorErrorCode) {
+        return connectorStateMachine.statusNotification(
+                station.getId(), connectorId, status, errorCode, info, vendorId, vendorErrorCode);
     }
 
-    public List<ChargingStation> findOfflineStations(int timeoutMinutes) {
-        LocalDateTime threshold = LocalDateTime.now().minusMinutes(timeoutMinutes);
-        return chargingStationRepository.findOfflineStations(threshold);
+    /**
+     * Writes the connector's current state in the caller's transaction.
+     */
+    public void saveConnector(StationEntry station, Integer connectorId) {
+        connectorStateMachine.persist(station.getId(), connectorId);
     }
 
-    @Transactional
-    public void updateConnectorStatus(UUID chargingStationId,
-                                      Integer connectorId,
-                                      String status,
-                                      String errorCode,
-                                      String info) {
-        Optional<Connector> connectorOpt = connectorRepository
-                .findByChargingStationIdAndConnectorId(chargingStationId, connectorId);
-
-        if (connectorOpt.isPresent()) {
-            Connector connector = connectorOpt.get();
-            connector.setStatus(status);
-            connector.setErrorCode(errorCode != null ? errorCode : "NoError");
-            connector.setInfo(info);
-            connectorRepository.save(connector);
-        } else {
-            // Create new connector if it doesn't exist
-            ChargingStation station = chargingStationRepository.findById(chargingStationId).orElse(null);
-            if (station != null) {
-                Connector connector = new Connector();
-                connector.setChargingStation(station);
-                connector.setConnectorId(connectorId);
-                connector.setStatus(status);
-                connector.setErrorCode(errorCode != null ? errorCode : "NoError");
-                connector.setInfo(info);
-                connectorRepository.save(connector);
-            }
-        }
+    public List<Connector> getConnectors(UUID chargingStationId) {
+        return connectorStateMachine.getConnectors(chargingStationId);
     }
 }
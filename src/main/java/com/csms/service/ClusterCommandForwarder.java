@@ -0,0 +1,133 @@
+package com.csms.service;
+
+import com.csms.dto.ClusterCallRequest;
+import com.csms.exception.ChargePointUnavailableException;
+import com.csms.exception.OcppCallException;
+import com.csms.service.StationOwnershipRegistry.ClusterNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends a CSMS-initiated CALL through the cluster node that holds the charge point's
+ * connection, and turns that node's answer back into the result or failure a local call
+ * would have had.
+ */
+@Component
+@Slf4j
+public class ClusterCommandForwarder {
+
+    public static final String SECRET_HEADER = "X-Cluster-Secret";
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final String secret;
+    private final Duration requestTimeout;
+    private final HttpClient httpClient;
+
+    public ClusterCommandForwarder(ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${ocpp.cluster.enabled:false}") boolean enabled,
+                                   @Value("${ocpp.cluster.secret:}") String secret,
+                                   @Value("${ocpp.remote.call-timeout-seconds:30}") int callTimeoutSeconds,
+                                   @Value("${ocpp.cluster.connect-timeout-ms:2000}") long connectTimeoutMillis) {
+        if (enabled && secret.isBlank()) {
+            // The forwarding endpoint would send commands to stations for anyone who can reach it
+            throw new IllegalStateException("ocpp.cluster.secret must be set when ocpp.cluster.enabled is true");
+        }
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.secret = secret;
+        // The owner answers with a timeout of its own after the call timeout
+        this.requestTimeout = Duration.ofSeconds(callTimeoutSeconds + 5L);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .build();
+    }
+
+    public <T> CompletableFuture<T> forward(ClusterNode owner, String chargePointId, String action, Object payload,
+                                            Class<T> responseType) {
+        HttpRequest request;
+        try {
+            ClusterCallRequest call = new ClusterCallRequest(action, objectMapper.valueToTree(payload));
+            request = HttpRequest.newBuilder(URI.create(owner.url() + "/api/cluster/stations/"
+                            + URLEncoder.encode(chargePointId, StandardCharsets.UTF_8).replace("+", "%20") + "/calls"))
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .header(SECRET_HEADER, secret)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(call)))
+                    .build();
+        } catch (IOException | IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        long start = System.nanoTime();
+        log.debug("Forwarding {} for {} to node {}", action, chargePointId, owner.nodeId());
+        CompletableFuture<T> result = new CompletableFuture<>();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, ex) -> {
+            String outcome = ex != null ? "unreachable" : response.statusCode() == 200 ? "ok" : "error";
+            meterRegistry.timer("ocpp.cluster.forwarded", "result", outcome)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (ex != null) {
+                result.completeExceptionally(new ChargePointUnavailableException("Node " + owner.nodeId()
+                        + " holding charge point " + chargePointId + " is unreachable", ex));
+            } else {
+                complete(result, owner, response, responseType);
+            }
+        });
+        return result;
+    }
+
+    public boolean acceptsSecret(String presented) {
+        return presented != null && !secret.isEmpty() && MessageDigest.isEqual(
+                secret.getBytes(StandardCharsets.UTF_8), presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private <T> void complete(CompletableFuture<T> result, ClusterNode owner, HttpResponse<byte[]> response,
+                              Class<T> responseType) {
+        JsonNode body;
+        try {
+            body = objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            body = objectMapper.nullNode();
+        }
+        String message = body.path("message").asText("HTTP " + response.statusCode() + " from node " + owner.nodeId());
+
+        switch (response.statusCode()) {
+            case 200 -> {
+                try {
+                    result.complete(objectMapper.treeToValue(body.path("data"), responseType));
+                } catch (IOException e) {
+                    result.completeExceptionally(new OcppCallException("FormationViolation",
+                            "Invalid response forwarded by node " + owner.nodeId() + ": " + e.getMessage()));
+                }
+            }
+            case 502 -> {
+                // Rendered as "<errorCode>: <description>" by the exception handler
+                int separator = message.indexOf(": ");
+                result.completeExceptionally(separator > 0
+                        ? new OcppCallException(message.substring(0, separator), message.substring(separator + 2))
+                        : new OcppCallException("GenericError", message));
+            }
+            case 504 -> result.completeExceptionally(new TimeoutException(message));
+            default -> result.completeExceptionally(new ChargePointUnavailableException(message));
+        }
+    }
+}
@@ -50,6 +50,17 @@ public class ConfigurationService {
                 .map(ChargePointConfiguration::getConfigValue);
     }
 
+    public int getHeartbeatInterval(UUID chargingStationId, int defaultInterval) {
+        try {
+            return getConfigurationValue(chargingStationId, "HeartbeatInterval")
+                    .map(Integer::parseInt)
+                    .orElse(defaultInterval);
+        } catch (NumberFormatException e) {
+            log.warn("Invalid HeartbeatInterval configured for station {}", chargingStationId);
+            return defaultInterval;
+        }
+    }
+
     @Transactional
     public boolean setConfiguration(UUID chargingStationId, String key, String value) {
         Optional<ChargePointConfiguration> configOpt =
@@ -0,0 +1,455 @@
+package com.csms.service;
+
+import com.csms.model.ChargingStation;
+import com.csms.model.Connector;
+import com.csms.repository.ConnectorRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the state of every connector in memory and is the only writer of
+ * {@code connectors}.
+ * <p>
+ * StatusNotifications and transaction starts and stops are applied as events to the
+ * connectors of one station under that station's lock; messages from a station are
+ * already handled one at a time, so the lock is normally uncontended. A reported status
+ * is checked against the connector status transitions of OCPP 1.6 (section 4.9), starting
+ * from the status the station reported last. Statuses set by transaction events are not
+ * used for the check, and a BootNotification clears the reported status because a
+ * rebooted station starts over.
+ * <p>
+ * Only events that change something mark the connector dirty. Dirty connectors are
+ * written back every {@code flush-interval-ms} in one batched upsert, so a connector that
+ * changes several times in between is written once. Connectors of a station are loaded
+ * from the database on the first event from it and then served from memory. Only the
+ * stations this node serves are held: reads of other stations go to the database, and in
+ * a cluster a station is dropped from memory when it disconnects.
+ */
+@Component
+@Slf4j
+public class ConnectorStateMachine {
+
+    public static final String AVAILABLE = "Available";
+    public static final String PREPARING = "Preparing";
+    public static final String CHARGING = "Charging";
+    public static final String SUSPENDED_EV = "SuspendedEV";
+    public static final String SUSPENDED_EVSE = "SuspendedEVSE";
+    public static final String FINISHING = "Finishing";
+    public static final String RESERVED = "Reserved";
+    public static final String UNAVAILABLE = "Unavailable";
+    public static final String FAULTED = "Faulted";
+
+    /** Allowed next statuses by current status; connector 0 only uses Available, Unavailable and Faulted */
+    private static final Map<String, Set<String>> TRANSITIONS = Map.of(
+            AVAILABLE, Set.of(PREPARING, CHARGING, SUSPENDED_EV, SUSPENDED_EVSE, RESERVED, UNAVAILABLE, FAULTED),
+            PREPARING, Set.of(AVAILABLE, CHARGING, SUSPENDED_EV, SUSPENDED_EVSE, FINISHING, FAULTED),
+            CHARGING, Set.of(AVAILABLE, SUSPENDED_EV, SUSPENDED_EVSE, FINISHING, UNAVAILABLE, FAULTED),
+            SUSPENDED_EV, Set.of(AVAILABLE, CHARGING, SUSPENDED_EVSE, FINISHING, UNAVAILABLE, FAULTED),
+            SUSPENDED_EVSE, Set.of(AVAILABLE, CHARGING, SUSPENDED_EV, FINISHING, UNAVAILABLE, FAULTED),
+            FINISHING, Set.of(AVAILABLE, PREPARING, UNAVAILABLE, FAULTED),
+            RESERVED, Set.of(AVAILABLE, PREPARING, UNAVAILABLE, FAULTED),
+            UNAVAILABLE, Set.of(AVAILABLE, PREPARING, CHARGING, SUSPENDED_EV, SUSPENDED_EVSE, FAULTED),
+            FAULTED, Set.of(AVAILABLE, PREPARING, CHARGING, SUSPENDED_EV, SUSPENDED_EVSE, FINISHING, RESERVED,
+                    UNAVAILABLE));
+    private static final Set<String> STATION_STATUSES = Set.of(AVAILABLE, UNAVAILABLE, FAULTED);
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO connectors (id, charging_station_id, connector_id, status, error_code, info, vendor_id, " +
+                    "vendor_error_code, current_transaction_id, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT (id) DO UPDATE SET status = EXCLUDED.status, error_code = EXCLUDED.error_code, " +
+                    "info = EXCLUDED.info, vendor_id = EXCLUDED.vendor_id, " +
+                    "vendor_error_code = EXCLUDED.vendor_error_code, " +
+                    "current_transaction_id = EXCLUDED.current_transaction_id, updated_at = EXCLUDED.updated_at " +
+                    // A node that served the station before must not overwrite newer state from its new node
+                    "WHERE connectors.updated_at IS NULL OR connectors.updated_at <= EXCLUDED.updated_at";
+
+    private static final int[] ARG_TYPES = {
+            Types.OTHER, Types.OTHER, Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.OTHER, Types.TIMESTAMP, Types.TIMESTAMP};
+
+    public enum Outcome {
+        /** The connector changed */
+        APPLIED,
+        /** The connector was already in the reported state */
+        UNCHANGED,
+        /** The transition is not allowed and the connector was left as it was */
+        REJECTED
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConnectorRepository connectorRepository;
+    private final DashboardStatsService dashboardStatsService;
+    private final boolean strictTransitions;
+
+    private final Map<UUID, StationConnectors> stations = new ConcurrentHashMap<>();
+    private final Set<ConnectorState> dirty = ConcurrentHashMap.newKeySet();
+
+    private final Counter appliedCounter;
+    private final Counter unchangedCounter;
+    private final Counter rejectedCounter;
+    private final Counter illegalCounter;
+    private final Timer flushTimer;
+
+    public ConnectorStateMachine(JdbcTemplate jdbcTemplate,
+                                 ConnectorRepository connectorRepository,
+                                 DashboardStatsService dashboardStatsService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${ocpp.connectors.strict-transitions:true}") boolean strictTransitions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.connectorRepository = connectorRepository;
+        this.dashboardStatsService = dashboardStatsService;
+        this.strictTransitions = strictTransitions;
+
+        this.appliedCounter = meterRegistry.counter("ocpp.connector.events", "result", "applied");
+        this.unchangedCounter = meterRegistry.counter("ocpp.connector.events", "result", "unchanged");
+        this.rejectedCounter = meterRegistry.counter("ocpp.connector.events", "result", "rejected");
+        this.illegalCounter = meterRegistry.counter("ocpp.connector.events", "result", "illegal");
+        this.flushTimer = meterRegistry.timer("ocpp.connector.flush");
+        meterRegistry.gaugeMapSize("ocpp.connector.stations", Tags.empty(), stations);
+        meterRegistry.gaugeCollectionSize("ocpp.connector.dirty", Tags.empty(), dirty);
+    }
+
+    /**
+     * Applies a StatusNotification.
+     *
+     * @return {@link Outcome#REJECTED} if the transition is illegal and transitions are strict;
+     *         with lenient transitions it is applied and counted
+     */
+    public Outcome statusNotification(UUID stationId, int connectorId, String status, String errorCode,
+                                      String info, String vendorId, String vendorErrorCode) {
+        String resolvedErrorCode = errorCode != null ? errorCode : "NoError";
+        StationConnectors station = station(stationId);
+        synchronized (station) {
+            ConnectorState connector = station.connectors.get(connectorId);
+            String reported = connector != null ? connector.reported : null;
+            if (!isAllowed(connectorId, reported, status)) {
+                if (strictTransitions || status == null) {
+                    return reject(stationId, connectorId, reported, status);
+                }
+                illegalCounter.increment();
+                log.warn("Applying illegal connector transition {} -> {} on {}/{}",
+                        reported, status, stationId, connectorId);
+            }
+            if (connector == null) {
+                connector = station.create(connectorId);
+                connector.status = null;
+            }
+
+            connector.reported = status;
+            if (status.equals(connector.status) && resolvedErrorCode.equals(connector.errorCode)
+                    && Objects.equals(info, connector.info) && Objects.equals(vendorId, connector.vendorId)
+                    && Objects.equals(vendorErrorCode, connector.vendorErrorCode)) {
+                unchangedCounter.increment();
+                return Outcome.UNCHANGED;
+            }
+            dashboardStatsService.connectorStatusChanged(connector.status, status);
+            connector.status = status;
+            connector.errorCode = resolvedErrorCode;
+            connector.info = info;
+            connector.vendorId = vendorId;
+            connector.vendorErrorCode = vendorErrorCode;
+            return changed(connector);
+        }
+    }
+
+    /**
+     * Links the connector to a started transaction and shows it as charging.
+     */
+    public void transactionStarted(UUID stationId, int connectorId, UUID transactionId) {
+        StationConnectors station = station(stationId);
+        synchronized (station) {
+            ConnectorState connector = station.connectors.get(connectorId);
+            if (connector == null) {
+                // Not reported yet; the station's StatusNotification follows
+                connector = station.create(connectorId);
+                dashboardStatsService.connectorStatusChanged(null, connector.status);
+            }
+            dashboardStatsService.connectorStatusChanged(connector.status, CHARGING);
+            connector.status = CHARGING;
+            connector.currentTransactionId = transactionId;
+            changed(connector);
+        }
+    }
+
+    /**
+     * Unlinks the connector from a stopped transaction and shows it as available.
+     */
+    public void transactionStopped(UUID stationId, int connectorId, UUID transactionId) {
+        StationConnectors station = station(stationId);
+        synchronized (station) {
+            ConnectorState connector = station.connectors.get(connectorId);
+            if (connector == null) {
+                return;
+            }
+            if (connector.currentTransactionId != null && !connector.currentTransactionId.equals(transactionId)) {
+                // A later transaction already took the connector over
+                return;
+            }
+            dashboardStatsService.connectorStatusChanged(connector.status, AVAILABLE);
+            connector.status = AVAILABLE;
+            connector.currentTransactionId = null;
+            changed(connector);
+        }
+    }
+
+    /**
+     * Forgets the statuses a station reported before it rebooted, so any status is
+     * accepted as the first report afterwards.
+     */
+    public void stationBooted(UUID stationId) {
+        StationConnectors station = station(stationId);
+        synchronized (station) {
+            station.connectors.values().forEach(connector -> connector.reported = null);
+        }
+    }
+
+    /**
+     * Drops a station's connectors from memory, writing its pending changes first, so they
+     * are loaded from the database again the next time the station is seen. Used in a
+     * cluster, where the station may be served by another node in between.
+     */
+    public void unload(UUID stationId) {
+        StationConnectors station = stations.remove(stationId);
+        if (station == null) {
+            return;
+        }
+        List<ConnectorState> pending = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        synchronized (station) {
+            for (ConnectorState connector : station.connectors.values()) {
+                if (dirty.remove(connector)) {
+                    pending.add(connector);
+                    rows.add(connector.toRow());
+                }
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows, ARG_TYPES);
+        } catch (Exception e) {
+            // Left to the periodic flush
+            dirty.addAll(pending);
+            log.error("Failed to write {} connectors of station {}: {}", rows.size(), stationId, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a connector's current state right away, in the caller's transaction if there is
+     * one. The connector stays dirty, so the periodic flush still writes it should that
+     * transaction roll back.
+     */
+    public void persist(UUID stationId, int connectorId) {
+        StationConnectors station = station(stationId);
+        Object[] row;
+        synchronized (station) {
+            ConnectorState connector = station.connectors.get(connectorId);
+            if (connector == null) {
+                return;
+            }
+            row = connector.toRow();
+        }
+        jdbcTemplate.update(UPSERT_SQL, row, ARG_TYPES);
+    }
+
+    /**
+     * The connectors of a station held in memory, or as last written to the database for a
+     * station this node does not serve. Reading never loads a station into memory.
+     */
+    public List<Connector> getConnectors(UUID stationId) {
+        StationConnectors station = stations.get(stationId);
+        if (station == null) {
+            List<Connector> stored = new ArrayList<>(connectorRepository.findByChargingStationId(stationId));
+            stored.sort(Comparator.comparing(Connector::getConnectorId));
+            return stored;
+        }
+        List<Connector> connectors = new ArrayList<>();
+        synchronized (station) {
+            for (ConnectorState state : station.connectors.values()) {
+                connectors.add(state.toConnector());
+            }
+        }
+        connectors.sort(Comparator.comparing(Connector::getConnectorId));
+        return connectors;
+    }
+
+    public Optional<String> getStatus(UUID stationId, int connectorId) {
+        StationConnectors station = stations.get(stationId);
+        if (station == null) {
+            return connectorRepository.findByChargingStationId(stationId).stream()
+                    .filter(connector -> Integer.valueOf(connectorId).equals(connector.getConnectorId()))
+                    .map(Connector::getStatus)
+                    .findFirst();
+        }
+        synchronized (station) {
+            ConnectorState connector = station.connectors.get(connectorId);
+            return connector != null ? Optional.of(connector.status) : Optional.empty();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ocpp.connectors.flush-interval-ms:1000}")
+    @PreDestroy
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        List<ConnectorState> flushed = new ArrayList<>(dirty.size());
+        List<Object[]> rows = new ArrayList<>(dirty.size());
+        for (Iterator<ConnectorState> it = dirty.iterator(); it.hasNext(); ) {
+            ConnectorState connector = it.next();
+            it.remove();
+            flushed.add(connector);
+            synchronized (connector.station) {
+                rows.add(connector.toRow());
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows, ARG_TYPES);
+            log.debug("Flushed {} connectors", rows.size());
+        } catch (Exception e) {
+            // Marked dirty again so the next flush retries them with their latest state
+            dirty.addAll(flushed);
+            log.error("Failed to flush {} connectors: {}", rows.size(), e.getMessage());
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private StationConnectors station(UUID stationId) {
+        StationConnectors station = stations.get(stationId);
+        if (station != null) {
+            return station;
+        }
+        return stations.computeIfAbsent(stationId, id -> {
+            StationConnectors loaded = new StationConnectors(id);
+            for (Connector connector : connectorRepository.findByChargingStationId(id)) {
+                loaded.load(connector);
+            }
+            return loaded;
+        });
+    }
+
+    private Outcome changed(ConnectorState connector) {
+        connector.updatedAt = LocalDateTime.now();
+        dirty.add(connector);
+        appliedCounter.increment();
+        return Outcome.APPLIED;
+    }
+
+    private Outcome reject(UUID stationId, int connectorId, String from, String to) {
+        rejectedCounter.increment();
+        log.warn("Rejected connector transition {} -> {} on {}/{}", from, to, stationId, connectorId);
+        return Outcome.REJECTED;
+    }
+
+    private static boolean isAllowed(int connectorId, String from, String to) {
+        if (to == null || (connectorId == 0 ? !STATION_STATUSES.contains(to) : !TRANSITIONS.containsKey(to))) {
+            return false;
+        }
+        if (from == null || from.equals(to)) {
+            return true;
+        }
+        Set<String> next = TRANSITIONS.get(from);
+        return next == null || next.contains(to);
+    }
+
+    private static final class StationConnectors {
+        private final UUID stationId;
+        private final Map<Integer, ConnectorState> connectors = new TreeMap<>();
+
+        StationConnectors(UUID stationId) {
+            this.stationId = stationId;
+        }
+
+        void load(Connector connector) {
+            ConnectorState state = new ConnectorState(this, connector.getId(), connector.getConnectorId(),
+                    connector.getCreatedAt());
+            state.status = connector.getStatus();
+            state.errorCode = connector.getErrorCode();
+            state.info = connector.getInfo();
+            state.vendorId = connector.getVendorId();
+            state.vendorErrorCode = connector.getVendorErrorCode();
+            state.currentTransactionId = connector.getCurrentTransactionId();
+            state.updatedAt = connector.getUpdatedAt();
+            connectors.put(connector.getConnectorId(), state);
+        }
+
+        ConnectorState create(int connectorId) {
+            ConnectorState state = new ConnectorState(this, UUID.randomUUID(), connectorId, LocalDateTime.now());
+            connectors.put(connectorId, state);
+            return state;
+        }
+    }
+
+    /**
+     * Fields are guarded by the lock of {@link #station}.
+     */
+    private static final class ConnectorState {
+        private final StationConnectors station;
+        private final UUID id;
+        private final int connectorId;
+        private final LocalDateTime createdAt;
+        private String status = UNAVAILABLE;
+        /** Last status reported by the station since it booted, if any */
+        private String reported;
+        private String errorCode = "NoError";
+        private String info;
+        private String vendorId;
+        private String vendorErrorCode;
+        private UUID currentTransactionId;
+        private LocalDateTime updatedAt;
+
+        ConnectorState(StationConnectors station, UUID id, int connectorId, LocalDateTime createdAt) {
+            this.station = station;
+            this.id = id;
+            this.connectorId = connectorId;
+            this.createdAt = createdAt;
+            this.updatedAt = createdAt;
+        }
+
+        Object[] toRow() {
+            return new Object[]{id, station.stationId, connectorId, status, errorCode, info, vendorId,
+                    vendorErrorCode, currentTransactionId, timestamp(createdAt), timestamp(updatedAt)};
+        }
+
+        Connector toConnector() {
+            ChargingStation chargingStation = new ChargingStation();
+            chargingStation.setId(station.stationId);
+            return new Connector(id, chargingStation, connectorId, status, errorCode, vendorId, vendorErrorCode,
+                    info, currentTransactionId, createdAt, updatedAt);
+        }
+
+        private static Timestamp timestamp(LocalDateTime time) {
+            return time != null ? Timestamp.valueOf(time) : null;
+        }
+    }
+}
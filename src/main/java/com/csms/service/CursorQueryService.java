@@ -0,0 +1,398 @@
+package com.csms.service;
+
+import com.csms.dto.ChargingStationQuery;
+import com.csms.dto.ChargingStationSummary;
+import com.csms.dto.CursorPage;
+import com.csms.dto.IdTagQuery;
+import com.csms.dto.IdTagSummary;
+import com.csms.dto.MeterValueQuery;
+import com.csms.dto.MeterValueReading;
+import com.csms.dto.OcppMessageEntry;
+import com.csms.dto.OcppMessageQuery;
+import com.csms.dto.PageQuery;
+import com.csms.dto.TransactionQuery;
+import com.csms.dto.TransactionSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Read-side listings for the REST API, paged by keyset instead of offset.
+ * <p>
+ * Each listing selects only the columns of its summary DTO over JDBC, so no entities or
+ * lazy associations are loaded. Rows are ordered by a unique key and a page continues
+ * after the last key of the previous one ({@code WHERE key > ?}), which keeps deep pages
+ * as cheap as the first. The cursor handed to clients is that key, opaque-encoded.
+ * Streams walk the same query in batches and write NDJSON as they go.
+ */
+@Service
+public class CursorQueryService {
+
+    private static final String SORT_ASC = "asc";
+    private static final String SORT_DESC = "desc";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterValueCodes codes;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int streamBatchSize;
+
+    public CursorQueryService(JdbcTemplate jdbcTemplate,
+                              ObjectMapper objectMapper,
+                              MeterValueCodes codes,
+                              @Value("${ocpp.api.page.default-size:100}") int defaultPageSize,
+                              @Value("${ocpp.api.page.max-size:1000}") int maxPageSize,
+                              @Value("${ocpp.api.page.stream-batch-size:5000}") int streamBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.codes = codes;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.streamBatchSize = streamBatchSize;
+    }
+
+    /**
+     * Indexes behind the transaction listings, which Hibernate only creates along with
+     * the table. Skipped while the table does not exist yet, as on a first start with
+     * {@code ddl-auto=update}.
+     */
+    @PostConstruct
+    public void createIndexes() {
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass('transactions') IS NOT NULL", Boolean.class);
+        if (!Boolean.TRUE.equals(exists)) {
+            return;
+        }
+        // Keyset order of the transaction listings, filtered by station or status
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_transactions_station " +
+                "ON transactions (charging_station_id, transaction_id)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_transactions_status " +
+                "ON transactions (status, transaction_id)");
+    }
+
+    public CursorPage<ChargingStationSummary> findStations(ChargingStationQuery query) {
+        return page(stations(query), query);
+    }
+
+    public void streamStations(ChargingStationQuery query, OutputStream output) throws IOException {
+        stream(stations(query), output);
+    }
+
+    public CursorPage<IdTagSummary> findIdTags(IdTagQuery query) {
+        return page(idTags(query), query);
+    }
+
+    public void streamIdTags(IdTagQuery query, OutputStream output) throws IOException {
+        stream(idTags(query), output);
+    }
+
+    public CursorPage<TransactionSummary> findTransactions(TransactionQuery query) {
+        return page(transactions(query), query);
+    }
+
+    public void streamTransactions(TransactionQuery query, OutputStream output) throws IOException {
+        stream(transactions(query), output);
+    }
+
+    public CursorPage<MeterValueReading> findMeterValuesByTransaction(Integer transactionId, MeterValueQuery query) {
+        return page(meterValues(query).filter("transaction_id = ?", transactionId), query);
+    }
+
+    public void streamMeterValuesByTransaction(Integer transactionId, MeterValueQuery query,
+                                               OutputStream output) throws IOException {
+        stream(meterValues(query).filter("transaction_id = ?", transactionId), output);
+    }
+
+    public CursorPage<MeterValueReading> findMeterValuesByConnector(UUID chargingStationId, Integer connectorId,
+                                                                    MeterValueQuery query) {
+        return page(meterValues(query)
+                .filter("charging_station_id = ?", chargingStationId)
+                .filter("connector_id = ?", connectorId), query);
+    }
+
+    public void streamMeterValuesByConnector(UUID chargingStationId, Integer connectorId, MeterValueQuery query,
+                                             OutputStream output) throws IOException {
+        stream(meterValues(query)
+                .filter("charging_station_id = ?", chargingStationId)
+                .filter("connector_id = ?", connectorId), output);
+    }
+
+    public CursorPage<OcppMessageEntry> findOcppMessages(OcppMessageQuery query) {
+        return page(ocppMessages(query), query);
+    }
+
+    public void streamOcppMessages(OcppMessageQuery query, OutputStream output) throws IOException {
+        stream(ocppMessages(query), output);
+    }
+
+    private Listing<ChargingStationSummary> stations(ChargingStationQuery query) {
+        return new Listing<ChargingStationSummary>(
+                "SELECT id, charge_point_id, charge_point_vendor, charge_point_model, firmware_version, " +
+                        "registration_status, last_heartbeat FROM charging_stations",
+                List.of("charge_point_id"), descending(query, false),
+                (rs, i) -> new ChargingStationSummary(
+                        rs.getObject(1, UUID.class),
+                        rs.getString(2),
+                        rs.getString(3),
+                        rs.getString(4),
+                        rs.getString(5),
+                        rs.getString(6),
+                        toLocalDateTime(rs.getTimestamp(7))),
+                station -> List.of(station.getChargePointId()),
+                key -> List.of(key.get(0)))
+                .filter("charge_point_vendor = ?", query.getVendor())
+                .filter("charge_point_model = ?", query.getModel())
+                .filter("firmware_version = ?", query.getFirmwareVersion())
+                .filter("registration_status = ?", query.getRegistrationStatus());
+    }
+
+    private Listing<IdTagSummary> idTags(IdTagQuery query) {
+        return new Listing<IdTagSummary>(
+                "SELECT id_tag, parent_id_tag, expiry_date, status FROM id_tags",
+                List.of("id_tag"), descending(query, false),
+                (rs, i) -> new IdTagSummary(
+                        rs.getString(1),
+                        rs.getString(2),
+                        toLocalDateTime(rs.getTimestamp(3)),
+                        rs.getString(4)),
+                tag -> List.of(tag.getIdTag()),
+                key -> List.of(key.get(0)))
+                .filter("status = ?", query.getStatus())
+                .filter("parent_id_tag = ?", query.getParentIdTag())
+                .filter("id_tag LIKE ?", query.getPrefix() != null ? escapeLike(query.getPrefix()) + "%" : null);
+    }
+
+    private Listing<TransactionSummary> transactions(TransactionQuery query) {
+        return new Listing<TransactionSummary>(
+                "SELECT t.transaction_id, cs.charge_point_id, t.connector_id, t.id_tag, t.start_timestamp, " +
+                        "t.end_timestamp, t.start_meter_value, t.end_meter_value, t.status, t.reason " +
+                        "FROM transactions t LEFT JOIN charging_stations cs ON cs.id = t.charging_station_id",
+                List.of("t.transaction_id"), descending(query, true),
+                (rs, i) -> new TransactionSummary(
+                        rs.getInt(1),
+                        rs.getString(2),
+                        rs.getObject(3, Integer.class),
+                        rs.getString(4),
+                        toLocalDateTime(rs.getTimestamp(5)),
+                        toLocalDateTime(rs.getTimestamp(6)),
+                        rs.getObject(7, Integer.class),
+                        rs.getObject(8, Integer.class),
+                        rs.getString(9),
+                        rs.getString(10)),
+                transaction -> List.of(String.valueOf(transaction.getTransactionId())),
+                key -> List.of(Integer.valueOf(key.get(0))))
+                .filter("t.status = ?", query.getStatus())
+                .filter("cs.charge_point_id = ?", query.getChargePointId())
+                .filter("t.id_tag = ?", query.getIdTag())
+                .filter("t.start_timestamp >= ?", toTimestamp(query.getFrom()))
+                .filter("t.start_timestamp < ?", toTimestamp(query.getTo()));
+    }
+
+    private Listing<MeterValueReading> meterValues(MeterValueQuery query) {
+        return new Listing<MeterValueReading>(
+                "SELECT id, connector_id, transaction_id, timestamp, meter_value, measurand, phase, unit, " +
+                        "context, location FROM meter_values",
+                List.of("timestamp", "id"), descending(query, false),
+                (rs, i) -> new MeterValueReading(
+                        rs.getLong(1),
+                        rs.getObject(2, Integer.class),
+                        rs.getObject(3, Integer.class),
+                        toLocalDateTime(rs.getTimestamp(4)),
+                        rs.getObject(5, Double.class),
+                        codes.decode(rs, 6),
+                        codes.decode(rs, 7),
+                        codes.decode(rs, 8),
+                        codes.decode(rs, 9),
+                        codes.decode(rs, 10)),
+                reading -> List.of(reading.getTimestamp().toString(), reading.getId().toString()),
+                key -> List.of(Timestamp.valueOf(LocalDateTime.parse(key.get(0))), Long.valueOf(key.get(1))))
+                .filter("measurand = ?", codes.find(MeterValueCodes.MEASURAND, query.getMeasurand()))
+                .filter("timestamp >= ?", toTimestamp(query.getFrom()))
+                .filter("timestamp < ?", toTimestamp(query.getTo()));
+    }
+
+    private Listing<OcppMessageEntry> ocppMessages(OcppMessageQuery query) {
+        return new Listing<OcppMessageEntry>(
+                "SELECT id, timestamp, charge_point_id, message_direction, message_type, unique_id, action, " +
+                        "error_code, error_description, payload FROM ocpp_messages",
+                List.of("timestamp", "id"), descending(query, true),
+                (rs, i) -> new OcppMessageEntry(
+                        rs.getLong(1),
+                        toLocalDateTime(rs.getTimestamp(2)),
+                        rs.getString(3),
+                        rs.getString(4),
+                        rs.getInt(5),
+                        rs.getString(6),
+                        rs.getString(7),
+                        rs.getString(8),
+                        rs.getString(9),
+                        rs.getString(10)),
+                message -> List.of(message.getTimestamp().toString(), message.getId().toString()),
+                key -> List.of(Timestamp.valueOf(LocalDateTime.parse(key.get(0))), Long.valueOf(key.get(1))))
+                .filter("charge_point_id = ?", query.getChargePointId())
+                .filter("action = ?", query.getAction())
+                .filter("message_direction = ?",
+                        query.getDirection() != null ? query.getDirection().toUpperCase(Locale.ROOT) : null)
+                .filter("unique_id = ?", query.getUniqueId())
+                .filter("timestamp >= ?", toTimestamp(query.getFrom()))
+                .filter("timestamp < ?", toTimestamp(query.getTo()));
+    }
+
+    private <T> CursorPage<T> page(Listing<T> listing, PageQuery query) {
+        int limit = query.getLimit() != null ? query.getLimit() : defaultPageSize;
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        limit = Math.min(limit, maxPageSize);
+
+        // One extra row tells whether another page follows without a count query
+        List<T> rows = listing.fetch(decodeCursor(listing, query.getCursor()), limit + 1);
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, limit));
+        return new CursorPage<>(items, encodeCursor(listing.keyOf.apply(items.get(limit - 1))));
+    }
+
+    private <T> void stream(Listing<T> listing, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        List<Object> after = null;
+        while (true) {
+            List<T> rows = listing.fetch(after, streamBatchSize);
+            for (T row : rows) {
+                writer.write(objectMapper.writeValueAsString(row));
+                writer.write('\n');
+            }
+            writer.flush();
+            if (rows.size() < streamBatchSize) {
+                break;
+            }
+            after = listing.keyParser.apply(listing.keyOf.apply(rows.get(rows.size() - 1)));
+        }
+    }
+
+    private String encodeCursor(List<String> key) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(key));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode cursor", e);
+        }
+    }
+
+    private List<Object> decodeCursor(Listing<?> listing, String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String[] key = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), String[].class);
+            if (key.length != listing.keyColumns.size()) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return listing.keyParser.apply(List.of(key));
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    private static boolean descending(PageQuery query, boolean defaultDescending) {
+        if (query.getSort() == null) {
+            return defaultDescending;
+        }
+        if (SORT_ASC.equalsIgnoreCase(query.getSort())) {
+            return false;
+        }
+        if (SORT_DESC.equalsIgnoreCase(query.getSort())) {
+            return true;
+        }
+        throw new IllegalArgumentException("sort must be asc or desc");
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp value) {
+        return value != null ? value.toLocalDateTime() : null;
+    }
+
+    /**
+     * A projection query ordered by a unique key, plus the optional filters of one request.
+     */
+    private final class Listing<T> {
+
+        private final String select;
+        private final List<String> keyColumns;
+        private final boolean descending;
+        private final RowMapper<T> rowMapper;
+        private final Function<T, List<String>> keyOf;
+        private final Function<List<String>, List<Object>> keyParser;
+        private final List<String> conditions = new ArrayList<>();
+        private final List<Object> args = new ArrayList<>();
+
+        Listing(String select, List<String> keyColumns, boolean descending, RowMapper<T> rowMapper,
+                Function<T, List<String>> keyOf, Function<List<String>, List<Object>> keyParser) {
+            this.select = select;
+            this.keyColumns = keyColumns;
+            this.descending = descending;
+            this.rowMapper = rowMapper;
+            this.keyOf = keyOf;
+            this.keyParser = keyParser;
+        }
+
+        Listing<T> filter(String condition, Object value) {
+            if (value != null) {
+                conditions.add(condition);
+                args.add(value);
+            }
+            return this;
+        }
+
+        List<T> fetch(List<Object> after, int limit) {
+            List<String> where = new ArrayList<>(conditions);
+            List<Object> params = new ArrayList<>(args);
+            if (after != null) {
+                String columns = String.join(", ", keyColumns);
+                String placeholders = String.join(", ", keyColumns.stream().map(column -> "?").toList());
+                String comparison = descending ? " < " : " > ";
+                where.add(keyColumns.size() == 1
+                        ? columns + comparison + placeholders
+                        : "(" + columns + ")" + comparison + "(" + placeholders + ")");
+                params.addAll(after);
+            }
+
+            StringBuilder sql = new StringBuilder(select);
+            if (!where.isEmpty()) {
+                sql.append(" WHERE ").append(String.join(" AND ", where));
+            }
+            sql.append(" ORDER BY ");
+            for (int i = 0; i < keyColumns.size(); i++) {
+                sql.append(i > 0 ? ", " : "").append(keyColumns.get(i)).append(descending ? " DESC" : "");
+            }
+            sql.append(" LIMIT ?");
+            params.add(limit);
+            return jdbcTemplate.query(sql.toString(), rowMapper, params.toArray());
+        }
+    }
+}
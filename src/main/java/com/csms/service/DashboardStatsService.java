@@ -0,0 +1,200 @@
+package com.csms.service;
+
+import com.csms.dto.DashboardStats;
+import com.csms.scheduler.StationOfflineDetector;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dashboard counters kept up to date as stations register, connectors change status and
+ * transactions start or stop, so reading them never touches the database.
+ * <p>
+ * Updates are applied by the services that write those changes. A single grouped count
+ * query periodically overwrites the counters to correct any drift, such as changes made
+ * directly in the database or an update racing the previous reconciliation. Offline
+ * stations come from {@link StationOfflineDetector}.
+ * <p>
+ * Open dashboards subscribe over SSE: they get the full stats first, then only the
+ * fields that changed, at most once per push interval.
+ */
+@Component
+@Slf4j
+public class DashboardStatsService {
+
+    private static final String COUNT_SQL =
+            "SELECT 'stations', NULL, count(*) FROM charging_stations " +
+                    "UNION ALL SELECT 'connectors', status, count(*) FROM connectors GROUP BY status " +
+                    "UNION ALL SELECT 'transactions', NULL, count(*) FROM transactions WHERE status = 'Active'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StationOfflineDetector stationOfflineDetector;
+    private final Counter driftCounter;
+
+    private final AtomicLong totalStations = new AtomicLong();
+    private final AtomicLong activeTransactions = new AtomicLong();
+    private final Map<String, AtomicLong> connectorsByStatus = new ConcurrentHashMap<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    public DashboardStatsService(JdbcTemplate jdbcTemplate,
+                                 StationOfflineDetector stationOfflineDetector,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.stationOfflineDetector = stationOfflineDetector;
+        this.driftCounter = meterRegistry.counter("ocpp.dashboard.reconcile.drift");
+    }
+
+    public DashboardStats getStats() {
+        long stations = totalStations.get();
+        long offline = Math.min(stationOfflineDetector.getOfflineCount(), stations);
+        long connectors = 0;
+        for (AtomicLong count : connectorsByStatus.values()) {
+            connectors += count.get();
+        }
+        return new DashboardStats(
+                stations, stations - offline, offline, activeTransactions.get(),
+                connectors, connectorCount("Available"), connectorCount("Charging"), connectorCount("Faulted"));
+    }
+
+    public void stationAdded() {
+        totalStations.incrementAndGet();
+    }
+
+    /**
+     * @param previousStatus {@code null} for a connector seen for the first time
+     */
+    public void connectorStatusChanged(String previousStatus, String status) {
+        if (Objects.equals(previousStatus, status)) {
+            return;
+        }
+        if (previousStatus != null) {
+            connectorsByStatus.computeIfAbsent(previousStatus, key -> new AtomicLong()).decrementAndGet();
+        }
+        if (status != null) {
+            connectorsByStatus.computeIfAbsent(status, key -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    public void transactionStarted() {
+        activeTransactions.incrementAndGet();
+    }
+
+    public void transactionStopped() {
+        activeTransactions.decrementAndGet();
+    }
+
+    public SseEmitter subscribe() throws IOException {
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter, getStats());
+        emitter.send(SseEmitter.event().name("snapshot").data(subscriber.sent));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${ocpp.dashboard.reconcile-interval-ms:60000}",
+            initialDelayString = "${ocpp.dashboard.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        long[] counts = new long[2];
+        Map<String, Long> connectors = new HashMap<>();
+        jdbcTemplate.query(COUNT_SQL, rs -> {
+            switch (rs.getString(1)) {
+                case "stations" -> counts[0] = rs.getLong(3);
+                case "transactions" -> counts[1] = rs.getLong(3);
+                default -> {
+                    if (rs.getString(2) != null) {
+                        connectors.put(rs.getString(2), rs.getLong(3));
+                    }
+                }
+            }
+        });
+
+        int drift = overwrite(totalStations, counts[0]) + overwrite(activeTransactions, counts[1]);
+        for (String status : connectorsByStatus.keySet()) {
+            connectors.putIfAbsent(status, 0L);
+        }
+        for (Map.Entry<String, Long> entry : connectors.entrySet()) {
+            drift += overwrite(connectorsByStatus.computeIfAbsent(entry.getKey(), key -> new AtomicLong()), entry.getValue());
+        }
+        if (drift > 0) {
+            driftCounter.increment(drift);
+            log.debug("Dashboard reconciliation corrected {} counters", drift);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ocpp.dashboard.push-interval-ms:1000}")
+    public void publishChanges() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        DashboardStats stats = getStats();
+        for (Subscriber subscriber : subscribers) {
+            Map<String, Long> changes = diff(subscriber.sent, stats);
+            if (changes.isEmpty()) {
+                continue;
+            }
+            try {
+                subscriber.emitter.send(SseEmitter.event().name("delta").data(changes));
+                subscriber.sent = stats;
+            } catch (Exception e) {
+                log.debug("Dropping dashboard subscriber: {}", e.getMessage());
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+
+    private long connectorCount(String status) {
+        AtomicLong count = connectorsByStatus.get(status);
+        return count != null ? count.get() : 0;
+    }
+
+    private static int overwrite(AtomicLong counter, long value) {
+        return counter.getAndSet(value) != value ? 1 : 0;
+    }
+
+    private static Map<String, Long> diff(DashboardStats previous, DashboardStats current) {
+        Map<String, Long> changes = new LinkedHashMap<>();
+        putIfChanged(changes, "totalStations", previous.getTotalStations(), current.getTotalStations());
+        putIfChanged(changes, "onlineStations", previous.getOnlineStations(), current.getOnlineStations());
+        putIfChanged(changes, "offlineStations", previous.getOfflineStations(), current.getOfflineStations());
+        putIfChanged(changes, "activeTransactions", previous.getActiveTransactions(), current.getActiveTransactions());
+        putIfChanged(changes, "totalConnectors", previous.getTotalConnectors(), current.getTotalConnectors());
+        putIfChanged(changes, "availableConnectors", previous.getAvailableConnectors(), current.getAvailableConnectors());
+        putIfChanged(changes, "chargingConnectors", previous.getChargingConnectors(), current.getChargingConnectors());
+        putIfChanged(changes, "faultedConnectors", previous.getFaultedConnectors(), current.getFaultedConnectors());
+        return changes;
+    }
+
+    private static void putIfChanged(Map<String, Long> changes, String field, long previous, long current) {
+        if (previous != current) {
+            changes.put(field, current);
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private volatile DashboardStats sent;
+
+        Subscriber(SseEmitter emitter, DashboardStats sent) {
+            this.emitter = emitter;
+            this.sent = sent;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.csms.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Allocates the integer ids OCPP uses for transactions and reservations.
+ */
+@Service
+public class IdAllocationService {
+
+    private final SequenceIdAllocator transactionIds;
+    private final SequenceIdAllocator reservationIds;
+
+    public IdAllocationService(JdbcTemplate jdbcTemplate,
+                               @Value("${ocpp.id-allocation.block-size:50}") int blockSize,
+                               @Value("${ocpp.spool.enabled:false}") boolean spoolEnabled) {
+        // Spooled StartTransactions are answered with an id while the database may be down
+        this.transactionIds = new SequenceIdAllocator(jdbcTemplate, "transaction_id_seq", blockSize, spoolEnabled);
+        this.reservationIds = new SequenceIdAllocator(jdbcTemplate, "reservation_id_seq", blockSize);
+    }
+
+    @PostConstruct
+    public void initialize() {
+        transactionIds.initialize("transactions", "transaction_id");
+        reservationIds.initialize("reservations", "reservation_id");
+    }
+
+    public int nextTransactionId() {
+        return Math.toIntExact(transactionIds.nextId());
+    }
+
+    public int nextReservationId() {
+        return Math.toIntExact(reservationIds.nextId());
+    }
+}
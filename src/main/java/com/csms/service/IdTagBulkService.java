@@ -0,0 +1,222 @@
+package com.csms.service;
+
+import com.csms.dto.BulkImportResult;
+import com.csms.model.IdTag;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Streams ID tags in and out of {@code id_tags} for partner synchronisation.
+ * <p>
+ * Imports read NDJSON or CSV line by line and upsert in JDBC batches, each batch
+ * committing on its own, so memory use does not grow with the file size. Exports page
+ * through the table by {@code id_tag} and write rows straight to the output.
+ */
+@Service
+@Slf4j
+public class IdTagBulkService {
+
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+
+    private static final String CSV_HEADER = "idTag,parentIdTag,expiryDate,status";
+    private static final Set<String> VALID_STATUSES = Set.of("Accepted", "Blocked", "Expired", "Invalid", "ConcurrentTx");
+    private static final int MAX_ERRORS_REPORTED = 100;
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO id_tags (id, id_tag, parent_id_tag, expiry_date, status, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, now(), now()) " +
+                    "ON CONFLICT (id_tag) DO UPDATE SET parent_id_tag = EXCLUDED.parent_id_tag, " +
+                    "expiry_date = EXCLUDED.expiry_date, status = EXCLUDED.status, updated_at = now()";
+
+    private static final String PAGE_SQL =
+            "SELECT id_tag, parent_id_tag, expiry_date, status FROM id_tags " +
+                    "WHERE id_tag > ? ORDER BY id_tag LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final AuthorizationService authorizationService;
+    private final int batchSize;
+    private final int exportPageSize;
+
+    public IdTagBulkService(JdbcTemplate jdbcTemplate,
+                            ObjectMapper objectMapper,
+                            AuthorizationService authorizationService,
+                            @Value("${ocpp.id-tags.bulk.batch-size:1000}") int batchSize,
+                            @Value("${ocpp.id-tags.bulk.export-page-size:5000}") int exportPageSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.authorizationService = authorizationService;
+        this.batchSize = batchSize;
+        this.exportPageSize = exportPageSize;
+    }
+
+    public BulkImportResult importTags(InputStream input, String format) throws IOException {
+        long start = System.currentTimeMillis();
+        BulkImportResult result = new BulkImportResult();
+        // Keyed by tag so a duplicate within one batch doesn't hit ON CONFLICT twice in a statement
+        Map<String, IdTag> batch = new LinkedHashMap<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (FORMAT_CSV.equals(format) && lineNumber == 1 && isCsvHeader(line))) {
+                    continue;
+                }
+                result.setProcessed(result.getProcessed() + 1);
+
+                try {
+                    IdTag tag = FORMAT_CSV.equals(format) ? parseCsv(line) : objectMapper.readValue(line, IdTag.class);
+                    validate(tag);
+                    batch.put(tag.getIdTag(), tag);
+                } catch (Exception e) {
+                    result.setRejected(result.getRejected() + 1);
+                    if (result.getErrors().size() < MAX_ERRORS_REPORTED) {
+                        result.getErrors().add("Line " + lineNumber + ": " + e.getMessage());
+                    }
+                }
+
+                if (batch.size() >= batchSize) {
+                    result.setUpserted(result.getUpserted() + upsert(batch.values()));
+                    batch.clear();
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            result.setUpserted(result.getUpserted() + upsert(batch.values()));
+        }
+
+        result.setDurationMillis(System.currentTimeMillis() - start);
+        log.info("Imported {} ID tags ({} rejected) in {} ms",
+                result.getUpserted(), result.getRejected(), result.getDurationMillis());
+        return result;
+    }
+
+    public void exportTags(OutputStream output, String format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (FORMAT_CSV.equals(format)) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        String after = "";
+        while (true) {
+            String[] lastTag = new String[1];
+            jdbcTemplate.query(PAGE_SQL, rs -> {
+                String idTag = rs.getString(1);
+                Timestamp expiry = rs.getTimestamp(3);
+                IdTag tag = new IdTag();
+                tag.setIdTag(idTag);
+                tag.setParentIdTag(rs.getString(2));
+                tag.setExpiryDate(expiry != null ? expiry.toLocalDateTime() : null);
+                tag.setStatus(rs.getString(4));
+                try {
+                    writeTag(writer, tag, format);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                lastTag[0] = idTag;
+            }, after, exportPageSize);
+
+            writer.flush();
+            if (lastTag[0] == null) {
+                break;
+            }
+            after = lastTag[0];
+        }
+    }
+
+    private int upsert(Iterable<IdTag> tags) {
+        List<IdTag> rows = new ArrayList<>();
+        tags.forEach(rows::add);
+
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, tag) -> {
+            ps.setObject(1, UUID.randomUUID());
+            ps.setString(2, tag.getIdTag());
+            ps.setString(3, tag.getParentIdTag());
+            ps.setTimestamp(4, tag.getExpiryDate() != null ? Timestamp.valueOf(tag.getExpiryDate()) : null);
+            ps.setString(5, tag.getStatus());
+        });
+
+        authorizationService.invalidate(rows.stream().map(IdTag::getIdTag).toList());
+        return rows.size();
+    }
+
+    private void writeTag(Writer writer, IdTag tag, String format) throws IOException {
+        if (FORMAT_CSV.equals(format)) {
+            writer.write(CsvFormat.escape(tag.getIdTag()));
+            writer.write(',');
+            writer.write(CsvFormat.escape(tag.getParentIdTag()));
+            writer.write(',');
+            writer.write(CsvFormat.escape(tag.getExpiryDate()));
+            writer.write(',');
+            writer.write(CsvFormat.escape(tag.getStatus()));
+        } else {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("idTag", tag.getIdTag());
+            row.put("parentIdTag", tag.getParentIdTag());
+            row.put("expiryDate", tag.getExpiryDate());
+            row.put("status", tag.getStatus());
+            writer.write(objectMapper.writeValueAsString(row));
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * A header names the first column {@code idTag}. Matching the whole field keeps a
+     * headerless file whose first tag merely starts with "idTag" from losing that row.
+     */
+    private static boolean isCsvHeader(String line) {
+        return "idTag".equals(CsvFormat.parseLine(line).get(0).trim());
+    }
+
+    private IdTag parseCsv(String line) {
+        List<String> fields = CsvFormat.parseLine(line);
+        IdTag tag = new IdTag();
+        tag.setIdTag(fields.get(0).trim());
+        tag.setParentIdTag(fields.size() > 1 && !fields.get(1).isBlank() ? fields.get(1).trim() : null);
+        tag.setExpiryDate(fields.size() > 2 && !fields.get(2).isBlank() ? LocalDateTime.parse(fields.get(2).trim()) : null);
+        tag.setStatus(fields.size() > 3 && !fields.get(3).isBlank() ? fields.get(3).trim() : "Accepted");
+        return tag;
+    }
+
+    private void validate(IdTag tag) {
+        if (tag.getIdTag() == null || tag.getIdTag().isBlank()) {
+            throw new IllegalArgumentException("idTag is required");
+        }
+        if (tag.getIdTag().length() > 20) {
+            throw new IllegalArgumentException("idTag exceeds 20 characters: " + tag.getIdTag());
+        }
+        if (tag.getStatus() == null) {
+            tag.setStatus("Accepted");
+        }
+        if (!VALID_STATUSES.contains(tag.getStatus())) {
+            throw new IllegalArgumentException("Invalid status: " + tag.getStatus());
+        }
+    }
+}
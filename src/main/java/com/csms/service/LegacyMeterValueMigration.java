@@ -0,0 +1,131 @@
+package com.csms.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+
+/**
+ * Moves rows from the unpartitioned {@value MeterValuePartitions#LEGACY_TABLE} table into
+ * the partitioned {@code meter_values} layout in the background.
+ * <p>
+ * The legacy table is walked in ranges of {@code chunk-pages} heap pages. Each range is
+ * deleted and re-inserted in one statement, so a chunk is either still in the legacy
+ * table or already migrated, and an interrupted migration resumes on the next start.
+ * Migrated rows get negative ids from their own sequence, keeping them apart from the
+ * ids handed out by the batch writer. Page ranges are read with TID range scans, which
+ * need Postgres 14 or later to avoid a full scan per chunk.
+ * <p>
+ * Samples in the legacy table are not visible to the meter value listings until their
+ * chunk has been moved.
+ */
+@Component
+@Slf4j
+public class LegacyMeterValueMigration {
+
+    private static final String LEGACY = MeterValuePartitions.LEGACY_TABLE;
+
+    private static final String INSERT_CODES_SQL =
+            "INSERT INTO meter_value_codes (kind, value) " +
+                    "SELECT DISTINCT c.kind, c.value FROM (SELECT * FROM " + LEGACY + " WHERE %s) l " +
+                    "CROSS JOIN LATERAL (VALUES ('context', l.context), ('format', l.format), " +
+                    "('measurand', l.measurand), ('phase', l.phase), ('location', l.location), ('unit', l.unit)) " +
+                    "AS c(kind, value) " +
+                    "WHERE c.value IS NOT NULL AND NOT EXISTS (" +
+                    "SELECT 1 FROM meter_value_codes m WHERE m.kind = c.kind AND m.value = c.value) " +
+                    "ON CONFLICT DO NOTHING";
+
+    private static final String MOVE_SQL =
+            "WITH moved AS (DELETE FROM " + LEGACY + " WHERE %s AND timestamp IS NOT NULL RETURNING *) " +
+                    "INSERT INTO meter_values (timestamp, id, charging_station_id, meter_value, transaction_id, " +
+                    "connector_id, context, format, measurand, phase, location, unit) " +
+                    "SELECT m.timestamp, -nextval('meter_value_legacy_id_seq'), m.charging_station_id, m.meter_value, " +
+                    "m.transaction_id, m.connector_id, c1.code, c2.code, c3.code, c4.code, c5.code, c6.code " +
+                    "FROM moved m " +
+                    "LEFT JOIN meter_value_codes c1 ON c1.kind = 'context' AND c1.value = m.context " +
+                    "LEFT JOIN meter_value_codes c2 ON c2.kind = 'format' AND c2.value = m.format " +
+                    "LEFT JOIN meter_value_codes c3 ON c3.kind = 'measurand' AND c3.value = m.measurand " +
+                    "LEFT JOIN meter_value_codes c4 ON c4.kind = 'phase' AND c4.value = m.phase " +
+                    "LEFT JOIN meter_value_codes c5 ON c5.kind = 'location' AND c5.value = m.location " +
+                    "LEFT JOIN meter_value_codes c6 ON c6.kind = 'unit' AND c6.value = m.unit";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterValuePartitions partitions;
+    private final boolean enabled;
+    private final int chunkPages;
+    private final Counter migratedCounter;
+
+    public LegacyMeterValueMigration(JdbcTemplate jdbcTemplate,
+                                     MeterValuePartitions partitions,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${ocpp.meter-values.storage.migration.enabled:true}") boolean enabled,
+                                     @Value("${ocpp.meter-values.storage.migration.chunk-pages:1000}") int chunkPages) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitions = partitions;
+        this.enabled = enabled;
+        this.chunkPages = chunkPages;
+        this.migratedCounter = meterRegistry.counter("ocpp.meter.migration.rows");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || !legacyTableExists()) {
+            return;
+        }
+        Thread thread = new Thread(this::run, "meter-value-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void run() {
+        try {
+            jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS meter_value_legacy_id_seq");
+            long pages = jdbcTemplate.queryForObject("SELECT pg_relation_size('" + LEGACY + "') / " +
+                    "current_setting('block_size')::bigint", Long.class);
+            log.info("Migrating {} pages of {} into partitioned meter_values", pages, LEGACY);
+
+            long moved = 0;
+            for (long page = 0; page < pages; page += chunkPages) {
+                moved += migrateChunk(page, page + chunkPages);
+            }
+
+            long remaining = jdbcTemplate.queryForObject("SELECT count(*) FROM " + LEGACY, Long.class);
+            if (remaining == 0) {
+                jdbcTemplate.execute("DROP TABLE " + LEGACY);
+                log.info("Migrated {} meter values and dropped {}", moved, LEGACY);
+            } else {
+                log.warn("Migrated {} meter values; {} rows without a timestamp are left in {}",
+                        moved, remaining, LEGACY);
+            }
+        } catch (Exception e) {
+            log.error("Meter value migration stopped, it resumes on the next start: {}", e.getMessage(), e);
+        }
+    }
+
+    private int migrateChunk(long fromPage, long toPage) {
+        String range = "ctid >= '(" + fromPage + ",0)'::tid AND ctid < '(" + toPage + ",0)'::tid";
+        Timestamp[] bounds = jdbcTemplate.queryForObject(
+                "SELECT min(timestamp), max(timestamp) FROM " + LEGACY + " WHERE " + range,
+                (rs, i) -> new Timestamp[]{rs.getTimestamp(1), rs.getTimestamp(2)});
+        if (bounds == null || bounds[0] == null) {
+            return 0;
+        }
+        partitions.ensureRange(bounds[0].toLocalDateTime(), bounds[1].toLocalDateTime());
+        jdbcTemplate.update(String.format(INSERT_CODES_SQL, range));
+        int moved = jdbcTemplate.update(String.format(MOVE_SQL, range));
+        migratedCounter.increment(moved);
+        log.debug("Migrated {} meter values from pages [{}, {})", moved, fromPage, toPage);
+        return moved;
+    }
+
+    private boolean legacyTableExists() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass('" + LEGACY + "') IS NOT NULL", Boolean.class));
+    }
+}
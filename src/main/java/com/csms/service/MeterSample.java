@@ -1,6 +1,5 @@
-package com.csms.model;
+package com.csms.service;
 
-import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -8,41 +7,24 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
-@Entity
-@Table(name = "meter_values")
+/**
+ * A single sampled value ready to be written to {@code meter_values}.
+ * Decoupled from the JPA entity so it can sit in the ingestion queue
+ * without holding on to a persistence context.
+ */
 @Data
-@NoArgsConstructor
 @AllArgsConstructor
-public class MeterValue {
-
-    @Id
-    @GeneratedValue
-    private UUID id;
-
-    @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "charging_station_id")
-    private ChargingStation chargingStation;
-
-    @Column(name = "connector_id")
+@NoArgsConstructor
+public class MeterSample {
+    private UUID chargingStationId;
     private Integer connectorId;
-
-    @Column(name = "transaction_id")
     private Integer transactionId;
-
     private LocalDateTime timestamp;
-
-    @Column(name = "meter_value")
-    private Integer meterValue;
-
+    private Double meterValue;
     private String context;
-
     private String format;
-
     private String measurand;
-
     private String phase;
-
     private String location;
-
     private String unit;
-}
\ No newline at end of file
+}
@@ -0,0 +1,327 @@
+package com.csms.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous ingestion stage for meter values.
+ * <p>
+ * Samples are queued in a bounded in-memory buffer and flushed to {@code meter_values}
+ * by a single background thread in JDBC batches, either when {@code batch-size} samples
+ * are available or {@code flush-interval-ms} has elapsed since the first queued sample.
+ * When the queue is full the producer waits up to {@code offer-timeout-ms} and then
+ * writes the overflow itself, so a slow database throttles the producers instead of
+ * dropping data.
+ * <p>
+ * Stations are acknowledged before their samples are written and won't send them again,
+ * so a batch the database rejects for a reason that may pass (a lost connection, a
+ * deadlock, a timeout) is retried by the flusher with doubling backoff, up to
+ * {@code max-retries} times. Meanwhile the queue fills and the producers fall back to
+ * writing themselves; a failure there reaches the station as a CALLERROR, which it
+ * retries. Only batches rejected outright, or still failing after the last retry, are
+ * dropped and counted as failed.
+ * <p>
+ * Rows use the compact layout of {@link MeterValuePartitions}: ids come from
+ * {@code meter_value_id_seq} in blocks, attributes are encoded by {@link MeterValueCodes},
+ * and a partition is created before writing samples that fall outside the premade ones.
+ * Written samples are handed to {@link MeterValueRollupService} for aggregation.
+ */
+@Component
+@Slf4j
+public class MeterValueBatchWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO meter_values (timestamp, id, charging_station_id, meter_value, transaction_id, " +
+                    "connector_id, context, format, measurand, phase, location, unit) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int[] ARG_TYPES = {
+            Types.TIMESTAMP, Types.BIGINT, Types.OTHER, Types.DOUBLE, Types.INTEGER, Types.SMALLINT,
+            Types.SMALLINT, Types.SMALLINT, Types.SMALLINT, Types.SMALLINT, Types.SMALLINT, Types.SMALLINT};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterValueCodes codes;
+    private final MeterValuePartitions partitions;
+    private final MeterValueRollupService rollups;
+    private final SequenceIdAllocator idAllocator;
+    private final BlockingQueue<MeterSample> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutMillis;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final long maxRetryBackoffMillis;
+
+    private final DistributionSummary batchSizeSummary;
+    private final Timer flushTimer;
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+    private final Counter retryCounter;
+    private final Counter backpressureCounter;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public MeterValueBatchWriter(JdbcTemplate jdbcTemplate,
+                                 MeterValueCodes codes,
+                                 MeterValuePartitions partitions,
+                                 MeterValueRollupService rollups,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${ocpp.meter-values.ingest.queue-capacity:100000}") int queueCapacity,
+                                 @Value("${ocpp.meter-values.ingest.batch-size:500}") int batchSize,
+                                 @Value("${ocpp.meter-values.ingest.flush-interval-ms:250}") long flushIntervalMillis,
+                                 @Value("${ocpp.meter-values.ingest.offer-timeout-ms:50}") long offerTimeoutMillis,
+                                 @Value("${ocpp.meter-values.ingest.max-retries:10}") int maxRetries,
+                                 @Value("${ocpp.meter-values.ingest.retry-backoff-ms:100}") long retryBackoffMillis,
+                                 @Value("${ocpp.meter-values.ingest.max-retry-backoff-ms:10000}") long maxRetryBackoffMillis,
+                                 @Value("${ocpp.meter-values.storage.id-block-size:1000}") int idBlockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.codes = codes;
+        this.partitions = partitions;
+        this.rollups = rollups;
+        this.idAllocator = new SequenceIdAllocator(jdbcTemplate, "meter_value_id_seq", idBlockSize);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = Math.max(1, retryBackoffMillis);
+        this.maxRetryBackoffMillis = Math.max(this.retryBackoffMillis, maxRetryBackoffMillis);
+
+        meterRegistry.gauge("ocpp.meter.ingest.queue.depth", queue, BlockingQueue::size);
+        this.batchSizeSummary = DistributionSummary.builder("ocpp.meter.ingest.batch.size")
+                .description("Number of samples written per JDBC batch")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("ocpp.meter.ingest.flush")
+                .description("Time spent writing one batch to meter_values")
+                .register(meterRegistry);
+        this.writtenCounter = meterRegistry.counter("ocpp.meter.ingest.samples", "result", "written");
+        this.failedCounter = meterRegistry.counter("ocpp.meter.ingest.samples", "result", "failed");
+        this.backpressureCounter = meterRegistry.counter("ocpp.meter.ingest.backpressure");
+        this.retryCounter = meterRegistry.counter("ocpp.meter.ingest.retries");
+    }
+
+    @PostConstruct
+    public void start() {
+        idAllocator.create();
+        running = true;
+        flusher = new Thread(this::runFlusher, "meter-value-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        if (!queue.isEmpty()) {
+            log.warn("Meter value flusher stopped with {} samples still queued", queue.size());
+        }
+    }
+
+    public void enqueue(List<MeterSample> samples) {
+        List<MeterSample> overflow = null;
+        for (MeterSample sample : samples) {
+            boolean queued;
+            try {
+                queued = queue.offer(sample, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+            if (!queued) {
+                if (overflow == null) {
+                    overflow = new ArrayList<>();
+                }
+                overflow.add(sample);
+            }
+        }
+
+        if (overflow != null) {
+            // Queue is saturated: write on the caller's thread so producers slow down to database speed.
+            // A failure propagates, so the station is answered with a CALLERROR and sends them again
+            backpressureCounter.increment(overflow.size());
+            log.warn("Meter value queue full, writing {} samples synchronously", overflow.size());
+            flush(overflow);
+            writtenCounter.increment(overflow.size());
+            rollups.samplesWritten(overflow);
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void runFlusher() {
+        List<MeterSample> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                MeterSample first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    MeterSample next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flushWithRetries(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!batch.isEmpty()) {
+                    failedCounter.increment(batch.size());
+                    log.error("Meter value flusher interrupted, dropped batch of {} samples", batch.size());
+                }
+                return;
+            } catch (Exception e) {
+                log.error("Unexpected error in meter value flusher: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Creates the partitions and dictionary codes the samples need. Call it outside the
+     * transaction of {@link #write}, so a rollback can't undo rows the caches refer to.
+     */
+    public void prepare(List<MeterSample> samples) {
+        List<LocalDateTime> timestamps = new ArrayList<>(samples.size());
+        for (MeterSample sample : samples) {
+            timestamps.add(sample.getTimestamp());
+            codes.encode(MeterValueCodes.CONTEXT, sample.getContext());
+            codes.encode(MeterValueCodes.FORMAT, sample.getFormat());
+            codes.encode(MeterValueCodes.MEASURAND, sample.getMeasurand());
+            codes.encode(MeterValueCodes.PHASE, sample.getPhase());
+            codes.encode(MeterValueCodes.LOCATION, sample.getLocation());
+            codes.encode(MeterValueCodes.UNIT, sample.getUnit());
+        }
+        partitions.ensureCovered(timestamps);
+    }
+
+    /**
+     * Writes samples synchronously, in the caller's transaction if there is one, and
+     * throws if the database rejects them. Roll-ups see the samples once it commits.
+     */
+    public void write(List<MeterSample> samples) {
+        if (samples.isEmpty()) {
+            return;
+        }
+        insert(samples);
+        writtenCounter.increment(samples.size());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<MeterSample> committed = List.copyOf(samples);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    rollups.samplesWritten(committed);
+                }
+            });
+        } else {
+            rollups.samplesWritten(samples);
+        }
+    }
+
+    /**
+     * Writes a batch on the flusher, retrying while the failure may pass.
+     */
+    void flushWithRetries(List<MeterSample> batch) throws InterruptedException {
+        long backoff = retryBackoffMillis;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                flush(batch);
+            } catch (RuntimeException e) {
+                if (!isRetryable(e) || attempt > maxRetries) {
+                    failedCounter.increment(batch.size());
+                    log.error("Dropped batch of {} meter values after {} attempts: {}",
+                            batch.size(), attempt, e.getMessage(), e);
+                    return;
+                }
+                retryCounter.increment();
+                log.warn("Failed to write batch of {} meter values, retrying in {} ms: {}",
+                        batch.size(), backoff, e.getMessage());
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, maxRetryBackoffMillis);
+                continue;
+            }
+            writtenCounter.increment(batch.size());
+            rollups.samplesWritten(batch);
+            return;
+        }
+    }
+
+    static boolean isRetryable(Exception e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException;
+    }
+
+    private void flush(List<MeterSample> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            insert(batch);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSizeSummary.record(batch.size());
+        }
+    }
+
+    private void insert(List<MeterSample> batch) {
+        List<LocalDateTime> timestamps = new ArrayList<>(batch.size());
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (MeterSample sample : batch) {
+            timestamps.add(sample.getTimestamp());
+            rows.add(new Object[]{
+                    Timestamp.valueOf(sample.getTimestamp()),
+                    idAllocator.nextId(),
+                    sample.getChargingStationId(),
+                    sample.getMeterValue(),
+                    sample.getTransactionId(),
+                    sample.getConnectorId(),
+                    codes.encode(MeterValueCodes.CONTEXT, sample.getContext()),
+                    codes.encode(MeterValueCodes.FORMAT, sample.getFormat()),
+                    codes.encode(MeterValueCodes.MEASURAND, sample.getMeasurand()),
+                    codes.encode(MeterValueCodes.PHASE, sample.getPhase()),
+                    codes.encode(MeterValueCodes.LOCATION, sample.getLocation()),
+                    codes.encode(MeterValueCodes.UNIT, sample.getUnit())});
+        }
+        partitions.ensureCovered(timestamps);
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, ARG_TYPES);
+    }
+}
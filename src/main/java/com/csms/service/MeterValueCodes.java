@@ -0,0 +1,127 @@
+package com.csms.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary for the enum-like sampled value attributes (context, format, measurand,
+ * phase, location, unit), which {@code meter_values} stores as smallint codes.
+ * <p>
+ * Codes come from one sequence, so a code identifies its value without the kind. The
+ * dictionary is cached in full; a value seen for the first time is inserted with
+ * {@code ON CONFLICT DO NOTHING}, which lets several nodes add the same value safely.
+ * Codes are smallints, so the dictionary holds at most 32767 distinct values.
+ */
+@Component
+@Slf4j
+public class MeterValueCodes {
+
+    public static final String CONTEXT = "context";
+    public static final String FORMAT = "format";
+    public static final String MEASURAND = "measurand";
+    public static final String PHASE = "phase";
+    public static final String LOCATION = "location";
+    public static final String UNIT = "unit";
+
+    /** Matches no stored value; used to filter on a value that has never been seen. */
+    public static final int UNKNOWN = -1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final Map<Integer, String> values = new ConcurrentHashMap<>();
+
+    public MeterValueCodes(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS meter_value_code_seq AS smallint");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS meter_value_codes (" +
+                "code smallint PRIMARY KEY DEFAULT nextval('meter_value_code_seq'), " +
+                "kind varchar(16) NOT NULL, " +
+                "value varchar(64) NOT NULL, " +
+                "UNIQUE (kind, value))");
+        jdbcTemplate.query("SELECT code, kind, value FROM meter_value_codes", rs -> {
+            cache(rs.getInt(1), rs.getString(2), rs.getString(3));
+        });
+        log.info("Loaded {} meter value codes", values.size());
+    }
+
+    /**
+     * @return the code for the value, adding it to the dictionary if needed, or {@code null}
+     */
+    public Integer encode(String kind, String value) {
+        if (value == null) {
+            return null;
+        }
+        Integer code = codes.get(key(kind, value));
+        if (code != null) {
+            return code;
+        }
+        // Checked first because a conflicting insert still uses up a code from the sequence
+        jdbcTemplate.update("INSERT INTO meter_value_codes (kind, value) SELECT ?, ? WHERE NOT EXISTS (" +
+                "SELECT 1 FROM meter_value_codes WHERE kind = ? AND value = ?) ON CONFLICT DO NOTHING",
+                kind, value, kind, value);
+        code = jdbcTemplate.queryForObject("SELECT code FROM meter_value_codes WHERE kind = ? AND value = ?",
+                Integer.class, kind, value);
+        cache(code, kind, value);
+        return code;
+    }
+
+    /**
+     * @return the code of a known value, {@link #UNKNOWN} if it was never stored, or {@code null}
+     */
+    public Integer find(String kind, String value) {
+        if (value == null) {
+            return null;
+        }
+        Integer code = codes.get(key(kind, value));
+        if (code == null) {
+            // Possibly added by another node since startup
+            List<Integer> found = jdbcTemplate.queryForList(
+                    "SELECT code FROM meter_value_codes WHERE kind = ? AND value = ?", Integer.class, kind, value);
+            code = found.isEmpty() ? UNKNOWN : found.get(0);
+            if (!found.isEmpty()) {
+                cache(code, kind, value);
+            }
+        }
+        return code;
+    }
+
+    public String decode(int code) {
+        String value = values.get(code);
+        if (value == null) {
+            jdbcTemplate.query("SELECT code, kind, value FROM meter_value_codes WHERE code = ?", rs -> {
+                cache(rs.getInt(1), rs.getString(2), rs.getString(3));
+            }, code);
+            value = values.get(code);
+        }
+        return value;
+    }
+
+    /**
+     * Decodes a nullable smallint column.
+     */
+    public String decode(ResultSet rs, int column) throws SQLException {
+        int code = rs.getInt(column);
+        return rs.wasNull() ? null : decode(code);
+    }
+
+    private void cache(int code, String kind, String value) {
+        codes.put(key(kind, value), code);
+        values.put(code, value);
+    }
+
+    private static String key(String kind, String value) {
+        return kind + ':' + value;
+    }
+}
@@ -0,0 +1,413 @@
+package com.csms.service;
+
+import com.csms.dto.MeterValueExportQuery;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams raw meter values for a time range as CSV, NDJSON or a compact columnar format.
+ * <p>
+ * Rows are read through a Postgres server-side cursor ({@code fetch-size} rows per
+ * round-trip) in {@code (timestamp, id)} order and written as they arrive, so memory use
+ * does not depend on the size of the range. An interrupted export is resumed by passing
+ * the timestamp and id of the last row received as {@code after}.
+ * <p>
+ * The columnar format writes the rows in blocks of up to {@code fetch-size} rows, one
+ * column after another:
+ * <pre>
+ * "OCMV" version:u8
+ * block*:   rows:varint (0 ends the stream)
+ *           new codes:varint, then (code:varint, value:utf)
+ *           new charge points:varint, then chargePointId:utf
+ *           timestamp:zigzag delta of epoch micros, id:zigzag delta,
+ *           charge point:varint index, connector:varint+1, transaction:zigzag+1,
+ *           value:f64 (NaN if null), context, format, measurand, phase, location, unit:varint code
+ * </pre>
+ * Dictionaries grow across blocks; 0 stands for null in every +1 or code column.
+ */
+@Service
+@Slf4j
+public class MeterValueExportService {
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_COLUMNAR = "columnar";
+
+    private static final String CSV_HEADER =
+            "id,timestamp,chargePointId,connectorId,transactionId,value,measurand,phase,unit,context,format,location";
+    private static final byte[] COLUMNAR_MAGIC = {'O', 'C', 'M', 'V', 1};
+    private static final int[] CODE_COLUMNS = {7, 8, 9, 10, 11, 12};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterValueCodes codes;
+    private final MeterRegistry meterRegistry;
+    private final int fetchSize;
+
+    public MeterValueExportService(JdbcTemplate jdbcTemplate,
+                                   ObjectMapper objectMapper,
+                                   MeterValueCodes codes,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${ocpp.meter-values.export.fetch-size:10000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.codes = codes;
+        this.meterRegistry = meterRegistry;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Checks the request before the response is committed.
+     */
+    public void validate(MeterValueExportQuery query, String format) {
+        if (!FORMAT_CSV.equals(format) && !FORMAT_NDJSON.equals(format) && !FORMAT_COLUMNAR.equals(format)) {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+        if (query.getFrom() == null || query.getTo() == null) {
+            throw new IllegalArgumentException("from and to are required");
+        }
+        if (!query.getFrom().isBefore(query.getTo())) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        parseAfter(query.getAfter());
+    }
+
+    public void export(MeterValueExportQuery query, String format, OutputStream output) throws IOException {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+                "SELECT v.id, v.timestamp, cs.charge_point_id, v.connector_id, v.transaction_id, v.meter_value, " +
+                        "v.context, v.format, v.measurand, v.phase, v.location, v.unit FROM meter_values v " +
+                        "LEFT JOIN charging_stations cs ON cs.id = v.charging_station_id " +
+                        "WHERE v.timestamp >= ? AND v.timestamp < ?");
+        args.add(Timestamp.valueOf(query.getFrom()));
+        args.add(Timestamp.valueOf(query.getTo()));
+        if (query.getChargePointId() != null) {
+            sql.append(" AND v.charging_station_id = (SELECT id FROM charging_stations WHERE charge_point_id = ?)");
+            args.add(query.getChargePointId());
+        }
+        if (query.getTransactionId() != null) {
+            sql.append(" AND v.transaction_id = ?");
+            args.add(query.getTransactionId());
+        }
+        Object[] after = parseAfter(query.getAfter());
+        if (after != null) {
+            sql.append(" AND (v.timestamp, v.id) > (?, ?)");
+            args.add(after[0]);
+            args.add(after[1]);
+        }
+        sql.append(" ORDER BY v.timestamp, v.id");
+
+        RowWriter writer = switch (format) {
+            case FORMAT_CSV -> new CsvRowWriter(output);
+            case FORMAT_NDJSON -> new NdjsonRowWriter(output);
+            default -> new ColumnarRowWriter(output);
+        };
+        long start = System.currentTimeMillis();
+        long rows;
+        try {
+            rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection ->
+                    stream(connection, sql.toString(), args, writer));
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            // Usually the client went away
+            throw e.getCause();
+        }
+        meterRegistry.counter("ocpp.meter.export.rows", "format", format).increment(rows);
+        log.info("Exported {} meter values as {} in {} ms", rows, format, System.currentTimeMillis() - start);
+    }
+
+    private long stream(Connection connection, String sql, List<Object> args, RowWriter writer) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        // The driver only fetches in batches through a cursor inside a transaction
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < args.size(); i++) {
+                statement.setObject(i + 1, args.get(i));
+            }
+            long rows = 0;
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    writer.write(rs);
+                    rows++;
+                }
+            }
+            return rows;
+        } finally {
+            connection.rollback();
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static Object[] parseAfter(String after) {
+        if (after == null || after.isBlank()) {
+            return null;
+        }
+        int comma = after.lastIndexOf(',');
+        try {
+            return new Object[]{
+                    Timestamp.valueOf(LocalDateTime.parse(after.substring(0, comma).trim())),
+                    Long.parseLong(after.substring(comma + 1).trim())};
+        } catch (DateTimeParseException | NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("after must be \"timestamp,id\" of the last row received");
+        }
+    }
+
+    private static Double value(ResultSet rs) throws SQLException {
+        double value = rs.getDouble(6);
+        return rs.wasNull() ? null : value;
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException;
+
+        void finish() throws IOException;
+    }
+
+    private final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream output) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 1 << 16);
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException {
+            try {
+                writer.write(Long.toString(rs.getLong(1)));
+                writer.write(',');
+                writer.write(rs.getTimestamp(2).toLocalDateTime().toString());
+                writer.write(',');
+                writer.write(CsvFormat.escape(rs.getString(3)));
+                writer.write(',');
+                writer.write(CsvFormat.escape(rs.getObject(4, Integer.class)));
+                writer.write(',');
+                writer.write(CsvFormat.escape(rs.getObject(5, Integer.class)));
+                writer.write(',');
+                writer.write(CsvFormat.escape(value(rs)));
+                // Same order as the header: measurand, phase, unit, context, format, location
+                for (int column : new int[]{9, 10, 12, 7, 8, 11}) {
+                    writer.write(',');
+                    writer.write(CsvFormat.escape(codes.decode(rs, column)));
+                }
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(OutputStream output) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(output)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException {
+            try {
+                generator.writeStartObject();
+                generator.writeNumberField("id", rs.getLong(1));
+                generator.writeStringField("timestamp", rs.getTimestamp(2).toLocalDateTime().toString());
+                generator.writeStringField("chargePointId", rs.getString(3));
+                writeNullableNumber("connectorId", rs.getObject(4, Integer.class));
+                writeNullableNumber("transactionId", rs.getObject(5, Integer.class));
+                Double value = value(rs);
+                if (value != null) {
+                    generator.writeNumberField("value", value);
+                } else {
+                    generator.writeNullField("value");
+                }
+                generator.writeStringField("measurand", codes.decode(rs, 9));
+                generator.writeStringField("phase", codes.decode(rs, 10));
+                generator.writeStringField("unit", codes.decode(rs, 12));
+                generator.writeStringField("context", codes.decode(rs, 7));
+                generator.writeStringField("format", codes.decode(rs, 8));
+                generator.writeStringField("location", codes.decode(rs, 11));
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeNullableNumber(String field, Integer value) throws IOException {
+            if (value != null) {
+                generator.writeNumberField(field, value);
+            } else {
+                generator.writeNullField(field);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.close();
+        }
+    }
+
+    private final class ColumnarRowWriter implements RowWriter {
+        private final DataOutputStream output;
+        private final Set<Integer> knownCodes = new HashSet<>();
+        private final Map<String, Integer> chargePoints = new HashMap<>();
+
+        private final long[] timestamps = new long[fetchSize];
+        private final long[] ids = new long[fetchSize];
+        private final int[] chargePointIndexes = new int[fetchSize];
+        private final int[] connectors = new int[fetchSize];
+        private final long[] transactions = new long[fetchSize];
+        private final double[] values = new double[fetchSize];
+        private final int[][] codeColumns = new int[CODE_COLUMNS.length][fetchSize];
+        private final List<Integer> newCodes = new ArrayList<>();
+        private final List<String> newChargePoints = new ArrayList<>();
+        private int rows;
+        private long lastTimestamp;
+        private long lastId;
+
+        ColumnarRowWriter(OutputStream output) throws IOException {
+            this.output = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+            this.output.write(COLUMNAR_MAGIC);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException {
+            LocalDateTime timestamp = rs.getTimestamp(2).toLocalDateTime();
+            timestamps[rows] = ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), timestamp);
+            ids[rows] = rs.getLong(1);
+            String chargePointId = rs.getString(3);
+            chargePointIndexes[rows] = chargePointId == null ? 0 : chargePoints.computeIfAbsent(chargePointId, key -> {
+                newChargePoints.add(key);
+                return chargePoints.size() + 1;
+            });
+            Integer connector = rs.getObject(4, Integer.class);
+            connectors[rows] = connector == null ? 0 : connector + 1;
+            Integer transaction = rs.getObject(5, Integer.class);
+            transactions[rows] = transaction == null ? 0 : zigzag(transaction) + 1;
+            Double value = value(rs);
+            values[rows] = value == null ? Double.NaN : value;
+            for (int c = 0; c < CODE_COLUMNS.length; c++) {
+                int code = rs.getInt(CODE_COLUMNS[c]);
+                boolean missing = rs.wasNull();
+                codeColumns[c][rows] = missing ? 0 : code;
+                if (!missing && knownCodes.add(code)) {
+                    newCodes.add(code);
+                }
+            }
+            if (++rows == fetchSize) {
+                flushBlock();
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            try {
+                flushBlock();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writeVarint(0);
+            output.flush();
+        }
+
+        private void flushBlock() {
+            if (rows == 0) {
+                return;
+            }
+            try {
+                writeVarint(rows);
+                writeVarint(newCodes.size());
+                for (int code : newCodes) {
+                    writeVarint(code);
+                    output.writeUTF(codes.decode(code));
+                }
+                writeVarint(newChargePoints.size());
+                for (String chargePointId : newChargePoints) {
+                    output.writeUTF(chargePointId);
+                }
+                for (int i = 0; i < rows; i++) {
+                    writeVarint(zigzag(timestamps[i] - lastTimestamp));
+                    lastTimestamp = timestamps[i];
+                }
+                for (int i = 0; i < rows; i++) {
+                    writeVarint(zigzag(ids[i] - lastId));
+                    lastId = ids[i];
+                }
+                for (int i = 0; i < rows; i++) {
+                    writeVarint(chargePointIndexes[i]);
+                }
+                for (int i = 0; i < rows; i++) {
+                    writeVarint(connectors[i]);
+                }
+                for (int i = 0; i < rows; i++) {
+                    writeVarint(transactions[i]);
+                }
+                for (int i = 0; i < rows; i++) {
+                    output.writeDouble(values[i]);
+                }
+                for (int[] column : codeColumns) {
+                    for (int i = 0; i < rows; i++) {
+                        writeVarint(column[i]);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            newCodes.clear();
+            newChargePoints.clear();
+            rows = 0;
+        }
+
+        private void writeVarint(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                output.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            output.write((int) value);
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.csms.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Owns the layout of {@code meter_values}: a table range-partitioned on {@code timestamp}
+ * with compact columns (bigint ids, a double value, smallint codes from
+ * {@link MeterValueCodes}).
+ * <p>
+ * Partitions span {@code partition-days} days aligned to the epoch. They are created
+ * {@code premake-days} ahead by the maintenance task and on demand for samples outside
+ * that window, such as buffered data from a station that was offline for weeks. With a
+ * retention set, partitions that end before it are detached, leaving standalone tables
+ * to archive or drop.
+ * <p>
+ * A plain {@code meter_values} table from an earlier version is renamed to
+ * {@value #LEGACY_TABLE} at startup and copied over by {@link LegacyMeterValueMigration}.
+ */
+@Component
+@Slf4j
+public class MeterValuePartitions extends TimePartitionedTable {
+
+    public static final String LEGACY_TABLE = "meter_values_legacy";
+
+    private static final long INIT_LOCK_KEY = 0x6d65746572L;
+
+    private final int premakeDays;
+    private final int retentionDays;
+
+    public MeterValuePartitions(JdbcTemplate jdbcTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${ocpp.meter-values.storage.partition-days:7}") int partitionDays,
+                                @Value("${ocpp.meter-values.storage.premake-days:14}") int premakeDays,
+                                @Value("${ocpp.meter-values.storage.retention-days:0}") int retentionDays) {
+        super(jdbcTemplate, meterRegistry, "meter_values", "ocpp.meter.partitions", partitionDays);
+        this.premakeDays = premakeDays;
+        this.retentionDays = retentionDays;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        // Serialised across nodes so only one renames a legacy table
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT pg_advisory_lock(" + INIT_LOCK_KEY + ")");
+                try {
+                    createTable(statement);
+                } finally {
+                    statement.execute("SELECT pg_advisory_unlock(" + INIT_LOCK_KEY + ")");
+                }
+            }
+            return null;
+        });
+        loadPartitions();
+        maintain();
+    }
+
+    @Scheduled(fixedDelayString = "${ocpp.meter-values.storage.maintenance-interval-ms:3600000}",
+            initialDelayString = "${ocpp.meter-values.storage.maintenance-interval-ms:3600000}")
+    public void maintain() {
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        ensureRange(today, today.plusDays(premakeDays));
+
+        if (retentionDays <= 0) {
+            return;
+        }
+        detachBefore(today.minusDays(retentionDays));
+    }
+
+    private void createTable(Statement statement) throws SQLException {
+        String kind = null;
+        try (ResultSet rs = statement.executeQuery(
+                "SELECT relkind FROM pg_class WHERE oid = to_regclass('meter_values')")) {
+            if (rs.next()) {
+                kind = rs.getString(1);
+            }
+        }
+        if ("r".equals(kind)) {
+            try (ResultSet rs = statement.executeQuery("SELECT to_regclass('" + LEGACY_TABLE + "') IS NOT NULL")) {
+                rs.next();
+                if (rs.getBoolean(1)) {
+                    throw new IllegalStateException("Both meter_values and " + LEGACY_TABLE
+                            + " are plain tables; finish or drop the earlier migration first");
+                }
+            }
+            statement.execute("ALTER TABLE meter_values RENAME TO " + LEGACY_TABLE);
+            log.warn("Renamed the unpartitioned meter_values table to {} for migration", LEGACY_TABLE);
+        }
+
+        // Fixed-width columns first, widest first, so rows carry no alignment padding
+        statement.execute("CREATE TABLE IF NOT EXISTS meter_values (" +
+                "timestamp timestamp NOT NULL, " +
+                "id bigint NOT NULL, " +
+                "charging_station_id uuid, " +
+                "meter_value double precision, " +
+                "transaction_id integer, " +
+                "connector_id smallint, " +
+                "context smallint, " +
+                "format smallint, " +
+                "measurand smallint, " +
+                "phase smallint, " +
+                "location smallint, " +
+                "unit smallint" +
+                ") PARTITION BY RANGE (timestamp)");
+        // Keyset order of the meter value listings
+        statement.execute("CREATE INDEX IF NOT EXISTS meter_values_transaction_idx " +
+                "ON meter_values (transaction_id, timestamp, id)");
+        statement.execute("CREATE INDEX IF NOT EXISTS meter_values_connector_idx " +
+                "ON meter_values (charging_station_id, connector_id, timestamp, id)");
+    }
+}
@@ -0,0 +1,394 @@
+package com.csms.service;
+
+import com.csms.dto.MeterValuePoint;
+import com.csms.dto.MeterValueSeries;
+import com.csms.dto.MeterValueSeriesQuery;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps 1-minute, 15-minute and hourly rollups (min, max, avg, last and count) of the raw
+ * meter values per connector, measurand, phase and unit, and serves charts from the
+ * coarsest tier that still gives enough points for the requested range.
+ * <p>
+ * {@link MeterValueBatchWriter} reports the minutes it wrote for each connector. Every
+ * {@code interval-ms} those minutes are recomputed from the raw samples, and the enclosing
+ * 15-minute and hourly buckets from the tier below, so late samples simply refresh their
+ * buckets. A tier whose source rows are already past retention is computed from the raw
+ * samples instead. Minutes written just before a restart are picked up again by
+ * re-rolling the last {@code startup-lookback-minutes} on startup.
+ */
+@Component
+@Slf4j
+public class MeterValueRollupService {
+
+    public static final String RAW = "raw";
+    public static final String AUTO = "auto";
+
+    private static final int RETENTION_BATCH = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterValueCodes codes;
+    private final int maxPoints;
+    private final Duration rawMaxRange;
+    private final int startupLookbackMinutes;
+    private final List<Tier> tiers;
+
+    private final Timer rollupTimer;
+    private final Counter bucketCounter;
+    private final Counter expiredCounter;
+
+    /** Minutes with new samples that are not rolled up yet */
+    private final Map<ConnectorKey, Range> dirty = new ConcurrentHashMap<>();
+
+    public MeterValueRollupService(JdbcTemplate jdbcTemplate,
+                                   MeterValueCodes codes,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${ocpp.meter-values.rollups.max-points:1500}") int maxPoints,
+                                   @Value("${ocpp.meter-values.rollups.raw-max-minutes:60}") int rawMaxMinutes,
+                                   @Value("${ocpp.meter-values.rollups.startup-lookback-minutes:60}") int startupLookbackMinutes,
+                                   @Value("${ocpp.meter-values.rollups.minute-retention-days:14}") int minuteRetentionDays,
+                                   @Value("${ocpp.meter-values.rollups.quarter-hour-retention-days:180}") int quarterHourRetentionDays,
+                                   @Value("${ocpp.meter-values.rollups.hour-retention-days:0}") int hourRetentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.codes = codes;
+        this.maxPoints = maxPoints;
+        this.rawMaxRange = Duration.ofMinutes(rawMaxMinutes);
+        this.startupLookbackMinutes = startupLookbackMinutes;
+
+        Tier minute = new Tier("1m", 60, "date_trunc('minute', %s)", null, minuteRetentionDays);
+        Tier quarterHour = new Tier("15m", 900,
+                "date_trunc('hour', %1$s) + floor(extract(minute FROM %1$s) / 15) * interval '15 minutes'",
+                minute, quarterHourRetentionDays);
+        Tier hour = new Tier("1h", 3600, "date_trunc('hour', %s)", quarterHour, hourRetentionDays);
+        this.tiers = List.of(minute, quarterHour, hour);
+
+        this.rollupTimer = Timer.builder("ocpp.meter.rollup")
+                .description("Time spent rolling up the pending minutes of all connectors")
+                .register(meterRegistry);
+        this.bucketCounter = meterRegistry.counter("ocpp.meter.rollup.buckets");
+        this.expiredCounter = meterRegistry.counter("ocpp.meter.rollup.expired");
+        meterRegistry.gaugeMapSize("ocpp.meter.rollup.pending", Tags.empty(), dirty);
+    }
+
+    @PostConstruct
+    public void initialize() {
+        for (Tier tier : tiers) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + tier.table + " (" +
+                    "bucket timestamp NOT NULL, " +
+                    "charging_station_id uuid NOT NULL, " +
+                    "min double precision NOT NULL, " +
+                    "max double precision NOT NULL, " +
+                    "sum double precision NOT NULL, " +
+                    "last double precision NOT NULL, " +
+                    "last_at timestamp NOT NULL, " +
+                    "count integer NOT NULL, " +
+                    "connector_id smallint NOT NULL, " +
+                    // 0 when the sample had no value for the attribute
+                    "measurand smallint NOT NULL, " +
+                    "phase smallint NOT NULL, " +
+                    "unit smallint NOT NULL, " +
+                    "PRIMARY KEY (charging_station_id, connector_id, measurand, phase, unit, bucket))");
+            // Retention deletes by age
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + tier.table + "_bucket_idx ON " + tier.table + " (bucket)");
+        }
+        if (startupLookbackMinutes > 0) {
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+            dirty.put(ConnectorKey.ALL, new Range(now.minusMinutes(startupLookbackMinutes), now.plusMinutes(1)));
+        }
+    }
+
+    /**
+     * Marks the minutes of freshly written samples for the next roll-up.
+     */
+    public void samplesWritten(List<MeterSample> samples) {
+        for (MeterSample sample : samples) {
+            if (sample.getChargingStationId() == null || sample.getConnectorId() == null
+                    || sample.getTimestamp() == null) {
+                continue;
+            }
+            LocalDateTime minute = sample.getTimestamp().truncatedTo(ChronoUnit.MINUTES);
+            dirty.merge(new ConnectorKey(sample.getChargingStationId(), sample.getConnectorId()),
+                    new Range(minute, minute.plusMinutes(1)), Range::union);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ocpp.meter-values.rollups.interval-ms:30000}",
+            initialDelayString = "${ocpp.meter-values.rollups.interval-ms:30000}")
+    public void rollUp() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int buckets = 0;
+        for (ConnectorKey key : dirty.keySet()) {
+            Range range = dirty.remove(key);
+            if (range == null) {
+                continue;
+            }
+            try {
+                buckets += rollUp(key, range);
+            } catch (DataAccessException e) {
+                // Keep the range for the next run; the database is likely unavailable
+                dirty.merge(key, range, Range::union);
+                log.warn("Meter value roll-up failed, retrying next run: {}", e.getMessage());
+                break;
+            }
+        }
+        bucketCounter.increment(buckets);
+        rollupTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    @Scheduled(fixedDelayString = "${ocpp.meter-values.rollups.retention-interval-ms:3600000}",
+            initialDelayString = "${ocpp.meter-values.rollups.retention-interval-ms:3600000}")
+    public void applyRetention() {
+        for (Tier tier : tiers) {
+            if (tier.retentionDays <= 0) {
+                continue;
+            }
+            Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(tier.retentionDays));
+            int deleted;
+            do {
+                // Bounded batches keep each delete short
+                deleted = jdbcTemplate.update("DELETE FROM " + tier.table + " WHERE ctid IN (SELECT ctid FROM "
+                        + tier.table + " WHERE bucket < ? LIMIT " + RETENTION_BATCH + ")", cutoff);
+                expiredCounter.increment(deleted);
+            } while (deleted == RETENTION_BATCH);
+        }
+    }
+
+    public MeterValueSeries getSeries(UUID chargingStationId, Integer connectorId, MeterValueSeriesQuery query) {
+        LocalDateTime to = query.getTo() != null ? query.getTo() : LocalDateTime.now();
+        LocalDateTime from = query.getFrom() != null ? query.getFrom() : to.minusDays(1);
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        Integer measurand = codes.find(MeterValueCodes.MEASURAND, query.getMeasurand());
+        Integer phase = codes.find(MeterValueCodes.PHASE, query.getPhase());
+
+        String resolution = resolve(query.getResolution(), from, to);
+        if (RAW.equals(resolution)) {
+            return new MeterValueSeries(RAW, readRaw(chargingStationId, connectorId, measurand, phase, from, to));
+        }
+        Tier tier = tier(resolution);
+        List<MeterValuePoint> points = jdbcTemplate.query(
+                "SELECT bucket, min, max, sum / count, last, count, unit FROM " + tier.table +
+                        " WHERE charging_station_id = ? AND connector_id = ? AND measurand = ? AND phase = ? " +
+                        "AND bucket >= ? AND bucket < ? ORDER BY bucket, unit",
+                (rs, i) -> new MeterValuePoint(
+                        rs.getTimestamp(1).toLocalDateTime(),
+                        rs.getDouble(2),
+                        rs.getDouble(3),
+                        rs.getDouble(4),
+                        rs.getDouble(5),
+                        rs.getLong(6),
+                        rs.getInt(7) != 0 ? codes.decode(rs.getInt(7)) : null),
+                chargingStationId, connectorId, orZero(measurand), orZero(phase),
+                Timestamp.valueOf(tier.floor(from)), Timestamp.valueOf(to));
+        return new MeterValueSeries(tier.name, points);
+    }
+
+    /**
+     * Picks the finest rollup tier that keeps the range within {@code max-points} and still
+     * retains its start; short ranges are served from the raw samples.
+     */
+    String resolve(String resolution, LocalDateTime from, LocalDateTime to) {
+        if (resolution != null && !AUTO.equals(resolution)) {
+            if (!RAW.equals(resolution)) {
+                tier(resolution);
+            }
+            return resolution;
+        }
+        long seconds = Duration.between(from, to).toSeconds();
+        if (seconds <= rawMaxRange.toSeconds()) {
+            return RAW;
+        }
+        for (Tier tier : tiers) {
+            if (seconds / tier.widthSeconds <= maxPoints && tier.retains(from)) {
+                return tier.name;
+            }
+        }
+        return tiers.get(tiers.size() - 1).name;
+    }
+
+    private List<MeterValuePoint> readRaw(UUID chargingStationId, Integer connectorId, Integer measurand,
+                                          Integer phase, LocalDateTime from, LocalDateTime to) {
+        List<Object> args = new ArrayList<>(List.of(chargingStationId, connectorId));
+        String sql = "SELECT timestamp, meter_value, unit FROM meter_values " +
+                "WHERE charging_station_id = ? AND connector_id = ? " +
+                "AND " + codeCondition("measurand", measurand, args) +
+                " AND " + codeCondition("phase", phase, args) +
+                " AND timestamp >= ? AND timestamp < ? AND meter_value IS NOT NULL ORDER BY timestamp, id LIMIT ?";
+        args.add(Timestamp.valueOf(from));
+        args.add(Timestamp.valueOf(to));
+        args.add(maxPoints);
+        return jdbcTemplate.query(sql, (rs, i) -> {
+            double value = rs.getDouble(2);
+            return new MeterValuePoint(rs.getTimestamp(1).toLocalDateTime(), value, value, value, value, 1L,
+                    codes.decode(rs, 3));
+        }, args.toArray());
+    }
+
+    private int rollUp(ConnectorKey key, Range range) {
+        int buckets = 0;
+        for (Tier tier : tiers) {
+            LocalDateTime from = tier.floor(range.from);
+            LocalDateTime to = tier.ceil(range.to);
+            // Rolled up from the raw samples once the tier below no longer holds the range
+            boolean fromRaw = tier.source == null || !tier.source.retains(from.minusDays(1));
+            String sql = "INSERT INTO " + tier.table + " (bucket, charging_station_id, min, max, sum, last, last_at, " +
+                    "count, connector_id, measurand, phase, unit) " +
+                    (fromRaw ? selectFromRaw(tier, key) : selectFromSource(tier, key)) +
+                    " GROUP BY 1, 2, 9, 10, 11, 12 " +
+                    "ON CONFLICT (charging_station_id, connector_id, measurand, phase, unit, bucket) DO UPDATE SET " +
+                    "min = excluded.min, max = excluded.max, sum = excluded.sum, last = excluded.last, " +
+                    "last_at = excluded.last_at, count = excluded.count";
+            List<Object> args = new ArrayList<>();
+            if (key.chargingStationId != null) {
+                args.add(key.chargingStationId);
+                args.add(key.connectorId);
+            }
+            args.add(Timestamp.valueOf(from));
+            args.add(Timestamp.valueOf(to));
+            buckets += jdbcTemplate.update(sql, args.toArray());
+        }
+        return buckets;
+    }
+
+    private static String selectFromRaw(Tier tier, ConnectorKey key) {
+        return "SELECT " + tier.bucket("timestamp") + ", charging_station_id, min(meter_value), max(meter_value), " +
+                "sum(meter_value), (array_agg(meter_value ORDER BY timestamp DESC, id DESC))[1], max(timestamp), " +
+                "count(*), connector_id, coalesce(measurand, 0), coalesce(phase, 0), coalesce(unit, 0) " +
+                "FROM meter_values WHERE " + keyCondition(key) + "timestamp >= ? AND timestamp < ? " +
+                "AND meter_value IS NOT NULL AND charging_station_id IS NOT NULL AND connector_id IS NOT NULL";
+    }
+
+    private static String selectFromSource(Tier tier, ConnectorKey key) {
+        return "SELECT " + tier.bucket("bucket") + ", charging_station_id, min(min), max(max), sum(sum), " +
+                "(array_agg(last ORDER BY last_at DESC))[1], max(last_at), sum(count), " +
+                "connector_id, measurand, phase, unit " +
+                "FROM " + tier.source.table + " WHERE " + keyCondition(key) + "bucket >= ? AND bucket < ?";
+    }
+
+    private static String keyCondition(ConnectorKey key) {
+        return key.chargingStationId != null ? "charging_station_id = ? AND connector_id = ? AND " : "";
+    }
+
+    private static String codeCondition(String column, Integer code, List<Object> args) {
+        if (code == null) {
+            return column + " IS NULL";
+        }
+        args.add(code);
+        return column + " = ?";
+    }
+
+    private static int orZero(Integer code) {
+        return code != null ? code : 0;
+    }
+
+    private Tier tier(String name) {
+        for (Tier tier : tiers) {
+            if (tier.name.equals(name)) {
+                return tier;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported resolution: " + name);
+    }
+
+    private static final class Tier {
+        private final String name;
+        private final String table;
+        private final long widthSeconds;
+        private final String bucketExpression;
+        private final Tier source;
+        private final int retentionDays;
+
+        Tier(String name, long widthSeconds, String bucketExpression, Tier source, int retentionDays) {
+            this.name = name;
+            this.table = "meter_value_rollups_" + name;
+            this.widthSeconds = widthSeconds;
+            this.bucketExpression = bucketExpression;
+            this.source = source;
+            this.retentionDays = retentionDays;
+        }
+
+        String bucket(String column) {
+            return String.format(bucketExpression, column);
+        }
+
+        boolean retains(LocalDateTime timestamp) {
+            return retentionDays <= 0 || timestamp.isAfter(LocalDateTime.now().minusDays(retentionDays));
+        }
+
+        LocalDateTime floor(LocalDateTime timestamp) {
+            long seconds = timestamp.toEpochSecond(ZoneOffset.UTC);
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(seconds, widthSeconds) * widthSeconds, 0, ZoneOffset.UTC);
+        }
+
+        LocalDateTime ceil(LocalDateTime timestamp) {
+            LocalDateTime floor = floor(timestamp);
+            return floor.equals(timestamp) ? floor : floor.plusSeconds(widthSeconds);
+        }
+    }
+
+    private static final class ConnectorKey {
+        /** Every connector, for the startup lookback */
+        static final ConnectorKey ALL = new ConnectorKey(null, null);
+
+        private final UUID chargingStationId;
+        private final Integer connectorId;
+
+        ConnectorKey(UUID chargingStationId, Integer connectorId) {
+            this.chargingStationId = chargingStationId;
+            this.connectorId = connectorId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ConnectorKey other
+                    && Objects.equals(chargingStationId, other.chargingStationId)
+                    && Objects.equals(connectorId, other.connectorId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(chargingStationId, connectorId);
+        }
+    }
+
+    private static final class Range {
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+
+        Range(LocalDateTime from, LocalDateTime to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        Range union(Range other) {
+            return new Range(from.isBefore(other.from) ? from : other.from, to.isAfter(other.to) ? to : other.to);
+        }
+    }
+}
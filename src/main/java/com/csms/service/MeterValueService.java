@@ -1,15 +1,12 @@
 package com.csms.service;
 
 import com.csms.dto.ocpp.StopTransactionRequest;
-import com.csms.model.ChargingStation;
-import com.csms.model.MeterValue;
-import com.csms.repository.MeterValueRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -18,10 +15,9 @@ import java.util.UUID;
 @Slf4j
 public class MeterValueService {
 
-    private final MeterValueRepository meterValueRepository;
+    private final MeterValueBatchWriter meterValueBatchWriter;
 
-    @Transactional
-    public void storeMeterValues(ChargingStation chargingStation,
+    public void storeMeterValues(UUID chargingStationId,
                                  Integer connectorId,
                                  Integer transactionId,
                                  List<StopTransactionRequest.MeterValue> meterValues) {
@@ -30,44 +26,70 @@ public class MeterValueService {
             return;
         }
 
+        List<MeterSample> samples = toSamples(chargingStationId, connectorId, transactionId, meterValues,
+                LocalDateTime.now());
+
+        // Written asynchronously in batches; the caller does not wait for the database
+        meterValueBatchWriter.enqueue(samples);
+
+        log.debug("Queued {} meter value records for transaction {}", samples.size(), transactionId);
+    }
+
+    /**
+     * Flattens the sampled values of a request, skipping unparseable ones.
+     *
+     * @param defaultTimestamp used for meter values without a timestamp
+     */
+    public List<MeterSample> toSamples(UUID chargingStationId,
+                                       Integer connectorId,
+                                       Integer transactionId,
+                                       List<StopTransactionRequest.MeterValue> meterValues,
+                                       LocalDateTime defaultTimestamp) {
+        List<MeterSample> samples = new ArrayList<>();
+        if (meterValues == null) {
+            return samples;
+        }
         for (StopTransactionRequest.MeterValue mv : meterValues) {
             if (mv.getSampledValue() != null) {
+                LocalDateTime timestamp = mv.getTimestamp() != null ? mv.getTimestamp() : defaultTimestamp;
                 for (StopTransactionRequest.MeterValue.SampledValue sv : mv.getSampledValue()) {
-                    MeterValue meterValue = new MeterValue();
-                    meterValue.setChargingStation(chargingStation);
-                    meterValue.setConnectorId(connectorId);
-                    meterValue.setTransactionId(transactionId);
-                    meterValue.setTimestamp(mv.getTimestamp() != null ? mv.getTimestamp() : LocalDateTime.now());
-
-                    // Parse the value as integer (Wh)
-                    try {
-                        meterValue.setMeterValue(Integer.parseInt(sv.getValue()));
-                    } catch (NumberFormatException e) {
+                    Double value = parseValue(sv.getValue());
+                    if (value == null) {
                         log.warn("Invalid meter value: {}", sv.getValue());
                         continue;
                     }
 
-                    meterValue.setContext(sv.getContext());
-                    meterValue.setFormat(sv.getFormat());
-                    meterValue.setMeasurand(sv.getMeasurand());
-                    meterValue.setPhase(sv.getPhase());
-                    meterValue.setLocation(sv.getLocation());
-                    meterValue.setUnit(sv.getUnit());
-
-                    meterValueRepository.save(meterValue);
+                    samples.add(new MeterSample(
+                            chargingStationId,
+                            connectorId,
+                            transactionId,
+                            timestamp,
+                            value,
+                            sv.getContext(),
+                            sv.getFormat(),
+                            sv.getMeasurand(),
+                            sv.getPhase(),
+                            sv.getLocation(),
+                            sv.getUnit()
+                    ));
                 }
             }
         }
-
-        log.info("Stored {} meter value records for transaction {}",
-                meterValues.size(), transactionId);
-    }
-
-    public List<MeterValue> getMeterValuesByTransaction(Integer transactionId) {
-        return meterValueRepository.findByTransactionId(transactionId);
+        return samples;
     }
 
-    public List<MeterValue> getMeterValuesByConnector(UUID chargingStationId, Integer connectorId) {
-        return meterValueRepository.findByChargingStationIdAndConnectorId(chargingStationId, connectorId);
+    /**
+     * Sampled values are decimals in the unit of the sample (Wh by default).
+     */
+    private static Double parseValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            double parsed = Double.parseDouble(value);
+            return Double.isFinite(parsed) ? parsed : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
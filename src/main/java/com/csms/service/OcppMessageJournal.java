@@ -0,0 +1,550 @@
+package com.csms.service;
+
+import com.csms.websocket.OcppJsonCodec;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of every OCPP frame exchanged with charge points, in both
+ * directions, kept in {@code ocpp_messages} as an audit trail.
+ * <p>
+ * Recording a frame only stamps it and offers it to a lock-free {@link RingBuffer}; a
+ * single writer thread parses frames, pairs CALLRESULTs and CALLERRORs with the action of
+ * their CALL, and inserts them in multi-row batches of {@code batch-size}, or after
+ * {@code flush-interval-ms} when traffic is light. The writer sleeps until a batch's worth
+ * of frames is waiting or the flush interval is up. Nothing on the message path waits for
+ * the database or the disk.
+ * <p>
+ * When the writer falls behind and the ring fills up, the {@code overflow} policy
+ * decides: {@code drop-oldest} discards the oldest buffered frames, {@code spill} moves
+ * the overflow to a second ring of the same size that the writer appends to local NDJSON
+ * files under {@code spill-dir}, dropping and counting frames once that is full as well.
+ * Batches the database rejects are spilled too. Spilled frames are replayed whenever the
+ * ring is empty, including files left by a previous run.
+ */
+@Component
+@Slf4j
+public class OcppMessageJournal {
+
+    public static final String INBOUND = "IN";
+    public static final String OUTBOUND = "OUT";
+    public static final String OVERFLOW_DROP_OLDEST = "drop-oldest";
+    public static final String OVERFLOW_SPILL = "spill";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO ocpp_messages (timestamp, id, message_type, message_direction, charge_point_id, " +
+                    "unique_id, action, error_code, error_description, payload) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int[] ARG_TYPES = {
+            Types.TIMESTAMP, Types.BIGINT, Types.SMALLINT, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.OTHER};
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long REPLAY_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int MAX_OPEN_CALLS = 100_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final OcppMessagePartitions partitions;
+    private final SequenceIdAllocator idAllocator;
+    private final boolean enabled;
+    private final RingBuffer<Entry> ring;
+    /** Frames that found the ring full, for the writer to spill; only with {@code spill} */
+    private final RingBuffer<Entry> overflow;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Spill spill;
+
+    private final Timer flushTimer;
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter spilledCounter;
+    private final Counter failedCounter;
+
+    /** Action of each CALL awaiting its reply, by charge point, direction and message id; writer thread only */
+    private final Map<String, String> openCalls = new LinkedHashMap<>(1024, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_OPEN_CALLS;
+        }
+    };
+
+    private volatile boolean running;
+    /** Buffered frames at which a producer wakes the sleeping writer, 0 while it is awake */
+    private volatile int wakeThreshold;
+    private long nextReplayAt;
+    private volatile Thread writer;
+
+    public OcppMessageJournal(JdbcTemplate jdbcTemplate,
+                              ObjectMapper objectMapper,
+                              OcppMessagePartitions partitions,
+                              MeterRegistry meterRegistry,
+                              @Value("${ocpp.journal.enabled:true}") boolean enabled,
+                              @Value("${ocpp.journal.ring-capacity:65536}") int ringCapacity,
+                              @Value("${ocpp.journal.batch-size:1000}") int batchSize,
+                              @Value("${ocpp.journal.flush-interval-ms:200}") long flushIntervalMillis,
+                              @Value("${ocpp.journal.overflow:spill}") String overflow,
+                              @Value("${ocpp.journal.spill-dir:journal-spill}") String spillDir,
+                              @Value("${ocpp.journal.id-block-size:1000}") int idBlockSize) {
+        if (!OVERFLOW_SPILL.equals(overflow) && !OVERFLOW_DROP_OLDEST.equals(overflow)) {
+            throw new IllegalArgumentException("ocpp.journal.overflow must be spill or drop-oldest");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.partitions = partitions;
+        this.idAllocator = new SequenceIdAllocator(jdbcTemplate, "ocpp_message_id_seq", idBlockSize);
+        this.enabled = enabled;
+        this.ring = new RingBuffer<>(ringCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.spill = OVERFLOW_SPILL.equals(overflow) ? new Spill(Paths.get(spillDir)) : null;
+        this.overflow = spill != null ? new RingBuffer<>(ring.capacity()) : null;
+
+        meterRegistry.gauge("ocpp.journal.ring.depth", ring, RingBuffer::size);
+        this.flushTimer = Timer.builder("ocpp.journal.flush")
+                .description("Time spent writing one batch to ocpp_messages")
+                .register(meterRegistry);
+        this.writtenCounter = meterRegistry.counter("ocpp.journal.frames", "result", "written");
+        this.droppedCounter = meterRegistry.counter("ocpp.journal.frames", "result", "dropped");
+        this.spilledCounter = meterRegistry.counter("ocpp.journal.frames", "result", "spilled");
+        this.failedCounter = meterRegistry.counter("ocpp.journal.frames", "result", "failed");
+        if (spill != null) {
+            meterRegistry.gauge("ocpp.journal.spill.files", spill.files, Deque::size);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("OCPP message journal is disabled");
+            return;
+        }
+        idAllocator.create();
+        if (spill != null) {
+            spill.open();
+        }
+        running = true;
+        writer = new Thread(this::runWriter, "ocpp-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        if (spill != null) {
+            spill.close();
+        }
+        if (!ring.isEmpty()) {
+            log.warn("OCPP journal writer stopped with {} frames still buffered", ring.size());
+        }
+    }
+
+    /**
+     * Records a frame received from a charge point, as received.
+     */
+    public void inbound(String chargePointId, String frame) {
+        record(chargePointId, INBOUND, frame);
+    }
+
+    /**
+     * Records a frame queued for a charge point.
+     */
+    public void outbound(String chargePointId, String frame) {
+        record(chargePointId, OUTBOUND, frame);
+    }
+
+    public int getBuffered() {
+        return ring.size();
+    }
+
+    private void record(String chargePointId, String direction, String frame) {
+        if (!running) {
+            return;
+        }
+        Entry entry = new Entry(LocalDateTime.now(), chargePointId, direction, frame);
+        if (ring.offer(entry)) {
+            int threshold = wakeThreshold;
+            if (threshold > 0 && ring.size() >= threshold) {
+                wakeWriter();
+            }
+            return;
+        }
+        if (spill != null) {
+            // Written to disk by the writer, so a full ring never puts file I/O on this thread
+            if (overflow.offer(entry)) {
+                wakeWriter();
+            } else {
+                droppedCounter.increment();
+            }
+            return;
+        }
+        do {
+            if (ring.poll() != null) {
+                droppedCounter.increment();
+            }
+        } while (!ring.offer(entry));
+    }
+
+    private void wakeWriter() {
+        if (wakeThreshold > 0) {
+            wakeThreshold = 0;
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Sleeps until {@code frames} are buffered or {@code nanos} have passed.
+     */
+    private void sleep(int frames, long nanos) {
+        wakeThreshold = frames;
+        // Checked after publishing the threshold, so a frame offered in between is not missed
+        if (ring.size() < frames && (overflow == null || overflow.isEmpty()) && running) {
+            LockSupport.parkNanos(this, nanos);
+        }
+        wakeThreshold = 0;
+    }
+
+    private void spillOverflow() {
+        if (overflow == null || overflow.isEmpty()) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>(Math.min(overflow.size(), batchSize));
+        while (overflow.drainTo(entries, batchSize) > 0) {
+            spill.append(entries);
+            spilledCounter.increment(entries.size());
+            entries.clear();
+        }
+    }
+
+    private void runWriter() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        long firstAt = 0;
+        while (running || !ring.isEmpty()) {
+            try {
+                spillOverflow();
+                ring.drainTo(batch, batchSize - batch.size());
+                if (batch.isEmpty()) {
+                    if (spill == null || !replaySpill()) {
+                        sleep(1, IDLE_PARK_NANOS);
+                    }
+                    continue;
+                }
+                if (firstAt == 0) {
+                    firstAt = System.nanoTime();
+                }
+                long remaining = flushIntervalNanos - (System.nanoTime() - firstAt);
+                if (running && batch.size() < batchSize && remaining > 0) {
+                    sleep(batchSize - batch.size(), remaining);
+                    continue;
+                }
+                write(batch);
+                batch.clear();
+                firstAt = 0;
+            } catch (Exception e) {
+                log.error("Unexpected error in OCPP journal writer: {}", e.getMessage(), e);
+                batch.clear();
+                firstAt = 0;
+            }
+        }
+        write(batch);
+        spillOverflow();
+    }
+
+    private void write(List<Entry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            insert(batch);
+        } catch (Exception e) {
+            if (spill != null) {
+                spill.append(batch);
+                spilledCounter.increment(batch.size());
+            } else {
+                failedCounter.increment(batch.size());
+            }
+            log.error("Failed to write batch of {} OCPP frames{}: {}", batch.size(),
+                    spill != null ? ", spilled to disk" : "", e.getMessage());
+        }
+    }
+
+    /**
+     * Replays the oldest spill file, putting back whatever the database still rejects.
+     *
+     * @return {@code true} if a file was replayed
+     */
+    private boolean replaySpill() {
+        if (System.nanoTime() - nextReplayAt < 0) {
+            return false;
+        }
+        Path file = spill.next();
+        if (file == null) {
+            return false;
+        }
+
+        long replayed = 0;
+        boolean failed = false;
+        List<Entry> batch = new ArrayList<>(batchSize);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Entry entry = parseSpilled(line);
+                if (entry != null) {
+                    batch.add(entry);
+                }
+                if (batch.size() < batchSize) {
+                    continue;
+                }
+                failed = failed || !tryInsert(batch);
+                if (failed) {
+                    spill.append(batch);
+                } else {
+                    replayed += batch.size();
+                }
+                batch.clear();
+            }
+            if (!batch.isEmpty()) {
+                failed = failed || !tryInsert(batch);
+                if (failed) {
+                    spill.append(batch);
+                } else {
+                    replayed += batch.size();
+                }
+            }
+            Files.delete(file);
+        } catch (IOException e) {
+            // Retried after the backoff; batches already replayed from it are written again
+            log.error("Could not replay OCPP journal spill file {}: {}", file, e.getMessage());
+            spill.restore(file);
+            failed = true;
+        }
+
+        if (failed) {
+            nextReplayAt = System.nanoTime() + REPLAY_BACKOFF_NANOS;
+        }
+        log.info("Replayed {} spilled OCPP frames from {}{}", replayed, file.getFileName(),
+                failed ? ", database unavailable for the rest" : "");
+        return true;
+    }
+
+    private boolean tryInsert(List<Entry> batch) {
+        try {
+            insert(batch);
+            return true;
+        } catch (Exception e) {
+            log.warn("Failed to replay batch of {} OCPP frames: {}", batch.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void insert(List<Entry> batch) {
+        long start = System.nanoTime();
+        try {
+            List<Object[]> rows = new ArrayList<>(batch.size());
+            List<LocalDateTime> timestamps = new ArrayList<>(batch.size());
+            for (Entry entry : batch) {
+                timestamps.add(entry.timestamp());
+                rows.add(toRow(entry));
+            }
+            partitions.ensureCovered(timestamps);
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows, ARG_TYPES);
+            writtenCounter.increment(batch.size());
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    Object[] toRow(Entry entry) {
+        int messageType = 0;
+        String uniqueId = null;
+        String action = null;
+        String errorCode = null;
+        String errorDescription = null;
+        JsonNode payload;
+        try {
+            JsonNode frame = objectMapper.readTree(entry.frame());
+            if (frame != null && frame.isArray() && frame.size() >= 3 && frame.get(0).isInt()) {
+                messageType = frame.get(0).asInt();
+                uniqueId = frame.get(1).asText();
+                String callKey = entry.chargePointId() + '\u0000' + entry.direction() + '\u0000' + uniqueId;
+                String replyKey = entry.chargePointId() + '\u0000'
+                        + (INBOUND.equals(entry.direction()) ? OUTBOUND : INBOUND) + '\u0000' + uniqueId;
+                switch (messageType) {
+                    case OcppJsonCodec.CALL -> {
+                        action = frame.get(2).asText();
+                        payload = frame.get(3);
+                        openCalls.put(callKey, action);
+                    }
+                    case OcppJsonCodec.CALL_RESULT -> {
+                        action = openCalls.remove(replyKey);
+                        payload = frame.get(2);
+                    }
+                    case OcppJsonCodec.CALL_ERROR -> {
+                        action = openCalls.remove(replyKey);
+                        errorCode = frame.get(2).asText();
+                        errorDescription = frame.path(3).asText(null);
+                        payload = frame.get(4);
+                    }
+                    default -> payload = frame;
+                }
+            } else {
+                payload = frame;
+            }
+        } catch (JsonProcessingException e) {
+            // Malformed frames are kept verbatim as a JSON string
+            payload = TextNode.valueOf(entry.frame());
+        }
+
+        return new Object[]{
+                Timestamp.valueOf(entry.timestamp()),
+                idAllocator.nextId(),
+                messageType,
+                entry.direction(),
+                clean(entry.chargePointId()),
+                clean(uniqueId),
+                clean(action),
+                clean(errorCode),
+                clean(errorDescription),
+                // jsonb rejects the NUL character, even escaped
+                payload != null ? payload.toString().replace("\\u0000", "\\ufffd") : null};
+    }
+
+    private Entry parseSpilled(String line) {
+        try {
+            return objectMapper.readValue(line, Entry.class);
+        } catch (JsonProcessingException e) {
+            // A line torn by a crash while spilling
+            log.warn("Skipping unreadable OCPP journal spill line: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static String clean(String value) {
+        return value != null && value.indexOf('\u0000') >= 0 ? value.replace('\u0000', '\uFFFD') : value;
+    }
+
+    record Entry(LocalDateTime timestamp, String chargePointId, String direction, String frame) {
+    }
+
+    /**
+     * Local NDJSON files holding frames the database could not take yet, oldest first.
+     */
+    private final class Spill {
+
+        private final Path directory;
+        private final Deque<Path> files = new ConcurrentLinkedDeque<>();
+        private final AtomicLong sequence = new AtomicLong();
+        private Path current;
+        private BufferedWriter out;
+
+        Spill(Path directory) {
+            this.directory = directory;
+        }
+
+        void open() {
+            try {
+                Files.createDirectories(directory);
+                try (Stream<Path> existing = Files.list(directory)) {
+                    existing.filter(path -> path.getFileName().toString().endsWith(".ndjson"))
+                            .sorted()
+                            .forEach(files::add);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open OCPP journal spill directory " + directory, e);
+            }
+            if (!files.isEmpty()) {
+                log.warn("Found {} OCPP journal spill files in {}, replaying", files.size(), directory);
+            }
+        }
+
+        synchronized void append(List<Entry> entries) {
+            try {
+                if (out == null) {
+                    current = directory.resolve(String.format("journal-%013d-%06d.ndjson",
+                            System.currentTimeMillis(), sequence.incrementAndGet()));
+                    out = Files.newBufferedWriter(current, StandardCharsets.UTF_8);
+                    files.add(current);
+                }
+                for (Entry entry : entries) {
+                    out.write(objectMapper.writeValueAsString(entry));
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                failedCounter.increment(entries.size());
+                log.error("Could not spill {} OCPP frames to {}: {}", entries.size(), current, e.getMessage());
+            }
+        }
+
+        /**
+         * Takes the oldest spill file, closing the one being appended to if it is the last.
+         */
+        synchronized Path next() {
+            Path file = files.peekFirst();
+            if (file == null) {
+                return null;
+            }
+            if (file.equals(current)) {
+                close();
+            }
+            return files.pollFirst();
+        }
+
+        synchronized void restore(Path file) {
+            files.addFirst(file);
+        }
+
+        synchronized void close() {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.warn("Error closing OCPP journal spill file {}: {}", current, e.getMessage());
+            }
+            out = null;
+            current = null;
+        }
+    }
+}
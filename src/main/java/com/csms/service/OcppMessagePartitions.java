@@ -0,0 +1,119 @@
+package com.csms.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+/**
+ * Owns the layout of the {@code ocpp_messages} journal: an append-only table
+ * range-partitioned on {@code timestamp}, indexed for lookups by charge point, by action
+ * and by time alone, each in {@code (timestamp, id)} order.
+ * <p>
+ * Partitions are created {@code premake-days} ahead and on demand for spilled frames
+ * replayed late. With a retention set, partitions that end before it are dropped, so
+ * expiring old frames never deletes rows one by one.
+ * <p>
+ * The plain {@code ocpp_messages} table of the former JPA entity is dropped at startup
+ * when empty, or renamed to {@value #LEGACY_TABLE} when something did write to it.
+ */
+@Component
+@Slf4j
+public class OcppMessagePartitions extends TimePartitionedTable {
+
+    public static final String LEGACY_TABLE = "ocpp_messages_legacy";
+
+    private static final long INIT_LOCK_KEY = 0x6a6f75726e6cL;
+
+    private final int premakeDays;
+    private final int retentionDays;
+
+    public OcppMessagePartitions(JdbcTemplate jdbcTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${ocpp.journal.partition-days:1}") int partitionDays,
+                                 @Value("${ocpp.journal.premake-days:2}") int premakeDays,
+                                 @Value("${ocpp.journal.retention-days:90}") int retentionDays) {
+        super(jdbcTemplate, meterRegistry, "ocpp_messages", "ocpp.journal.partitions", partitionDays);
+        this.premakeDays = premakeDays;
+        this.retentionDays = retentionDays;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT pg_advisory_lock(" + INIT_LOCK_KEY + ")");
+                try {
+                    createTable(statement);
+                } finally {
+                    statement.execute("SELECT pg_advisory_unlock(" + INIT_LOCK_KEY + ")");
+                }
+            }
+            return null;
+        });
+        loadPartitions();
+        maintain();
+    }
+
+    @Scheduled(fixedDelayString = "${ocpp.journal.maintenance-interval-ms:3600000}",
+            initialDelayString = "${ocpp.journal.maintenance-interval-ms:3600000}")
+    public void maintain() {
+        LocalDate today = LocalDate.now();
+        ensureRange(today.atStartOfDay(), today.plusDays(premakeDays).atStartOfDay());
+        if (retentionDays > 0) {
+            dropBefore(today.minusDays(retentionDays).atStartOfDay());
+        }
+    }
+
+    private void createTable(Statement statement) throws SQLException {
+        String kind = null;
+        try (ResultSet rs = statement.executeQuery(
+                "SELECT relkind FROM pg_class WHERE oid = to_regclass('ocpp_messages')")) {
+            if (rs.next()) {
+                kind = rs.getString(1);
+            }
+        }
+        if ("r".equals(kind)) {
+            boolean empty;
+            try (ResultSet rs = statement.executeQuery("SELECT NOT EXISTS (SELECT 1 FROM ocpp_messages)")) {
+                rs.next();
+                empty = rs.getBoolean(1);
+            }
+            if (empty) {
+                statement.execute("DROP TABLE ocpp_messages");
+                log.info("Dropped the empty unpartitioned ocpp_messages table");
+            } else {
+                statement.execute("ALTER TABLE ocpp_messages RENAME TO " + LEGACY_TABLE);
+                log.warn("Renamed the unpartitioned ocpp_messages table to {}; it is no longer written", LEGACY_TABLE);
+            }
+        }
+
+        statement.execute("CREATE TABLE IF NOT EXISTS ocpp_messages (" +
+                "timestamp timestamp NOT NULL, " +
+                "id bigint NOT NULL, " +
+                "message_type smallint NOT NULL, " +
+                "message_direction varchar(3) NOT NULL, " +
+                "charge_point_id text NOT NULL, " +
+                "unique_id text, " +
+                "action text, " +
+                "error_code text, " +
+                "error_description text, " +
+                "payload jsonb" +
+                ") PARTITION BY RANGE (timestamp)");
+        statement.execute("CREATE INDEX IF NOT EXISTS ocpp_messages_station_idx " +
+                "ON ocpp_messages (charge_point_id, timestamp, id)");
+        statement.execute("CREATE INDEX IF NOT EXISTS ocpp_messages_action_idx " +
+                "ON ocpp_messages (action, timestamp, id)");
+        statement.execute("CREATE INDEX IF NOT EXISTS ocpp_messages_time_idx " +
+                "ON ocpp_messages (timestamp, id)");
+    }
+}
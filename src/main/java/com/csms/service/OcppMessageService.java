@@ -1,16 +1,24 @@
 package com.csms.service;
 
 import com.csms.dto.ocpp.*;
+import com.csms.exception.OcppCallException;
+import com.csms.metrics.DatabaseTime;
+import com.csms.metrics.OcppMetrics;
 import com.csms.model.ChargingStation;
 import com.csms.model.Reservation;
+import com.csms.scheduler.StationOfflineDetector;
+import com.csms.service.ChargingStationRegistry.StationEntry;
+import com.csms.websocket.OcppAdmissionController;
+import com.csms.websocket.OcppJsonCodec;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -19,112 +27,162 @@ import java.util.Optional;
 public class OcppMessageService {
 
     private final ChargingStationService chargingStationService;
+    private final ChargingStationRegistry chargingStationRegistry;
     private final TransactionService transactionService;
     private final AuthorizationService authorizationService;
     private final MeterValueService meterValueService;
     private final ReservationService reservationService;
     private final ConfigurationService configurationService;
-    private final ObjectMapper objectMapper;
-
-    public String handleMessage(String chargePointId, String messageId, String action, JsonNode payload) {
+    private final IdAllocationService idAllocationService;
+    private final OcppStateSpool ocppStateSpool;
+    private final StationOfflineDetector stationOfflineDetector;
+    private final OcppAdmissionController admissionController;
+    private final OcppJsonCodec ocppJsonCodec;
+    private final OcppMetrics ocppMetrics;
+
+    @Value("${ocpp.heartbeat.default-interval:300}")
+    private int defaultHeartbeatInterval;
+
+    /**
+     * Handles a CALL from a charge point. The payload has already been bound by
+     * {@link OcppJsonCodec} to the request DTO for the action, or is a {@code JsonNode}
+     * for actions that are only logged.
+     */
+    public String handleMessage(String chargePointId, String messageId, String action, Object payload) {
+        long start = System.nanoTime();
+        String outcome = OcppMetrics.OUTCOME_RESULT;
+        DatabaseTime.start();
         try {
-            switch (action) {
-                case "BootNotification":
-                    return handleBootNotification(chargePointId, messageId, payload);
-                case "StatusNotification":
-                    return handleStatusNotification(chargePointId, messageId, payload);
-                case "Heartbeat":
-                    return handleHeartbeat(chargePointId, messageId, payload);
-                case "Authorize":
-                    return handleAuthorize(chargePointId, messageId, payload);
-                case "StartTransaction":
-                    return handleStartTransaction(chargePointId, messageId, payload);
-                case "StopTransaction":
-                    return handleStopTransaction(chargePointId, messageId, payload);
-                case "MeterValues":
-                    return handleMeterValues(chargePointId, messageId, payload);
-                case "DataTransfer":
-                    return handleDataTransfer(chargePointId, messageId, payload);
-                case "DiagnosticsStatusNotification":
-                    return handleDiagnosticsStatusNotification(chargePointId, messageId, payload);
-                case "FirmwareStatusNotification":
-                    return handleFirmwareStatusNotification(chargePointId, messageId, payload);
-                default:
-                    log.warn("Unknown action: {} from charge point: {}", action, chargePointId);
-                    return createErrorResponse(messageId, "NotSupported", "Action not supported");
-            }
+            return dispatch(chargePointId, messageId, action, payload);
+        } catch (OcppCallException e) {
+            outcome = e.getErrorCode();
+            log.warn("Rejected {} from {}: {} - {}", action, chargePointId, e.getErrorCode(), e.getMessage());
+            return createErrorResponse(messageId, e.getErrorCode(), e.getMessage());
         } catch (Exception e) {
+            outcome = "InternalError";
             log.error("Error handling message {} from {}: {}", action, chargePointId, e.getMessage(), e);
             return createErrorResponse(messageId, "InternalError", "Internal server error");
+        } finally {
+            ocppMetrics.recordMessage(action, outcome, System.nanoTime() - start, DatabaseTime.stop());
         }
     }
 
-    private String handleBootNotification(String chargePointId, String messageId, JsonNode payload) throws Exception {
-        BootNotificationRequest request = objectMapper.treeToValue(payload, BootNotificationRequest.class);
+    private String dispatch(String chargePointId, String messageId, String action, Object payload) throws Exception {
+        switch (action) {
+            case "BootNotification":
+                return handleBootNotification(chargePointId, messageId, (BootNotificationRequest) payload);
+            case "StatusNotification":
+                return handleStatusNotification(chargePointId, messageId, (StatusNotificationRequest) payload);
+            case "Heartbeat":
+                return handleHeartbeat(chargePointId, messageId, (HeartbeatRequest) payload);
+            case "Authorize":
+                return handleAuthorize(chargePointId, messageId, (AuthorizeRequest) payload);
+            case "StartTransaction":
+                return handleStartTransaction(chargePointId, messageId, (StartTransactionRequest) payload);
+            case "StopTransaction":
+                return handleStopTransaction(chargePointId, messageId, (StopTransactionRequest) payload);
+            case "MeterValues":
+                return handleMeterValues(chargePointId, messageId, (MeterValuesRequest) payload);
+            case "DataTransfer":
+                return handleDataTransfer(chargePointId, messageId, (JsonNode) payload);
+            case "DiagnosticsStatusNotification":
+                return handleDiagnosticsStatusNotification(chargePointId, messageId, (JsonNode) payload);
+            case "FirmwareStatusNotification":
+                return handleFirmwareStatusNotification(chargePointId, messageId, (JsonNode) payload);
+            default:
+                throw new OcppCallException("NotSupported", "Action not supported");
+        }
+    }
 
-        ChargingStation station = chargingStationService.registerChargingStation(
-                chargePointId,
-                request.getChargePointVendor(),
-                request.getChargePointModel(),
-                request.getChargePointSerialNumber(),
-                request.getFirmwareVersion()
-        );
+    private String handleBootNotification(String chargePointId, String messageId, BootNotificationRequest request) throws Exception {
+        if (!admissionController.tryAcquireBoot()) {
+            // Too many boots in progress: the station keeps its connection and boots again later
+            int retryInterval = admissionController.bootRetryInterval();
+            log.debug("Boot of {} pending, retry in {}s", chargePointId, retryInterval);
+            return createCallResult(messageId, new BootNotificationResponse("Pending", LocalDateTime.now(), retryInterval));
+        }
 
-        // Initialize default configuration if new station
-        configurationService.initializeDefaultConfiguration(station);
+        long bootStart = System.nanoTime();
+        try {
+            ChargingStation station = chargingStationService.registerChargingStation(
+                    chargePointId,
+                    request.getChargePointVendor(),
+                    request.getChargePointModel(),
+                    request.getChargePointSerialNumber(),
+                    request.getFirmwareVersion()
+            );
 
-        BootNotificationResponse response = new BootNotificationResponse(
-                "Accepted",
-                LocalDateTime.now(),
-                300 // Heartbeat interval in seconds
-        );
+            // Initialize default configuration if new station
+            configurationService.initializeDefaultConfiguration(station);
 
-        return createCallResult(messageId, response);
+            // Heartbeat interval in seconds, also used as the basis of the station's offline deadline
+            int heartbeatInterval = configurationService.getHeartbeatInterval(station.getId(), defaultHeartbeatInterval);
+            stationOfflineDetector.setHeartbeatInterval(chargePointId, heartbeatInterval);
+
+            BootNotificationResponse response = new BootNotificationResponse(
+                    "Accepted",
+                    LocalDateTime.now(),
+                    heartbeatInterval
+            );
+
+            return createCallResult(messageId, response);
+        } finally {
+            admissionController.releaseBoot(System.nanoTime() - bootStart);
+        }
     }
 
-    private String handleStatusNotification(String chargePointId, String messageId, JsonNode payload) throws Exception {
-        StatusNotificationRequest request = objectMapper.treeToValue(payload, StatusNotificationRequest.class);
+    private String handleStatusNotification(String chargePointId, String messageId, StatusNotificationRequest request) throws Exception {
+        if (ocppStateSpool.isEnabled()) {
+            ocppStateSpool.append(OcppStateSpool.STATUS_NOTIFICATION, chargePointId, null, request);
+            return createCallResult(messageId, new StatusNotificationResponse());
+        }
 
-        Optional<ChargingStation> stationOpt = chargingStationService.findByChargePointId(chargePointId);
+        Optional<StationEntry> stationOpt = chargingStationRegistry.get(chargePointId);
         if (stationOpt.isPresent()) {
-            chargingStationService.updateConnectorStatus(
-                    stationOpt.get().getId(),
+            ConnectorStateMachine.Outcome outcome = chargingStationService.updateConnectorStatus(
+                    stationOpt.get(),
                     request.getConnectorId(),
                     request.getStatus(),
                     request.getErrorCode(),
-                    request.getInfo()
+                    request.getInfo(),
+                    request.getVendorId(),
+                    request.getVendorErrorCode()
             );
+            if (outcome == ConnectorStateMachine.Outcome.REJECTED) {
+                throw new OcppCallException("PropertyConstraintViolation",
+                        "Status " + request.getStatus() + " is not reachable from the connector's current status");
+            }
         }
 
         StatusNotificationResponse response = new StatusNotificationResponse();
         return createCallResult(messageId, response);
     }
 
-    private String handleHeartbeat(String chargePointId, String messageId, JsonNode payload) throws Exception {
+    private String handleHeartbeat(String chargePointId, String messageId, HeartbeatRequest request) throws Exception {
         chargingStationService.updateHeartbeat(chargePointId);
 
         HeartbeatResponse response = new HeartbeatResponse(LocalDateTime.now());
         return createCallResult(messageId, response);
     }
 
-    private String handleAuthorize(String chargePointId, String messageId, JsonNode payload) throws Exception {
-        AuthorizeRequest request = objectMapper.treeToValue(payload, AuthorizeRequest.class);
-
+    private String handleAuthorize(String chargePointId, String messageId, AuthorizeRequest request) throws Exception {
         StartTransactionResponse.IdTagInfo idTagInfo = authorizationService.authorize(request.getIdTag());
         AuthorizeResponse response = new AuthorizeResponse(idTagInfo);
 
         return createCallResult(messageId, response);
     }
 
-    private String handleStartTransaction(String chargePointId, String messageId, JsonNode payload) throws Exception {
-        StartTransactionRequest request = objectMapper.treeToValue(payload, StartTransactionRequest.class);
+    private String handleStartTransaction(String chargePointId, String messageId, StartTransactionRequest request) throws Exception {
+        if (ocppStateSpool.isEnabled()) {
+            return spoolStartTransaction(chargePointId, messageId, request);
+        }
 
-        Optional<ChargingStation> stationOpt = chargingStationService.findByChargePointId(chargePointId);
+        Optional<StationEntry> stationOpt = chargingStationRegistry.get(chargePointId);
         if (stationOpt.isEmpty()) {
-            return createErrorResponse(messageId, "GenericError", "Charge point not registered");
+            throw new OcppCallException("GenericError", "Charge point not registered");
         }
 
-        ChargingStation station = stationOpt.get();
+        StationEntry station = stationOpt.get();
 
         // Check for active reservations
         List<Reservation> activeReservations = reservationService
@@ -153,15 +211,41 @@ public class OcppMessageService {
         }
     }
 
-    private String handleStopTransaction(String chargePointId, String messageId, JsonNode payload) throws Exception {
-        StopTransactionRequest request = objectMapper.treeToValue(payload, StopTransactionRequest.class);
+    /**
+     * Answers with a transaction id from the prefetched blocks; the replayer creates the
+     * transaction. Connected stations are in the registry, so checking the station rarely
+     * needs the database.
+     */
+    private String spoolStartTransaction(String chargePointId, String messageId, StartTransactionRequest request) throws Exception {
+        if (chargingStationRegistry.get(chargePointId).isEmpty()) {
+            throw new OcppCallException("GenericError", "Charge point not registered");
+        }
 
-        Optional<ChargingStation> stationOpt = chargingStationService.findByChargePointId(chargePointId);
+        StartTransactionResponse.IdTagInfo idTagInfo = ocppStateSpool.authorize(request.getIdTag());
+        if (!"Accepted".equals(idTagInfo.getStatus())) {
+            return createCallResult(messageId, new StartTransactionResponse(idTagInfo, -1));
+        }
+
+        Integer transactionId = idAllocationService.nextTransactionId();
+        ocppStateSpool.append(OcppStateSpool.START_TRANSACTION, chargePointId, transactionId, request);
+        return createCallResult(messageId, new StartTransactionResponse(idTagInfo, transactionId));
+    }
+
+    private String handleStopTransaction(String chargePointId, String messageId, StopTransactionRequest request) throws Exception {
+        if (ocppStateSpool.isEnabled()) {
+            StartTransactionResponse.IdTagInfo idTagInfo = request.getIdTag() != null
+                    ? ocppStateSpool.authorize(request.getIdTag())
+                    : new StartTransactionResponse.IdTagInfo("Accepted", null, null);
+            ocppStateSpool.append(OcppStateSpool.STOP_TRANSACTION, chargePointId, null, request);
+            return createCallResult(messageId, new StopTransactionResponse(idTagInfo));
+        }
+
+        Optional<StationEntry> stationOpt = chargingStationRegistry.get(chargePointId);
         if (stationOpt.isPresent()) {
             // Store meter values if provided
             if (request.getTransactionData() != null && !request.getTransactionData().isEmpty()) {
                 meterValueService.storeMeterValues(
-                        stationOpt.get(),
+                        stationOpt.get().getId(),
                         null, // Connector ID not specified in stop transaction
                         request.getTransactionId(),
                         request.getTransactionData()
@@ -177,6 +261,7 @@ public class OcppMessageService {
         }
 
         transactionService.stopTransaction(
+                stationOpt.orElse(null),
                 request.getTransactionId(),
                 request.getIdTag(),
                 request.getMeterStop(),
@@ -188,13 +273,16 @@ public class OcppMessageService {
         return createCallResult(messageId, response);
     }
 
-    private String handleMeterValues(String chargePointId, String messageId, JsonNode payload) throws Exception {
-        MeterValuesRequest request = objectMapper.treeToValue(payload, MeterValuesRequest.class);
+    private String handleMeterValues(String chargePointId, String messageId, MeterValuesRequest request) throws Exception {
+        if (ocppStateSpool.isEnabled()) {
+            ocppStateSpool.append(OcppStateSpool.METER_VALUES, chargePointId, null, request);
+            return createCallResult(messageId, new MeterValuesResponse());
+        }
 
-        Optional<ChargingStation> stationOpt = chargingStationService.findByChargePointId(chargePointId);
+        Optional<StationEntry> stationOpt = chargingStationRegistry.get(chargePointId);
         if (stationOpt.isPresent()) {
             meterValueService.storeMeterValues(
-                    stationOpt.get(),
+                    stationOpt.get().getId(),
                     request.getConnectorId(),
                     request.getTransactionId(),
                     request.getMeterValue()
@@ -210,35 +298,24 @@ public class OcppMessageService {
 
         // For now, accept all data transfers
         // In production, implement vendor-specific handling
-        return createCallResult(messageId, "{\"status\":\"Accepted\"}");
+        return createCallResult(messageId, Map.of("status", "Accepted"));
     }
 
     private String handleDiagnosticsStatusNotification(String chargePointId, String messageId, JsonNode payload) throws Exception {
         log.info("Received diagnostics status from {}: {}", chargePointId, payload);
-        return createCallResult(messageId, "{}");
+        return createCallResult(messageId, Map.of());
     }
 
     private String handleFirmwareStatusNotification(String chargePointId, String messageId, JsonNode payload) throws Exception {
         log.info("Received firmware status from {}: {}", chargePointId, payload);
-        return createCallResult(messageId, "{}");
-    }
-
-    public void handleResponse(String chargePointId, String messageId, JsonNode payload) {
-        log.info("Received response from {} for message {}: {}", chargePointId, messageId, payload);
-        // Handle responses to messages sent by CSMS to charge points
-    }
-
-    public void handleError(String chargePointId, String messageId, String errorCode, String errorDescription) {
-        log.error("Received error from {} for message {}: {} - {}",
-                chargePointId, messageId, errorCode, errorDescription);
+        return createCallResult(messageId, Map.of());
     }
 
     private String createCallResult(String messageId, Object payload) throws Exception {
-        String payloadJson = objectMapper.writeValueAsString(payload);
-        return String.format("[3,\"%s\",%s]", messageId, payloadJson);
+        return ocppJsonCodec.encodeCallResult(messageId, payload);
     }
 
-    private String createErrorResponse(String messageId, String errorCode, String errorDescription) {
-        return String.format("[4,\"%s\",\"%s\",\"%s\",{}]", messageId, errorCode, errorDescription);
+    public String createErrorResponse(String messageId, String errorCode, String errorDescription) {
+        return ocppJsonCodec.encodeCallError(messageId, errorCode, errorDescription);
     }
 }
\ No newline at end of file
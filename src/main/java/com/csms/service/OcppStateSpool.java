@@ -0,0 +1,446 @@
+package com.csms.service;
+
+import com.csms.dto.ocpp.MeterValuesRequest;
+import com.csms.dto.ocpp.StartTransactionRequest;
+import com.csms.dto.ocpp.StartTransactionResponse.IdTagInfo;
+import com.csms.dto.ocpp.StatusNotificationRequest;
+import com.csms.dto.ocpp.StopTransactionRequest;
+import com.csms.service.ChargingStationRegistry.StationEntry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Optional durability mode that acknowledges state changes from charge points once they
+ * are in a local {@link WriteAheadLog}, instead of after they are committed to Postgres.
+ * <p>
+ * StatusNotification, StartTransaction, StopTransaction and MeterValues are appended
+ * with the time they arrived and, for starts, the transaction id handed to the station.
+ * A single replayer thread reads the durable records in order and applies up to
+ * {@code apply-batch-size} of them per database transaction. The position of the last
+ * applied record is stored in {@code spool_checkpoints} in that same transaction, so the
+ * rows a record writes are written exactly once even if the node dies halfway. That
+ * includes the connector a StatusNotification updates, which is written in the
+ * transaction instead of being left to the write-behind of {@link ConnectorStateMachine};
+ * connector changes that follow from transaction starts and stops still go through the
+ * write-behind. Segments that were fully applied are deleted.
+ * <p>
+ * A StatusNotification is acknowledged before its transition is checked, so one the
+ * state machine rejects on replay leaves the connector as it was and is counted and
+ * logged. While the database is unreachable the replayer retries every
+ * {@code retry-interval-ms} and the log grows; a record the database rejects for any
+ * other reason is skipped and counted. A record not synced within
+ * {@code sync-timeout-ms} is still acknowledged: it is in the log and is replayed once
+ * it reaches the disk, so failing the request would only make the station send it again.
+ */
+@Component
+@Slf4j
+public class OcppStateSpool {
+
+    public static final String STATUS_NOTIFICATION = "StatusNotification";
+    public static final String START_TRANSACTION = "StartTransaction";
+    public static final String STOP_TRANSACTION = "StopTransaction";
+    public static final String METER_VALUES = "MeterValues";
+
+    private static final String SPOOL_ID_FILE = "spool.id";
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ChargingStationRegistry chargingStationRegistry;
+    private final ChargingStationService chargingStationService;
+    private final TransactionService transactionService;
+    private final MeterValueService meterValueService;
+    private final MeterValueBatchWriter meterValueBatchWriter;
+    private final AuthorizationService authorizationService;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final long syncTimeoutMillis;
+    private final int applyBatchSize;
+    private final long retryIntervalNanos;
+
+    private final Timer appendTimer;
+    private final Counter appliedCounter;
+    private final Counter skippedCounter;
+    private final Counter failedCounter;
+    private final Counter rejectedCounter;
+    private final Counter syncTimeoutCounter;
+    private final Counter authorizationFallbackCounter;
+
+    private WriteAheadLog wal;
+    private String spoolId;
+    private volatile long appliedSequence;
+    private volatile boolean running;
+    private Thread replayer;
+
+    public OcppStateSpool(ObjectMapper objectMapper,
+                          JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          ChargingStationRegistry chargingStationRegistry,
+                          ChargingStationService chargingStationService,
+                          TransactionService transactionService,
+                          MeterValueService meterValueService,
+                          MeterValueBatchWriter meterValueBatchWriter,
+                          AuthorizationService authorizationService,
+                          MeterRegistry meterRegistry,
+                          @Value("${ocpp.spool.enabled:false}") boolean enabled,
+                          @Value("${ocpp.spool.dir:spool}") String directory,
+                          @Value("${ocpp.spool.segment-bytes:67108864}") int segmentBytes,
+                          @Value("${ocpp.spool.sync-timeout-ms:2000}") long syncTimeoutMillis,
+                          @Value("${ocpp.spool.apply-batch-size:200}") int applyBatchSize,
+                          @Value("${ocpp.spool.retry-interval-ms:1000}") long retryIntervalMillis) {
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chargingStationRegistry = chargingStationRegistry;
+        this.chargingStationService = chargingStationService;
+        this.transactionService = transactionService;
+        this.meterValueService = meterValueService;
+        this.meterValueBatchWriter = meterValueBatchWriter;
+        this.authorizationService = authorizationService;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentBytes;
+        this.syncTimeoutMillis = syncTimeoutMillis;
+        this.applyBatchSize = applyBatchSize;
+        this.retryIntervalNanos = TimeUnit.MILLISECONDS.toNanos(retryIntervalMillis);
+
+        this.appendTimer = Timer.builder("ocpp.spool.append")
+                .description("Time to append a record to the spool and wait for its sync")
+                .register(meterRegistry);
+        this.appliedCounter = meterRegistry.counter("ocpp.spool.records", "result", "applied");
+        this.skippedCounter = meterRegistry.counter("ocpp.spool.records", "result", "skipped");
+        this.failedCounter = meterRegistry.counter("ocpp.spool.records", "result", "failed");
+        this.rejectedCounter = meterRegistry.counter("ocpp.spool.records", "result", "rejected");
+        this.syncTimeoutCounter = meterRegistry.counter("ocpp.spool.sync.timeouts");
+        this.authorizationFallbackCounter = meterRegistry.counter("ocpp.spool.authorization.fallback");
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            wal = new WriteAheadLog(directory, segmentBytes, syncTimeoutMillis);
+            spoolId = readSpoolId();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the spool in " + directory, e);
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS spool_checkpoints (" +
+                "spool_id text PRIMARY KEY, sequence bigint NOT NULL, updated_at timestamp NOT NULL)");
+        List<Long> checkpoint = jdbcTemplate.queryForList(
+                "SELECT sequence FROM spool_checkpoints WHERE spool_id = ?", Long.class, spoolId);
+        appliedSequence = checkpoint.isEmpty() ? 0 : checkpoint.get(0);
+
+        meterRegistry.gauge("ocpp.spool.backlog", this, spool -> spool.getBacklog());
+        meterRegistry.gauge("ocpp.spool.segments", wal, WriteAheadLog::getSegmentCount);
+        log.info("Spool {} in {} resumes after record {} with {} records to apply",
+                spoolId, directory, appliedSequence, getBacklog());
+
+        running = true;
+        replayer = new Thread(this::runReplayer, "ocpp-spool-replayer");
+        replayer.setDaemon(true);
+        replayer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        replayer.join(TimeUnit.SECONDS.toMillis(30));
+        wal.close();
+        if (getBacklog() > 0) {
+            log.warn("Spool stopped with {} records not yet applied; they are applied on the next start",
+                    getBacklog());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records that have been acknowledged but not yet applied to the database.
+     */
+    public long getBacklog() {
+        return wal == null ? 0 : Math.max(0, wal.getAppendedSequence() - appliedSequence);
+    }
+
+    /**
+     * Appends a state change and returns once it is durable, or once {@code sync-timeout-ms}
+     * has passed with the record in the log.
+     *
+     * @param transactionId the id assigned to a StartTransaction, otherwise {@code null}
+     * @throws IOException if the record could not be written to the log
+     */
+    public void append(String action, String chargePointId, Integer transactionId, Object request) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(new SpoolRecord(
+                action, chargePointId, LocalDateTime.now(), transactionId, objectMapper.valueToTree(request)));
+        long start = System.nanoTime();
+        try {
+            wal.append(body);
+        } catch (WriteAheadLog.SyncTimeoutException e) {
+            // Replayed once synced; failing the request would only get it sent and spooled twice
+            syncTimeoutCounter.increment();
+            log.warn("Acknowledging spooled {} from {} before it is synced: {}",
+                    action, chargePointId, e.getMessage());
+        } finally {
+            appendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Authorizes from the cache or the database, and accepts tags that can't be looked up
+     * while the database is unreachable.
+     */
+    public IdTagInfo authorize(String idTag) {
+        try {
+            return authorizationService.authorize(idTag);
+        } catch (DataAccessException | CannotCreateTransactionException e) {
+            authorizationFallbackCounter.increment();
+            log.warn("Accepting ID tag {} without a lookup: {}", idTag, e.getMessage());
+            return new IdTagInfo("Accepted", null, null);
+        }
+    }
+
+    private void runReplayer() {
+        WriteAheadLog.Cursor cursor = wal.cursor(appliedSequence);
+        List<WriteAheadLog.Record> pending = new ArrayList<>();
+        int limit = applyBatchSize;
+        while (running) {
+            if (pending.isEmpty()) {
+                try {
+                    pending.addAll(cursor.next(applyBatchSize));
+                } catch (IOException e) {
+                    log.error("Cannot read the spool: {}", e.getMessage());
+                    LockSupport.parkNanos(retryIntervalNanos);
+                    continue;
+                }
+                if (pending.isEmpty()) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+            }
+
+            List<WriteAheadLog.Record> batch = pending.subList(0, Math.min(limit, pending.size()));
+            long last = batch.get(batch.size() - 1).sequence();
+            try {
+                apply(batch);
+                limit = applyBatchSize;
+                batch.clear();
+            } catch (Exception e) {
+                if (isTransient(e)) {
+                    log.warn("Database unavailable, retrying {} spooled records: {}", batch.size(), e.getMessage());
+                    LockSupport.parkNanos(retryIntervalNanos);
+                    continue;
+                }
+                if (batch.size() > 1) {
+                    // Apply one at a time to isolate the record the database rejects
+                    limit = 1;
+                    continue;
+                }
+                log.error("Skipping spooled record {}: {}", last, e.getMessage(), e);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> saveCheckpoint(last));
+                } catch (Exception checkpointError) {
+                    log.warn("Could not skip spooled record {}: {}", last, checkpointError.getMessage());
+                    LockSupport.parkNanos(retryIntervalNanos);
+                    continue;
+                }
+                appliedSequence = last;
+                failedCounter.increment();
+                batch.clear();
+            }
+            truncate();
+        }
+        try {
+            cursor.close();
+        } catch (IOException e) {
+            log.debug("Could not close the spool cursor: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Applies records and moves the checkpoint past them in one database transaction.
+     */
+    private void apply(List<WriteAheadLog.Record> records) throws IOException {
+        List<Runnable> steps = new ArrayList<>(records.size());
+        List<MeterSample> samples = new ArrayList<>();
+        AtomicInteger rejected = new AtomicInteger();
+        int skipped = 0;
+        for (WriteAheadLog.Record record : records) {
+            if (!plan(objectMapper.readValue(record.body(), SpoolRecord.class), steps, samples, rejected)) {
+                skipped++;
+            }
+        }
+        meterValueBatchWriter.prepare(samples);
+
+        long last = records.get(records.size() - 1).sequence();
+        transactionTemplate.executeWithoutResult(status -> {
+            // Counted again if the transaction is retried
+            rejected.set(0);
+            steps.forEach(Runnable::run);
+            meterValueBatchWriter.write(samples);
+            saveCheckpoint(last);
+        });
+        appliedSequence = last;
+        appliedCounter.increment(records.size() - skipped - rejected.get());
+        skippedCounter.increment(skipped);
+        rejectedCounter.increment(rejected.get());
+    }
+
+    /**
+     * Adds the work for one record to the transaction being prepared.
+     *
+     * @param rejected incremented by the work for each StatusNotification the connector
+     *                 state machine rejects
+     * @return {@code false} if the record is dropped because its station is unknown
+     */
+    private boolean plan(SpoolRecord record, List<Runnable> steps, List<MeterSample> samples,
+                         AtomicInteger rejected) throws IOException {
+        Optional<StationEntry> stationOpt = chargingStationRegistry.get(record.chargePointId());
+        switch (record.action()) {
+            case STATUS_NOTIFICATION -> {
+                StatusNotificationRequest request = read(record, StatusNotificationRequest.class);
+                if (stationOpt.isEmpty()) {
+                    break;
+                }
+                steps.add(() -> {
+                    ConnectorStateMachine.Outcome outcome = chargingStationService.updateConnectorStatus(
+                            stationOpt.get(), request.getConnectorId(), request.getStatus(), request.getErrorCode(),
+                            request.getInfo(), request.getVendorId(), request.getVendorErrorCode());
+                    if (outcome == ConnectorStateMachine.Outcome.REJECTED) {
+                        rejected.incrementAndGet();
+                        log.warn("Spooled status {} of {}/{} was rejected on replay", request.getStatus(),
+                                record.chargePointId(), request.getConnectorId());
+                    }
+                    // Written even if unchanged, since a retry after a rollback finds it already applied
+                    chargingStationService.saveConnector(stationOpt.get(), request.getConnectorId());
+                });
+                return true;
+            }
+            case METER_VALUES -> {
+                MeterValuesRequest request = read(record, MeterValuesRequest.class);
+                if (stationOpt.isEmpty()) {
+                    break;
+                }
+                samples.addAll(meterValueService.toSamples(stationOpt.get().getId(), request.getConnectorId(),
+                        request.getTransactionId(), request.getMeterValue(), record.receivedAt()));
+                return true;
+            }
+            case START_TRANSACTION -> {
+                StartTransactionRequest request = read(record, StartTransactionRequest.class);
+                if (stationOpt.isEmpty()) {
+                    break;
+                }
+                steps.add(() -> transactionService.recordStartedTransaction(stationOpt.get(),
+                        record.transactionId(), request.getConnectorId(), request.getIdTag(),
+                        request.getMeterStart(), orReceived(request.getTimestamp(), record)));
+                return true;
+            }
+            case STOP_TRANSACTION -> {
+                StopTransactionRequest request = read(record, StopTransactionRequest.class);
+                stationOpt.ifPresent(station -> samples.addAll(meterValueService.toSamples(station.getId(), null,
+                        request.getTransactionId(), request.getTransactionData(), record.receivedAt())));
+                steps.add(() -> transactionService.stopTransaction(stationOpt.orElse(null),
+                        request.getTransactionId(), request.getIdTag(), request.getMeterStop(),
+                        orReceived(request.getTimestamp(), record), request.getReason()));
+                return true;
+            }
+            default -> throw new IOException("Unknown spooled action " + record.action());
+        }
+        log.warn("Dropping spooled {} from unknown charge point {}", record.action(), record.chargePointId());
+        return false;
+    }
+
+    private <T> T read(SpoolRecord record, Class<T> type) throws IOException {
+        return objectMapper.treeToValue(record.request(), type);
+    }
+
+    private static LocalDateTime orReceived(LocalDateTime timestamp, SpoolRecord record) {
+        return timestamp != null ? timestamp : record.receivedAt();
+    }
+
+    private void saveCheckpoint(long sequence) {
+        jdbcTemplate.update("INSERT INTO spool_checkpoints (spool_id, sequence, updated_at) VALUES (?, ?, now()) " +
+                "ON CONFLICT (spool_id) DO UPDATE SET sequence = EXCLUDED.sequence, updated_at = EXCLUDED.updated_at",
+                spoolId, sequence);
+    }
+
+    private void truncate() {
+        try {
+            wal.truncate(appliedSequence);
+        } catch (IOException e) {
+            log.warn("Could not delete applied spool segments: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * The spool's checkpoint key, kept next to the segments so a copied spool directory
+     * carries its position with it.
+     */
+    private String readSpoolId() throws IOException {
+        Path file = directory.resolve(SPOOL_ID_FILE);
+        if (Files.exists(file)) {
+            return Files.readString(file, StandardCharsets.UTF_8).trim();
+        }
+        String id = UUID.randomUUID().toString();
+        Files.writeString(file, id, StandardCharsets.UTF_8);
+        return id;
+    }
+
+    private static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof TransactionSystemException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    record SpoolRecord(String action, String chargePointId, LocalDateTime receivedAt, Integer transactionId,
+                       JsonNode request) {
+    }
+}
@@ -1,7 +1,13 @@
 package com.csms.service;
 
 import com.csms.dto.ocpp.*;
-import com.csms.websocket.OcppWebSocketHandler;
+import com.csms.scheduler.StationOfflineDetector;
+import com.csms.service.ChargingStationRegistry.StationEntry;
+import com.csms.service.StationOwnershipRegistry.ClusterNode;
+import com.csms.websocket.OcppCallCorrelator;
+import com.csms.websocket.OcppSessionRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -9,135 +15,198 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RemoteCommandService {
 
-    private final OcppWebSocketHandler webSocketHandler;
+    /** The commands this service sends, and so the only ones another node may forward */
+    private static final Map<String, Class<?>> FORWARDABLE = Map.of(
+            "RemoteStartTransaction", RemoteStartTransactionRequest.class,
+            "RemoteStopTransaction", RemoteStopTransactionRequest.class,
+            "Reset", ResetRequest.class,
+            "UnlockConnector", UnlockConnectorRequest.class,
+            "ReserveNow", ReserveNowRequest.class,
+            "CancelReservation", CancelReservationRequest.class,
+            "GetConfiguration", GetConfigurationRequest.class,
+            "ChangeConfiguration", ChangeConfigurationRequest.class,
+            "ClearCache", Map.class);
+
+    private static final String HEARTBEAT_INTERVAL = "HeartbeatInterval";
+
+    private final OcppCallCorrelator callCorrelator;
+    private final IdAllocationService idAllocationService;
+    private final OcppSessionRegistry sessionRegistry;
+    private final StationOwnershipRegistry stationOwnershipRegistry;
+    private final ClusterCommandForwarder clusterCommandForwarder;
     private final ObjectMapper objectMapper;
+    private final ChargingStationRegistry chargingStationRegistry;
+    private final ConfigurationService configurationService;
+    private final StationOfflineDetector stationOfflineDetector;
 
-    // Store pending requests awaiting responses
-    private final ConcurrentHashMap<String, CompletableFuture<String>> pendingRequests = new ConcurrentHashMap<>();
-
-    public CompletableFuture<String> sendRemoteStartTransaction(String chargePointId, String idTag, Integer connectorId) {
+    public CompletableFuture<RemoteStartTransactionResponse> sendRemoteStartTransaction(String chargePointId, String idTag, Integer connectorId) {
         try {
             RemoteStartTransactionRequest request = new RemoteStartTransactionRequest(idTag, connectorId, null);
-            return sendCommand(chargePointId, "RemoteStartTransaction", request);
+            return sendCommand(chargePointId, "RemoteStartTransaction", request, RemoteStartTransactionResponse.class);
         } catch (Exception e) {
             log.error("Error sending RemoteStartTransaction to {}: {}", chargePointId, e.getMessage());
             return CompletableFuture.failedFuture(e);
         }
     }
 
-    public CompletableFuture<String> sendRemoteStopTransaction(String chargePointId, Integer transactionId) {
+    public CompletableFuture<RemoteStopTransactionResponse> sendRemoteStopTransaction(String chargePointId, Integer transactionId) {
         try {
             RemoteStopTransactionRequest request = new RemoteStopTransactionRequest(transactionId);
-            return sendCommand(chargePointId, "RemoteStopTransaction", request);
+            return sendCommand(chargePointId, "RemoteStopTransaction", request, RemoteStopTransactionResponse.class);
         } catch (Exception e) {
             log.error("Error sending RemoteStopTransaction to {}: {}", chargePointId, e.getMessage());
             return CompletableFuture.failedFuture(e);
         }
     }
 
-    public CompletableFuture<String> sendReset(String chargePointId, String type) {
+    public CompletableFuture<ResetResponse> sendReset(String chargePointId, String type) {
         try {
             ResetRequest request = new ResetRequest(type);
-            return sendCommand(chargePointId, "Reset", request);
+            return sendCommand(chargePointId, "Reset", request, ResetResponse.class);
         } catch (Exception e) {
             log.error("Error sending Reset to {}: {}", chargePointId, e.getMessage());
             return CompletableFuture.failedFuture(e);
         }
     }
 
-    public CompletableFuture<String> sendUnlockConnector(String chargePointId, Integer connectorId) {
+    public CompletableFuture<UnlockConnectorResponse> sendUnlockConnector(String chargePointId, Integer connectorId) {
         try {
             UnlockConnectorRequest request = new UnlockConnectorRequest(connectorId);
-            return sendCommand(chargePointId, "UnlockConnector", request);
+            return sendCommand(chargePointId, "UnlockConnector", request, UnlockConnectorResponse.class);
         } catch (Exception e) {
             log.error("Error sending UnlockConnector to {}: {}", chargePointId, e.getMessage());
             return CompletableFuture.failedFuture(e);
         }
     }
 
-    public CompletableFuture<String> sendReserveNow(String chargePointId, Integer connectorId,
+    public CompletableFuture<ReserveNowResponse> sendReserveNow(String chargePointId, Integer connectorId,
                                                     LocalDateTime expiryDate, String idTag, String parentIdTag) {
         try {
-            Integer reservationId = (int) (System.currentTimeMillis() % 1000000);
+            Integer reservationId = idAllocationService.nextReservationId();
             ReserveNowRequest request = new ReserveNowRequest(connectorId, expiryDate, idTag, parentIdTag, reservationId);
-            return sendCommand(chargePointId, "ReserveNow", request);
+            return sendCommand(chargePointId, "ReserveNow", request, ReserveNowResponse.class);
         } catch (Exception e) {
             log.error("Error sending ReserveNow to {}: {}", chargePointId, e.getMessage());
             return CompletableFuture.failedFuture(e);
         }
     }
 
-    public CompletableFuture<String> sendCancelReservation(String chargePointId, Integer reservationId) {
+    public CompletableFuture<CancelReservationResponse> sendCancelReservation(String chargePointId, Integer reservationId) {
         try {
             CancelReservationRequest request = new CancelReservationRequest(reservationId);
-            return sendCommand(chargePointId, "CancelReservation", request);
+            return sendCommand(chargePointId, "CancelReservation", request, CancelReservationResponse.class);
         } catch (Exception e) {
             log.error("Error sending CancelReservation to {}: {}", chargePointId, e.getMessage());
             return CompletableFuture.failedFuture(e);
         }
     }
 
-    public CompletableFuture<String> sendGetConfiguration(String chargePointId, List<String> keys) {
+    public CompletableFuture<GetConfigurationResponse> sendGetConfiguration(String chargePointId, List<String> keys) {
         try {
             GetConfigurationRequest request = new GetConfigurationRequest(keys);
-            return sendCommand(chargePointId, "GetConfiguration", request);
+            return sendCommand(chargePointId, "GetConfiguration", request, GetConfigurationResponse.class);
         } catch (Exception e) {
             log.error("Error sending GetConfiguration to {}: {}", chargePointId, e.getMessage());
             return CompletableFuture.failedFuture(e);
         }
     }
 
-    public CompletableFuture<String> sendChangeConfiguration(String chargePointId, String key, String value) {
+    public CompletableFuture<ChangeConfigurationResponse> sendChangeConfiguration(String chargePointId, String key, String value) {
         try {
             ChangeConfigurationRequest request = new ChangeConfigurationRequest(key, value);
-            return sendCommand(chargePointId, "ChangeConfiguration", request);
+            return sendCommand(chargePointId, "ChangeConfiguration", request, ChangeConfigurationResponse.class);
         } catch (Exception e) {
             log.error("Error sending ChangeConfiguration to {}: {}", chargePointId, e.getMessage());
             return CompletableFuture.failedFuture(e);
         }
     }
 
-    public CompletableFuture<String> sendClearCache(String chargePointId) {
+    public CompletableFuture<ClearCacheResponse> sendClearCache(String chargePointId) {
         try {
-            return sendCommand(chargePointId, "ClearCache", "{}");
+            return sendCommand(chargePointId, "ClearCache", Map.of(), ClearCacheResponse.class);
         } catch (Exception e) {
             log.error("Error sending ClearCache to {}: {}", chargePointId, e.getMessage());
             return CompletableFuture.failedFuture(e);
         }
     }
 
-    private CompletableFuture<String> sendCommand(String chargePointId, String action, Object payload) throws Exception {
-        String messageId = UUID.randomUUID().toString();
-        String payloadJson = payload instanceof String ? (String) payload : objectMapper.writeValueAsString(payload);
-        String message = String.format("[2,\"%s\",\"%s\",%s]", messageId, action, payloadJson);
-
-        CompletableFuture<String> future = new CompletableFuture<>();
-        pendingRequests.put(messageId, future);
-
-        // Set timeout for the request
-        future.orTimeout(30, TimeUnit.SECONDS)
-                .whenComplete((result, ex) -> pendingRequests.remove(messageId));
+    /**
+     * Sends a CALL that another cluster node forwarded here; it is never forwarded again.
+     *
+     * @throws IllegalArgumentException for an action this service does not send, or a
+     *                                  payload that does not bind to its request
+     */
+    public CompletableFuture<JsonNode> sendForwardedCommand(String chargePointId, String action, JsonNode payload) {
+        Class<?> requestType = action != null ? FORWARDABLE.get(action) : null;
+        if (requestType == null) {
+            throw new IllegalArgumentException("Action cannot be forwarded: " + action);
+        }
+        Object request;
+        try {
+            request = objectMapper.treeToValue(payload, requestType);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + action + " payload: " + e.getMessage());
+        }
+        if (request == null) {
+            throw new IllegalArgumentException("Missing " + action + " payload");
+        }
+        return call(chargePointId, action, request, JsonNode.class);
+    }
 
-        webSocketHandler.sendMessage(chargePointId, message);
-        log.info("Sent {} command to {} with message ID: {}", action, chargePointId, messageId);
+    private <T> CompletableFuture<T> sendCommand(String chargePointId, String action, Object payload,
+                                                 Class<T> responseType) {
+        if (!sessionRegistry.isConnected(chargePointId)) {
+            Optional<ClusterNode> owner = stationOwnershipRegistry.findOwner(chargePointId);
+            if (owner.isPresent()) {
+                return clusterCommandForwarder.forward(owner.get(), chargePointId, action, payload, responseType);
+            }
+        }
+        return call(chargePointId, action, payload, responseType);
+    }
 
-        return future;
+    /**
+     * Sends a CALL to a station connected to this node, which is also the node that watches
+     * its heartbeat deadline.
+     */
+    private <T> CompletableFuture<T> call(String chargePointId, String action, Object payload,
+                                          Class<T> responseType) {
+        CompletableFuture<T> response = callCorrelator.call(chargePointId, action, payload, responseType);
+        if (payload instanceof ChangeConfigurationRequest change && HEARTBEAT_INTERVAL.equals(change.getKey())) {
+            response.thenAccept(result -> heartbeatIntervalChanged(chargePointId, change.getValue(),
+                    objectMapper.convertValue(result, ChangeConfigurationResponse.class).getStatus()));
+        }
+        return response;
     }
 
-    public void completeRequest(String messageId, String response) {
-        CompletableFuture<String> future = pendingRequests.remove(messageId);
-        if (future != null) {
-            future.complete(response);
+    /**
+     * Stores a HeartbeatInterval the station took and, if it applies right away, moves the
+     * station's offline deadline to match.
+     */
+    private void heartbeatIntervalChanged(String chargePointId, String value, String status) {
+        boolean accepted = "Accepted".equals(status);
+        if (!accepted && !"RebootRequired".equals(status)) {
+            return;
+        }
+        try {
+            int interval = Integer.parseInt(value.trim());
+            if (accepted) {
+                stationOfflineDetector.setHeartbeatInterval(chargePointId, interval);
+            }
+            Optional<StationEntry> station = chargingStationRegistry.get(chargePointId);
+            if (station.isPresent()) {
+                configurationService.setConfiguration(station.get().getId(), HEARTBEAT_INTERVAL, value.trim());
+            }
+        } catch (Exception e) {
+            log.warn("Could not apply HeartbeatInterval {} of {}: {}", value, chargePointId, e.getMessage());
         }
     }
 
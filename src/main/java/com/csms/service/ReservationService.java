@@ -20,6 +20,7 @@ import java.util.UUID;
 public class ReservationService {
 
     private final ReservationRepository reservationRepository;
+    private final IdAllocationService idAllocationService;
 
     @Transactional
     public Reservation createReservation(ChargingStation chargingStation,
@@ -29,7 +30,7 @@ public class ReservationService {
                                          String parentIdTag) {
 
         // Generate reservation ID
-        Integer reservationId = generateReservationId();
+        Integer reservationId = idAllocationService.nextReservationId();
 
         Reservation reservation = new Reservation();
         reservation.setReservationId(reservationId);
@@ -80,9 +81,4 @@ public class ReservationService {
             log.info("Expired reservation {}", reservation.getReservationId());
         }
     }
-
-    private Integer generateReservationId() {
-        // Simple implementation - could be improved with database sequence
-        return (int) (System.currentTimeMillis() % 1000000);
-    }
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.csms.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands out ids from a Postgres sequence in blocks (hi/lo).
+ * <p>
+ * The sequence is created with {@code INCREMENT BY blockSize}, so every {@code nextval}
+ * reserves a disjoint range of ids for this process. Ids inside the range are handed out
+ * with a single atomic increment; only exhausting a block costs a database round-trip.
+ * Ranges never overlap across nodes, but ids are only roughly ordered between them and
+ * the unused tail of a block is skipped on restart.
+ * <p>
+ * A sequence that already exists keeps its increment, and that increment is the block
+ * size used: a larger configured block would hand out ids that {@code nextval} gives to
+ * other nodes too. Changing the block size of an existing sequence takes an
+ * {@code ALTER SEQUENCE ... INCREMENT BY} while no node is running.
+ * <p>
+ * With {@code prefetch}, a spare block is reserved whenever one is taken into use, so
+ * ids keep coming for up to two blocks while the database is unreachable.
+ */
+@Slf4j
+public class SequenceIdAllocator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String sequenceName;
+    private final int configuredBlockSize;
+    private final boolean prefetch;
+
+    private volatile int blockSize;
+
+    private final AtomicReference<Block> current = new AtomicReference<>();
+    private Block spare;
+
+    public SequenceIdAllocator(JdbcTemplate jdbcTemplate, String sequenceName, int blockSize) {
+        this(jdbcTemplate, sequenceName, blockSize, false);
+    }
+
+    public SequenceIdAllocator(JdbcTemplate jdbcTemplate, String sequenceName, int blockSize, boolean prefetch) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sequenceName = sequenceName;
+        this.configuredBlockSize = blockSize;
+        this.blockSize = blockSize;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Creates the sequence if needed, for tables whose ids only ever come from it, and takes
+     * its increment as the block size.
+     */
+    public void create() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequenceName + " INCREMENT BY " + configuredBlockSize);
+        Long increment = jdbcTemplate.queryForObject("SELECT increment_by FROM pg_sequences " +
+                "WHERE schemaname = current_schema() AND sequencename = ?", Long.class, sequenceName);
+        if (increment == null || increment < 1 || increment > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Sequence " + sequenceName + " has an unusable increment of " + increment);
+        }
+        if (increment != configuredBlockSize) {
+            log.warn("Sequence {} increments by {}, not the configured {}; using blocks of {}",
+                    sequenceName, increment, configuredBlockSize, increment);
+        }
+        blockSize = increment.intValue();
+    }
+
+    /**
+     * Ids reserved per sequence round-trip, which is the sequence's increment once
+     * {@link #create()} has run.
+     */
+    int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Creates the sequence if needed and moves it past the highest id already in use.
+     */
+    public void initialize(String table, String column) {
+        create();
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(" + column + "), 0) FROM " + table, Long.class);
+        jdbcTemplate.queryForList("SELECT setval('" + sequenceName + "', ?, false) " +
+                "WHERE (SELECT last_value FROM " + sequenceName + ") <= ?", maxId + 1, maxId);
+        log.info("Initialized id sequence {} with block size {}", sequenceName, blockSize);
+    }
+
+    public long nextId() {
+        while (true) {
+            Block block = current.get();
+            if (block != null) {
+                long id = block.next.getAndIncrement();
+                if (id < block.limit) {
+                    return id;
+                }
+            }
+            refill(block);
+        }
+    }
+
+    private synchronized void refill(Block exhausted) {
+        if (current.get() != exhausted) {
+            return; // Another thread already fetched a new block
+        }
+        Block next = spare != null ? spare : reserve();
+        spare = null;
+        current.set(next);
+        if (prefetch) {
+            try {
+                spare = reserve();
+            } catch (DataAccessException e) {
+                // Retried on the next refill; the current block is still good
+                log.warn("Could not reserve a spare block from {}: {}", sequenceName, e.getMessage());
+            }
+        }
+    }
+
+    private Block reserve() {
+        Long start = jdbcTemplate.queryForObject("SELECT nextval('" + sequenceName + "')", Long.class);
+        int size = blockSize;
+        log.debug("Reserved ids [{}, {}) from {}", start, start + size, sequenceName);
+        return new Block(start, start + size);
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long limit;
+
+        Block(long start, long limit) {
+            this.next = new AtomicLong(start);
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.csms.service;
+
+import com.csms.scheduler.StationOfflineDetector;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks when each charge point was last heard from.
+ * <p>
+ * Every inbound frame refreshes the station's last-seen time in memory. The values are
+ * written back to {@code charging_stations.last_heartbeat} periodically in a single
+ * batched UPDATE, and offline checks are answered from memory. Activity also re-arms
+ * the station's deadline in {@link StationOfflineDetector}.
+ */
+@Component
+@Slf4j
+public class StationLivenessTracker {
+
+    private static final String UPDATE_SQL = "UPDATE charging_stations SET last_heartbeat = ? WHERE charge_point_id = ?";
+    private static final String LOAD_SQL = "SELECT s.charge_point_id, s.last_heartbeat, c.config_value " +
+            "FROM charging_stations s LEFT JOIN charge_point_configurations c " +
+            "ON c.charging_station_id = s.id AND c.config_key = 'HeartbeatInterval' " +
+            "WHERE s.last_heartbeat IS NOT NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StationOfflineDetector stationOfflineDetector;
+    private final Timer flushTimer;
+
+    private final Map<String, LastSeen> lastSeen = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    public StationLivenessTracker(JdbcTemplate jdbcTemplate,
+                                  StationOfflineDetector stationOfflineDetector,
+                                  MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.stationOfflineDetector = stationOfflineDetector;
+        this.flushTimer = meterRegistry.timer("ocpp.heartbeat.flush");
+        meterRegistry.gaugeMapSize("ocpp.heartbeat.tracked", Tags.empty(), lastSeen);
+        meterRegistry.gaugeCollectionSize("ocpp.heartbeat.dirty", Tags.empty(), dirty);
+    }
+
+    @PostConstruct
+    public void loadLastHeartbeats() {
+        long nowNanos = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            LocalDateTime heartbeat = rs.getTimestamp(2).toLocalDateTime();
+            long ageNanos = Duration.between(heartbeat, now).toNanos();
+            lastSeen.put(rs.getString(1), new LastSeen(nowNanos - ageNanos));
+            stationOfflineDetector.seed(rs.getString(1), parseInterval(rs.getString(1), rs.getString(3)), ageNanos);
+        });
+        log.info("Loaded last heartbeat for {} charging stations", lastSeen.size());
+    }
+
+    public void touch(String chargePointId) {
+        long now = System.nanoTime();
+        LastSeen entry = lastSeen.get(chargePointId);
+        if (entry != null) {
+            entry.nanos = now;
+        } else {
+            lastSeen.put(chargePointId, new LastSeen(now));
+        }
+        dirty.add(chargePointId);
+        stationOfflineDetector.recordActivity(chargePointId);
+    }
+
+    /**
+     * Drops a station that another node of the cluster serves now; its last-seen time is
+     * kept up to date there.
+     */
+    public void forget(String chargePointId) {
+        lastSeen.remove(chargePointId);
+        stationOfflineDetector.forget(chargePointId);
+    }
+
+    public Optional<LocalDateTime> getLastSeen(String chargePointId) {
+        LastSeen entry = lastSeen.get(chargePointId);
+        return entry != null ? Optional.of(toLocalDateTime(entry.nanos, System.nanoTime())) : Optional.empty();
+    }
+
+    @Scheduled(fixedDelayString = "${ocpp.heartbeat.flush-interval-ms:30000}")
+    @PreDestroy
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        List<Object[]> updates = new ArrayList<>(dirty.size());
+        for (Iterator<String> it = dirty.iterator(); it.hasNext(); ) {
+            String chargePointId = it.next();
+            it.remove();
+            LastSeen entry = lastSeen.get(chargePointId);
+            if (entry != null) {
+                updates.add(new Object[]{Timestamp.valueOf(toLocalDateTime(entry.nanos, now)), chargePointId});
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+            log.debug("Flushed last heartbeat for {} charging stations", updates.size());
+        } catch (Exception e) {
+            // Put the stations back so the next flush retries them
+            updates.forEach(update -> dirty.add((String) update[1]));
+            log.error("Failed to flush {} heartbeats: {}", updates.size(), e.getMessage());
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Integer parseInterval(String chargePointId, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid HeartbeatInterval configured for station {}", chargePointId);
+            return null;
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long seenNanos, long nowNanos) {
+        return LocalDateTime.now().minusNanos(nowNanos - seenNanos);
+    }
+
+    private static final class LastSeen {
+        private volatile long nanos;
+
+        LastSeen(long nanos) {
+            this.nanos = nanos;
+        }
+    }
+}
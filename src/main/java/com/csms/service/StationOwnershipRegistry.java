@@ -0,0 +1,648 @@
+package com.csms.service;
+
+import com.csms.dto.ClusterNodeSummary;
+import com.csms.event.IdTagsChangedEvent;
+import com.csms.event.StationConnectedEvent;
+import com.csms.event.StationDisconnectedEvent;
+import com.csms.websocket.OcppSessionRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Which node of the cluster holds each charge point's WebSocket connection.
+ * <p>
+ * With {@code ocpp.cluster.enabled}, the nodes share {@code station_sessions}. A node
+ * claims a station when it connects, under an epoch taken from a database sequence, and
+ * releases the claim when it disconnects. Claims and releases are written in batches every
+ * {@code flush-interval-ms} and announced with NOTIFY on {@value #CHANNEL}. Every node
+ * LISTENs and keeps the owners of the other nodes' stations in memory, so routing a remote
+ * command needs no query. The newest claim wins: a node still holding an older connection
+ * of the station closes it.
+ * <p>
+ * Nodes heartbeat into {@code cluster_nodes}. A node whose heartbeat is older than
+ * {@code node-timeout-ms} is taken for dead, and the first node to notice deletes its
+ * claims.
+ * <p>
+ * The channel also carries the ID tags changed on a node, so the others drop their cached
+ * authorizations of them instead of serving a revoked tag until it expires.
+ */
+@Component
+@Slf4j
+public class StationOwnershipRegistry {
+
+    static final String CHANNEL = "ocpp_station_sessions";
+    /** NOTIFY payloads must stay below 8000 bytes */
+    private static final int MAX_PAYLOAD_BYTES = 7000;
+    private static final int CLAIM_BATCH_SIZE = 5000;
+
+    private static final String CLAIM_SQL =
+            "INSERT INTO station_sessions (charge_point_id, node_id, epoch, connected_at) " +
+                    "SELECT id, ?, nextval('station_session_epoch_seq'), now() FROM unnest(?::varchar[]) AS id " +
+                    "ON CONFLICT (charge_point_id) DO UPDATE SET node_id = EXCLUDED.node_id, " +
+                    "epoch = EXCLUDED.epoch, connected_at = EXCLUDED.connected_at " +
+                    "WHERE station_sessions.epoch < EXCLUDED.epoch " +
+                    "RETURNING charge_point_id, epoch";
+    // Epochs are unique, so a release never deletes a newer claim of the station
+    private static final String RELEASE_SQL =
+            "DELETE FROM station_sessions WHERE charge_point_id = ANY(?::varchar[]) AND epoch = ANY(?::bigint[])";
+    private static final String HEARTBEAT_SQL =
+            "INSERT INTO cluster_nodes (node_id, url, started_at, heartbeat_at) VALUES (?, ?, now(), now()) " +
+                    "ON CONFLICT (node_id) DO UPDATE SET url = EXCLUDED.url, heartbeat_at = now() " +
+                    "RETURNING xmax = 0";
+    private static final String EXPIRE_SQL =
+            "WITH gone AS (DELETE FROM cluster_nodes " +
+                    "WHERE heartbeat_at < now() - ? * interval '1 millisecond' RETURNING node_id) " +
+                    "DELETE FROM station_sessions WHERE node_id IN (SELECT node_id FROM gone)";
+    private static final String NODES_SQL =
+            "SELECT node_id, url FROM cluster_nodes WHERE heartbeat_at >= now() - ? * interval '1 millisecond'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final OcppSessionRegistry sessionRegistry;
+    private final ChargingStationRegistry chargingStationRegistry;
+    private final ConnectorStateMachine connectorStateMachine;
+    private final StationLivenessTracker stationLivenessTracker;
+    private final AuthorizationService authorizationService;
+    private final boolean enabled;
+    private final String nodeId;
+    private final String advertisedUrl;
+    private final long nodeTimeoutMillis;
+    private final long retryIntervalMillis;
+
+    /** Stations connected to this node; a claim's epoch is 0 until it is written */
+    private final Map<String, Claim> owned = new ConcurrentHashMap<>();
+    private final Map<String, Claim> claims = new ConcurrentHashMap<>();
+    private final Map<String, Long> releases = new ConcurrentHashMap<>();
+    /** Stations connected to other nodes */
+    private final Map<String, Owner> remote = new ConcurrentHashMap<>();
+    /** URL of each live node */
+    private final Map<String, String> nodes = new ConcurrentHashMap<>();
+
+    private final Counter wonCounter;
+    private final Counter lostCounter;
+    private final Timer flushTimer;
+
+    private volatile String url;
+    private volatile boolean running;
+    private Thread listener;
+
+    public StationOwnershipRegistry(JdbcTemplate jdbcTemplate,
+                                    DataSource dataSource,
+                                    ObjectMapper objectMapper,
+                                    OcppSessionRegistry sessionRegistry,
+                                    ChargingStationRegistry chargingStationRegistry,
+                                    ConnectorStateMachine connectorStateMachine,
+                                    StationLivenessTracker stationLivenessTracker,
+                                    AuthorizationService authorizationService,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${ocpp.cluster.enabled:false}") boolean enabled,
+                                    @Value("${ocpp.cluster.node-id:}") String nodeId,
+                                    @Value("${ocpp.cluster.advertised-url:}") String advertisedUrl,
+                                    @Value("${ocpp.cluster.node-timeout-ms:15000}") long nodeTimeoutMillis,
+                                    @Value("${ocpp.cluster.retry-interval-ms:1000}") long retryIntervalMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.sessionRegistry = sessionRegistry;
+        this.chargingStationRegistry = chargingStationRegistry;
+        this.connectorStateMachine = connectorStateMachine;
+        this.stationLivenessTracker = stationLivenessTracker;
+        this.authorizationService = authorizationService;
+        this.enabled = enabled;
+        this.nodeId = nodeId.isBlank() ? localHostName() + "-" + ProcessHandle.current().pid() : nodeId;
+        this.advertisedUrl = advertisedUrl;
+        this.nodeTimeoutMillis = nodeTimeoutMillis;
+        this.retryIntervalMillis = retryIntervalMillis;
+
+        this.wonCounter = meterRegistry.counter("ocpp.cluster.claims", "result", "won");
+        this.lostCounter = meterRegistry.counter("ocpp.cluster.claims", "result", "lost");
+        this.flushTimer = meterRegistry.timer("ocpp.cluster.flush");
+        meterRegistry.gaugeMapSize("ocpp.cluster.stations", Tags.of("owner", "local"), owned);
+        meterRegistry.gaugeMapSize("ocpp.cluster.stations", Tags.of("owner", "remote"), remote);
+        meterRegistry.gaugeMapSize("ocpp.cluster.nodes", Tags.empty(), nodes);
+    }
+
+    @PostConstruct
+    public void createTables() {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS cluster_nodes (" +
+                "node_id varchar(255) PRIMARY KEY, url varchar(255) NOT NULL, " +
+                "started_at timestamp NOT NULL, heartbeat_at timestamp NOT NULL)");
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS station_session_epoch_seq");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS station_sessions (" +
+                "charge_point_id varchar(255) PRIMARY KEY, node_id varchar(255) NOT NULL, " +
+                "epoch bigint NOT NULL, connected_at timestamp NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS station_sessions_node_idx ON station_sessions (node_id)");
+        // Claims left behind by a previous run under the same node ID
+        int stale = jdbcTemplate.update("DELETE FROM station_sessions WHERE node_id = ?", nodeId);
+        if (stale > 0) {
+            log.info("Dropped {} station claims of an earlier run of node {}", stale, nodeId);
+        }
+    }
+
+    /**
+     * Joins the cluster once the port that other nodes forward commands to is known.
+     */
+    @EventListener
+    public void onWebServerInitialized(WebServerInitializedEvent event) {
+        if (!enabled || running || "management".equals(event.getApplicationContext().getServerNamespace())) {
+            return;
+        }
+        url = advertisedUrl.isBlank()
+                ? "http://" + localAddress() + ":" + event.getWebServer().getPort()
+                : advertisedUrl;
+        running = true;
+        heartbeat();
+        listener = new Thread(this::listen, "cluster-listener");
+        listener.setDaemon(true);
+        listener.start();
+        log.info("Joined the cluster as node {} at {}", nodeId, url);
+    }
+
+    @PreDestroy
+    public void leave() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        listener.join(TimeUnit.SECONDS.toMillis(5));
+        try {
+            jdbcTemplate.update("DELETE FROM station_sessions WHERE node_id = ?", nodeId);
+            jdbcTemplate.update("DELETE FROM cluster_nodes WHERE node_id = ?", nodeId);
+            publish(new SessionChanges(nodeId, Map.of(), Map.of(), true));
+            log.info("Left the cluster as node {}", nodeId);
+        } catch (DataAccessException e) {
+            log.warn("Could not leave the cluster cleanly, other nodes will time node {} out: {}",
+                    nodeId, e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return whether the charge point is connected to this node or, in a cluster, to any node
+     */
+    public boolean isConnected(String chargePointId) {
+        return sessionRegistry.isConnected(chargePointId) || (enabled && remote.containsKey(chargePointId));
+    }
+
+    /**
+     * The node holding the charge point's connection, if that is another node of the cluster.
+     */
+    public Optional<ClusterNode> findOwner(String chargePointId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Owner owner = remote.get(chargePointId);
+        String ownerId = owner != null ? owner.nodeId() : null;
+        if (ownerId == null) {
+            // Announcements are missed while the listener reconnects
+            List<String> found = jdbcTemplate.queryForList(
+                    "SELECT node_id FROM station_sessions WHERE charge_point_id = ?", String.class, chargePointId);
+            ownerId = found.isEmpty() ? null : found.get(0);
+        }
+        if (ownerId == null || ownerId.equals(nodeId)) {
+            return Optional.empty();
+        }
+
+        String ownerUrl = nodes.get(ownerId);
+        if (ownerUrl == null) {
+            List<String> found = jdbcTemplate.queryForList("SELECT url FROM cluster_nodes " +
+                    "WHERE node_id = ? AND heartbeat_at >= now() - ? * interval '1 millisecond'", String.class,
+                    ownerId, nodeTimeoutMillis);
+            ownerUrl = found.isEmpty() ? null : found.get(0);
+        }
+        return ownerUrl != null ? Optional.of(new ClusterNode(ownerId, ownerUrl)) : Optional.empty();
+    }
+
+    public List<ClusterNodeSummary> getNodes() {
+        Map<String, Integer> stations = new HashMap<>();
+        remote.values().forEach(owner -> stations.merge(owner.nodeId(), 1, Integer::sum));
+        List<ClusterNodeSummary> summaries = new ArrayList<>();
+        summaries.add(new ClusterNodeSummary(nodeId, url, enabled ? owned.size() : 0, true));
+        nodes.forEach((id, nodeUrl) -> {
+            if (!id.equals(nodeId)) {
+                summaries.add(new ClusterNodeSummary(id, nodeUrl, stations.getOrDefault(id, 0), false));
+            }
+        });
+        return summaries;
+    }
+
+    @EventListener
+    public void onStationConnected(StationConnectedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Claim claim = new Claim();
+        owned.put(event.getChargePointId(), claim);
+        claims.put(event.getChargePointId(), claim);
+    }
+
+    // Runs before ChargingStationRegistry drops the station's ID
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onStationDisconnected(StationDisconnectedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        String chargePointId = event.getChargePointId();
+        Claim claim = owned.remove(chargePointId);
+        if (claim != null) {
+            claims.remove(chargePointId, claim);
+            long epoch = claim.epoch;
+            if (epoch > 0) {
+                releases.put(chargePointId, epoch);
+            }
+        }
+        // It may come back on another node, which then loads the connectors from the database
+        chargingStationRegistry.getCached(chargePointId)
+                .ifPresent(station -> connectorStateMachine.unload(station.getId()));
+    }
+
+    /**
+     * Tells the other nodes to drop their cached authorizations of the changed tags.
+     */
+    @EventListener
+    public void onIdTagsChanged(IdTagsChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        List<String> chunk = new ArrayList<>();
+        int bytes = nodeId.length() + 64;
+        for (String idTag : event.getIdTags()) {
+            int tagBytes = idTag.getBytes(StandardCharsets.UTF_8).length + 4;
+            if (!chunk.isEmpty() && bytes + tagBytes > MAX_PAYLOAD_BYTES) {
+                publishInvalidation(chunk);
+                chunk = new ArrayList<>();
+                bytes = nodeId.length() + 64;
+            }
+            chunk.add(idTag);
+            bytes += tagBytes;
+        }
+        if (!chunk.isEmpty()) {
+            publishInvalidation(chunk);
+        }
+    }
+
+    /**
+     * Writes pending claims and releases, and announces them to the other nodes.
+     */
+    @Scheduled(fixedDelayString = "${ocpp.cluster.flush-interval-ms:100}")
+    public void flush() {
+        if (!enabled || (claims.isEmpty() && releases.isEmpty())) {
+            return;
+        }
+        long start = System.nanoTime();
+        Map<String, Long> released = writeReleases();
+        Map<String, Long> claimed = writeClaims();
+        announce(claimed, released);
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    @Scheduled(fixedDelayString = "${ocpp.cluster.heartbeat-interval-ms:5000}")
+    public void heartbeat() {
+        if (!running) {
+            return;
+        }
+        try {
+            Boolean rejoined = jdbcTemplate.queryForObject(HEARTBEAT_SQL, Boolean.class, nodeId, url);
+            if (Boolean.TRUE.equals(rejoined) && !owned.isEmpty()) {
+                // The other nodes took this one for dead and deleted its claims
+                log.warn("Node {} was timed out by the cluster, claiming its {} stations again", nodeId, owned.size());
+                owned.forEach(claims::putIfAbsent);
+            }
+            int expired = jdbcTemplate.update(EXPIRE_SQL, nodeTimeoutMillis);
+            if (expired > 0) {
+                log.warn("Dropped {} station claims of cluster nodes that stopped heartbeating", expired);
+            }
+
+            Map<String, String> live = new HashMap<>();
+            jdbcTemplate.query(NODES_SQL, rs -> {
+                live.put(rs.getString(1), rs.getString(2));
+            }, nodeTimeoutMillis);
+            nodes.keySet().retainAll(live.keySet());
+            nodes.putAll(live);
+            remote.values().removeIf(owner -> !live.containsKey(owner.nodeId()));
+        } catch (DataAccessException e) {
+            log.error("Cluster heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Applies a NOTIFY payload from the cluster channel.
+     */
+    void onNotification(String payload) {
+        SessionChanges changes;
+        try {
+            JsonNode tree = objectMapper.readTree(payload);
+            if (tree.has("idTags")) {
+                IdTagInvalidation invalidation = objectMapper.treeToValue(tree, IdTagInvalidation.class);
+                if (!nodeId.equals(invalidation.node())) {
+                    authorizationService.evict(invalidation.idTags());
+                }
+                return;
+            }
+            changes = objectMapper.treeToValue(tree, SessionChanges.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed cluster notification: {}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(changes.node())) {
+            return;
+        }
+        if (changes.left()) {
+            nodes.remove(changes.node());
+            remote.values().removeIf(owner -> owner.nodeId().equals(changes.node()));
+            log.info("Cluster node {} left", changes.node());
+            return;
+        }
+        changes.released().forEach((chargePointId, epoch) ->
+                remote.computeIfPresent(chargePointId, (id, owner) -> owner.epoch() == epoch ? null : owner));
+        changes.claimed().forEach((chargePointId, epoch) ->
+                claimedElsewhere(chargePointId, new Owner(changes.node(), epoch)));
+    }
+
+    private Map<String, Long> writeReleases() {
+        Map<String, Long> batch = new HashMap<>();
+        for (Map.Entry<String, Long> entry : releases.entrySet()) {
+            if (releases.remove(entry.getKey(), entry.getValue())) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        try {
+            jdbcTemplate.update(RELEASE_SQL, arrayLiteral(batch.keySet()), arrayLiteral(batch.values()));
+        } catch (DataAccessException e) {
+            batch.forEach(releases::putIfAbsent);
+            log.error("Failed to release {} stations: {}", batch.size(), e.getMessage());
+            return Map.of();
+        }
+        return batch;
+    }
+
+    private Map<String, Long> writeClaims() {
+        List<Map.Entry<String, Claim>> batch = new ArrayList<>();
+        for (Map.Entry<String, Claim> entry : claims.entrySet()) {
+            if (claims.remove(entry.getKey(), entry.getValue())) {
+                batch.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+
+        Map<String, Long> claimed = new HashMap<>();
+        for (int from = 0; from < batch.size(); from += CLAIM_BATCH_SIZE) {
+            List<Map.Entry<String, Claim>> chunk = batch.subList(from, Math.min(batch.size(), from + CLAIM_BATCH_SIZE));
+            Map<String, Long> epochs = new HashMap<>();
+            try {
+                jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> Map.entry(rs.getString(1), rs.getLong(2)),
+                                nodeId, arrayLiteral(chunk.stream().map(Map.Entry::getKey).toList()))
+                        .forEach(row -> epochs.put(row.getKey(), row.getValue()));
+            } catch (DataAccessException e) {
+                // Retried on the next flush unless the station is gone by then
+                chunk.forEach(entry -> {
+                    if (owned.get(entry.getKey()) == entry.getValue()) {
+                        claims.putIfAbsent(entry.getKey(), entry.getValue());
+                    }
+                });
+                log.error("Failed to claim {} stations: {}", chunk.size(), e.getMessage());
+                continue;
+            }
+
+            for (Map.Entry<String, Claim> entry : chunk) {
+                String chargePointId = entry.getKey();
+                Claim claim = entry.getValue();
+                Long epoch = epochs.get(chargePointId);
+                if (epoch == null) {
+                    // Another node has written a newer claim already
+                    lostCounter.increment();
+                    if (owned.get(chargePointId) == claim) {
+                        evict(chargePointId);
+                    }
+                    continue;
+                }
+                wonCounter.increment();
+                claim.epoch = epoch;
+                claimed.put(chargePointId, epoch);
+                if (owned.get(chargePointId) != claim) {
+                    // Disconnected while the claim was being written
+                    releases.put(chargePointId, epoch);
+                    continue;
+                }
+                Owner other = remote.computeIfPresent(chargePointId,
+                        (id, owner) -> owner.epoch() < epoch ? null : owner);
+                if (other != null) {
+                    evict(chargePointId);
+                }
+            }
+        }
+        return claimed;
+    }
+
+    private void claimedElsewhere(String chargePointId, Owner owner) {
+        Claim local = owned.get(chargePointId);
+        if (local != null && local.epoch > owner.epoch()) {
+            return;
+        }
+        Owner current = remote.merge(chargePointId, owner, (a, b) -> b.epoch() > a.epoch() ? b : a);
+        if (current != owner || (local != null && local.epoch == 0)) {
+            // Stale news, or decided when this node's own claim is written
+            return;
+        }
+        if (local != null) {
+            evict(chargePointId);
+        } else {
+            stationLivenessTracker.forget(chargePointId);
+        }
+    }
+
+    private void evict(String chargePointId) {
+        log.info("Charge point {} has connected to another node, closing its connection here", chargePointId);
+        sessionRegistry.evict(chargePointId, "Connected to another node");
+        stationLivenessTracker.forget(chargePointId);
+    }
+
+    private void announce(Map<String, Long> claimed, Map<String, Long> released) {
+        List<SessionChanges> payloads = new ArrayList<>();
+        SessionChanges current = null;
+        int bytes = 0;
+        for (int kind = 0; kind < 2; kind++) {
+            for (Map.Entry<String, Long> entry : (kind == 0 ? claimed : released).entrySet()) {
+                int entryBytes = entry.getKey().getBytes(StandardCharsets.UTF_8).length + 24;
+                if (current == null || bytes + entryBytes > MAX_PAYLOAD_BYTES) {
+                    current = new SessionChanges(nodeId, new HashMap<>(), new HashMap<>(), false);
+                    payloads.add(current);
+                    bytes = nodeId.length() + 64;
+                }
+                (kind == 0 ? current.claimed() : current.released()).put(entry.getKey(), entry.getValue());
+                bytes += entryBytes;
+            }
+        }
+        for (SessionChanges payload : payloads) {
+            try {
+                publish(payload);
+            } catch (DataAccessException e) {
+                // The others fall back to station_sessions for the stations they don't know about
+                log.error("Failed to announce station claims: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void publishInvalidation(List<String> idTags) {
+        try {
+            publish(new IdTagInvalidation(nodeId, idTags));
+        } catch (DataAccessException e) {
+            // The other nodes serve the old result until their cache entry expires
+            log.error("Failed to announce {} changed ID tags: {}", idTags.size(), e.getMessage());
+        }
+    }
+
+    private void publish(Object message) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, payload);
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                // Covers whatever was announced before LISTEN took effect
+                loadRemoteOwners();
+                while (running) {
+                    PGNotification[] received = notifications.getNotifications(500);
+                    if (received != null) {
+                        for (PGNotification notification : received) {
+                            onNotification(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | DataAccessException e) {
+                if (running) {
+                    log.error("Cluster listener lost its connection, reconnecting: {}", e.getMessage());
+                    try {
+                        Thread.sleep(retryIntervalMillis);
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void loadRemoteOwners() {
+        Map<String, Owner> loaded = new HashMap<>();
+        jdbcTemplate.query("SELECT charge_point_id, node_id, epoch FROM station_sessions WHERE node_id <> ?", rs -> {
+            loaded.put(rs.getString(1), new Owner(rs.getString(2), rs.getLong(3)));
+        }, nodeId);
+        remote.keySet().retainAll(loaded.keySet());
+        loaded.forEach(this::claimedElsewhere);
+        log.info("Loaded {} stations connected to other cluster nodes", loaded.size());
+    }
+
+    /**
+     * A Postgres array literal, bound as one string parameter and cast in the statement.
+     */
+    static String arrayLiteral(Collection<?> values) {
+        StringBuilder literal = new StringBuilder("{");
+        for (Object value : values) {
+            if (literal.length() > 1) {
+                literal.append(',');
+            }
+            literal.append('"');
+            String text = value.toString();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    literal.append('\\');
+                }
+                literal.append(c);
+            }
+            literal.append('"');
+        }
+        return literal.append('}').toString();
+    }
+
+    private static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+
+    private static String localAddress() {
+        try {
+            return InetAddress.getLocalHost().getHostAddress();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+
+    public record ClusterNode(String nodeId, String url) {
+    }
+
+    record Owner(String nodeId, long epoch) {
+    }
+
+    record SessionChanges(String node, Map<String, Long> claimed, Map<String, Long> released, boolean left) {
+    }
+
+    record IdTagInvalidation(String node, List<String> idTags) {
+    }
+
+    private static final class Claim {
+        private volatile long epoch;
+    }
+}
@@ -0,0 +1,203 @@
+package com.csms.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Partition bookkeeping for an application-owned table range-partitioned on
+ * {@code timestamp}.
+ * <p>
+ * Partitions span {@code partitionDays} days aligned to the epoch and are named
+ * {@code <table>_pYYYYMMDD}. They are created on demand for the timestamps about to be
+ * written; subclasses create the parent table and decide when old partitions are
+ * detached or dropped.
+ */
+@Slf4j
+public abstract class TimePartitionedTable {
+
+    private static final Pattern BOUNDS = Pattern.compile("FROM \\('([^']+)'\\) TO \\('([^']+)'\\)");
+    private static final DateTimeFormatter PG_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss[.SSSSSS]");
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    protected final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final int partitionDays;
+    private final Counter createdCounter;
+    private final Counter detachedCounter;
+    private final Counter droppedCounter;
+
+    /** Attached partitions by lower bound */
+    private final NavigableMap<LocalDateTime, Partition> partitions = new ConcurrentSkipListMap<>();
+
+    protected TimePartitionedTable(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                   String table, String metricName, int partitionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        this.partitionDays = partitionDays;
+        this.createdCounter = meterRegistry.counter(metricName, "action", "created");
+        this.detachedCounter = meterRegistry.counter(metricName, "action", "detached");
+        this.droppedCounter = meterRegistry.counter(metricName, "action", "dropped");
+        meterRegistry.gaugeMapSize(metricName + ".attached", Tags.empty(), partitions);
+    }
+
+    /**
+     * Creates any missing partitions for the given timestamps.
+     */
+    public void ensureCovered(Iterable<LocalDateTime> timestamps) {
+        Partition last = null;
+        for (LocalDateTime timestamp : timestamps) {
+            if (last != null && last.contains(timestamp)) {
+                continue;
+            }
+            last = find(timestamp);
+            if (last == null) {
+                last = create(timestamp);
+            }
+        }
+    }
+
+    /**
+     * Creates any missing partitions between two timestamps, inclusive.
+     */
+    public void ensureRange(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime timestamp = from;
+        while (!timestamp.isAfter(to)) {
+            Partition partition = find(timestamp);
+            if (partition == null) {
+                partition = create(timestamp);
+            }
+            timestamp = partition.end;
+        }
+    }
+
+    protected void loadPartitions() {
+        partitions.clear();
+        jdbcTemplate.query("SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = '" + table + "'::regclass", rs -> {
+            Matcher bounds = BOUNDS.matcher(rs.getString(2));
+            if (bounds.find()) {
+                Partition partition = new Partition(rs.getString(1),
+                        LocalDateTime.parse(bounds.group(1), PG_TIMESTAMP),
+                        LocalDateTime.parse(bounds.group(2), PG_TIMESTAMP));
+                partitions.put(partition.start, partition);
+            }
+        });
+        log.info("Found {} {} partitions", partitions.size(), table);
+    }
+
+    /**
+     * Detaches partitions that end on or before the cutoff, leaving standalone tables.
+     */
+    protected void detachBefore(LocalDateTime cutoff) {
+        for (Partition partition : expiredBy(cutoff)) {
+            release(partition, "ALTER TABLE " + table + " DETACH PARTITION " + partition.name,
+                    detachedCounter, "Detached");
+        }
+    }
+
+    /**
+     * Drops partitions that end on or before the cutoff.
+     */
+    protected void dropBefore(LocalDateTime cutoff) {
+        for (Partition partition : expiredBy(cutoff)) {
+            release(partition, "DROP TABLE IF EXISTS " + partition.name, droppedCounter, "Dropped");
+        }
+    }
+
+    private List<Partition> expiredBy(LocalDateTime cutoff) {
+        return partitions.headMap(cutoff).values().stream()
+                .filter(partition -> !partition.end.isAfter(cutoff))
+                .toList();
+    }
+
+    private Partition find(LocalDateTime timestamp) {
+        Map.Entry<LocalDateTime, Partition> entry = partitions.floorEntry(timestamp);
+        return entry != null && entry.getValue().contains(timestamp) ? entry.getValue() : null;
+    }
+
+    private synchronized Partition create(LocalDateTime timestamp) {
+        Partition existing = find(timestamp);
+        if (existing != null) {
+            return existing;
+        }
+
+        long epochDay = timestamp.toLocalDate().toEpochDay();
+        LocalDateTime start = LocalDate.ofEpochDay(epochDay - Math.floorMod(epochDay, partitionDays)).atStartOfDay();
+        LocalDateTime end = start.plusDays(partitionDays);
+        // Fit between partitions made with a different width
+        Map.Entry<LocalDateTime, Partition> before = partitions.floorEntry(timestamp);
+        if (before != null && before.getValue().end.isAfter(start)) {
+            start = before.getValue().end;
+        }
+        LocalDateTime after = partitions.ceilingKey(timestamp);
+        if (after != null && after.isBefore(end)) {
+            end = after;
+        }
+
+        String name = table + "_p" + start.format(SUFFIX)
+                + (start.toLocalTime().equals(LocalTime.MIDNIGHT) ? "" : "_" + start.toLocalTime().toSecondOfDay());
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + table +
+                    " FOR VALUES FROM ('" + start.format(BOUND) + "') TO ('" + end.format(BOUND) + "')");
+        } catch (DataAccessException e) {
+            // Another node may have created an overlapping partition first
+            log.debug("Could not create partition {}: {}", name, e.getMessage());
+            loadPartitions();
+            Partition created = find(timestamp);
+            if (created == null) {
+                throw e;
+            }
+            return created;
+        }
+
+        Partition partition = new Partition(name, start, end);
+        partitions.put(start, partition);
+        createdCounter.increment();
+        log.info("Created {} partition {} for [{}, {})", table, name, start, end);
+        return partition;
+    }
+
+    private synchronized void release(Partition partition, String sql, Counter counter, String verb) {
+        try {
+            jdbcTemplate.execute(sql);
+            counter.increment();
+            log.info("{} {} partition {} ([{}, {}))", verb, table, partition.name, partition.start, partition.end);
+        } catch (DataAccessException e) {
+            // Already detached or dropped by another node
+            log.debug("Could not release partition {}: {}", partition.name, e.getMessage());
+        }
+        partitions.remove(partition.start);
+    }
+
+    private static final class Partition {
+        private final String name;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        Partition(String name, LocalDateTime start, LocalDateTime end) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean contains(LocalDateTime timestamp) {
+            return !timestamp.isBefore(start) && timestamp.isBefore(end);
+        }
+    }
+}
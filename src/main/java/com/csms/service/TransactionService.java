@@ -1,9 +1,9 @@
 package com.csms.service;
 
 import com.csms.model.Transaction;
-import com.csms.model.ChargingStation;
+import com.csms.repository.ChargingStationRepository;
 import com.csms.repository.TransactionRepository;
-import com.csms.repository.ConnectorRepository;
+import com.csms.service.ChargingStationRegistry.StationEntry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -20,20 +20,43 @@ import java.util.UUID;
 public class TransactionService {
 
     private final TransactionRepository transactionRepository;
-    private final ConnectorRepository connectorRepository;
+    private final ConnectorStateMachine connectorStateMachine;
+    private final ChargingStationRepository chargingStationRepository;
+    private final IdAllocationService idAllocationService;
+    private final DashboardStatsService dashboardStatsService;
 
     @Transactional
-    public Integer startTransaction(ChargingStation chargingStation,
+    public Integer startTransaction(StationEntry chargingStation,
                                     Integer connectorId,
                                     String idTag,
                                     Integer meterStart,
                                     LocalDateTime timestamp) {
         // Generate new transaction ID
-        Integer transactionId = generateTransactionId();
+        Integer transactionId = idAllocationService.nextTransactionId();
+        recordStartedTransaction(chargingStation, transactionId, connectorId, idTag, meterStart, timestamp);
+        return transactionId;
+    }
+
+    /**
+     * Creates a transaction under an id that was handed to the charge point earlier.
+     *
+     * @return {@code false} if a transaction with that id already exists
+     */
+    @Transactional
+    public boolean recordStartedTransaction(StationEntry chargingStation,
+                                            Integer transactionId,
+                                            Integer connectorId,
+                                            String idTag,
+                                            Integer meterStart,
+                                            LocalDateTime timestamp) {
+        if (transactionRepository.findByTransactionId(transactionId).isPresent()) {
+            log.debug("Transaction {} already recorded", transactionId);
+            return false;
+        }
 
         Transaction transaction = new Transaction();
         transaction.setTransactionId(transactionId);
-        transaction.setChargingStation(chargingStation);
+        transaction.setChargingStation(chargingStationRepository.getReferenceById(chargingStation.getId()));
         transaction.setConnectorId(connectorId);
         transaction.setIdTag(idTag);
         transaction.setStartTimestamp(timestamp != null ? timestamp : LocalDateTime.now());
@@ -41,24 +64,18 @@ public class TransactionService {
         transaction.setStatus("Active");
 
         Transaction savedTransaction = transactionRepository.save(transaction);
+        dashboardStatsService.transactionStarted();
 
-        // Update connector with current transaction
-        connectorRepository.findByChargingStationIdAndConnectorId(
-                        chargingStation.getId(), connectorId)
-                .ifPresent(connector -> {
-                    connector.setCurrentTransactionId(savedTransaction.getId());
-                    connector.setStatus("Charging");
-                    connectorRepository.save(connector);
-                });
+        connectorStateMachine.transactionStarted(chargingStation.getId(), connectorId, savedTransaction.getId());
 
         log.info("Started transaction {} for charge point {} on connector {}",
                 transactionId, chargingStation.getChargePointId(), connectorId);
-
-        return transactionId;
+        return true;
     }
 
     @Transactional
-    public void stopTransaction(Integer transactionId,
+    public void stopTransaction(StationEntry chargingStation,
+                                Integer transactionId,
                                 String idTag,
                                 Integer meterStop,
                                 LocalDateTime timestamp,
@@ -67,6 +84,9 @@ public class TransactionService {
 
         if (transactionOpt.isPresent()) {
             Transaction transaction = transactionOpt.get();
+            if ("Active".equals(transaction.getStatus())) {
+                dashboardStatsService.transactionStopped();
+            }
             transaction.setEndTimestamp(timestamp != null ? timestamp : LocalDateTime.now());
             transaction.setEndMeterValue(meterStop);
             transaction.setStatus("Completed");
@@ -74,14 +94,10 @@ public class TransactionService {
 
             transactionRepository.save(transaction);
 
-            // Update connector status
-            connectorRepository.findByChargingStationIdAndConnectorId(
-                            transaction.getChargingStation().getId(), transaction.getConnectorId())
-                    .ifPresent(connector -> {
-                        connector.setCurrentTransactionId(null);
-                        connector.setStatus("Available");
-                        connectorRepository.save(connector);
-                    });
+            UUID stationId = chargingStation != null
+                    ? chargingStation.getId()
+                    : transaction.getChargingStation().getId();
+            connectorStateMachine.transactionStopped(stationId, transaction.getConnectorId(), transaction.getId());
 
             log.info("Stopped transaction {} with reason: {}", transactionId, reason);
         } else {
@@ -100,9 +116,4 @@ public class TransactionService {
     public List<Transaction> findByChargingStation(UUID chargingStationId) {
         return transactionRepository.findByChargingStationId(chargingStationId);
     }
-
-    private Integer generateTransactionId() {
-        Optional<Integer> maxId = transactionRepository.findMaxTransactionId();
-        return maxId.orElse(0) + 1;
-    }
 }
\ No newline at end of file
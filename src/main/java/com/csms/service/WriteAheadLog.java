@@ -0,0 +1,394 @@
+package com.csms.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * A local append-only log of opaque records in memory-mapped segment files.
+ * <p>
+ * Records get consecutive sequence numbers and are framed as
+ * {@code [int length][int crc32][long sequence][body]}; a zero length marks the end of
+ * the written part of a preallocated segment. Segments are named after the sequence of
+ * their first record and rolled when the next record does not fit.
+ * <p>
+ * {@link #append} returns once the record is on disk. A single sync thread forces
+ * everything appended since its last pass with one {@code msync}, so concurrent
+ * appenders share the cost of a flush (group commit) instead of paying one each.
+ * On open, the segments are scanned and writing resumes after the last intact record;
+ * a torn record at the tail is overwritten.
+ */
+@Slf4j
+public class WriteAheadLog implements Closeable {
+
+    static final int HEADER_BYTES = 16;
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long syncTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Condition synced = lock.newCondition();
+
+    /** Segment files by first sequence */
+    private final NavigableMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long nextSequence;
+    private volatile long appendedSequence;
+    private volatile long durableSequence;
+    private volatile boolean closed;
+    private final Thread syncer;
+
+    public WriteAheadLog(Path directory, int segmentBytes, long syncTimeoutMillis) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.syncTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(syncTimeoutMillis);
+        Files.createDirectories(directory);
+        recover();
+        this.syncer = new Thread(this::runSyncer, "wal-sync-" + directory.getFileName());
+        syncer.setDaemon(true);
+        syncer.start();
+    }
+
+    /**
+     * Appends a record and waits until it is durable.
+     *
+     * @return the record's sequence number
+     * @throws SyncTimeoutException if the record was written but is not on disk in time
+     * @throws IOException if the record could not be written
+     */
+    public long append(byte[] body) throws IOException {
+        if (body.length == 0 || body.length > segmentBytes - HEADER_BYTES - 4) {
+            throw new IllegalArgumentException("Record of " + body.length + " bytes does not fit a segment");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        long sequence;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IOException("Write-ahead log " + directory + " is closed");
+            }
+            // Leave room for the zero length that terminates the segment
+            if (buffer.remaining() < HEADER_BYTES + body.length + 4) {
+                roll();
+            }
+            sequence = nextSequence++;
+            buffer.putInt(body.length).putInt((int) crc.getValue()).putLong(sequence).put(body);
+            appendedSequence = sequence;
+            appended.signal();
+
+            long deadline = System.nanoTime() + syncTimeoutNanos;
+            while (durableSequence < sequence) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || closed) {
+                    throw new SyncTimeoutException(sequence);
+                }
+                synced.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the write-ahead log sync");
+        } finally {
+            lock.unlock();
+        }
+        return sequence;
+    }
+
+    /**
+     * Sequence of the last record known to be on disk; records up to it can be read.
+     */
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    public long getAppendedSequence() {
+        return appendedSequence;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Opens a cursor over the durable records with a sequence above {@code after}.
+     */
+    public Cursor cursor(long after) {
+        return new Cursor(after);
+    }
+
+    /**
+     * Deletes segments whose records all have a sequence up to {@code sequence}, except
+     * the one being written.
+     */
+    public void truncate(long sequence) throws IOException {
+        for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+            Long next = segments.higherKey(entry.getKey());
+            if (next == null || next - 1 > sequence) {
+                break;
+            }
+            Files.deleteIfExists(entry.getValue());
+            segments.remove(entry.getKey());
+            log.debug("Deleted write-ahead log segment {}", entry.getValue().getFileName());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            appended.signalAll();
+            synced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            syncer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (buffer != null) {
+            buffer.force();
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void runSyncer() {
+        while (true) {
+            long target;
+            MappedByteBuffer current;
+            lock.lock();
+            try {
+                while (appendedSequence <= durableSequence && !closed) {
+                    appended.awaitUninterruptibly();
+                }
+                if (closed && appendedSequence <= durableSequence) {
+                    return;
+                }
+                // Every record up to the target is fully written: appends hold the lock
+                target = appendedSequence;
+                current = buffer;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                current.force();
+            } catch (RuntimeException e) {
+                // Appenders time out and fail their calls; the next pass tries again
+                log.error("Write-ahead log sync failed: {}", e.getMessage());
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                continue;
+            }
+
+            lock.lock();
+            try {
+                if (target > durableSequence) {
+                    durableSequence = target;
+                }
+                synced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Closes the current segment and maps a new one; called with the lock held.
+     */
+    private void roll() throws IOException {
+        buffer.force();
+        channel.close();
+        // Records of the closed segment are durable now
+        durableSequence = appendedSequence;
+        synced.signalAll();
+        openSegment(nextSequence);
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", firstSequence, SUFFIX));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segments.put(firstSequence, path);
+        log.debug("Opened write-ahead log segment {}", path.getFileName());
+    }
+
+    private void recover() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                    .forEach(path -> {
+                        String name = path.getFileName().toString();
+                        segments.put(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), path);
+                    });
+        }
+        if (segments.isEmpty()) {
+            nextSequence = 1;
+            openSegment(nextSequence);
+            return;
+        }
+
+        Map.Entry<Long, Path> last = segments.lastEntry();
+        channel = FileChannel.open(last.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentBytes, channel.size()));
+        long sequence = last.getKey() - 1;
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining() - 12) {
+                buffer.position(start);
+                break;
+            }
+            int checksum = buffer.getInt();
+            long recordSequence = buffer.getLong();
+            byte[] body = new byte[length];
+            buffer.get(body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum || recordSequence != sequence + 1) {
+                log.warn("Discarding torn write-ahead log record at {} in {}", start, last.getValue().getFileName());
+                buffer.position(start);
+                break;
+            }
+            sequence = recordSequence;
+        }
+        // Zero the tail so a torn record can't be mistaken for data once appends resume
+        for (int i = buffer.position(); i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.force();
+        nextSequence = sequence + 1;
+        appendedSequence = sequence;
+        durableSequence = sequence;
+        log.info("Recovered write-ahead log {} up to record {} in {} segments", directory, sequence, segments.size());
+    }
+
+    public record Record(long sequence, byte[] body) {
+    }
+
+    /**
+     * Reads records in order with positional reads, remembering where it stopped.
+     */
+    public final class Cursor implements Closeable {
+
+        private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        private long last;
+        private long segment = -1;
+        private FileChannel file;
+        private long offset;
+
+        private Cursor(long after) {
+            this.last = after;
+        }
+
+        /**
+         * @return up to {@code max} durable records after the previous ones, oldest first
+         */
+        public List<Record> next(int max) throws IOException {
+            List<Record> records = new ArrayList<>();
+            long durable = durableSequence;
+            while (records.size() < max && last < durable) {
+                if (file == null && !open(segments.floorKey(last + 1))) {
+                    break;
+                }
+                header.clear();
+                if (file.read(header, offset) < HEADER_BYTES || header.getInt(0) <= 0) {
+                    // End of this segment; records continue in the next one
+                    Long next = segments.higherKey(segment);
+                    if (next == null || !open(next)) {
+                        break;
+                    }
+                    continue;
+                }
+                int length = header.getInt(0);
+                long sequence = header.getLong(8);
+                if (sequence > last + 1 || sequence < segment) {
+                    throw new IOException("Write-ahead log segment " + segments.get(segment).getFileName()
+                            + " is corrupt at offset " + offset);
+                }
+                offset += HEADER_BYTES + length;
+                if (sequence <= last) {
+                    continue;
+                }
+                ByteBuffer body = ByteBuffer.allocate(length);
+                file.read(body, offset - length);
+                CRC32 crc = new CRC32();
+                crc.update(body.array());
+                if ((int) crc.getValue() != header.getInt(4)) {
+                    throw new IOException("Write-ahead log record " + sequence + " fails its checksum");
+                }
+                records.add(new Record(sequence, body.array()));
+                last = sequence;
+            }
+            return records;
+        }
+
+        private boolean open(Long firstSequence) throws IOException {
+            if (firstSequence == null) {
+                return false;
+            }
+            close();
+            Path path = segments.get(firstSequence);
+            if (path == null) {
+                return false;
+            }
+            file = FileChannel.open(path, StandardOpenOption.READ);
+            segment = firstSequence;
+            offset = 0;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (file != null) {
+                file.close();
+                file = null;
+            }
+        }
+    }
+
+    /**
+     * The record is in the log and is synced and read like any other, just later than the
+     * caller was willing to wait.
+     */
+    public static final class SyncTimeoutException extends IOException {
+
+        private final long sequence;
+
+        SyncTimeoutException(long sequence) {
+            super("Record " + sequence + " was not synced within the timeout");
+            this.sequence = sequence;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.csms.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets charge points in at a rate the CSMS can take, so a fleet reconnecting at once
+ * after a network outage does not swamp it.
+ * <p>
+ * WebSocket handshakes draw from a token bucket refilled at {@code connect-rate} per
+ * second, up to {@code connect-burst}. A handshake that finds it empty is refused with 503
+ * and a Retry-After. BootNotifications beyond {@code max-concurrent-boots} in progress are
+ * answered Pending. Each refused station is handed the next free retry slot at the rate
+ * stations are being admitted, so the retries arrive spread out instead of as the next
+ * wave.
+ */
+@Component
+@Slf4j
+public class OcppAdmissionController implements HandshakeInterceptor {
+
+    /** Weight of the latest boot in the average boot time */
+    private static final double BOOT_TIME_SMOOTHING = 0.1;
+
+    private final double connectRate;
+    private final double connectBurst;
+    private final int maxConcurrentBoots;
+    private final long minRetryNanos;
+    private final long maxRetryNanos;
+
+    private final Semaphore boots;
+    private final RetrySchedule connectRetries = new RetrySchedule();
+    private final RetrySchedule bootRetries = new RetrySchedule();
+
+    private final Counter connectionsAdmitted;
+    private final Counter connectionsThrottled;
+    private final Counter bootsAdmitted;
+    private final Counter bootsPending;
+    private final DistributionSummary connectRetryDelays;
+    private final DistributionSummary bootRetryDelays;
+
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    private volatile double averageBootNanos = TimeUnit.MILLISECONDS.toNanos(50);
+
+    public OcppAdmissionController(MeterRegistry meterRegistry,
+                                   @Value("${ocpp.admission.connect-rate:500}") double connectRate,
+                                   @Value("${ocpp.admission.connect-burst:1000}") double connectBurst,
+                                   @Value("${ocpp.admission.max-concurrent-boots:32}") int maxConcurrentBoots,
+                                   @Value("${ocpp.admission.min-retry-seconds:5}") int minRetrySeconds,
+                                   @Value("${ocpp.admission.max-retry-seconds:300}") int maxRetrySeconds) {
+        this.connectRate = connectRate;
+        this.connectBurst = Math.max(1, connectBurst);
+        this.maxConcurrentBoots = maxConcurrentBoots;
+        this.minRetryNanos = TimeUnit.SECONDS.toNanos(Math.max(1, minRetrySeconds));
+        this.maxRetryNanos = Math.max(minRetryNanos, TimeUnit.SECONDS.toNanos(maxRetrySeconds));
+        this.tokens = this.connectBurst;
+        this.boots = maxConcurrentBoots > 0 ? new Semaphore(maxConcurrentBoots) : null;
+
+        this.connectionsAdmitted = meterRegistry.counter("ocpp.admission.connections", "result", "admitted");
+        this.connectionsThrottled = meterRegistry.counter("ocpp.admission.connections", "result", "throttled");
+        this.bootsAdmitted = meterRegistry.counter("ocpp.admission.boots", "result", "admitted");
+        this.bootsPending = meterRegistry.counter("ocpp.admission.boots", "result", "pending");
+        this.connectRetryDelays = DistributionSummary.builder("ocpp.admission.retry")
+                .baseUnit("seconds").tag("stage", "connect").register(meterRegistry);
+        this.bootRetryDelays = DistributionSummary.builder("ocpp.admission.retry")
+                .baseUnit("seconds").tag("stage", "boot").register(meterRegistry);
+        if (boots != null) {
+            meterRegistry.gauge("ocpp.admission.boots.active", boots,
+                    semaphore -> maxConcurrentBoots - semaphore.availablePermits());
+            meterRegistry.gauge("ocpp.admission.boots.rate", this, OcppAdmissionController::getBootRate);
+        }
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        if (tryAcquireConnection()) {
+            connectionsAdmitted.increment();
+            return true;
+        }
+        connectionsThrottled.increment();
+        int retryAfter = connectRetries.reserve(connectRate);
+        connectRetryDelays.record(retryAfter);
+        log.debug("Throttled connection from {}, retry after {}s", request.getRemoteAddress(), retryAfter);
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Integer.toString(retryAfter));
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    /**
+     * Takes one of the boot slots. A station that gets none is to be answered Pending with
+     * {@link #bootRetryInterval()}.
+     */
+    public boolean tryAcquireBoot() {
+        if (boots != null && !boots.tryAcquire()) {
+            bootsPending.increment();
+            return false;
+        }
+        bootsAdmitted.increment();
+        return true;
+    }
+
+    /**
+     * Gives back a boot slot taken by {@link #tryAcquireBoot()}.
+     */
+    public void releaseBoot(long bootNanos) {
+        // Concurrent updates may drop a sample, which an estimate can live with
+        averageBootNanos += BOOT_TIME_SMOOTHING * (bootNanos - averageBootNanos);
+        if (boots != null) {
+            boots.release();
+        }
+    }
+
+    /**
+     * @return seconds until the next free retry slot, at the rate boots are completing
+     */
+    public int bootRetryInterval() {
+        int interval = bootRetries.reserve(getBootRate());
+        bootRetryDelays.record(interval);
+        return interval;
+    }
+
+    /**
+     * Boots that can be handled per second with every slot busy, going by recent boot times.
+     */
+    double getBootRate() {
+        return maxConcurrentBoots * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1, averageBootNanos);
+    }
+
+    private synchronized boolean tryAcquireConnection() {
+        if (connectRate <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        tokens = Math.min(connectBurst, tokens + (now - refilledAt) * connectRate / TimeUnit.SECONDS.toNanos(1));
+        refilledAt = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /**
+     * Retry slots handed out at a given rate, never earlier than {@code min-retry-seconds}.
+     * Once the slots run past {@code max-retry-seconds}, delays are picked at random below
+     * it.
+     */
+    private final class RetrySchedule {
+
+        private long nextSlot = System.nanoTime();
+
+        synchronized int reserve(double perSecond) {
+            long now = System.nanoTime();
+            long slot = Math.max(now + minRetryNanos, nextSlot);
+            long delay;
+            if (slot - now > maxRetryNanos) {
+                delay = ThreadLocalRandom.current().nextLong(minRetryNanos, maxRetryNanos + 1);
+            } else {
+                delay = slot - now;
+                nextSlot = slot + (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(0.001, perSecond));
+            }
+            return (int) Math.max(1, (delay + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.csms.websocket;
+
+import com.csms.exception.ChargePointUnavailableException;
+import com.csms.exception.OcppCallException;
+import com.csms.metrics.OcppMetrics;
+import com.csms.scheduler.HashedWheelTimer;
+import com.csms.scheduler.HashedWheelTimer.Timeout;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends CSMS-initiated CALLs and matches the charge point's CALLRESULT or CALLERROR back
+ * to the caller's future.
+ * <p>
+ * OCPP allows one outstanding CALL per direction, so each station has a queue: a call is
+ * written only once the previous one has been answered, has timed out or failed to send.
+ * Response timeouts share one {@link HashedWheelTimer}. When a station disconnects, its
+ * in-flight and queued calls fail with {@link ChargePointUnavailableException}.
+ * <p>
+ * Futures complete on the WebSocket or timer thread, so dependent stages must not block.
+ */
+@Component
+@Slf4j
+public class OcppCallCorrelator {
+
+    private final OcppSessionRegistry sessionRegistry;
+    private final OcppJsonCodec ocppJsonCodec;
+    private final ObjectMapper objectMapper;
+    private final OcppMetrics ocppMetrics;
+    private final long callTimeoutNanos;
+    private final int maxQueuedPerStation;
+    private final HashedWheelTimer timer;
+
+    private final Map<String, StationCalls> stations = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCalls = new AtomicInteger();
+
+    public OcppCallCorrelator(OcppSessionRegistry sessionRegistry,
+                              OcppJsonCodec ocppJsonCodec,
+                              ObjectMapper objectMapper,
+                              OcppMetrics ocppMetrics,
+                              MeterRegistry meterRegistry,
+                              @Value("${ocpp.remote.call-timeout-seconds:30}") int callTimeoutSeconds,
+                              @Value("${ocpp.remote.max-queued-per-station:50}") int maxQueuedPerStation) {
+        this.sessionRegistry = sessionRegistry;
+        this.ocppJsonCodec = ocppJsonCodec;
+        this.objectMapper = objectMapper;
+        this.ocppMetrics = ocppMetrics;
+        this.callTimeoutNanos = TimeUnit.SECONDS.toNanos(callTimeoutSeconds);
+        this.maxQueuedPerStation = maxQueuedPerStation;
+        this.timer = new HashedWheelTimer("ocpp-call-timer", 100, TimeUnit.MILLISECONDS, 512);
+        meterRegistry.gauge("ocpp.remote.pending", pendingCalls);
+    }
+
+    /**
+     * Queues a CALL for the charge point.
+     *
+     * @return the CALLRESULT payload bound to {@code responseType}; fails with
+     * {@link OcppCallException} on a CALLERROR, {@link TimeoutException} if no answer
+     * arrives in time, or {@link ChargePointUnavailableException}
+     */
+    public <T> CompletableFuture<T> call(String chargePointId, String action, Object payload, Class<T> responseType) {
+        if (!sessionRegistry.isConnected(chargePointId)) {
+            return CompletableFuture.failedFuture(
+                    new ChargePointUnavailableException("Charge point " + chargePointId + " is not connected"));
+        }
+
+        String messageId = UUID.randomUUID().toString();
+        String frame;
+        try {
+            frame = ocppJsonCodec.encodeCall(messageId, action, payload);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        PendingCall<T> call = new PendingCall<>(chargePointId, messageId, action, frame, responseType);
+        stations.computeIfAbsent(chargePointId, StationCalls::new).submit(call);
+        return call.future;
+    }
+
+    public void onResult(String chargePointId, String messageId, JsonNode payload) {
+        PendingCall<?> call = release(chargePointId, messageId);
+        if (call != null) {
+            call.complete(payload);
+        }
+    }
+
+    public void onError(String chargePointId, String messageId, String errorCode, String errorDescription) {
+        PendingCall<?> call = release(chargePointId, messageId);
+        if (call != null) {
+            log.warn("{} to {} failed: {} - {}", call.action, chargePointId, errorCode, errorDescription);
+            call.fail(new OcppCallException(errorCode, errorDescription));
+        }
+    }
+
+    public void onDisconnect(String chargePointId) {
+        StationCalls calls = stations.remove(chargePointId);
+        if (calls != null) {
+            calls.close();
+        }
+    }
+
+    public int getPending(String chargePointId) {
+        StationCalls calls = stations.get(chargePointId);
+        return calls != null ? calls.size() : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.close();
+    }
+
+    private PendingCall<?> release(String chargePointId, String messageId) {
+        StationCalls calls = stations.get(chargePointId);
+        PendingCall<?> call = calls != null ? calls.release(messageId) : null;
+        if (call == null) {
+            log.warn("Ignoring response from {} to unknown or expired message {}", chargePointId, messageId);
+        }
+        return call;
+    }
+
+    private final class StationCalls {
+
+        private final String chargePointId;
+        private final Queue<PendingCall<?>> queued = new ArrayDeque<>();
+        private PendingCall<?> inFlight;
+        private boolean closed;
+
+        StationCalls(String chargePointId) {
+            this.chargePointId = chargePointId;
+        }
+
+        void submit(PendingCall<?> call) {
+            String rejection = null;
+            PendingCall<?> next = null;
+            synchronized (this) {
+                if (closed) {
+                    rejection = "Charge point " + chargePointId + " disconnected";
+                } else if (queued.size() >= maxQueuedPerStation) {
+                    rejection = "Too many calls queued for charge point " + chargePointId;
+                } else {
+                    queued.add(call);
+                    if (inFlight == null) {
+                        next = advance();
+                    }
+                }
+            }
+
+            if (rejection != null) {
+                call.fail(new ChargePointUnavailableException(rejection));
+            } else if (next != null) {
+                transmit(next);
+            }
+        }
+
+        PendingCall<?> release(String messageId) {
+            PendingCall<?> call;
+            PendingCall<?> next;
+            synchronized (this) {
+                if (inFlight == null || !inFlight.messageId.equals(messageId)) {
+                    return null;
+                }
+                call = inFlight;
+                next = advance();
+            }
+            call.timeout.cancel();
+            if (next != null) {
+                transmit(next);
+            }
+            return call;
+        }
+
+        synchronized int size() {
+            return queued.size() + (inFlight != null ? 1 : 0);
+        }
+
+        void close() {
+            List<PendingCall<?>> abandoned = new ArrayList<>();
+            synchronized (this) {
+                closed = true;
+                if (inFlight != null) {
+                    abandoned.add(inFlight);
+                    inFlight = null;
+                }
+                abandoned.addAll(queued);
+                queued.clear();
+            }
+            for (PendingCall<?> call : abandoned) {
+                if (call.timeout != null) {
+                    call.timeout.cancel();
+                }
+                call.fail(new ChargePointUnavailableException("Charge point " + chargePointId + " disconnected"));
+            }
+        }
+
+        // Called with the lock held
+        private PendingCall<?> advance() {
+            inFlight = closed ? null : queued.poll();
+            return inFlight;
+        }
+
+        private void transmit(PendingCall<?> call) {
+            // Calls that fail to send are skipped so the next queued one still goes out
+            while (call != null) {
+                PendingCall<?> current = call;
+                current.sentAt = System.nanoTime();
+                current.timeout = timer.schedule(() -> expire(current), callTimeoutNanos, TimeUnit.NANOSECONDS);
+                try {
+                    sessionRegistry.sendMessage(chargePointId, current.frame);
+                    log.info("Sent {} command to {} with message ID: {}", current.action, chargePointId, current.messageId);
+                    return;
+                } catch (IOException e) {
+                    current.timeout.cancel();
+                    synchronized (this) {
+                        call = inFlight == current ? advance() : null;
+                    }
+                    current.fail(new ChargePointUnavailableException(e.getMessage(), e));
+                }
+            }
+        }
+
+        private void expire(PendingCall<?> call) {
+            PendingCall<?> next;
+            synchronized (this) {
+                if (inFlight != call) {
+                    return;
+                }
+                next = advance();
+            }
+            log.warn("{} to {} timed out (message {})", call.action, chargePointId, call.messageId);
+            // Send the next call first so the caller's completion handlers cannot delay it
+            if (next != null) {
+                transmit(next);
+            }
+            call.fail(new TimeoutException(call.action + " to " + chargePointId + " timed out"));
+        }
+    }
+
+    private final class PendingCall<T> {
+
+        private final String chargePointId;
+        private final String messageId;
+        private final String action;
+        private final String frame;
+        private final Class<T> responseType;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long createdAt = System.nanoTime();
+        private volatile long sentAt;
+        private volatile Timeout timeout;
+
+        PendingCall(String chargePointId, String messageId, String action, String frame, Class<T> responseType) {
+            this.chargePointId = chargePointId;
+            this.messageId = messageId;
+            this.action = action;
+            this.frame = frame;
+            this.responseType = responseType;
+            pendingCalls.incrementAndGet();
+        }
+
+        void complete(JsonNode payload) {
+            T response;
+            try {
+                response = objectMapper.treeToValue(payload, responseType);
+            } catch (Exception e) {
+                fail(new OcppCallException("FormationViolation", "Invalid " + action + " response from "
+                        + chargePointId + ": " + e.getMessage()));
+                return;
+            }
+            record(OcppMetrics.OUTCOME_RESULT);
+            future.complete(response);
+        }
+
+        void fail(Throwable cause) {
+            if (cause instanceof OcppCallException callError) {
+                record(callError.getErrorCode());
+            } else if (cause instanceof TimeoutException) {
+                record(OcppMetrics.OUTCOME_TIMEOUT);
+            } else {
+                record(OcppMetrics.OUTCOME_SEND_FAILED);
+            }
+            future.completeExceptionally(cause);
+        }
+
+        private void record(String outcome) {
+            pendingCalls.decrementAndGet();
+            long start = sentAt != 0 ? sentAt : createdAt;
+            ocppMetrics.recordRemoteCommand(action, outcome, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.csms.websocket;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * Raised when an inbound frame can't be decoded. Carries the message ID when it was
+ * read before the failure, so the sender can be answered with a CALLERROR.
+ */
+@Getter
+public class OcppCodecException extends IOException {
+
+    private final String messageId;
+    private final String errorCode;
+
+    public OcppCodecException(String messageId, String errorCode, String message, Throwable cause) {
+        super(message, cause);
+        this.messageId = messageId;
+        this.errorCode = errorCode;
+    }
+
+    public OcppCodecException(String messageId, String errorCode, String message) {
+        this(messageId, errorCode, message, null);
+    }
+}
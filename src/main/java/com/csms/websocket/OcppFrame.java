@@ -0,0 +1,24 @@
+package com.csms.websocket;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A decoded OCPP-J message.
+ * <p>
+ * For CALLs the payload is bound to the request DTO registered for the action, or left
+ * as a {@code JsonNode} for actions without one. CALLRESULT payloads and CALLERROR
+ * details are always {@code JsonNode}s since their type depends on the original CALL.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OcppFrame {
+    private int messageTypeId;
+    private String messageId;
+    private String action;
+    private Object payload;
+    private String errorCode;
+    private String errorDescription;
+}
@@ -0,0 +1,156 @@
+package com.csms.websocket;
+
+import com.csms.dto.ocpp.*;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Encodes and decodes OCPP-J frames ({@code [2, id, action, payload]},
+ * {@code [3, id, payload]}, {@code [4, id, code, description, details]}).
+ * <p>
+ * Decoding walks the frame with a streaming {@link JsonParser} and binds the CALL
+ * payload directly into its request DTO, without building an intermediate tree.
+ * Encoding writes the whole frame in one pass through Jackson's recycled buffers,
+ * escaping the message ID like any other string.
+ */
+@Component
+public class OcppJsonCodec {
+
+    public static final int CALL = 2;
+    public static final int CALL_RESULT = 3;
+    public static final int CALL_ERROR = 4;
+
+    private static final Map<String, Class<?>> REQUEST_TYPES = Map.of(
+            "BootNotification", BootNotificationRequest.class,
+            "StatusNotification", StatusNotificationRequest.class,
+            "Heartbeat", HeartbeatRequest.class,
+            "Authorize", AuthorizeRequest.class,
+            "StartTransaction", StartTransactionRequest.class,
+            "StopTransaction", StopTransactionRequest.class,
+            "MeterValues", MeterValuesRequest.class
+    );
+
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+
+    public OcppJsonCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public OcppFrame decode(String text) throws OcppCodecException {
+        String messageId = null;
+        try (JsonParser parser = jsonFactory.createParser(text)) {
+            expect(parser, JsonToken.START_ARRAY, null);
+            expect(parser, JsonToken.VALUE_NUMBER_INT, null);
+            int messageTypeId = parser.getIntValue();
+            expect(parser, JsonToken.VALUE_STRING, null);
+            messageId = parser.getText();
+
+            OcppFrame frame = new OcppFrame();
+            frame.setMessageTypeId(messageTypeId);
+            frame.setMessageId(messageId);
+
+            switch (messageTypeId) {
+                case CALL -> {
+                    expect(parser, JsonToken.VALUE_STRING, messageId);
+                    frame.setAction(parser.getText());
+                    expect(parser, JsonToken.START_OBJECT, messageId);
+                    Class<?> requestType = REQUEST_TYPES.get(frame.getAction());
+                    frame.setPayload(requestType != null
+                            ? objectMapper.readValue(parser, requestType)
+                            : objectMapper.readTree(parser));
+                }
+                case CALL_RESULT -> {
+                    parser.nextToken();
+                    frame.setPayload(objectMapper.readTree(parser));
+                }
+                case CALL_ERROR -> {
+                    expect(parser, JsonToken.VALUE_STRING, messageId);
+                    frame.setErrorCode(parser.getText());
+                    expect(parser, JsonToken.VALUE_STRING, messageId);
+                    frame.setErrorDescription(parser.getText());
+                    if (parser.nextToken() == JsonToken.START_OBJECT) {
+                        frame.setPayload(objectMapper.readTree(parser));
+                    }
+                }
+                default -> throw new OcppCodecException(messageId, "ProtocolError",
+                        "Unknown message type " + messageTypeId);
+            }
+            return frame;
+        } catch (OcppCodecException e) {
+            throw e;
+        } catch (JsonProcessingException e) {
+            String errorCode = messageId != null ? "TypeConstraintViolation" : "FormationViolation";
+            throw new OcppCodecException(messageId, errorCode, e.getOriginalMessage(), e);
+        } catch (IOException e) {
+            throw new OcppCodecException(messageId, "FormationViolation", e.getMessage(), e);
+        }
+    }
+
+    public String encodeCall(String messageId, String action, Object payload) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(new Frame(CALL, messageId, action, null, payload));
+    }
+
+    public String encodeCallResult(String messageId, Object payload) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(new Frame(CALL_RESULT, messageId, null, null, payload));
+    }
+
+    public String encodeCallError(String messageId, String errorCode, String errorDescription) {
+        try {
+            return objectMapper.writeValueAsString(new Frame(CALL_ERROR, messageId, errorCode, errorDescription, Map.of()));
+        } catch (JsonProcessingException e) {
+            // Only strings and an empty map are written, so this can't happen in practice
+            throw new IllegalStateException("Failed to encode CALLERROR", e);
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonToken expected, String messageId) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token != expected) {
+            throw new OcppCodecException(messageId, "FormationViolation",
+                    "Expected " + expected + " but found " + token);
+        }
+    }
+
+    /**
+     * Writes itself as an OCPP-J array so the frame is produced by a single
+     * {@code writeValueAsString} call.
+     */
+    private record Frame(int messageTypeId, String messageId, String first, String second, Object payload)
+            implements JsonSerializable {
+
+        @Override
+        public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeStartArray();
+            gen.writeNumber(messageTypeId);
+            gen.writeString(messageId);
+            if (first != null) {
+                gen.writeString(first);
+            }
+            if (messageTypeId == CALL_ERROR) {
+                // errorDescription is required, so a missing one is written empty
+                gen.writeString(second != null ? second : "");
+            }
+            serializers.defaultSerializeValue(payload, gen);
+            gen.writeEndArray();
+        }
+
+        @Override
+        public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+                throws IOException {
+            serialize(gen, serializers);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.csms.websocket;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs inbound OCPP CALLs off the WebSocket container thread.
+ * <p>
+ * Each charge point gets a mailbox that executes its messages one at a time and in
+ * arrival order, while different charge points proceed in parallel. On Java 21+ the
+ * mailboxes run on virtual threads so blocking JPA calls don't pin platform threads;
+ * on older runtimes a fixed platform thread pool is used instead.
+ * <p>
+ * A mailbox is only dropped once it is idle, so messages still queued when a station
+ * disconnects run before a reconnect's messages, never alongside them.
+ */
+@Component
+@Slf4j
+public class OcppMessageDispatcher {
+
+    private final boolean async;
+    private final int maxInFlightPerStation;
+    private final Executor executor;
+
+    private final Map<String, StationMailbox> mailboxes = new ConcurrentHashMap<>();
+
+    public OcppMessageDispatcher(@Value("${ocpp.dispatch.async:true}") boolean async,
+                                 @Value("${ocpp.dispatch.virtual-threads:true}") boolean virtualThreads,
+                                 @Value("${ocpp.dispatch.pool-size:64}") int poolSize,
+                                 @Value("${ocpp.dispatch.max-in-flight-per-station:10}") int maxInFlightPerStation) {
+        this.async = async;
+        this.maxInFlightPerStation = maxInFlightPerStation;
+        this.executor = async ? createExecutor(virtualThreads, poolSize) : null;
+    }
+
+    /**
+     * Schedules a task for the given charge point.
+     *
+     * @return {@code false} if the charge point already has too many messages in flight
+     */
+    public boolean dispatch(String chargePointId, Runnable task) {
+        if (!async) {
+            task.run();
+            return true;
+        }
+        // Submitted under the map's lock so an idle mailbox can't be dropped in between
+        boolean[] accepted = new boolean[1];
+        mailboxes.compute(chargePointId, (id, mailbox) -> {
+            StationMailbox target = mailbox != null ? mailbox : new StationMailbox(id);
+            accepted[0] = target.submit(task);
+            return target;
+        });
+        return accepted[0];
+    }
+
+    /**
+     * Drops the mailbox of a disconnected charge point, right away if it is idle or else
+     * once it has run the messages it still holds.
+     */
+    public void remove(String chargePointId) {
+        mailboxes.computeIfPresent(chargePointId, (id, mailbox) -> {
+            if (mailbox.pending.get() == 0) {
+                return null;
+            }
+            mailbox.removed = true;
+            return mailbox;
+        });
+    }
+
+    public int getInFlight(String chargePointId) {
+        StationMailbox mailbox = mailboxes.get(chargePointId);
+        return mailbox != null ? mailbox.pending.get() : 0;
+    }
+
+    int getMailboxCount() {
+        return mailboxes.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        }
+    }
+
+    private static Executor createExecutor(boolean virtualThreads, int poolSize) {
+        if (virtualThreads && Runtime.version().feature() >= 21) {
+            log.info("Dispatching OCPP messages on virtual threads");
+            return new VirtualThreadTaskExecutor("ocpp-dispatch-");
+        }
+
+        log.info("Dispatching OCPP messages on a pool of {} platform threads", poolSize);
+        ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+        pool.setCorePoolSize(poolSize);
+        pool.setMaxPoolSize(poolSize);
+        pool.setThreadNamePrefix("ocpp-dispatch-");
+        pool.setWaitForTasksToCompleteOnShutdown(true);
+        pool.initialize();
+        return pool;
+    }
+
+    private final class StationMailbox implements Runnable {
+
+        private final String chargePointId;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean removed;
+
+        StationMailbox(String chargePointId) {
+            this.chargePointId = chargePointId;
+        }
+
+        boolean submit(Runnable task) {
+            // Checked before incrementing so a rejected task never touches the counter the drain loop relies on
+            if (pending.get() >= maxInFlightPerStation) {
+                return false;
+            }
+            tasks.add(task);
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            do {
+                Runnable task = tasks.poll();
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("Unhandled error in OCPP dispatch: {}", e.getMessage(), e);
+                }
+            } while (pending.decrementAndGet() > 0);
+
+            if (removed) {
+                // A message that arrived meanwhile has started another drain and keeps the mailbox
+                mailboxes.computeIfPresent(chargePointId,
+                        (id, mailbox) -> mailbox == this && pending.get() == 0 ? null : mailbox);
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.csms.websocket;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes outbound frames to charge point sessions.
+ * <p>
+ * Each session gets a bounded queue that is drained in order on a send executor, so
+ * callers (REST threads issuing remote commands, dispatch threads replying to CALLs)
+ * only enqueue and never wait on the network. A session whose queue exceeds the buffer
+ * limit, or whose current send has been blocked longer than the send time limit, can't
+ * keep up and is closed; the charge point reconnects and the queue starts empty.
+ */
+@Component
+@Slf4j
+public class OcppOutboundSender {
+
+    private final long sendTimeLimitNanos;
+    private final int bufferSizeLimit;
+    private final Executor executor;
+
+    private final Map<String, OutboundQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicLong queuedFrames = new AtomicLong();
+    private final AtomicLong queuedBytes = new AtomicLong();
+
+    private final MeterRegistry meterRegistry;
+    private final Timer sendTimer;
+    private final DistributionSummary queueDepth;
+
+    public OcppOutboundSender(MeterRegistry meterRegistry,
+                              @Value("${ocpp.websocket.outbound.send-time-limit-ms:10000}") long sendTimeLimitMs,
+                              @Value("${ocpp.websocket.outbound.buffer-size-limit:524288}") int bufferSizeLimit,
+                              @Value("${ocpp.dispatch.virtual-threads:true}") boolean virtualThreads,
+                              @Value("${ocpp.websocket.outbound.pool-size:32}") int poolSize) {
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs);
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.executor = createExecutor(virtualThreads, poolSize);
+        this.meterRegistry = meterRegistry;
+
+        this.sendTimer = Timer.builder("ocpp.outbound.send")
+                .description("Time to write one frame to a charge point session")
+                .register(meterRegistry);
+        this.queueDepth = DistributionSummary.builder("ocpp.outbound.queue.depth")
+                .description("Frames already queued for the session when a frame is enqueued")
+                .register(meterRegistry);
+        meterRegistry.gauge("ocpp.outbound.queued", queuedFrames);
+        meterRegistry.gauge("ocpp.outbound.queued.bytes", queuedBytes);
+    }
+
+    public void open(WebSocketSession session) {
+        queues.put(session.getId(), new OutboundQueue(session));
+    }
+
+    public void close(WebSocketSession session) {
+        OutboundQueue queue = queues.remove(session.getId());
+        if (queue != null) {
+            queue.closed = true;
+        }
+    }
+
+    /**
+     * Queues a frame for the session.
+     *
+     * @throws IOException if the session is closed or was closed because it could not keep up
+     */
+    public void send(WebSocketSession session, String message) throws IOException {
+        OutboundQueue queue = queues.get(session.getId());
+        if (queue == null) {
+            throw new IOException("Session " + session.getId() + " is closed");
+        }
+        queue.enqueue(message);
+    }
+
+    public int getQueued(WebSocketSession session) {
+        OutboundQueue queue = queues.get(session.getId());
+        return queue != null ? queue.pending.get() : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        }
+    }
+
+    private static Executor createExecutor(boolean virtualThreads, int poolSize) {
+        if (virtualThreads && Runtime.version().feature() >= 21) {
+            return new VirtualThreadTaskExecutor("ocpp-send-");
+        }
+
+        ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+        pool.setCorePoolSize(poolSize);
+        pool.setMaxPoolSize(poolSize);
+        pool.setThreadNamePrefix("ocpp-send-");
+        pool.initialize();
+        return pool;
+    }
+
+    private final class OutboundQueue implements Runnable {
+
+        private final WebSocketSession session;
+        private final Queue<String> frames = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+        private volatile long sendStartedAt;
+        private volatile boolean closed;
+
+        OutboundQueue(WebSocketSession session) {
+            this.session = session;
+        }
+
+        void enqueue(String message) throws IOException {
+            if (closed) {
+                throw new IOException("Session " + session.getId() + " is closed");
+            }
+            long startedAt = sendStartedAt;
+            if (startedAt != 0 && System.nanoTime() - startedAt > sendTimeLimitNanos) {
+                overflow("SendTimeLimit");
+            }
+            if (bytes.get() + message.length() > bufferSizeLimit) {
+                overflow("BufferSizeLimit");
+            }
+
+            queueDepth.record(pending.get());
+            frames.add(message);
+            bytes.addAndGet(message.length());
+            queuedBytes.addAndGet(message.length());
+            queuedFrames.incrementAndGet();
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        private void overflow(String reason) throws IOException {
+            closed = true;
+            meterRegistry.counter("ocpp.outbound.overflow", "reason", reason).increment();
+            log.warn("Closing session {}: outbound queue exceeded {} ({} frames, {} chars queued)",
+                    session.getId(), reason, pending.get(), bytes.get());
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException e) {
+                log.debug("Error closing session {}: {}", session.getId(), e.getMessage());
+            }
+            throw new IOException("Outbound queue for session " + session.getId() + " exceeded " + reason);
+        }
+
+        @Override
+        public void run() {
+            do {
+                String message = frames.poll();
+                if (!closed) {
+                    long start = System.nanoTime();
+                    sendStartedAt = start;
+                    try {
+                        session.sendMessage(new TextMessage(message));
+                    } catch (Exception e) {
+                        // Later frames are dropped; the close callback tears down the rest of the connection state
+                        closed = true;
+                        log.warn("Error sending to session {}: {}", session.getId(), e.getMessage());
+                    } finally {
+                        sendStartedAt = 0;
+                        sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                }
+                bytes.addAndGet(-message.length());
+                queuedBytes.addAndGet(-message.length());
+                queuedFrames.decrementAndGet();
+            } while (pending.decrementAndGet() > 0);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.csms.websocket;
+
+import com.csms.service.OcppMessageJournal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The open WebSocket session of each connected charge point, and the way to send it
+ * frames outside of a reply.
+ * <p>
+ * A charge point has at most one session: when it connects again while its previous
+ * connection is still open, the older session is closed.
+ */
+@Component
+@Slf4j
+public class OcppSessionRegistry {
+
+    private final OcppOutboundSender outboundSender;
+    private final OcppMessageJournal messageJournal;
+    private final Map<String, WebSocketSession> activeSessions = new ConcurrentHashMap<>();
+    private final Counter replacedCounter;
+    private final Counter evictedCounter;
+
+    public OcppSessionRegistry(OcppOutboundSender outboundSender, OcppMessageJournal messageJournal,
+                               MeterRegistry meterRegistry) {
+        this.outboundSender = outboundSender;
+        this.messageJournal = messageJournal;
+        this.replacedCounter = meterRegistry.counter("ocpp.sessions.closed", "reason", "replaced");
+        this.evictedCounter = meterRegistry.counter("ocpp.sessions.closed", "reason", "evicted");
+        meterRegistry.gaugeMapSize("ocpp.sessions.active", Tags.empty(), activeSessions);
+    }
+
+    public void register(String chargePointId, WebSocketSession session) {
+        WebSocketSession previous = activeSessions.put(chargePointId, session);
+        if (previous != null && previous != session) {
+            replacedCounter.increment();
+            log.info("Closing the previous session of {}, replaced by a new connection", chargePointId);
+            close(previous, CloseStatus.NORMAL.withReason("Replaced by a new connection"));
+        }
+    }
+
+    /**
+     * Closes the charge point's session because it has connected to another node since.
+     * The usual close handling unregisters it.
+     *
+     * @return {@code false} if there was no session
+     */
+    public boolean evict(String chargePointId, String reason) {
+        WebSocketSession session = activeSessions.get(chargePointId);
+        if (session == null) {
+            return false;
+        }
+        evictedCounter.increment();
+        close(session, CloseStatus.NORMAL.withReason(reason));
+        return true;
+    }
+
+    /**
+     * @return {@code false} if a reconnect has already replaced the session
+     */
+    public boolean unregister(String chargePointId, WebSocketSession session) {
+        return activeSessions.remove(chargePointId, session);
+    }
+
+    public boolean isConnected(String chargePointId) {
+        WebSocketSession session = activeSessions.get(chargePointId);
+        return session != null && session.isOpen();
+    }
+
+    /**
+     * Queues a frame for the charge point; it is written by the outbound sender, so this
+     * never blocks on the network.
+     *
+     * @throws IOException if the charge point is not connected or can't keep up with its queue
+     */
+    public void sendMessage(String chargePointId, String message) throws IOException {
+        WebSocketSession session = activeSessions.get(chargePointId);
+        if (session == null || !session.isOpen()) {
+            throw new IOException("No active session for charge point " + chargePointId);
+        }
+        outboundSender.send(session, message);
+        messageJournal.outbound(chargePointId, message);
+        log.debug("Queued message to {}: {}", chargePointId, message);
+    }
+
+    private static void close(WebSocketSession session, CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            log.debug("Error closing session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+}
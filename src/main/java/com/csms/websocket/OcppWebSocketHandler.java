@@ -1,16 +1,20 @@
 package com.csms.websocket;
 
+import com.csms.event.StationConnectedEvent;
+import com.csms.event.StationDisconnectedEvent;
+import com.csms.metrics.OcppMetrics;
+import com.csms.service.OcppMessageJournal;
 import com.csms.service.OcppMessageService;
+import com.csms.service.StationLivenessTracker;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
 
 import java.io.IOException;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 @RequiredArgsConstructor
@@ -18,16 +22,24 @@ import java.util.concurrent.ConcurrentHashMap;
 public class OcppWebSocketHandler implements WebSocketHandler {
 
     private final OcppMessageService ocppMessageService;
-    private final ObjectMapper objectMapper;
-
-    // Store active WebSocket sessions by charge point ID
-    private final Map<String, WebSocketSession> activeSessions = new ConcurrentHashMap<>();
+    private final OcppMessageDispatcher messageDispatcher;
+    private final StationLivenessTracker stationLivenessTracker;
+    private final OcppJsonCodec ocppJsonCodec;
+    private final OcppOutboundSender outboundSender;
+    private final OcppSessionRegistry sessionRegistry;
+    private final OcppCallCorrelator callCorrelator;
+    private final OcppMessageJournal messageJournal;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OcppMetrics ocppMetrics;
+    private final MeterRegistry meterRegistry;
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         String chargePointId = extractChargePointId(session);
         if (chargePointId != null) {
-            activeSessions.put(chargePointId, session);
+            outboundSender.open(session);
+            sessionRegistry.register(chargePointId, session);
+            eventPublisher.publishEvent(new StationConnectedEvent(chargePointId));
             log.info("WebSocket connection established for charge point: {}", chargePointId);
         } else {
             log.warn("Invalid WebSocket connection - no charge point ID found");
@@ -43,42 +55,66 @@ public class OcppWebSocketHandler implements WebSocketHandler {
             return;
         }
 
+        stationLivenessTracker.touch(chargePointId);
+
         String payload = message.getPayload().toString();
         log.debug("Received message from {}: {}", chargePointId, payload);
+        messageJournal.inbound(chargePointId, payload);
 
+        OcppFrame frame;
         try {
-            // Parse OCPP message array [MessageType, MessageId, Action, Payload]
-            JsonNode messageArray = objectMapper.readTree(payload);
-
-            if (messageArray.isArray() && messageArray.size() >= 3) {
-                int messageType = messageArray.get(0).asInt();
-                String messageId = messageArray.get(1).asText();
-
-                if (messageType == 2) { // CALL message
-                    String action = messageArray.get(2).asText();
-                    JsonNode messagePayload = messageArray.size() > 3 ? messageArray.get(3) : null;
-
-                    String response = ocppMessageService.handleMessage(
-                            chargePointId, messageId, action, messagePayload);
+            frame = ocppJsonCodec.decode(payload);
+        } catch (OcppCodecException e) {
+            log.warn("Malformed message from {}: {}", chargePointId, e.getMessage());
+            meterRegistry.counter("ocpp.frames.invalid", "error", e.getErrorCode()).increment();
+            // Without a message ID there is nothing to correlate a CALLERROR with
+            if (e.getMessageId() != null) {
+                send(session, chargePointId,
+                        ocppJsonCodec.encodeCallError(e.getMessageId(), e.getErrorCode(), e.getMessage()));
+            }
+            return;
+        }
 
-                    if (response != null) {
-                        session.sendMessage(new TextMessage(response));
+        try {
+            String messageId = frame.getMessageId();
+            switch (frame.getMessageTypeId()) {
+                case OcppJsonCodec.CALL -> {
+                    long receivedNanos = System.nanoTime();
+                    boolean dispatched = messageDispatcher.dispatch(chargePointId, () -> {
+                        ocppMetrics.recordDispatchWait(System.nanoTime() - receivedNanos);
+                        handleCall(session, chargePointId, frame);
+                    });
+
+                    if (!dispatched) {
+                        log.warn("Too many in-flight messages from {}, rejecting {}", chargePointId, messageId);
+                        meterRegistry.counter("ocpp.message.rejected").increment();
+                        send(session, chargePointId, ocppJsonCodec.encodeCallError(
+                                messageId, "GenericError", "Too many in-flight messages"));
                     }
-                } else if (messageType == 3) { // CALLRESULT message
-                    // Handle response from charge point
-                    JsonNode responsePayload = messageArray.get(2);
-                    ocppMessageService.handleResponse(chargePointId, messageId, responsePayload);
-                } else if (messageType == 4) { // CALLERROR message
-                    String errorCode = messageArray.get(2).asText();
-                    String errorDescription = messageArray.get(3).asText();
-                    ocppMessageService.handleError(chargePointId, messageId, errorCode, errorDescription);
                 }
+                case OcppJsonCodec.CALL_RESULT ->
+                        callCorrelator.onResult(chargePointId, messageId, (JsonNode) frame.getPayload());
+                case OcppJsonCodec.CALL_ERROR ->
+                        callCorrelator.onError(chargePointId, messageId,
+                                frame.getErrorCode(), frame.getErrorDescription());
             }
         } catch (Exception e) {
             log.error("Error processing message from {}: {}", chargePointId, e.getMessage(), e);
         }
     }
 
+    private void handleCall(WebSocketSession session, String chargePointId, OcppFrame frame) {
+        String response = ocppMessageService.handleMessage(
+                chargePointId, frame.getMessageId(), frame.getAction(), frame.getPayload());
+        if (response != null) {
+            try {
+                send(session, chargePointId, response);
+            } catch (IOException e) {
+                log.error("Error sending response to {}: {}", chargePointId, e.getMessage());
+            }
+        }
+    }
+
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         String chargePointId = extractChargePointId(session);
@@ -87,9 +123,13 @@ public class OcppWebSocketHandler implements WebSocketHandler {
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+        outboundSender.close(session);
         String chargePointId = extractChargePointId(session);
-        if (chargePointId != null) {
-            activeSessions.remove(chargePointId);
+        // A reconnect may already have replaced this session
+        if (chargePointId != null && sessionRegistry.unregister(chargePointId, session)) {
+            messageDispatcher.remove(chargePointId);
+            callCorrelator.onDisconnect(chargePointId);
+            eventPublisher.publishEvent(new StationDisconnectedEvent(chargePointId));
             log.info("WebSocket connection closed for charge point: {} - {}", chargePointId, closeStatus);
         }
     }
@@ -99,19 +139,9 @@ public class OcppWebSocketHandler implements WebSocketHandler {
         return false;
     }
 
-    public void sendMessage(String chargePointId, String message) throws IOException {
-        WebSocketSession session = activeSessions.get(chargePointId);
-        if (session != null && session.isOpen()) {
-            session.sendMessage(new TextMessage(message));
-            log.debug("Sent message to {}: {}", chargePointId, message);
-        } else {
-            log.warn("No active session found for charge point: {}", chargePointId);
-        }
-    }
-
-    public boolean isConnected(String chargePointId) {
-        WebSocketSession session = activeSessions.get(chargePointId);
-        return session != null && session.isOpen();
+    private void send(WebSocketSession session, String chargePointId, String message) throws IOException {
+        outboundSender.send(session, message);
+        messageJournal.outbound(chargePointId, message);
     }
 
     private String extractChargePointId(WebSocketSession session) {
@@ -0,0 +1,86 @@
+package com.csms.simulator;
+
+import com.csms.OcppCsmsApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Runs the CSMS in-process against an embedded Postgres, so load tests need neither a
+ * database server nor Docker. The schema is created by Hibernate from the entities.
+ * <p>
+ * With more than one node, each node is a separate application context on its own port,
+ * and they form a cluster over the shared database.
+ */
+final class EmbeddedCsms implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+    private final List<ConfigurableApplicationContext> contexts;
+
+    private EmbeddedCsms(EmbeddedPostgres postgres, List<ConfigurableApplicationContext> contexts) {
+        this.postgres = postgres;
+        this.contexts = contexts;
+    }
+
+    static EmbeddedCsms start(int nodes) throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+        String secret = UUID.randomUUID().toString();
+        try {
+            // Started one after another so only the first creates the schema
+            for (int node = 0; node < nodes; node++) {
+                List<String> args = new ArrayList<>(List.of(
+                        "--spring.datasource.url=jdbc:postgresql://localhost:" + postgres.getPort()
+                                + "/postgres?reWriteBatchedInserts=true",
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--logging.level.com.csms=INFO",
+                        "--logging.level.org.springframework.web.socket=INFO"));
+                if (nodes > 1) {
+                    // The port is fixed up front because the node advertises it to the others
+                    int port = freePort();
+                    args.add("--server.port=" + port);
+                    args.add("--ocpp.cluster.enabled=true");
+                    args.add("--ocpp.cluster.node-id=node-" + node);
+                    args.add("--ocpp.cluster.secret=" + secret);
+                    args.add("--ocpp.cluster.advertised-url=http://localhost:" + port);
+                    args.add("--ocpp.journal.spill-dir=journal-spill/node-" + node);
+                    args.add("--ocpp.spool.dir=spool/node-" + node);
+                } else {
+                    args.add("--server.port=0");
+                }
+                contexts.add(new SpringApplicationBuilder(OcppCsmsApplication.class).run(args.toArray(String[]::new)));
+            }
+            return new EmbeddedCsms(postgres, contexts);
+        } catch (RuntimeException e) {
+            contexts.forEach(ConfigurableApplicationContext::close);
+            postgres.close();
+            throw e;
+        }
+    }
+
+    List<Integer> getPorts() {
+        return contexts.stream()
+                .map(context -> Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port")))
+                .toList();
+    }
+
+    @Override
+    public void close() throws IOException {
+        contexts.forEach(ConfigurableApplicationContext::close);
+        postgres.close();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
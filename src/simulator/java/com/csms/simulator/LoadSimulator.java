@@ -0,0 +1,237 @@
+package com.csms.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Opens N simulated charge point connections to the CSMS and reports per-action latency
+ * and errors while they run. See the README for options and example runs.
+ */
+public final class LoadSimulator {
+
+    private final SimulatorOptions options;
+    private final SimulatorMetrics metrics = new SimulatorMetrics();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+            Math.max(4, Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "simulator");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final List<SimulatedStation> stations = new ArrayList<>();
+
+    private LoadSimulator(SimulatorOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        SimulatorOptions options = SimulatorOptions.parse(args);
+        EmbeddedCsms csms = null;
+        if (options.embedded) {
+            csms = EmbeddedCsms.start(options.nodes);
+            options.url = csms.getPorts().stream().map(port -> "ws://localhost:" + port + "/ocpp")
+                    .collect(Collectors.joining(","));
+            options.apiUrl = csms.getPorts().stream().map(port -> "http://localhost:" + port + "/api")
+                    .collect(Collectors.joining(","));
+        }
+
+        long errors;
+        try {
+            errors = new LoadSimulator(options).run();
+        } finally {
+            if (csms != null) {
+                csms.close();
+            }
+        }
+        System.exit(errors == 0 ? 0 : 1);
+    }
+
+    private long run() throws Exception {
+        System.out.printf("Simulating %d charge points against %s for %ds%n",
+                options.stations, options.url, options.duration.toSeconds());
+        if (options.seedIdTags) {
+            seedIdTags();
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + options.duration.toNanos();
+        scheduler.scheduleAtFixedRate(() -> metrics.report(System.out, false),
+                options.reportInterval.toMillis(), options.reportInterval.toMillis(), TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> remoteStarts = null;
+        if (options.remoteStartRate > 0) {
+            long periodMicros = (long) (1_000_000 / options.remoteStartRate);
+            remoteStarts = scheduler.scheduleAtFixedRate(this::remoteStart, periodMicros, periodMicros, TimeUnit.MICROSECONDS);
+        }
+
+        long connectPeriodNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, options.connectRate);
+        for (int i = 0; i < options.stations && System.nanoTime() < deadline; i++) {
+            SimulatedStation station = new SimulatedStation(options.chargePointId(i), SimulatorOptions.idTag(i),
+                    options.url(i), options, metrics, httpClient, scheduler, objectMapper);
+            synchronized (stations) {
+                stations.add(station);
+            }
+            station.connect();
+            LockSupport.parkNanos(start + (i + 1) * connectPeriodNanos - System.nanoTime());
+        }
+
+        if (options.bulkAction != null) {
+            LockSupport.parkNanos(Math.min(options.bulkDelay.toNanos(), deadline - System.nanoTime()));
+            runBulkCommand(deadline);
+        }
+        if (options.reconnectStorm) {
+            LockSupport.parkNanos(Math.min(options.stormDelay.toNanos(), deadline - System.nanoTime()));
+            runReconnectStorm(deadline);
+        }
+
+        LockSupport.parkNanos(deadline - System.nanoTime());
+        if (remoteStarts != null) {
+            remoteStarts.cancel(false);
+        }
+        synchronized (stations) {
+            stations.forEach(SimulatedStation::stop);
+        }
+        // Let in-flight responses arrive before the final report
+        Thread.sleep(2_000);
+        metrics.report(System.out, true);
+        scheduler.shutdownNow();
+        return metrics.getErrorCount();
+    }
+
+    private void seedIdTags() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < options.stations; i++) {
+            body.append("{\"idTag\":\"").append(SimulatorOptions.idTag(i)).append("\",\"status\":\"Accepted\"}\n");
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(options.apiUrl(0) + "/id-tags/bulk"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Seeding ID tags failed: " + response.statusCode() + " " + response.body());
+        }
+        System.out.println("Seeded ID tags: " + response.body());
+    }
+
+    /**
+     * Sends the bulk action to every connected simulated station through
+     * {@code /api/bulk-commands} and follows the job until it finishes.
+     */
+    private void runBulkCommand(long deadline) throws Exception {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("action", options.bulkAction);
+        body.put("stations", Map.of("vendor", SimulatedStation.VENDOR));
+        if (options.bulkConcurrency != null) {
+            body.put("concurrency", options.bulkConcurrency);
+        }
+        HttpResponse<String> started = httpClient.send(HttpRequest.newBuilder(URI.create(options.apiUrl(0) + "/bulk-commands"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (started.statusCode() != 202) {
+            metrics.recordError("REST bulk " + options.bulkAction, "HTTP " + started.statusCode());
+            return;
+        }
+
+        String jobId = objectMapper.readTree(started.body()).path("data").path("jobId").asText();
+        JsonNode status;
+        do {
+            Thread.sleep(250);
+            status = objectMapper.readTree(httpClient.send(
+                    HttpRequest.newBuilder(URI.create(options.apiUrl(0) + "/bulk-commands/" + jobId)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()).body());
+        } while ("Running".equals(status.path("state").asText()) && System.nanoTime() < deadline);
+
+        System.out.printf("Bulk %s: %s, %d/%d stations in %d ms (%.0f stations/s), outcomes %s%n",
+                options.bulkAction, status.path("state").asText(), status.path("completed").asInt(),
+                status.path("total").asInt(), status.path("durationMillis").asLong(),
+                status.path("stationsPerSecond").asDouble(), status.path("outcomes"));
+        status.path("outcomes").fields().forEachRemaining(outcome -> {
+            if (!outcome.getKey().equals("Accepted")) {
+                metrics.recordErrors("bulk " + options.bulkAction, outcome.getKey(), outcome.getValue().asLong());
+            }
+        });
+    }
+
+    /**
+     * Drops every connection at once, as a network outage would, and waits until all
+     * stations have booted again.
+     */
+    private void runReconnectStorm(long deadline) throws InterruptedException {
+        List<SimulatedStation> dropped;
+        synchronized (stations) {
+            dropped = new ArrayList<>(stations);
+        }
+        long throttledBefore = metrics.throttled.sum();
+        long pendingBefore = metrics.bootsPending.sum();
+        System.out.printf("Reconnect storm: dropping %d connections, reconnecting within %ds%n",
+                dropped.size(), options.stormSpread.toSeconds());
+
+        long stormStart = System.nanoTime();
+        long spreadMillis = Math.max(1, options.stormSpread.toMillis());
+        dropped.forEach(station -> station.dropConnection(ThreadLocalRandom.current().nextLong(spreadMillis)));
+        long booted;
+        do {
+            Thread.sleep(250);
+            booted = dropped.stream().filter(SimulatedStation::isBooted).count();
+        } while (booted < dropped.size() && System.nanoTime() < deadline);
+
+        System.out.printf("Reconnect storm: %d/%d stations booted again after %.1fs, %d handshakes throttled, "
+                        + "%d boots pending%n",
+                booted, dropped.size(), (System.nanoTime() - stormStart) / 1e9,
+                metrics.throttled.sum() - throttledBefore, metrics.bootsPending.sum() - pendingBefore);
+        if (booted < dropped.size()) {
+            metrics.recordErrors("reconnect storm", "Not booted again", dropped.size() - booted);
+        }
+    }
+
+    private void remoteStart() {
+        SimulatedStation station;
+        int stationIndex;
+        synchronized (stations) {
+            if (stations.isEmpty()) {
+                return;
+            }
+            stationIndex = ThreadLocalRandom.current().nextInt(stations.size());
+            station = stations.get(stationIndex);
+        }
+        if (!station.isBooted()) {
+            return;
+        }
+
+        int index = ThreadLocalRandom.current().nextInt(options.stations);
+        int connectorId = 1 + ThreadLocalRandom.current().nextInt(options.connectorsPerStation);
+        URI uri = URI.create(options.apiUrl(stationIndex) + "/charging-stations/" + station.getChargePointId()
+                + "/remote-start?idTag=" + SimulatorOptions.idTag(index) + "&connectorId=" + connectorId);
+        long startNanos = System.nanoTime();
+        httpClient.sendAsync(HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                        HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, ex) -> {
+                    if (ex != null) {
+                        metrics.recordError("REST remote-start", ex.getClass().getSimpleName());
+                    } else if (response.statusCode() != 200) {
+                        metrics.recordError("REST remote-start", "HTTP " + response.statusCode());
+                    } else {
+                        metrics.recordLatency("REST remote-start", System.nanoTime() - startNanos);
+                    }
+                });
+    }
+}
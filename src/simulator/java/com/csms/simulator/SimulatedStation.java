@@ -0,0 +1,511 @@
+package com.csms.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.net.http.WebSocketHandshakeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One simulated OCPP 1.6J charge point.
+ * <p>
+ * After connecting it boots, reports every connector Available, heartbeats at the
+ * interval the CSMS returns and runs charging sessions (Authorize, StartTransaction,
+ * periodic MeterValues, StopTransaction) on each connector. CALLs from the CSMS are
+ * answered the way a compliant charger would. Everything runs as callbacks on the
+ * shared scheduler, so thousands of stations need only a handful of threads.
+ */
+final class SimulatedStation implements WebSocket.Listener {
+
+    static final String VENDOR = "Simulator";
+    private static final int POWER_WATTS = 7400;
+
+    private final String chargePointId;
+    private final String idTag;
+    private final String url;
+    private final SimulatorOptions options;
+    private final SimulatorMetrics metrics;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService scheduler;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, PendingCall> pendingCalls = new ConcurrentHashMap<>();
+    private final AtomicLong messageIds = new AtomicLong();
+    private final List<Future<?>> tasks = new CopyOnWriteArrayList<>();
+    private final ConnectorState[] connectors;
+    private final StringBuilder partialFrame = new StringBuilder();
+    private final Object sendLock = new Object();
+
+    private volatile WebSocket webSocket;
+    private CompletableFuture<WebSocket> sendChain;
+    private volatile boolean stopped;
+    private volatile boolean booted;
+
+    SimulatedStation(String chargePointId,
+                     String idTag,
+                     String url,
+                     SimulatorOptions options,
+                     SimulatorMetrics metrics,
+                     HttpClient httpClient,
+                     ScheduledExecutorService scheduler,
+                     ObjectMapper objectMapper) {
+        this.chargePointId = chargePointId;
+        this.idTag = idTag;
+        this.url = url;
+        this.options = options;
+        this.metrics = metrics;
+        this.httpClient = httpClient;
+        this.scheduler = scheduler;
+        this.objectMapper = objectMapper;
+        this.connectors = new ConnectorState[options.connectorsPerStation + 1];
+        for (int i = 1; i < connectors.length; i++) {
+            connectors[i] = new ConnectorState();
+        }
+    }
+
+    String getChargePointId() {
+        return chargePointId;
+    }
+
+    boolean isBooted() {
+        return booted && !stopped;
+    }
+
+    CompletableFuture<Void> connect() {
+        URI uri = URI.create(url + "/" + chargePointId);
+        return httpClient.newWebSocketBuilder()
+                .subprotocols("ocpp1.6")
+                .connectTimeout(Duration.ofSeconds(10))
+                .buildAsync(uri, this)
+                .thenAccept(ws -> {
+                    metrics.connected.increment();
+                    boot();
+                })
+                .exceptionally(ex -> {
+                    WebSocketHandshakeException handshake = handshakeFailure(ex);
+                    if (handshake != null && handshake.getResponse().statusCode() == 503) {
+                        // Throttled by the CSMS: come back when it says, like a compliant charger
+                        metrics.throttled.increment();
+                        long retryAfter = handshake.getResponse().headers().firstValue("Retry-After")
+                                .map(Long::parseLong).orElse(10L);
+                        schedule(this::connect, retryAfter * 1000 + jitter(1000));
+                        return null;
+                    }
+                    metrics.connectFailures.increment();
+                    metrics.recordError("connect", rootCause(ex).getClass().getSimpleName());
+                    reconnectLater();
+                    return null;
+                });
+    }
+
+    /**
+     * Drops the connection without a close handshake, as a network outage would, and
+     * connects again after the delay.
+     */
+    void dropConnection(long reconnectDelayMillis) {
+        WebSocket ws = webSocket;
+        if (stopped || ws == null) {
+            return;
+        }
+        webSocket = null;
+        reset();
+        ws.abort();
+        schedule(this::connect, reconnectDelayMillis);
+    }
+
+    void stop() {
+        stopped = true;
+        cancelTasks();
+        WebSocket ws = webSocket;
+        if (ws != null) {
+            ws.sendClose(WebSocket.NORMAL_CLOSURE, "Simulation finished");
+        }
+    }
+
+    // Script
+
+    private void boot() {
+        WebSocket bootedOn = webSocket;
+        call("BootNotification", Map.of(
+                "chargePointVendor", VENDOR,
+                "chargePointModel", "SIM-AC-22",
+                "chargePointSerialNumber", chargePointId,
+                "firmwareVersion", "1.0.0"))
+                .thenAccept(response -> {
+                    int interval = Math.max(1, response.path("interval").asInt(300));
+                    if (!"Accepted".equals(response.path("status").asText())) {
+                        // Pending or Rejected: retry after the interval the CSMS asked for
+                        metrics.bootsPending.increment();
+                        schedule(this::boot, interval * 1000L);
+                        return;
+                    }
+
+                    booted = true;
+                    int heartbeatInterval = options.heartbeatInterval > 0 ? options.heartbeatInterval : interval;
+                    long heartbeatMillis = heartbeatInterval * 1000L;
+                    tasks.add(scheduler.scheduleAtFixedRate(() -> call("Heartbeat", Map.of()),
+                            jitter(heartbeatMillis), heartbeatMillis, TimeUnit.MILLISECONDS));
+
+                    for (int connectorId = 0; connectorId < connectors.length; connectorId++) {
+                        call("StatusNotification", statusNotification(connectorId, "Available"));
+                    }
+                    for (int connectorId = 1; connectorId < connectors.length; connectorId++) {
+                        scheduleSession(connectorId);
+                    }
+                })
+                .exceptionally(ex -> {
+                    // A new connection boots by itself
+                    if (webSocket == bootedOn && !stopped) {
+                        schedule(this::boot, 30_000);
+                    }
+                    return null;
+                });
+    }
+
+    private void scheduleSession(int connectorId) {
+        if (!stopped) {
+            schedule(() -> runSession(connectorId, idTag), jitter(options.sessionInterval.toMillis()));
+        }
+    }
+
+    private void runSession(int connectorId, String sessionIdTag) {
+        ConnectorState connector = connectors[connectorId];
+        if (stopped || !connector.busy.compareAndSet(false, true)) {
+            return;
+        }
+
+        call("Authorize", Map.of("idTag", sessionIdTag))
+                .thenCompose(authorization -> {
+                    requireAccepted(authorization);
+                    return call("StartTransaction", Map.of(
+                            "connectorId", connectorId,
+                            "idTag", sessionIdTag,
+                            "meterStart", connector.energyWh,
+                            "timestamp", timestamp()));
+                })
+                .thenCompose(started -> {
+                    requireAccepted(started);
+                    connector.transactionId = started.path("transactionId").asInt();
+                    return call("StatusNotification", statusNotification(connectorId, "Charging"));
+                })
+                .thenCompose(ignored -> sendMeterValues(connectorId, options.meterValuesPerSession))
+                .thenCompose(ignored -> call("StopTransaction", Map.of(
+                        "transactionId", connector.transactionId,
+                        "idTag", sessionIdTag,
+                        "meterStop", connector.energyWh,
+                        "timestamp", timestamp(),
+                        "reason", connector.remoteStop ? "Remote" : "Local")))
+                .thenCompose(ignored -> call("StatusNotification", statusNotification(connectorId, "Available")))
+                .whenComplete((ignored, ex) -> {
+                    connector.transactionId = 0;
+                    connector.remoteStop = false;
+                    connector.busy.set(false);
+                    scheduleSession(connectorId);
+                });
+    }
+
+    private CompletableFuture<JsonNode> sendMeterValues(int connectorId, int remaining) {
+        ConnectorState connector = connectors[connectorId];
+        if (remaining == 0 || connector.remoteStop || stopped) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long intervalMillis = options.meterValueInterval.toMillis();
+        return CompletableFuture.runAsync(() -> { },
+                        CompletableFuture.delayedExecutor(intervalMillis, TimeUnit.MILLISECONDS, scheduler))
+                .thenCompose(ignored -> {
+                    connector.energyWh += (int) (POWER_WATTS * intervalMillis / 3_600_000L);
+                    return call("MeterValues", meterValues(connectorId, connector));
+                })
+                .thenCompose(ignored -> sendMeterValues(connectorId, remaining - 1));
+    }
+
+    // CSMS-initiated calls
+
+    private void handleCsmsCall(String messageId, String action, JsonNode payload) {
+        metrics.csmsCalls.increment();
+        Object response = switch (action) {
+            case "RemoteStartTransaction" -> remoteStart(payload);
+            case "RemoteStopTransaction" -> remoteStop(payload.path("transactionId").asInt());
+            case "Reset", "ChangeConfiguration", "ClearCache", "CancelReservation", "ReserveNow" ->
+                    Map.of("status", "Accepted");
+            case "UnlockConnector" -> Map.of("status", "Unlocked");
+            case "GetConfiguration" -> Map.of("configurationKey", List.of(), "unknownKey", List.of());
+            default -> null;
+        };
+
+        if (response != null) {
+            send(List.of(3, messageId, response));
+        } else {
+            send(List.of(4, messageId, "NotImplemented", "Simulator does not implement " + action, Map.of()));
+        }
+    }
+
+    private Map<String, String> remoteStart(JsonNode payload) {
+        int connectorId = payload.path("connectorId").asInt(1);
+        if (connectorId < 1 || connectorId >= connectors.length || connectors[connectorId].busy.get()) {
+            return Map.of("status", "Rejected");
+        }
+        String sessionIdTag = payload.path("idTag").asText(idTag);
+        schedule(() -> runSession(connectorId, sessionIdTag), 100);
+        return Map.of("status", "Accepted");
+    }
+
+    private Map<String, String> remoteStop(int transactionId) {
+        for (int i = 1; i < connectors.length; i++) {
+            if (connectors[i].transactionId == transactionId && transactionId != 0) {
+                connectors[i].remoteStop = true;
+                return Map.of("status", "Accepted");
+            }
+        }
+        return Map.of("status", "Rejected");
+    }
+
+    // Messaging
+
+    private CompletableFuture<JsonNode> call(String action, Object payload) {
+        String messageId = Long.toString(messageIds.incrementAndGet());
+        PendingCall pendingCall = new PendingCall(action, System.nanoTime());
+        pendingCalls.put(messageId, pendingCall);
+        send(List.of(2, messageId, action, payload));
+
+        return pendingCall.future
+                .orTimeout(options.callTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((response, ex) -> {
+                    if (pendingCalls.remove(messageId) != null && ex instanceof TimeoutException) {
+                        metrics.recordError(action, "Timeout");
+                    }
+                });
+    }
+
+    private void send(List<?> frame) {
+        String text;
+        try {
+            text = objectMapper.writeValueAsString(frame);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to encode frame", e);
+        }
+
+        // The JDK WebSocket allows only one outstanding send, so sends are chained
+        synchronized (sendLock) {
+            if (sendChain == null) {
+                return;
+            }
+            sendChain = sendChain
+                    .thenCompose(ws -> ws.sendText(text, true))
+                    .exceptionally(ex -> {
+                        if (!stopped) {
+                            metrics.recordError("send", rootCause(ex).getClass().getSimpleName());
+                        }
+                        return webSocket;
+                    });
+        }
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+        this.webSocket = webSocket;
+        synchronized (sendLock) {
+            sendChain = CompletableFuture.completedFuture(webSocket);
+        }
+        webSocket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        partialFrame.append(data);
+        if (last) {
+            String text = partialFrame.toString();
+            partialFrame.setLength(0);
+            try {
+                handleFrame(objectMapper.readTree(text));
+            } catch (Exception e) {
+                metrics.recordError("receive", e.getClass().getSimpleName());
+            }
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    private void handleFrame(JsonNode frame) {
+        int messageType = frame.get(0).asInt();
+        String messageId = frame.get(1).asText();
+
+        if (messageType == 2) {
+            handleCsmsCall(messageId, frame.get(2).asText(), frame.path(3));
+            return;
+        }
+
+        PendingCall pendingCall = pendingCalls.remove(messageId);
+        if (pendingCall == null) {
+            metrics.recordError("receive", "UnknownMessageId");
+            return;
+        }
+
+        if (messageType == 3) {
+            metrics.recordLatency(pendingCall.action, System.nanoTime() - pendingCall.startNanos);
+            pendingCall.future.complete(frame.path(2));
+        } else {
+            String errorCode = frame.path(2).asText();
+            metrics.recordError(pendingCall.action, errorCode);
+            pendingCall.future.completeExceptionally(
+                    new IllegalStateException(errorCode + ": " + frame.path(3).asText()));
+        }
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        if (webSocket != this.webSocket) {
+            // Dropped on purpose
+            return null;
+        }
+        if (!stopped) {
+            metrics.disconnects.increment();
+            metrics.recordError("connection", "Closed " + statusCode);
+        }
+        connectionLost();
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        if (webSocket != this.webSocket) {
+            return;
+        }
+        if (!stopped) {
+            metrics.disconnects.increment();
+            metrics.recordError("connection", error.getClass().getSimpleName());
+        }
+        connectionLost();
+    }
+
+    private void connectionLost() {
+        reset();
+        reconnectLater();
+    }
+
+    private void reset() {
+        booted = false;
+        synchronized (sendLock) {
+            sendChain = null;
+        }
+        cancelTasks();
+        pendingCalls.values().forEach(call -> call.future.completeExceptionally(
+                new IllegalStateException("Connection closed")));
+        pendingCalls.clear();
+    }
+
+    private void reconnectLater() {
+        if (!stopped) {
+            schedule(this::connect, 5_000 + jitter(5_000));
+        }
+    }
+
+    // Helpers
+
+    private void schedule(Runnable task, long delayMillis) {
+        tasks.removeIf(Future::isDone);
+        ScheduledFuture<?> future = scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        tasks.add(future);
+    }
+
+    private void cancelTasks() {
+        tasks.forEach(task -> task.cancel(false));
+        tasks.clear();
+    }
+
+    private static long jitter(long millis) {
+        return ThreadLocalRandom.current().nextLong(Math.max(1, millis));
+    }
+
+    private static void requireAccepted(JsonNode response) {
+        if (!"Accepted".equals(response.path("idTagInfo").path("status").asText())) {
+            throw new CompletionException(new IllegalStateException("ID tag not accepted"));
+        }
+    }
+
+    private static Map<String, Object> statusNotification(int connectorId, String status) {
+        return Map.of(
+                "connectorId", connectorId,
+                "errorCode", "NoError",
+                "status", status,
+                "timestamp", timestamp());
+    }
+
+    private static Map<String, Object> meterValues(int connectorId, ConnectorState connector) {
+        return Map.of(
+                "connectorId", connectorId,
+                "transactionId", connector.transactionId,
+                "meterValue", List.of(Map.of(
+                        "timestamp", timestamp(),
+                        "sampledValue", List.of(
+                                sample(Integer.toString(connector.energyWh), "Energy.Active.Import.Register", null, "Wh"),
+                                sample(Integer.toString(POWER_WATTS), "Power.Active.Import", null, "W"),
+                                sample("32", "Current.Import", "L1", "A"),
+                                sample("231", "Voltage", "L1-N", "V")))));
+    }
+
+    private static Map<String, String> sample(String value, String measurand, String phase, String unit) {
+        return phase != null
+                ? Map.of("value", value, "context", "Sample.Periodic", "measurand", measurand, "phase", phase, "unit", unit)
+                : Map.of("value", value, "context", "Sample.Periodic", "measurand", measurand, "unit", unit);
+    }
+
+    private static String timestamp() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS).toString();
+    }
+
+    private static Throwable rootCause(Throwable ex) {
+        while (ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return ex;
+    }
+
+    private static WebSocketHandshakeException handshakeFailure(Throwable ex) {
+        for (; ex != null; ex = ex.getCause()) {
+            if (ex instanceof WebSocketHandshakeException handshake) {
+                return handshake;
+            }
+        }
+        return null;
+    }
+
+    private static final class PendingCall {
+        private final String action;
+        private final long startNanos;
+        private final CompletableFuture<JsonNode> future = new CompletableFuture<>();
+
+        PendingCall(String action, long startNanos) {
+            this.action = action;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private static final class ConnectorState {
+        private final AtomicBoolean busy = new AtomicBoolean();
+        private volatile int transactionId;
+        private volatile boolean remoteStop;
+        private volatile int energyWh;
+    }
+}
@@ -0,0 +1,92 @@
+package com.csms.simulator;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-action CALL to CALLRESULT latency histograms and error counts, as seen by the
+ * simulated charge points.
+ */
+final class SimulatorMetrics {
+
+    private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> totals = new TreeMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final long startNanos = System.nanoTime();
+    private long lastReportNanos = startNanos;
+
+    final LongAdder connected = new LongAdder();
+    final LongAdder connectFailures = new LongAdder();
+    /** Handshakes refused with 503 by the CSMS's admission control */
+    final LongAdder throttled = new LongAdder();
+    /** BootNotifications answered Pending or Rejected */
+    final LongAdder bootsPending = new LongAdder();
+    final LongAdder disconnects = new LongAdder();
+    final LongAdder csmsCalls = new LongAdder();
+
+    void recordLatency(String action, long nanos) {
+        recorders.computeIfAbsent(action, key -> new Recorder(3))
+                .recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    void recordError(String action, String errorCode) {
+        recordErrors(action, errorCode, 1);
+    }
+
+    void recordErrors(String action, String errorCode, long count) {
+        errors.computeIfAbsent(action + " " + errorCode, key -> new LongAdder()).add(count);
+    }
+
+    long getErrorCount() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * Prints the interval since the previous report, or the whole run when {@code cumulative}.
+     */
+    synchronized void report(PrintStream out, boolean cumulative) {
+        long now = System.nanoTime();
+        double intervalSeconds = (now - (cumulative ? startNanos : lastReportNanos)) / 1e9;
+        lastReportNanos = now;
+
+        Map<String, Histogram> interval = new TreeMap<>();
+        recorders.forEach((action, recorder) -> {
+            Histogram histogram = recorder.getIntervalHistogram();
+            interval.put(action, histogram);
+            totals.computeIfAbsent(action, key -> new Histogram(3)).add(histogram);
+        });
+
+        out.printf("%n== %s: %.0fs, connected %d, throttled %d, boots pending %d, connect failures %d, disconnects %d, "
+                        + "CSMS calls answered %d%n",
+                cumulative ? "Summary" : "Interval", intervalSeconds, connected.sum(), throttled.sum(),
+                bootsPending.sum(), connectFailures.sum(), disconnects.sum(), csmsCalls.sum());
+        out.printf("%-32s %10s %9s %9s %9s %9s %9s %9s%n",
+                "action", "count", "rate/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        (cumulative ? totals : interval).forEach((action, histogram) -> out.printf(
+                "%-32s %10d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                action,
+                histogram.getTotalCount(),
+                histogram.getTotalCount() / intervalSeconds,
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue())));
+
+        if (!errors.isEmpty()) {
+            out.println("errors (cumulative):");
+            new TreeMap<>(errors).forEach((key, count) -> out.printf("  %-40s %d%n", key, count.sum()));
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,119 @@
+package com.csms.simulator;
+
+import java.time.Duration;
+
+/**
+ * Command line options for {@link LoadSimulator}, given as {@code --name=value} or
+ * {@code --flag}. Durations are in seconds.
+ */
+final class SimulatorOptions {
+
+    /** Base WebSocket URL; the charge point ID is appended. Comma-separated for several nodes. */
+    String url = "ws://localhost:8080/ocpp";
+    /** Base REST URL, used to seed ID tags and trigger remote commands. Comma-separated for several nodes. */
+    String apiUrl = "http://localhost:8080/api";
+    /** Start Postgres and the CSMS in-process instead of using a running instance. */
+    boolean embedded;
+    /** CSMS nodes started in one cluster with --embedded. */
+    int nodes = 1;
+
+    int stations = 100;
+    int connectorsPerStation = 2;
+    /** New connections opened per second while ramping up. */
+    int connectRate = 200;
+    Duration duration = Duration.ofMinutes(5);
+    String chargePointPrefix = "SIM";
+
+    /** Average idle time between charging sessions on a connector. */
+    Duration sessionInterval = Duration.ofSeconds(120);
+    Duration meterValueInterval = Duration.ofSeconds(10);
+    int meterValuesPerSession = 6;
+    /** Overrides the interval from BootNotification.conf when positive. */
+    int heartbeatInterval;
+    Duration callTimeout = Duration.ofSeconds(30);
+
+    /** RemoteStartTransaction requests per second issued through the REST API. */
+    double remoteStartRate;
+    boolean seedIdTags = true;
+    /** Remote command sent to every simulated station as one bulk job once ramp-up is done. */
+    String bulkAction;
+    /** Delay after ramp-up before the bulk job starts. */
+    Duration bulkDelay = Duration.ofSeconds(10);
+    /** Per-job concurrency for the bulk job; the CSMS default applies when unset. */
+    Integer bulkConcurrency;
+    /** Drop every connection at once after ramp-up (and the bulk job) and measure the reconnect. */
+    boolean reconnectStorm;
+    Duration stormDelay = Duration.ofSeconds(30);
+    /** Stations reconnect at random within this long after the drop. */
+    Duration stormSpread = Duration.ofSeconds(10);
+    Duration reportInterval = Duration.ofSeconds(10);
+
+    static SimulatorOptions parse(String[] args) {
+        SimulatorOptions options = new SimulatorOptions();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            String name = separator > 0 ? arg.substring(2, separator) : arg.substring(2);
+            String value = separator > 0 ? arg.substring(separator + 1) : "true";
+
+            switch (name) {
+                case "url" -> options.url = value;
+                case "api-url" -> options.apiUrl = value;
+                case "embedded" -> options.embedded = Boolean.parseBoolean(value);
+                case "nodes" -> options.nodes = Integer.parseInt(value);
+                case "stations" -> options.stations = Integer.parseInt(value);
+                case "connectors" -> options.connectorsPerStation = Integer.parseInt(value);
+                case "connect-rate" -> options.connectRate = Integer.parseInt(value);
+                case "duration" -> options.duration = seconds(value);
+                case "prefix" -> options.chargePointPrefix = value;
+                case "session-interval" -> options.sessionInterval = seconds(value);
+                case "meter-interval" -> options.meterValueInterval = seconds(value);
+                case "meter-values-per-session" -> options.meterValuesPerSession = Integer.parseInt(value);
+                case "heartbeat-interval" -> options.heartbeatInterval = Integer.parseInt(value);
+                case "call-timeout" -> options.callTimeout = seconds(value);
+                case "remote-start-rate" -> options.remoteStartRate = Double.parseDouble(value);
+                case "bulk-action" -> options.bulkAction = value;
+                case "bulk-delay" -> options.bulkDelay = seconds(value);
+                case "bulk-concurrency" -> options.bulkConcurrency = Integer.parseInt(value);
+                case "reconnect-storm" -> options.reconnectStorm = Boolean.parseBoolean(value);
+                case "storm-delay" -> options.stormDelay = seconds(value);
+                case "storm-spread" -> options.stormSpread = seconds(value);
+                case "seed-id-tags" -> options.seedIdTags = Boolean.parseBoolean(value);
+                case "report-interval" -> options.reportInterval = seconds(value);
+                default -> throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+        }
+        return options;
+    }
+
+    /**
+     * WebSocket URL for the station with this index; stations are spread over the nodes.
+     */
+    String url(int index) {
+        String[] urls = url.split(",");
+        return urls[index % urls.length];
+    }
+
+    /**
+     * REST URL for requests about the station with this index. With several nodes it is
+     * one the station is not connected to, so remote commands take the forwarding path.
+     */
+    String apiUrl(int index) {
+        String[] urls = apiUrl.split(",");
+        return urls[(index + 1) % urls.length];
+    }
+
+    String chargePointId(int index) {
+        return String.format("%s-%06d", chargePointPrefix, index);
+    }
+
+    static String idTag(int index) {
+        return String.format("SIMTAG-%06d", index);
+    }
+
+    private static Duration seconds(String value) {
+        return Duration.ofSeconds(Long.parseLong(value));
+    }
+}
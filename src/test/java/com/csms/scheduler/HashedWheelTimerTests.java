@@ -0,0 +1,74 @@
+package com.csms.scheduler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedWheelTimerTests {
+
+    private final HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+
+    @AfterEach
+    void closeTimer() {
+        timer.close();
+    }
+
+    @Test
+    void firesAfterDeadline() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.schedule(fired::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    void rearmPostponesExpiry() throws InterruptedException {
+        AtomicInteger fired = new AtomicInteger();
+        HashedWheelTimer.Timeout timeout = timer.schedule(fired::incrementAndGet, 100, TimeUnit.MILLISECONDS);
+
+        // Keep pushing the deadline back for longer than a full wheel rotation
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(40);
+            timeout.rearm(100, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(0, fired.get());
+
+        Thread.sleep(300);
+        assertEquals(1, fired.get());
+        assertTrue(timeout.isExpired());
+    }
+
+    @Test
+    void rearmAfterExpiryReschedules() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(2);
+        HashedWheelTimer.Timeout timeout = timer.schedule(fired::countDown, 20, TimeUnit.MILLISECONDS);
+
+        Thread.sleep(200);
+        assertTrue(timeout.isExpired());
+        timeout.rearm(20, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void cancelledTimeoutNeverFires() throws InterruptedException {
+        AtomicInteger fired = new AtomicInteger();
+        HashedWheelTimer.Timeout timeout = timer.schedule(fired::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(timeout.cancel());
+        Thread.sleep(200);
+
+        assertEquals(0, fired.get());
+        assertFalse(timeout.cancel());
+        assertEquals(0, timer.getScheduledCount());
+    }
+}
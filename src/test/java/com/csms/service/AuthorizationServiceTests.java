@@ -0,0 +1,120 @@
+package com.csms.service;
+
+import com.csms.controller.IdTagController;
+import com.csms.dto.ocpp.StartTransactionResponse.IdTagInfo;
+import com.csms.event.IdTagsChangedEvent;
+import com.csms.model.IdTag;
+import com.csms.repository.IdTagRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthorizationServiceTests {
+
+    private static final long TTL_NANOS = Duration.ofSeconds(300).toNanos();
+    private static final long NEGATIVE_TTL_NANOS = Duration.ofSeconds(60).toNanos();
+
+    private final IdTagRepository idTagRepository = mock(IdTagRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final AuthorizationService service = new AuthorizationService(idTagRepository, eventPublisher,
+            new SimpleMeterRegistry(), 1000, 300, 60);
+    private final IdTagController controller = new IdTagController(idTagRepository, service,
+            mock(IdTagBulkService.class), mock(CursorQueryService.class));
+    private final AuthorizationService.IdTagInfoExpiry expiry =
+            new AuthorizationService.IdTagInfoExpiry(Duration.ofNanos(TTL_NANOS), Duration.ofNanos(NEGATIVE_TTL_NANOS));
+
+    @Test
+    void keepsUnknownTagsForTheNegativeTtl() {
+        assertEquals(NEGATIVE_TTL_NANOS, expiry.expireAfterCreate("TAG-1", new IdTagInfo("Invalid", null, null), 0));
+        assertEquals(TTL_NANOS, expiry.expireAfterCreate("TAG-1", new IdTagInfo("Blocked", null, null), 0));
+        assertEquals(TTL_NANOS, expiry.expireAfterCreate("TAG-1", new IdTagInfo("Accepted", null, null), 0));
+    }
+
+    @Test
+    void neverKeepsAnAcceptedTagPastItsExpiryDate() {
+        long untilExpiry = Duration.ofSeconds(10).toNanos();
+        long expiresIn = expiry.expireAfterCreate("TAG-1",
+                new IdTagInfo("Accepted", null, LocalDateTime.now().plusNanos(untilExpiry)), 0);
+        assertTrue(expiresIn <= untilExpiry && expiresIn > untilExpiry - Duration.ofSeconds(1).toNanos(),
+                "expires in " + expiresIn);
+
+        assertEquals(TTL_NANOS, expiry.expireAfterCreate("TAG-1",
+                new IdTagInfo("Accepted", null, LocalDateTime.now().plusDays(1)), 0));
+        assertEquals(0, expiry.expireAfterCreate("TAG-1",
+                new IdTagInfo("Accepted", null, LocalDateTime.now().minusSeconds(1)), 0));
+        // Reads don't extend it
+        assertEquals(untilExpiry, expiry.expireAfterRead("TAG-1", new IdTagInfo("Accepted", null, null), 0, untilExpiry));
+    }
+
+    @Test
+    void servesRepeatedAuthorizationsFromTheCache() {
+        when(idTagRepository.findByIdTag("TAG-1")).thenReturn(Optional.of(tag("TAG-1", "Accepted")));
+
+        assertEquals("Accepted", service.authorize("TAG-1").getStatus());
+        assertEquals("Accepted", service.authorize("TAG-1").getStatus());
+        verify(idTagRepository, times(1)).findByIdTag("TAG-1");
+    }
+
+    @Test
+    void readsATagAgainOnceItIsCreated() {
+        when(idTagRepository.findByIdTag("TAG-1")).thenReturn(Optional.empty());
+        assertEquals("Invalid", service.authorize("TAG-1").getStatus());
+
+        IdTag created = tag("TAG-1", "Accepted");
+        when(idTagRepository.save(any())).thenReturn(created);
+        when(idTagRepository.findByIdTag("TAG-1")).thenReturn(Optional.of(created));
+        controller.createIdTag(created);
+
+        assertEquals("Accepted", service.authorize("TAG-1").getStatus());
+        verify(eventPublisher).publishEvent(new IdTagsChangedEvent(List.of("TAG-1")));
+    }
+
+    @Test
+    void readsATagAgainOnceItIsBlockedOrDeleted() {
+        IdTag stored = tag("TAG-1", "Accepted");
+        when(idTagRepository.findByIdTag("TAG-1")).thenReturn(Optional.of(stored));
+        when(idTagRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        assertEquals("Accepted", service.authorize("TAG-1").getStatus());
+
+        controller.updateIdTag("TAG-1", tag("TAG-1", "Blocked"));
+        assertEquals("Blocked", service.authorize("TAG-1").getStatus());
+
+        controller.deleteIdTag("TAG-1");
+        verify(idTagRepository).delete(stored);
+        when(idTagRepository.findByIdTag("TAG-1")).thenReturn(Optional.empty());
+        assertEquals("Invalid", service.authorize("TAG-1").getStatus());
+        verify(eventPublisher, times(2)).publishEvent(new IdTagsChangedEvent(List.of("TAG-1")));
+    }
+
+    @Test
+    void evictsTagsChangedOnAnotherNodeWithoutAnnouncingThem() {
+        when(idTagRepository.findByIdTag("TAG-1")).thenReturn(Optional.of(tag("TAG-1", "Accepted")));
+        service.authorize("TAG-1");
+
+        service.evict(List.of("TAG-1"));
+        service.authorize("TAG-1");
+
+        verify(idTagRepository, times(2)).findByIdTag("TAG-1");
+        verify(eventPublisher, times(0)).publishEvent(any(Object.class));
+    }
+
+    private static IdTag tag(String idTag, String status) {
+        IdTag tag = new IdTag();
+        tag.setIdTag(idTag);
+        tag.setStatus(status);
+        return tag;
+    }
+}
@@ -0,0 +1,107 @@
+package com.csms.service;
+
+import com.csms.dto.BulkCommandRequest;
+import com.csms.dto.BulkCommandRequest.StationSelector;
+import com.csms.dto.BulkCommandStatus;
+import com.csms.dto.ocpp.ClearCacheResponse;
+import com.csms.exception.ChargePointUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BulkCommandServiceTests {
+
+    private final RemoteCommandService remoteCommandService = mock(RemoteCommandService.class);
+    private final StationOwnershipRegistry stationOwnershipRegistry = mock(StationOwnershipRegistry.class);
+    private final List<CompletableFuture<ClearCacheResponse>> sent = new ArrayList<>();
+
+    BulkCommandServiceTests() {
+        when(stationOwnershipRegistry.isConnected(anyString())).thenReturn(true);
+        when(remoteCommandService.sendClearCache(anyString())).thenAnswer(invocation -> {
+            CompletableFuture<ClearCacheResponse> future = new CompletableFuture<>();
+            sent.add(future);
+            return future;
+        });
+    }
+
+    @Test
+    void keepsTheJobConcurrencyLimitAndCountsOutcomes() {
+        BulkCommandService service = new BulkCommandService(
+                remoteCommandService, stationOwnershipRegistry, new JdbcTemplate(), 100, 100, 60);
+        BulkCommandStatus status = service.start(request(stations(10), 3));
+        assertEquals(3, sent.size());
+
+        sent.get(0).complete(new ClearCacheResponse("Accepted"));
+        sent.get(1).complete(new ClearCacheResponse("Rejected"));
+        sent.get(2).completeExceptionally(new ChargePointUnavailableException("gone"));
+        assertEquals(6, sent.size());
+
+        for (int i = 3; i < 10; i++) {
+            sent.get(i).complete(new ClearCacheResponse("Accepted"));
+        }
+        BulkCommandStatus finished = service.getStatus(status.getJobId()).orElseThrow();
+        assertEquals(BulkCommandService.STATE_COMPLETED, finished.getState());
+        assertEquals(Map.of("Accepted", 8L, "Rejected", 1L, "Unavailable", 1L), finished.getOutcomes());
+        assertEquals(10, service.getResults(status.getJobId(), 0, 100).orElseThrow().size());
+    }
+
+    @Test
+    void sharesNodePermitsAcrossJobs() {
+        BulkCommandService service = new BulkCommandService(
+                remoteCommandService, stationOwnershipRegistry, new JdbcTemplate(), 4, 100, 60);
+        BulkCommandStatus first = service.start(request(stations(5), null));
+        BulkCommandStatus second = service.start(request(stations(5), null));
+        assertEquals(4, sent.size());
+
+        // Completing the first job's commands frees permits for the second job
+        sent.get(0).complete(new ClearCacheResponse("Accepted"));
+        assertEquals(5, sent.size());
+        for (int i = 1; i < sent.size(); i++) {
+            sent.get(i).complete(new ClearCacheResponse("Accepted"));
+        }
+
+        assertEquals(BulkCommandService.STATE_COMPLETED, service.getStatus(first.getJobId()).orElseThrow().getState());
+        assertEquals(BulkCommandService.STATE_COMPLETED, service.getStatus(second.getJobId()).orElseThrow().getState());
+        assertEquals(10, sent.size());
+    }
+
+    @Test
+    void rejectsEmptySelectorsAndMissingParameters() {
+        BulkCommandService service = new BulkCommandService(
+                remoteCommandService, stationOwnershipRegistry, new JdbcTemplate(), 4, 4, 60);
+        assertThrows(IllegalArgumentException.class, () -> service.start(request(new StationSelector(), null)));
+
+        BulkCommandRequest change = request(stations(1), null);
+        change.setAction("ChangeConfiguration");
+        change.setParameters(Map.of("key", "HeartbeatInterval"));
+        assertThrows(IllegalArgumentException.class, () -> service.start(change));
+    }
+
+    private static StationSelector stations(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add("CP-" + i);
+        }
+        StationSelector selector = new StationSelector();
+        selector.setChargePointIds(ids);
+        return selector;
+    }
+
+    private static BulkCommandRequest request(StationSelector stations, Integer concurrency) {
+        BulkCommandRequest request = new BulkCommandRequest();
+        request.setAction("ClearCache");
+        request.setStations(stations);
+        request.setConcurrency(concurrency);
+        return request;
+    }
+}
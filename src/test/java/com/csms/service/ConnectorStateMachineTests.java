@@ -0,0 +1,157 @@
+package com.csms.service;
+
+import com.csms.model.Connector;
+import com.csms.repository.ConnectorRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static com.csms.service.ConnectorStateMachine.Outcome.APPLIED;
+import static com.csms.service.ConnectorStateMachine.Outcome.REJECTED;
+import static com.csms.service.ConnectorStateMachine.Outcome.UNCHANGED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConnectorStateMachineTests {
+
+    private static final UUID STATION = UUID.randomUUID();
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ConnectorRepository connectorRepository = mock(ConnectorRepository.class);
+    private final DashboardStatsService dashboardStatsService = mock(DashboardStatsService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void followsTheOcppTransitionsAndRejectsIllegalOnes() {
+        ConnectorStateMachine machine = machine(true);
+
+        assertEquals(APPLIED, status(machine, 1, "Available"));
+        assertEquals(APPLIED, status(machine, 1, "Preparing"));
+        assertEquals(REJECTED, status(machine, 1, "Reserved"));
+        assertEquals(APPLIED, status(machine, 1, "Charging"));
+        assertEquals(APPLIED, status(machine, 1, "Finishing"));
+        assertEquals(REJECTED, status(machine, 1, "Charging"));
+        assertEquals(UNCHANGED, status(machine, 1, "Finishing"));
+        // Connector 0 is the station itself
+        assertEquals(REJECTED, status(machine, 0, "Charging"));
+        assertEquals(REJECTED, status(machine, 1, "Plugged"));
+
+        assertEquals("Finishing", machine.getStatus(STATION, 1).orElseThrow());
+        assertEquals(4, meterRegistry.get("ocpp.connector.events").tag("result", "rejected").counter().count());
+        verify(dashboardStatsService).connectorStatusChanged(null, "Available");
+        verify(dashboardStatsService).connectorStatusChanged("Charging", "Finishing");
+    }
+
+    @Test
+    void appliesAndCountsIllegalTransitionsWhenLenient() {
+        ConnectorStateMachine machine = machine(false);
+
+        status(machine, 1, "Available");
+        assertEquals(APPLIED, status(machine, 1, "Finishing"));
+        assertEquals(1, meterRegistry.get("ocpp.connector.events").tag("result", "illegal").counter().count());
+    }
+
+    @Test
+    void aBootForgetsTheReportedStatusAndTransactionsDoNotConstrainReports() {
+        Connector stored = new Connector();
+        stored.setId(UUID.randomUUID());
+        stored.setConnectorId(1);
+        stored.setStatus("Charging");
+        when(connectorRepository.findByChargingStationId(STATION)).thenReturn(List.of(stored));
+        ConnectorStateMachine machine = machine(true);
+
+        // Loaded state is not a report, so anything goes first
+        assertEquals(APPLIED, status(machine, 1, "Available"));
+        assertEquals(REJECTED, status(machine, 1, "Finishing"));
+        machine.stationBooted(STATION);
+        assertEquals(APPLIED, status(machine, 1, "Finishing"));
+
+        UUID transaction = UUID.randomUUID();
+        status(machine, 1, "Preparing");
+        machine.transactionStarted(STATION, 1, transaction);
+        assertEquals("Charging", machine.getStatus(STATION, 1).orElseThrow());
+        machine.transactionStopped(STATION, 1, transaction);
+        assertEquals("Available", machine.getStatus(STATION, 1).orElseThrow());
+        // Checked against the reported Preparing, not the Available set by the stop
+        assertEquals(APPLIED, status(machine, 1, "Finishing"));
+
+        List<Connector> connectors = machine.getConnectors(STATION);
+        assertEquals(1, connectors.size());
+        assertEquals(stored.getId(), connectors.get(0).getId());
+        assertNull(connectors.get(0).getCurrentTransactionId());
+        verify(connectorRepository, times(1)).findByChargingStationId(STATION);
+    }
+
+    @Test
+    void coalescesChangesIntoOneUpsertAndRetriesFailedFlushes() {
+        ConnectorStateMachine machine = machine(true);
+        status(machine, 1, "Available");
+        status(machine, 1, "Preparing");
+        status(machine, 1, "Charging");
+        status(machine, 2, "Available");
+        status(machine, 2, "Available");
+
+        doThrow(new DataAccessResourceFailureException("connection refused"))
+                .doReturn(new int[0])
+                .when(jdbcTemplate).batchUpdate(anyString(), anyList(), any(int[].class));
+        machine.flush();
+        status(machine, 1, "SuspendedEV");
+        machine.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), rows.capture(), any(int[].class));
+        List<Object[]> written = rows.getAllValues().get(1);
+        assertEquals(2, written.size());
+        for (Object[] row : written) {
+            assertEquals(STATION, row[1]);
+            assertEquals((int) row[2] == 1 ? "SuspendedEV" : "Available", row[3]);
+        }
+
+        machine.flush();
+        status(machine, 2, "Available");
+        machine.flush();
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList(), any(int[].class));
+    }
+
+    @Test
+    void readsStationsItDoesNotServeFromTheDatabaseWithoutHoldingThem() {
+        Connector stored = new Connector();
+        stored.setId(UUID.randomUUID());
+        stored.setConnectorId(1);
+        stored.setStatus("Charging");
+        when(connectorRepository.findByChargingStationId(STATION)).thenReturn(List.of(stored));
+        ConnectorStateMachine machine = machine(true);
+
+        assertEquals("Charging", machine.getStatus(STATION, 1).orElseThrow());
+        stored.setStatus("Available");
+        assertEquals("Available", machine.getConnectors(STATION).get(0).getStatus());
+        assertEquals(0, meterRegistry.get("ocpp.connector.stations").gauge().value());
+
+        status(machine, 1, "Preparing");
+        stored.setStatus("Faulted");
+        assertEquals("Preparing", machine.getStatus(STATION, 1).orElseThrow());
+        assertEquals(1, meterRegistry.get("ocpp.connector.stations").gauge().value());
+    }
+
+    private ConnectorStateMachine machine(boolean strict) {
+        return new ConnectorStateMachine(jdbcTemplate, connectorRepository, dashboardStatsService, meterRegistry, strict);
+    }
+
+    private static ConnectorStateMachine.Outcome status(ConnectorStateMachine machine, int connectorId, String status) {
+        return machine.statusNotification(STATION, connectorId, status, "NoError", null, null, null);
+    }
+}
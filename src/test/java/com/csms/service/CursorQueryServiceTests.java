@@ -0,0 +1,122 @@
+package com.csms.service;
+
+import com.csms.config.JacksonConfig;
+import com.csms.dto.CursorPage;
+import com.csms.dto.IdTagQuery;
+import com.csms.dto.IdTagSummary;
+import com.csms.dto.MeterValueQuery;
+import com.csms.dto.MeterValueReading;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CursorQueryServiceTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final MeterValueCodes codes = mock(MeterValueCodes.class);
+    private final CursorQueryService service =
+            new CursorQueryService(jdbcTemplate, new JacksonConfig().objectMapper(), codes, 2, 3, 100);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void continuesAfterTheLastKeyOfThePreviousPage() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenReturn(List.of(
+                tag("A"), tag("B"), tag("C")));
+        IdTagQuery query = new IdTagQuery();
+        query.setStatus("Accepted");
+
+        CursorPage<IdTagSummary> first = service.findIdTags(query);
+        assertEquals(List.of("A", "B"), first.getItems().stream().map(IdTagSummary::getIdTag).toList());
+
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenReturn(List.of(tag("C")));
+        query.setCursor(first.getNextCursor());
+        CursorPage<IdTagSummary> second = service.findIdTags(query);
+        assertNull(second.getNextCursor());
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate, times(2)).query(sql.capture(), any(RowMapper.class), args.capture());
+        assertEquals("SELECT id_tag, parent_id_tag, expiry_date, status FROM id_tags " +
+                "WHERE status = ? AND id_tag > ? ORDER BY id_tag LIMIT ?", sql.getAllValues().get(1));
+        assertArrayEquals(new Object[]{"Accepted", "B", 3}, args.getAllValues().get(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void comparesCompositeKeysAsRowsAndCapsThePageSize() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 123_456_000);
+        List<MeterValueReading> rows = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            rows.add(new MeterValueReading(5L, 1, 7, timestamp, (double) i, "Energy.Active.Import.Register",
+                    null, "Wh", null, null));
+        }
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenReturn(rows);
+        when(codes.find(MeterValueCodes.MEASURAND, "Energy.Active.Import.Register")).thenReturn(3);
+
+        MeterValueQuery query = new MeterValueQuery();
+        query.setMeasurand("Energy.Active.Import.Register");
+        query.setLimit(1000);
+        query.setSort("desc");
+        CursorPage<MeterValueReading> page = service.findMeterValuesByTransaction(7, query);
+        assertEquals(3, page.getItems().size());
+
+        query.setCursor(page.getNextCursor());
+        service.findMeterValuesByTransaction(7, query);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate, times(2)).query(sql.capture(), any(RowMapper.class), args.capture());
+        assertEquals(" WHERE measurand = ? AND transaction_id = ? AND (timestamp, id) < (?, ?) " +
+                        "ORDER BY timestamp DESC, id DESC LIMIT ?",
+                sql.getAllValues().get(1).substring(sql.getAllValues().get(1).indexOf(" WHERE")));
+        assertArrayEquals(new Object[]{3, 7, Timestamp.valueOf(timestamp), 5L, 4}, args.getAllValues().get(1));
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        IdTagQuery query = new IdTagQuery();
+        query.setCursor("not-a-cursor");
+        assertThrows(IllegalArgumentException.class, () -> service.findIdTags(query));
+
+        MeterValueQuery meterQuery = new MeterValueQuery();
+        meterQuery.setCursor("WyJCIl0"); // a one-part id tag cursor
+        assertThrows(IllegalArgumentException.class, () -> service.findMeterValuesByTransaction(7, meterQuery));
+    }
+
+    @Test
+    void createsTheTransactionIndexesOnceHibernateHasCreatedTheTable() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class))).thenReturn(false);
+        service.createIndexes();
+        verify(jdbcTemplate, never()).execute(anyString());
+
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class))).thenReturn(true);
+        service.createIndexes();
+        verify(jdbcTemplate).execute("CREATE INDEX IF NOT EXISTS idx_transactions_station " +
+                "ON transactions (charging_station_id, transaction_id)");
+        verify(jdbcTemplate).execute("CREATE INDEX IF NOT EXISTS idx_transactions_status " +
+                "ON transactions (status, transaction_id)");
+    }
+
+    private static IdTagSummary tag(String idTag) {
+        return new IdTagSummary(idTag, null, null, "Accepted");
+    }
+}
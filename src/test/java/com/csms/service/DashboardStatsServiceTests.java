@@ -0,0 +1,74 @@
+package com.csms.service;
+
+import com.csms.dto.DashboardStats;
+import com.csms.scheduler.StationOfflineDetector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DashboardStatsServiceTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final StationOfflineDetector offlineDetector = mock(StationOfflineDetector.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DashboardStatsService service =
+            new DashboardStatsService(jdbcTemplate, offlineDetector, meterRegistry);
+
+    @Test
+    void followsConnectorTransitionsAndTransactions() {
+        when(offlineDetector.getOfflineCount()).thenReturn(1);
+        service.stationAdded();
+        service.stationAdded();
+        service.connectorStatusChanged(null, "Available");
+        service.connectorStatusChanged(null, "Available");
+        service.connectorStatusChanged("Available", "Charging");
+        service.transactionStarted();
+        service.connectorStatusChanged("Charging", "Charging");
+
+        assertEquals(new DashboardStats(2, 1, 1, 1, 2, 1, 1, 0), service.getStats());
+
+        service.connectorStatusChanged("Charging", "Faulted");
+        service.transactionStopped();
+        assertEquals(new DashboardStats(2, 1, 1, 0, 2, 1, 0, 1), service.getStats());
+    }
+
+    @Test
+    void reconciliationOverwritesDriftedCounters() throws Exception {
+        service.stationAdded();
+        service.connectorStatusChanged(null, "Faulted");
+        service.transactionStarted();
+
+        List<Object[]> rows = List.of(
+                new Object[]{"stations", null, 3L},
+                new Object[]{"connectors", "Available", 4L},
+                new Object[]{"connectors", "Charging", 2L},
+                new Object[]{"transactions", null, 2L});
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Object[] row : rows) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString(1)).thenReturn((String) row[0]);
+                when(rs.getString(2)).thenReturn((String) row[1]);
+                when(rs.getLong(3)).thenReturn((Long) row[2]);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+
+        service.reconcile();
+
+        assertEquals(new DashboardStats(3, 3, 0, 2, 6, 4, 2, 0), service.getStats());
+        assertEquals(5, meterRegistry.get("ocpp.dashboard.reconcile.drift").counter().count());
+    }
+}
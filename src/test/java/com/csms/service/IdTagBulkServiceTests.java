@@ -0,0 +1,183 @@
+package com.csms.service;
+
+import com.csms.config.JacksonConfig;
+import com.csms.dto.BulkImportResult;
+import com.csms.model.IdTag;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdTagBulkServiceTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AuthorizationService authorizationService = mock(AuthorizationService.class);
+    private final IdTagBulkService service = new IdTagBulkService(jdbcTemplate, new JacksonConfig().objectMapper(),
+            authorizationService, 2, 2);
+
+    @Test
+    void skipsOnlyAHeaderOnTheFirstCsvLine() throws Exception {
+        BulkImportResult result = importTags(IdTagBulkService.FORMAT_CSV, """
+                idTag,parentIdTag,expiryDate,status
+                TAG-1,,,
+                idTag,parentIdTag,expiryDate,status
+                """);
+        assertEquals(2, result.getProcessed());
+        assertEquals(1, result.getUpserted());
+        assertEquals(1, result.getRejected());
+        assertTrue(result.getErrors().get(0).startsWith("Line 3: "), result.getErrors().get(0));
+
+        // Without a header, a first tag that merely starts with "idTag" is still a row
+        result = importTags(IdTagBulkService.FORMAT_CSV, """
+                idTag42,PARENT,2030-01-01T00:00:00,Blocked
+                "TAG,2",,,
+                """);
+        assertEquals(2, result.getUpserted());
+        List<IdTag> rows = upsertedRows().get(1);
+        assertEquals(new IdTag(null, "idTag42", "PARENT", LocalDateTime.of(2030, 1, 1, 0, 0), "Blocked", null, null),
+                rows.get(0));
+        assertEquals("TAG,2", rows.get(1).getIdTag());
+        assertEquals("Accepted", rows.get(1).getStatus());
+    }
+
+    @Test
+    void parsesNdjsonAndReportsBadLines() throws Exception {
+        BulkImportResult result = importTags(IdTagBulkService.FORMAT_NDJSON, """
+                {"idTag":"TAG-1","expiryDate":"2030-01-01T00:00:00"}
+
+                {"idTag":"TAG-2","status":"Blocked","parentIdTag":"TAG-1"}
+                {"idTag":"TAG-3",
+                {"idTag":"TAG-4","status":"Unknown"}
+                {"idTag":"TAG-THAT-IS-FAR-TOO-LONG"}
+                {"status":"Accepted"}
+                """);
+
+        assertEquals(6, result.getProcessed());
+        assertEquals(2, result.getUpserted());
+        assertEquals(4, result.getRejected());
+        assertEquals(List.of("Line 4", "Line 5", "Line 6", "Line 7"),
+                result.getErrors().stream().map(error -> error.substring(0, error.indexOf(':'))).toList());
+        assertTrue(result.getErrors().get(1).endsWith("Invalid status: Unknown"), result.getErrors().get(1));
+
+        List<IdTag> rows = upsertedRows().get(0);
+        assertEquals("Accepted", rows.get(0).getStatus());
+        assertEquals(LocalDateTime.of(2030, 1, 1, 0, 0), rows.get(0).getExpiryDate());
+        assertEquals("TAG-1", rows.get(1).getParentIdTag());
+        assertEquals("Blocked", rows.get(1).getStatus());
+    }
+
+    @Test
+    void upsertsInBatchesKeepingTheLastRowOfATagRepeatedInOne() throws Exception {
+        BulkImportResult result = importTags(IdTagBulkService.FORMAT_NDJSON, """
+                {"idTag":"TAG-1"}
+                {"idTag":"TAG-1","status":"Blocked"}
+                {"idTag":"TAG-2"}
+                {"idTag":"TAG-3"}
+                """);
+
+        // A repeat within a batch would make ON CONFLICT touch the same row twice in one statement
+        assertEquals(4, result.getProcessed());
+        assertEquals(3, result.getUpserted());
+        List<List<IdTag>> batches = upsertedRows();
+        assertEquals(List.of(List.of("TAG-1", "TAG-2"), List.of("TAG-3")),
+                batches.stream().map(rows -> rows.stream().map(IdTag::getIdTag).toList()).toList());
+        assertEquals("Blocked", batches.get(0).get(0).getStatus());
+        verify(jdbcTemplate, times(2)).batchUpdate(
+                startsWith("INSERT INTO id_tags"), any(Collection.class), anyInt(), any());
+        verify(authorizationService).invalidate(List.of("TAG-1", "TAG-2"));
+        verify(authorizationService).invalidate(List.of("TAG-3"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void bindsEveryColumnOfTheUpsert() throws Exception {
+        importTags(IdTagBulkService.FORMAT_CSV, "TAG-1,PARENT,2030-01-01T00:00:00,Blocked\n");
+
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<IdTag>> setter =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).batchUpdate(sql.capture(), any(Collection.class), anyInt(), setter.capture());
+        assertTrue(sql.getValue().contains("ON CONFLICT (id_tag) DO UPDATE SET"), sql.getValue());
+
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getValue().setValues(ps, upsertedRows().get(0).get(0));
+        verify(ps).setObject(eq(1), any());
+        verify(ps).setString(2, "TAG-1");
+        verify(ps).setString(3, "PARENT");
+        verify(ps).setTimestamp(4, Timestamp.valueOf(LocalDateTime.of(2030, 1, 1, 0, 0)));
+        verify(ps).setString(5, "Blocked");
+    }
+
+    @Test
+    void exportsPageByPageAfterTheLastTag() throws Exception {
+        Map<String, String> table = new TreeMap<>(Map.of(
+                "A", "Accepted", "B", "Blocked", "C", "Accepted", "D", "Expired", "E", "Accepted"));
+        List<Object> afters = new ArrayList<>();
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            String after = invocation.getArgument(2);
+            int limit = invocation.getArgument(3);
+            afters.add(after);
+            for (Map.Entry<String, String> row : table.entrySet().stream()
+                    .filter(row -> row.getKey().compareTo(after) > 0).limit(limit).toList()) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString(1)).thenReturn(row.getKey());
+                when(rs.getString(4)).thenReturn(row.getValue());
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(), any());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        service.exportTags(output, IdTagBulkService.FORMAT_CSV);
+
+        assertEquals(List.of("", "B", "D", "E"), afters);
+        assertEquals("""
+                idTag,parentIdTag,expiryDate,status
+                A,,,Accepted
+                B,,,Blocked
+                C,,,Accepted
+                D,,,Expired
+                E,,,Accepted
+                """, output.toString(StandardCharsets.UTF_8));
+    }
+
+    private BulkImportResult importTags(String format, String content) throws Exception {
+        return service.importTags(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), format);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<IdTag>> upsertedRows() {
+        ArgumentCaptor<Collection<IdTag>> rows = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(anyString(), rows.capture(), anyInt(), any());
+        return rows.getAllValues().stream().map(batch -> (List<IdTag>) new ArrayList<>(batch)).toList();
+    }
+}
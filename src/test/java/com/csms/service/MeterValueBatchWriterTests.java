@@ -0,0 +1,177 @@
+package com.csms.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MeterValueBatchWriterTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final MeterValueRollupService rollups = mock(MeterValueRollupService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MeterValueBatchWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT increment_by"), eq(Long.class), anyString()))
+                .thenReturn(1000L);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushesFullBatchesAndTheRestAfterTheInterval() {
+        writer = writer(100, 3, 2);
+        writer.start();
+        writer.enqueue(samples(4));
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, timeout(5000).times(2)).batchUpdate(startsWith("INSERT INTO meter_values"),
+                rows.capture(), any(int[].class));
+        assertEquals(List.of(3, 1), rows.getAllValues().stream().map(List::size).toList());
+        verify(rollups, timeout(5000).times(2)).samplesWritten(anyList());
+        assertEquals(4, count("written"));
+    }
+
+    @Test
+    void writesOnTheCallersThreadOnceTheQueueIsFull() throws Exception {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if (Thread.currentThread().getName().equals("meter-value-flusher")) {
+                flushing.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return new int[0];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList(), any(int[].class));
+        writer = writer(2, 1, 2);
+        writer.start();
+
+        // The flusher takes the first sample and hangs on the database
+        writer.enqueue(samples(1));
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+        writer.enqueue(samples(3));
+
+        assertEquals(2, writer.getQueueDepth());
+        assertEquals(1, meterRegistry.get("ocpp.meter.ingest.backpressure").counter().count());
+        assertEquals(1, count("written"));
+
+        release.countDown();
+        verify(jdbcTemplate, timeout(5000).times(4)).batchUpdate(anyString(), anyList(), any(int[].class));
+    }
+
+    @Test
+    void failsTheCallerWhenItsOwnWriteIsRejected() {
+        doThrow(new DataAccessResourceFailureException("connection refused"))
+                .when(jdbcTemplate).batchUpdate(anyString(), anyList(), any(int[].class));
+        // Not started, so the second sample finds the queue full
+        writer = writer(1, 1, 2);
+
+        assertThrows(DataAccessResourceFailureException.class, () -> writer.enqueue(samples(2)));
+        assertEquals(1, writer.getQueueDepth());
+        assertEquals(0, count("failed"));
+        writer = null;
+    }
+
+    @Test
+    void retriesABatchUntilTheDatabaseIsBack() throws Exception {
+        doThrow(new DataAccessResourceFailureException("connection refused"))
+                .doThrow(new QueryTimeoutException("canceling statement due to statement timeout"))
+                .doReturn(new int[0])
+                .when(jdbcTemplate).batchUpdate(anyString(), anyList(), any(int[].class));
+        writer = writer(10, 10, 2);
+
+        writer.flushWithRetries(samples(5));
+
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), anyList(), any(int[].class));
+        verify(rollups).samplesWritten(anyList());
+        assertEquals(2, meterRegistry.get("ocpp.meter.ingest.retries").counter().count());
+        assertEquals(5, count("written"));
+        assertEquals(0, count("failed"));
+        writer = null;
+    }
+
+    @Test
+    void dropsABatchRejectedOutrightOrAfterTheLastRetry() throws Exception {
+        doThrow(new DataIntegrityViolationException("null value in column"))
+                .when(jdbcTemplate).batchUpdate(anyString(), anyList(), any(int[].class));
+        writer = writer(10, 10, 2);
+
+        writer.flushWithRetries(samples(3));
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList(), any(int[].class));
+        assertEquals(3, count("failed"));
+
+        doThrow(new DataAccessResourceFailureException("connection refused"))
+                .when(jdbcTemplate).batchUpdate(anyString(), anyList(), any(int[].class));
+        writer.flushWithRetries(samples(2));
+        // The first attempt and two retries
+        verify(jdbcTemplate, times(4)).batchUpdate(anyString(), anyList(), any(int[].class));
+        assertEquals(5, count("failed"));
+        assertEquals(0, count("written"));
+        verify(rollups, never()).samplesWritten(anyList());
+        writer = null;
+    }
+
+    @Test
+    void retriesOnlyFailuresThatMayPass() {
+        assertTrue(MeterValueBatchWriter.isRetryable(new DataAccessResourceFailureException("connection refused")));
+        assertTrue(MeterValueBatchWriter.isRetryable(new QueryTimeoutException("timeout")));
+        assertFalse(MeterValueBatchWriter.isRetryable(new DataIntegrityViolationException("constraint")));
+        assertFalse(MeterValueBatchWriter.isRetryable(new IllegalStateException("bug")));
+    }
+
+    private MeterValueBatchWriter writer(int queueCapacity, int batchSize, int maxRetries) {
+        return new MeterValueBatchWriter(jdbcTemplate, mock(MeterValueCodes.class), mock(MeterValuePartitions.class),
+                rollups, meterRegistry, queueCapacity, batchSize, 50, 10, maxRetries, 1, 4, 1000);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("ocpp.meter.ingest.samples").tag("result", result).counter().count();
+    }
+
+    private static List<MeterSample> samples(int count) {
+        UUID station = UUID.randomUUID();
+        return IntStream.range(0, count)
+                .mapToObj(i -> new MeterSample(station, 1, 7, LocalDateTime.now(), (double) i,
+                        null, null, "Energy.Active.Import.Register", null, null, "Wh"))
+                .toList();
+    }
+}
@@ -0,0 +1,165 @@
+package com.csms.service;
+
+import com.csms.config.JacksonConfig;
+import com.csms.dto.MeterValueExportQuery;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MeterValueExportServiceTests {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 500_000_000);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final MeterValueCodes codes = mock(MeterValueCodes.class);
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private final MeterValueExportService service = new MeterValueExportService(
+            jdbcTemplate, new JacksonConfig().objectMapper(), codes, new SimpleMeterRegistry(), 2);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenAnswer(invocation ->
+                ((ConnectionCallback<?>) invocation.getArgument(0)).doInConnection(connection));
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        when(statement.executeQuery()).thenAnswer(invocation -> resultSet(List.of(
+                new Object[]{11L, T0, "CP-1", 1, 7, 1250.5, null, null, 3, null, null, 4},
+                new Object[]{12L, T0.plusSeconds(10), "CP-1", 1, 7, null, null, null, 3, null, null, 4},
+                new Object[]{13L, T0.plusSeconds(20), "CP-2", 2, null, 2.0, null, null, 3, null, null, 4})));
+        when(codes.decode(any(ResultSet.class), anyInt())).thenCallRealMethod();
+        when(codes.decode(3)).thenReturn("Energy.Active.Import.Register");
+        when(codes.decode(4)).thenReturn("Wh");
+    }
+
+    @Test
+    void streamsCsvThroughACursorAfterTheResumePoint() throws Exception {
+        MeterValueExportQuery query = query();
+        query.setChargePointId("CP-1");
+        query.setAfter("2024-05-01T12:00:00.5,10");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        service.export(query, MeterValueExportService.FORMAT_CSV, output);
+
+        assertEquals("""
+                id,timestamp,chargePointId,connectorId,transactionId,value,measurand,phase,unit,context,format,location
+                11,2024-05-01T12:00:00.500,CP-1,1,7,1250.5,Energy.Active.Import.Register,,Wh,,,
+                12,2024-05-01T12:00:10.500,CP-1,1,7,,Energy.Active.Import.Register,,Wh,,,
+                13,2024-05-01T12:00:20.500,CP-2,2,,2.0,Energy.Active.Import.Register,,Wh,,,
+                """, output.toString(StandardCharsets.UTF_8));
+        verify(statement).setFetchSize(2);
+        verify(connection).setAutoCommit(false);
+        verify(connection).setAutoCommit(true);
+        verify(connection).prepareStatement(eq("SELECT v.id, v.timestamp, cs.charge_point_id, v.connector_id, " +
+                "v.transaction_id, v.meter_value, v.context, v.format, v.measurand, v.phase, v.location, v.unit " +
+                "FROM meter_values v LEFT JOIN charging_stations cs ON cs.id = v.charging_station_id " +
+                "WHERE v.timestamp >= ? AND v.timestamp < ? " +
+                "AND v.charging_station_id = (SELECT id FROM charging_stations WHERE charge_point_id = ?) " +
+                "AND (v.timestamp, v.id) > (?, ?) ORDER BY v.timestamp, v.id"), anyInt(), anyInt());
+        verify(statement).setObject(4, Timestamp.valueOf(T0));
+        verify(statement).setObject(5, 10L);
+    }
+
+    @Test
+    void writesColumnarBlocksWithGrowingDictionaries() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        service.export(query(), MeterValueExportService.FORMAT_COLUMNAR, output);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(output.toByteArray()));
+        byte[] magic = new byte[5];
+        in.readFully(magic);
+        assertArrayEquals(new byte[]{'O', 'C', 'M', 'V', 1}, magic);
+
+        // First block: two rows, both codes and one charge point are new
+        assertEquals(2, in.readUnsignedByte());
+        assertEquals(2, in.readUnsignedByte());
+        assertEquals(3, in.readUnsignedByte());
+        assertEquals("Energy.Active.Import.Register", in.readUTF());
+        assertEquals(4, in.readUnsignedByte());
+        assertEquals("Wh", in.readUTF());
+        assertEquals(1, in.readUnsignedByte());
+        assertEquals("CP-1", in.readUTF());
+
+        byte[] rest = in.readAllBytes();
+        // The second block holds one row and only the new charge point, and a zero ends the stream
+        assertEquals(0, rest[rest.length - 1]);
+        assertTrue(new String(rest, StandardCharsets.UTF_8).contains("CP-2"));
+    }
+
+    @Test
+    void rejectsIncompleteRequestsBeforeStreaming() {
+        MeterValueExportQuery query = query();
+        assertThrows(IllegalArgumentException.class, () -> service.validate(query, "parquet"));
+        query.setAfter("yesterday");
+        assertThrows(IllegalArgumentException.class, () -> service.validate(query, "csv"));
+        query.setAfter(null);
+        query.setTo(null);
+        assertThrows(IllegalArgumentException.class, () -> service.validate(query, "csv"));
+    }
+
+    private static MeterValueExportQuery query() {
+        MeterValueExportQuery query = new MeterValueExportQuery();
+        query.setFrom(LocalDateTime.of(2024, 5, 1, 0, 0));
+        query.setTo(LocalDateTime.of(2024, 5, 2, 0, 0));
+        return query;
+    }
+
+    /**
+     * A forward-only result set over the given rows, columns as in the export query.
+     */
+    private static ResultSet resultSet(List<Object[]> rows) {
+        int[] row = {-1};
+        Object[] last = {null};
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++row[0] < rows.size();
+                        case "wasNull":
+                            return last[0] == null;
+                        case "close":
+                            return null;
+                        default:
+                            break;
+                    }
+                    Object value = rows.get(row[0])[(Integer) args[0] - 1];
+                    last[0] = value;
+                    return switch (method.getName()) {
+                        case "getLong" -> value;
+                        case "getString" -> value;
+                        case "getTimestamp" -> Timestamp.valueOf((LocalDateTime) value);
+                        case "getDouble" -> value == null ? 0.0 : value;
+                        case "getInt" -> value == null ? 0 : value;
+                        case "getObject" -> value;
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                });
+    }
+}
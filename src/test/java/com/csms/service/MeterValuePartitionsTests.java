@@ -0,0 +1,53 @@
+package com.csms.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class MeterValuePartitionsTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MeterValuePartitions partitions = new MeterValuePartitions(jdbcTemplate, meterRegistry, 7, 14, 0);
+
+    @Test
+    void createsEpochAlignedPartitionsOnlyForUncoveredSamples() {
+        partitions.ensureCovered(List.of(
+                LocalDateTime.of(2024, 5, 1, 23, 59),
+                LocalDateTime.of(2024, 4, 25, 0, 0),
+                LocalDateTime.of(2024, 5, 2, 0, 0),
+                LocalDateTime.of(2024, 4, 30, 12, 0)));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, times(2)).execute(sql.capture());
+        assertEquals("CREATE TABLE IF NOT EXISTS meter_values_p20240425 PARTITION OF meter_values " +
+                "FOR VALUES FROM ('2024-04-25 00:00:00') TO ('2024-05-02 00:00:00')", sql.getAllValues().get(0));
+        assertEquals("CREATE TABLE IF NOT EXISTS meter_values_p20240502 PARTITION OF meter_values " +
+                "FOR VALUES FROM ('2024-05-02 00:00:00') TO ('2024-05-09 00:00:00')", sql.getAllValues().get(1));
+        assertEquals(2, meterRegistry.get("ocpp.meter.partitions.attached").gauge().value());
+    }
+
+    @Test
+    void detachesPartitionsThatEndBeforeTheRetention() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MeterValuePartitions retained = new MeterValuePartitions(jdbcTemplate, registry, 7, 0, 30);
+        retained.ensureCovered(List.of(LocalDateTime.now().minusDays(60), LocalDateTime.now()));
+
+        retained.maintain();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, times(3)).execute(sql.capture());
+        assertTrue(sql.getAllValues().get(2).startsWith("ALTER TABLE meter_values DETACH PARTITION meter_values_p"));
+        assertEquals(1, registry.get("ocpp.meter.partitions").tag("action", "detached").counter().count());
+    }
+}
@@ -0,0 +1,73 @@
+package com.csms.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class MeterValueRollupServiceTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final MeterValueRollupService service = new MeterValueRollupService(
+            jdbcTemplate, mock(MeterValueCodes.class), new SimpleMeterRegistry(), 1500, 60, 0, 14, 180, 0);
+
+    @Test
+    void picksTheFinestTierThatFitsTheRange() {
+        LocalDateTime to = LocalDateTime.now();
+        assertEquals("raw", service.resolve("auto", to.minusMinutes(30), to));
+        assertEquals("1m", service.resolve("auto", to.minusHours(12), to));
+        assertEquals("15m", service.resolve("auto", to.minusDays(7), to));
+        assertEquals("1h", service.resolve("auto", to.minusDays(60), to));
+        // Minute buckets of a short range that is past their retention
+        assertEquals("15m", service.resolve("auto", to.minusDays(20), to.minusDays(20).plusHours(2)));
+        assertEquals("1m", service.resolve("1m", to.minusDays(60), to));
+        assertThrows(IllegalArgumentException.class, () -> service.resolve("5m", to.minusDays(1), to));
+    }
+
+    @Test
+    void rollsUpTheWrittenMinutesOfEachConnectorThroughEveryTier() {
+        UUID station = UUID.randomUUID();
+        LocalDateTime base = LocalDateTime.now().withHour(10).withMinute(14).withSecond(0).withNano(0);
+        service.samplesWritten(List.of(
+                sample(station, base.plusSeconds(30)),
+                sample(station, base.plusMinutes(2).plusSeconds(5))));
+
+        service.rollUp();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate, times(3)).update(sql.capture(), args.capture());
+        assertTrue(sql.getAllValues().get(0).startsWith("INSERT INTO meter_value_rollups_1m"));
+        assertTrue(sql.getAllValues().get(0).contains("FROM meter_values WHERE charging_station_id = ?"));
+        assertTrue(sql.getAllValues().get(2).contains("FROM meter_value_rollups_15m WHERE"));
+
+        LocalDateTime hour = base.withMinute(0);
+        assertArrayEquals(new Object[]{station, 1, Timestamp.valueOf(base), Timestamp.valueOf(base.plusMinutes(3))},
+                args.getAllValues().get(0));
+        assertArrayEquals(new Object[]{station, 1, Timestamp.valueOf(hour), Timestamp.valueOf(hour.plusMinutes(30))},
+                args.getAllValues().get(1));
+        assertArrayEquals(new Object[]{station, 1, Timestamp.valueOf(hour), Timestamp.valueOf(hour.plusHours(1))},
+                args.getAllValues().get(2));
+
+        service.rollUp();
+        verify(jdbcTemplate, times(3)).update(sql.capture(), args.capture());
+    }
+
+    private static MeterSample sample(UUID station, LocalDateTime timestamp) {
+        return new MeterSample(station, 1, 7, timestamp, 100.0, null, null,
+                "Energy.Active.Import.Register", null, null, "Wh");
+    }
+}
@@ -0,0 +1,220 @@
+package com.csms.service;
+
+import com.csms.config.JacksonConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OcppMessageJournalTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path spillDir;
+
+    @BeforeEach
+    void setUp() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT increment_by"), eq(Long.class), anyString()))
+                .thenReturn(1000L);
+    }
+
+    @Test
+    void pairsRepliesWithTheActionOfTheirCall() throws Exception {
+        OcppMessageJournal journal = journal(OcppMessageJournal.OVERFLOW_DROP_OLDEST, 100);
+        journal.start();
+        journal.inbound("CP-1", "[2,\"m1\",\"BootNotification\",{\"chargePointVendor\":\"V\"}]");
+        journal.outbound("CP-1", "[3,\"m1\",{\"status\":\"Accepted\"}]");
+        journal.outbound("CP-1", "[2,\"r1\",\"Reset\",{\"type\":\"Soft\"}]");
+        journal.inbound("CP-1", "[4,\"r1\",\"NotSupported\",\"No reset\",{}]");
+        journal.inbound("CP-1", "not json");
+        journal.stop();
+
+        List<Object[]> rows = writtenRows(1);
+        assertEquals(5, rows.size());
+        assertRow(rows.get(0), 2, "IN", "m1", "BootNotification", null, "{\"chargePointVendor\":\"V\"}");
+        assertRow(rows.get(1), 3, "OUT", "m1", "BootNotification", null, "{\"status\":\"Accepted\"}");
+        assertRow(rows.get(2), 2, "OUT", "r1", "Reset", null, "{\"type\":\"Soft\"}");
+        assertRow(rows.get(3), 4, "IN", "r1", "Reset", "NotSupported", "{}");
+        assertRow(rows.get(4), 0, "IN", null, null, null, "\"not json\"");
+        assertEquals("No reset", rows.get(3)[8]);
+    }
+
+    @Test
+    void spillsRejectedBatchesAndReplaysThemWhenTheDatabaseRecovers() throws Exception {
+        doThrow(new DataAccessResourceFailureException("connection refused"))
+                .doReturn(new int[0])
+                .when(jdbcTemplate).batchUpdate(anyString(), anyList(), any(int[].class));
+        OcppMessageJournal journal = journal(OcppMessageJournal.OVERFLOW_SPILL, 2);
+        journal.start();
+        journal.inbound("CP-1", "[2,\"m1\",\"Heartbeat\",{}]");
+        journal.inbound("CP-1", "[2,\"m2\",\"Heartbeat\",{}]");
+
+        verify(jdbcTemplate, timeout(5000).times(2)).batchUpdate(anyString(), anyList(), any(int[].class));
+        journal.stop();
+
+        List<Object[]> replayed = writtenRows(2).subList(2, 4);
+        assertEquals("m1", replayed.get(0)[5]);
+        assertEquals("m2", replayed.get(1)[5]);
+        assertEquals(2, meterRegistry.get("ocpp.journal.frames").tag("result", "spilled").counter().count());
+        assertEquals(2, meterRegistry.get("ocpp.journal.frames").tag("result", "written").counter().count());
+        try (Stream<Path> files = Files.list(spillDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void leavesSpillingAFullRingToTheWriter() throws Exception {
+        CountDownLatch inserting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            inserting.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new int[0];
+        }).doReturn(new int[0]).when(jdbcTemplate).batchUpdate(anyString(), anyList(), any(int[].class));
+        OcppMessageJournal journal = journal(OcppMessageJournal.OVERFLOW_SPILL, 2);
+        journal.start();
+        journal.inbound("CP-1", "[2,\"m0\",\"Heartbeat\",{}]");
+        journal.inbound("CP-1", "[2,\"m1\",\"Heartbeat\",{}]");
+        assertTrue(inserting.await(5, TimeUnit.SECONDS));
+
+        // 16 fill the ring, 16 the overflow handed to the writer, the rest are dropped
+        for (int i = 2; i < 38; i++) {
+            journal.inbound("CP-1", "[2,\"m" + i + "\",\"Heartbeat\",{}]");
+        }
+        assertEquals(4, meterRegistry.get("ocpp.journal.frames").tag("result", "dropped").counter().count());
+        try (Stream<Path> files = Files.list(spillDir)) {
+            assertEquals(0, files.count());
+        }
+
+        release.countDown();
+        verify(jdbcTemplate, timeout(5000).times(17)).batchUpdate(anyString(), anyList(), any(int[].class));
+        journal.stop();
+        assertEquals(16, meterRegistry.get("ocpp.journal.frames").tag("result", "spilled").counter().count());
+        assertEquals(34, meterRegistry.get("ocpp.journal.frames").tag("result", "written").counter().count());
+    }
+
+    @Test
+    void ringBufferHandsOutElementsInOrderAcrossLaps() {
+        RingBuffer<Integer> ring = new RingBuffer<>(3);
+        assertEquals(4, ring.capacity());
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(ring.offer(lap * 4 + i));
+            }
+            assertFalse(ring.offer(-1));
+            assertEquals(4, ring.size());
+            List<Integer> drained = new ArrayList<>();
+            ring.drainTo(drained, 10);
+            assertEquals(List.of(lap * 4, lap * 4 + 1, lap * 4 + 2, lap * 4 + 3), drained);
+            assertNull(ring.poll());
+        }
+    }
+
+    @Test
+    void ringBufferLosesNothingUnderConcurrentProducers() throws Exception {
+        RingBuffer<Integer> ring = new RingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        Set<Integer> seen = new HashSet<>();
+        int[] lastByProducer = new int[producers];
+        Arrays.fill(lastByProducer, -1);
+        while (seen.size() < producers * perProducer) {
+            Integer value = ring.poll();
+            if (value == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            assertTrue(seen.add(value));
+            // Each producer's elements come out in the order it offered them
+            int producer = value / perProducer;
+            assertTrue(value % perProducer > lastByProducer[producer]);
+            lastByProducer[producer] = value % perProducer;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(ring.isEmpty());
+    }
+
+    /**
+     * A journal that only writes full batches until it is stopped.
+     */
+    private OcppMessageJournal journal(String overflow, int batchSize) {
+        return new OcppMessageJournal(jdbcTemplate, new JacksonConfig().objectMapper(),
+                mock(OcppMessagePartitions.class), meterRegistry, true, 16, batchSize, 60_000, overflow,
+                spillDir.toString(), 1000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> writtenRows(int batches) {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(batches)).batchUpdate(anyString(), rows.capture(), any(int[].class));
+        return rows.getAllValues().stream().flatMap(List::stream).toList();
+    }
+
+    private static void assertRow(Object[] row, int type, String direction, String uniqueId, String action,
+                                  String errorCode, String payload) {
+        assertEquals(type, row[2]);
+        assertEquals(direction, row[3]);
+        assertEquals("CP-1", row[4]);
+        assertEquals(uniqueId, row[5]);
+        assertEquals(action, row[6]);
+        assertEquals(errorCode, row[7]);
+        assertEquals(payload, row[9]);
+    }
+}
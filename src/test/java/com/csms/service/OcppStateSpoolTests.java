@@ -0,0 +1,259 @@
+package com.csms.service;
+
+import com.csms.config.JacksonConfig;
+import com.csms.dto.ocpp.MeterValuesRequest;
+import com.csms.dto.ocpp.StartTransactionRequest;
+import com.csms.dto.ocpp.StatusNotificationRequest;
+import com.csms.dto.ocpp.StopTransactionRequest;
+import com.csms.service.ChargingStationRegistry.StationEntry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OcppStateSpoolTests {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final ChargingStationRegistry registry = mock(ChargingStationRegistry.class);
+    private final ChargingStationService chargingStationService = mock(ChargingStationService.class);
+    private final TransactionService transactionService = mock(TransactionService.class);
+    private final MeterValueBatchWriter batchWriter = mock(MeterValueBatchWriter.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StationEntry station = new StationEntry(UUID.randomUUID(), "CP-1", "Accepted");
+
+    @TempDir
+    Path dir;
+
+    private OcppStateSpool spool;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (spool != null) {
+            spool.stop();
+        }
+    }
+
+    @Test
+    void logRollsSegmentsAndResumesAfterATornTail() throws Exception {
+        try (WriteAheadLog wal = new WriteAheadLog(dir, 256, 1000)) {
+            for (int i = 1; i <= 20; i++) {
+                assertEquals(i, wal.append(body(i)));
+            }
+            assertTrue(wal.getSegmentCount() > 1);
+            assertBodies(wal, 0, 20);
+        }
+
+        // A record whose body never made it to disk
+        Path last;
+        try (Stream<Path> files = Files.list(dir)) {
+            last = files.filter(path -> path.toString().endsWith(".seg")).sorted().reduce((a, b) -> b).orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long end = 0;
+            ByteBuffer length = ByteBuffer.allocate(4);
+            while (channel.read(length.clear(), end) == 4 && length.getInt(0) > 0) {
+                end += WriteAheadLog.HEADER_BYTES + length.getInt(0);
+            }
+            channel.write(ByteBuffer.allocate(WriteAheadLog.HEADER_BYTES).putInt(8).putInt(0).putLong(21).flip(), end);
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir, 256, 1000)) {
+            assertEquals(20, wal.getDurableSequence());
+            assertEquals(21, wal.append(body(21)));
+            assertBodies(wal, 18, 21);
+
+            wal.truncate(20);
+            assertEquals(1, wal.getSegmentCount());
+            assertBodies(wal, 20, 21);
+        }
+    }
+
+    @Test
+    void appliesSpooledRecordsInOrderAndMovesTheCheckpoint() throws Exception {
+        when(registry.get("CP-1")).thenReturn(Optional.of(station));
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        spool = spool(100);
+
+        spool.append(OcppStateSpool.START_TRANSACTION, "CP-1", 7, start());
+        spool.append(OcppStateSpool.METER_VALUES, "CP-1", null, meterValues());
+        spool.append(OcppStateSpool.STOP_TRANSACTION, "CP-1", null, stop());
+
+        verify(jdbcTemplate, timeout(5000)).update(anyString(), anyString(), eq(3L));
+        InOrder order = inOrder(transactionService);
+        order.verify(transactionService).recordStartedTransaction(station, 7, 1, "TAG-1", 100, T0);
+        order.verify(transactionService).stopTransaction(station, 7, null, 900, T0.plusHours(1), "Local");
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<MeterSample>> samples = ArgumentCaptor.forClass(List.class);
+        verify(batchWriter, atLeastOnce()).write(samples.capture());
+        List<MeterSample> written = samples.getAllValues().stream().flatMap(List::stream).toList();
+        assertEquals(1, written.size());
+        assertEquals(450.0, written.get(0).getMeterValue());
+        assertEquals(7, written.get(0).getTransactionId());
+        assertEquals(T0.plusMinutes(30), written.get(0).getTimestamp());
+        assertEquals(0, spool.getBacklog());
+    }
+
+    @Test
+    void retriesWhileTheDatabaseIsUnreachable() throws Exception {
+        when(registry.get("CP-1")).thenReturn(Optional.of(station));
+        when(transactionManager.getTransaction(any()))
+                .thenThrow(new CannotCreateTransactionException("connection refused"))
+                .thenThrow(new CannotCreateTransactionException("connection refused"))
+                .thenAnswer(invocation -> new SimpleTransactionStatus());
+        spool = spool(100);
+
+        spool.append(OcppStateSpool.STATUS_NOTIFICATION, "CP-1", null, status(1));
+
+        verify(jdbcTemplate, timeout(5000)).update(anyString(), anyString(), eq(1L));
+        verify(chargingStationService, times(1)).updateConnectorStatus(station, 1, "Charging", "NoError", null, null, null);
+        assertEquals(1, meterRegistry.get("ocpp.spool.records").tag("result", "applied").counter().count());
+    }
+
+    @Test
+    void skipsARecordTheDatabaseRejectsAndKeepsGoing() throws Exception {
+        when(registry.get("CP-1")).thenReturn(Optional.of(station));
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        doThrow(new DataIntegrityViolationException("bad connector"))
+                .when(chargingStationService).updateConnectorStatus(station, 2, "Charging", "NoError", null, null, null);
+        when(registry.get("CP-404")).thenReturn(Optional.empty());
+        spool = spool(100);
+
+        spool.append(OcppStateSpool.STATUS_NOTIFICATION, "CP-1", null, status(1));
+        spool.append(OcppStateSpool.STATUS_NOTIFICATION, "CP-1", null, status(2));
+        spool.append(OcppStateSpool.STATUS_NOTIFICATION, "CP-404", null, status(3));
+        spool.append(OcppStateSpool.STATUS_NOTIFICATION, "CP-1", null, status(4));
+
+        verify(jdbcTemplate, timeout(5000)).update(anyString(), anyString(), eq(4L));
+        verify(chargingStationService).updateConnectorStatus(station, 4, "Charging", "NoError", null, null, null);
+        assertEquals(2, meterRegistry.get("ocpp.spool.records").tag("result", "applied").counter().count());
+        assertEquals(1, meterRegistry.get("ocpp.spool.records").tag("result", "skipped").counter().count());
+        assertEquals(1, meterRegistry.get("ocpp.spool.records").tag("result", "failed").counter().count());
+    }
+
+    @Test
+    void writesTheConnectorWithTheCheckpointAndCountsRejectedStatuses() throws Exception {
+        when(registry.get("CP-1")).thenReturn(Optional.of(station));
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(chargingStationService.updateConnectorStatus(station, 1, "Charging", "NoError", null, null, null))
+                .thenReturn(ConnectorStateMachine.Outcome.APPLIED);
+        when(chargingStationService.updateConnectorStatus(station, 2, "Charging", "NoError", null, null, null))
+                .thenReturn(ConnectorStateMachine.Outcome.REJECTED);
+        spool = spool(100);
+
+        spool.append(OcppStateSpool.STATUS_NOTIFICATION, "CP-1", null, status(1));
+        spool.append(OcppStateSpool.STATUS_NOTIFICATION, "CP-1", null, status(2));
+
+        verify(jdbcTemplate, timeout(5000)).update(anyString(), anyString(), eq(2L));
+        InOrder order = inOrder(chargingStationService, jdbcTemplate);
+        order.verify(chargingStationService).saveConnector(station, 1);
+        order.verify(chargingStationService).saveConnector(station, 2);
+        order.verify(jdbcTemplate).update(anyString(), anyString(), eq(2L));
+        assertEquals(1, meterRegistry.get("ocpp.spool.records").tag("result", "applied").counter().count());
+        assertEquals(1, meterRegistry.get("ocpp.spool.records").tag("result", "rejected").counter().count());
+    }
+
+    private OcppStateSpool spool(int applyBatchSize) {
+        OcppStateSpool spool = new OcppStateSpool(new JacksonConfig().objectMapper(), jdbcTemplate,
+                transactionManager, registry, chargingStationService, transactionService,
+                new MeterValueService(batchWriter), batchWriter, mock(AuthorizationService.class), meterRegistry,
+                true, dir.toString(), 1 << 20, 1000, applyBatchSize, 10);
+        spool.start();
+        return spool;
+    }
+
+    private static byte[] body(int i) {
+        return ("record-" + i + "-" + "x".repeat(i % 7)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void assertBodies(WriteAheadLog wal, int after, int last) throws Exception {
+        try (WriteAheadLog.Cursor cursor = wal.cursor(after)) {
+            List<WriteAheadLog.Record> records = cursor.next(100);
+            assertEquals(last - after, records.size());
+            for (int i = 0; i < records.size(); i++) {
+                WriteAheadLog.Record record = records.get(i);
+                int expected = after + 1 + i;
+                assertEquals(expected, record.sequence());
+                assertEquals(new String(body(expected), StandardCharsets.UTF_8),
+                        new String(record.body(), StandardCharsets.UTF_8));
+            }
+            assertTrue(cursor.next(100).isEmpty());
+        }
+    }
+
+    private static StartTransactionRequest start() {
+        StartTransactionRequest request = new StartTransactionRequest();
+        request.setConnectorId(1);
+        request.setIdTag("TAG-1");
+        request.setMeterStart(100);
+        request.setTimestamp(T0);
+        return request;
+    }
+
+    private static MeterValuesRequest meterValues() {
+        StopTransactionRequest.MeterValue.SampledValue sampledValue = new StopTransactionRequest.MeterValue.SampledValue();
+        sampledValue.setValue("450");
+        sampledValue.setMeasurand("Energy.Active.Import.Register");
+        StopTransactionRequest.MeterValue meterValue = new StopTransactionRequest.MeterValue();
+        meterValue.setTimestamp(T0.plusMinutes(30));
+        meterValue.setSampledValue(List.of(sampledValue));
+        MeterValuesRequest request = new MeterValuesRequest();
+        request.setConnectorId(1);
+        request.setTransactionId(7);
+        request.setMeterValue(List.of(meterValue));
+        return request;
+    }
+
+    private static StopTransactionRequest stop() {
+        StopTransactionRequest request = new StopTransactionRequest();
+        request.setTransactionId(7);
+        request.setMeterStop(900);
+        request.setTimestamp(T0.plusHours(1));
+        request.setReason("Local");
+        return request;
+    }
+
+    private static StatusNotificationRequest status(int connectorId) {
+        StatusNotificationRequest request = new StatusNotificationRequest();
+        request.setConnectorId(connectorId);
+        request.setStatus("Charging");
+        request.setErrorCode("NoError");
+        return request;
+    }
+}
@@ -0,0 +1,75 @@
+package com.csms.service;
+
+import com.csms.config.JacksonConfig;
+import com.csms.dto.ocpp.ChangeConfigurationRequest;
+import com.csms.dto.ocpp.ChangeConfigurationResponse;
+import com.csms.scheduler.StationOfflineDetector;
+import com.csms.websocket.OcppCallCorrelator;
+import com.csms.websocket.OcppSessionRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RemoteCommandServiceTests {
+
+    private final ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+    private final OcppCallCorrelator callCorrelator = mock(OcppCallCorrelator.class);
+    private final OcppSessionRegistry sessionRegistry = mock(OcppSessionRegistry.class);
+    private final StationOfflineDetector stationOfflineDetector = mock(StationOfflineDetector.class);
+    private final RemoteCommandService service = new RemoteCommandService(callCorrelator,
+            mock(IdAllocationService.class), sessionRegistry, mock(StationOwnershipRegistry.class),
+            new ClusterCommandForwarder(objectMapper, new SimpleMeterRegistry(), false, "", 30, 2000),
+            objectMapper, mock(ChargingStationRegistry.class), mock(ConfigurationService.class),
+            stationOfflineDetector);
+
+    @Test
+    void forwardsOnlyTheCommandsItSendsItself() throws Exception {
+        when(callCorrelator.call(anyString(), anyString(), any(), eq(JsonNode.class)))
+                .thenReturn(new CompletableFuture<>());
+        service.sendForwardedCommand("CP-1", "ChangeConfiguration",
+                objectMapper.readTree("{\"key\":\"HeartbeatInterval\",\"value\":\"60\"}"));
+        verify(callCorrelator).call(eq("CP-1"), eq("ChangeConfiguration"),
+                eq(new ChangeConfigurationRequest("HeartbeatInterval", "60")), eq(JsonNode.class));
+
+        assertThrows(IllegalArgumentException.class, () -> service.sendForwardedCommand("CP-1", "UpdateFirmware",
+                objectMapper.readTree("{\"location\":\"http://example.com/fw.bin\"}")));
+        assertThrows(IllegalArgumentException.class, () -> service.sendForwardedCommand("CP-1", "Reset",
+                objectMapper.readTree("[1]")));
+        verify(callCorrelator, never()).call(anyString(), eq("UpdateFirmware"), any(), any());
+    }
+
+    @Test
+    void rearmsTheOfflineDeadlineOnceTheStationTakesANewHeartbeatInterval() throws Exception {
+        when(callCorrelator.call(eq("CP-1"), eq("ChangeConfiguration"), any(), eq(JsonNode.class)))
+                .thenReturn(CompletableFuture.completedFuture(objectMapper.readTree("{\"status\":\"Accepted\"}")));
+        when(callCorrelator.call(eq("CP-2"), eq("ChangeConfiguration"), any(), eq(ChangeConfigurationResponse.class)))
+                .thenReturn(CompletableFuture.completedFuture(new ChangeConfigurationResponse("Rejected")));
+        when(sessionRegistry.isConnected("CP-2")).thenReturn(true);
+
+        service.sendForwardedCommand("CP-1", "ChangeConfiguration",
+                objectMapper.readTree("{\"key\":\"HeartbeatInterval\",\"value\":\"60\"}"));
+        service.sendChangeConfiguration("CP-2", "HeartbeatInterval", "90");
+
+        verify(stationOfflineDetector).setHeartbeatInterval("CP-1", 60);
+        verify(stationOfflineDetector, never()).setHeartbeatInterval(eq("CP-2"), anyInt());
+    }
+
+    @Test
+    void refusesToStartAClusterNodeWithoutASecret() {
+        assertThrows(IllegalStateException.class,
+                () -> new ClusterCommandForwarder(objectMapper, new SimpleMeterRegistry(), true, " ", 30, 2000));
+    }
+}
@@ -0,0 +1,42 @@
+package com.csms.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SequenceIdAllocatorTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @Test
+    void usesTheIncrementOfAnExistingSequenceAsTheBlockSize() {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT increment_by"), eq(Long.class), eq("test_seq")))
+                .thenReturn(50L);
+        when(jdbcTemplate.queryForObject("SELECT nextval('test_seq')", Long.class)).thenReturn(1L, 51L);
+        SequenceIdAllocator allocator = new SequenceIdAllocator(jdbcTemplate, "test_seq", 1000);
+
+        allocator.create();
+
+        assertEquals(50, allocator.getBlockSize());
+        for (long expected = 1; expected <= 50; expected++) {
+            assertEquals(expected, allocator.nextId());
+        }
+        // Block [1, 51) is used up, so the next id comes from the next nextval
+        assertEquals(51, allocator.nextId());
+    }
+
+    @Test
+    void refusesASequenceThatCountsDown() {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT increment_by"), eq(Long.class), eq("test_seq")))
+                .thenReturn(-1L);
+        SequenceIdAllocator allocator = new SequenceIdAllocator(jdbcTemplate, "test_seq", 1000);
+
+        assertThrows(IllegalStateException.class, allocator::create);
+    }
+}
@@ -0,0 +1,156 @@
+package com.csms.service;
+
+import com.csms.event.IdTagsChangedEvent;
+import com.csms.event.StationConnectedEvent;
+import com.csms.event.StationDisconnectedEvent;
+import com.csms.websocket.OcppSessionRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.Answer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StationOwnershipRegistryTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final OcppSessionRegistry sessionRegistry = mock(OcppSessionRegistry.class);
+    private final StationLivenessTracker stationLivenessTracker = mock(StationLivenessTracker.class);
+    private final AuthorizationService authorizationService = mock(AuthorizationService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StationOwnershipRegistry registry = new StationOwnershipRegistry(jdbcTemplate,
+            mock(DataSource.class), new ObjectMapper(), sessionRegistry, mock(ChargingStationRegistry.class),
+            mock(ConnectorStateMachine.class), stationLivenessTracker, authorizationService, meterRegistry,
+            true, "node-a", "http://node-a", 15000, 1000);
+
+    @Test
+    void aNewerClaimOnAnotherNodeClosesTheLocalConnection() {
+        claimsReturn(Map.entry("CP-1", 5L));
+        registry.onStationConnected(new StationConnectedEvent("CP-1"));
+        registry.flush();
+
+        // Older than ours, so nothing happens
+        registry.onNotification("{\"node\":\"node-b\",\"claimed\":{\"CP-1\":3},\"released\":{},\"left\":false}");
+        verify(sessionRegistry, never()).evict(anyString(), anyString());
+
+        registry.onNotification("{\"node\":\"node-b\",\"claimed\":{\"CP-1\":7},\"released\":{},\"left\":false}");
+        verify(sessionRegistry).evict(eq("CP-1"), anyString());
+        assertEquals(1, meterRegistry.get("ocpp.cluster.claims").tag("result", "won").counter().count());
+    }
+
+    @Test
+    void aLostClaimClosesTheLocalConnection() {
+        claimsReturn();
+        registry.onStationConnected(new StationConnectedEvent("CP-1"));
+        registry.flush();
+
+        verify(sessionRegistry).evict(eq("CP-1"), anyString());
+        assertEquals(1, meterRegistry.get("ocpp.cluster.claims").tag("result", "lost").counter().count());
+    }
+
+    @Test
+    void releasesTheClaimOfAStationThatDisconnectedWhileItWasWritten() {
+        claimsAnswer(invocation -> {
+            registry.onStationDisconnected(new StationDisconnectedEvent("CP-1"));
+            return List.of(Map.entry("CP-1", 5L));
+        });
+        registry.onStationConnected(new StationConnectedEvent("CP-1"));
+        registry.flush();
+        registry.flush();
+
+        verify(jdbcTemplate).update(startsWith("DELETE FROM station_sessions"), eq("{\"CP-1\"}"), eq("{\"5\"}"));
+        verify(sessionRegistry, never()).evict(anyString(), anyString());
+    }
+
+    @Test
+    void tracksStationsConnectedToOtherNodesFromTheirAnnouncements() {
+        registry.onNotification("{\"node\":\"node-b\",\"claimed\":{\"CP-2\":4},\"released\":{},\"left\":false}");
+        when(jdbcTemplate.queryForList(startsWith("SELECT url FROM cluster_nodes"), eq(String.class), any(), any()))
+                .thenReturn(List.of("http://node-b"));
+
+        assertTrue(registry.isConnected("CP-2"));
+        assertEquals(new StationOwnershipRegistry.ClusterNode("node-b", "http://node-b"),
+                registry.findOwner("CP-2").orElseThrow());
+        verify(stationLivenessTracker).forget("CP-2");
+
+        // A release of an earlier connection leaves the current one alone
+        registry.onNotification("{\"node\":\"node-b\",\"claimed\":{},\"released\":{\"CP-2\":2},\"left\":false}");
+        assertTrue(registry.isConnected("CP-2"));
+        registry.onNotification("{\"node\":\"node-b\",\"claimed\":{},\"released\":{\"CP-2\":4},\"left\":false}");
+        assertFalse(registry.isConnected("CP-2"));
+
+        registry.onNotification("{\"node\":\"node-b\",\"claimed\":{\"CP-3\":6},\"released\":{},\"left\":false}");
+        registry.onNotification("{\"node\":\"node-b\",\"claimed\":{},\"released\":{},\"left\":true}");
+        assertFalse(registry.isConnected("CP-3"));
+    }
+
+    @Test
+    void dropsCachedAuthorizationsOfTagsChangedOnAnyNode() {
+        registry.onIdTagsChanged(new IdTagsChangedEvent(List.of("TAG-1", "TAG-2")));
+        verify(jdbcTemplate).queryForList("SELECT pg_notify(?, ?)", StationOwnershipRegistry.CHANNEL,
+                "{\"node\":\"node-a\",\"idTags\":[\"TAG-1\",\"TAG-2\"]}");
+
+        // Its own announcement comes back too, and was already applied locally
+        registry.onNotification("{\"node\":\"node-a\",\"idTags\":[\"TAG-1\",\"TAG-2\"]}");
+        verify(authorizationService, never()).evict(any());
+
+        registry.onNotification("{\"node\":\"node-b\",\"idTags\":[\"TAG-3\"]}");
+        verify(authorizationService).evict(List.of("TAG-3"));
+        verify(sessionRegistry, never()).evict(anyString(), anyString());
+    }
+
+    @Test
+    void splitsLargeInvalidationsToFitANotification() {
+        List<String> idTags = IntStream.range(0, 1000).mapToObj(i -> "TAG-" + "x".repeat(10) + i).toList();
+        registry.onIdTagsChanged(new IdTagsChangedEvent(idTags));
+
+        ArgumentCaptor<Object> payloads = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate, atLeast(2)).queryForList(eq("SELECT pg_notify(?, ?)"),
+                eq(StationOwnershipRegistry.CHANNEL), payloads.capture());
+        List<String> announced = new ArrayList<>();
+        for (Object payload : payloads.getAllValues()) {
+            assertTrue(payload.toString().length() < 8000);
+            registry.onNotification(payload.toString().replace("node-a", "node-b"));
+        }
+        ArgumentCaptor<List<String>> evicted = ArgumentCaptor.captor();
+        verify(authorizationService, atLeast(2)).evict(evicted.capture());
+        evicted.getAllValues().forEach(announced::addAll);
+        assertEquals(idTags, announced);
+    }
+
+    @Test
+    void quotesArrayLiterals() {
+        assertEquals("{\"a\",\"b\\\"c\",\"d\\\\e\"}", StationOwnershipRegistry.arrayLiteral(List.of("a", "b\"c", "d\\e")));
+    }
+
+    @SafeVarargs
+    private void claimsReturn(Map.Entry<String, Long>... rows) {
+        claimsAnswer(invocation -> List.of(rows));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void claimsAnswer(Answer<List<Map.Entry<String, Long>>> answer) {
+        when(jdbcTemplate.query(startsWith("INSERT INTO station_sessions"), any(RowMapper.class), any(), any()))
+                .thenAnswer(answer);
+    }
+}
@@ -0,0 +1,97 @@
+package com.csms.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OcppAdmissionControllerTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void refusesHandshakesBeyondTheBurstWithARetryAfter() {
+        // Refills one token every 1000s, so only the burst gets in
+        OcppAdmissionController controller = new OcppAdmissionController(meterRegistry, 0.001, 2, 0, 5, 300);
+        ServerHttpResponse admitted = mock(ServerHttpResponse.class);
+        ServerHttpResponse refused = mock(ServerHttpResponse.class);
+        HttpHeaders headers = new HttpHeaders();
+        when(refused.getHeaders()).thenReturn(headers);
+
+        assertTrue(handshake(controller, admitted));
+        assertTrue(handshake(controller, admitted));
+        assertFalse(handshake(controller, refused));
+
+        verify(admitted, never()).setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        verify(refused).setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        assertEquals("5", headers.getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(2, meterRegistry.get("ocpp.admission.connections").tag("result", "admitted").counter().count());
+        assertEquals(1, meterRegistry.get("ocpp.admission.connections").tag("result", "throttled").counter().count());
+    }
+
+    @Test
+    void capsConcurrentBoots() {
+        OcppAdmissionController controller = new OcppAdmissionController(meterRegistry, 0, 1, 2, 5, 300);
+
+        assertTrue(controller.tryAcquireBoot());
+        assertTrue(controller.tryAcquireBoot());
+        assertFalse(controller.tryAcquireBoot());
+        assertEquals(2, meterRegistry.get("ocpp.admission.boots.active").gauge().value());
+
+        controller.releaseBoot(TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(controller.tryAcquireBoot());
+        assertEquals(1, meterRegistry.get("ocpp.admission.boots").tag("result", "pending").counter().count());
+    }
+
+    @Test
+    void spreadsPendingBootsAtTheRateBootsComplete() {
+        OcppAdmissionController controller = new OcppAdmissionController(meterRegistry, 0, 1, 2, 5, 300);
+        // Two boots of 50ms at a time
+        assertEquals(40, controller.getBootRate(), 0.001);
+
+        List<Integer> intervals = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            intervals.add(controller.bootRetryInterval());
+        }
+        assertEquals(5, intervals.get(0));
+        // The 100th slot is 99 / 40 seconds after the first
+        assertEquals(8, intervals.get(99));
+        for (int i = 1; i < intervals.size(); i++) {
+            assertTrue(intervals.get(i) >= intervals.get(i - 1));
+        }
+
+        // Slower boots, longer gaps between slots
+        for (int i = 0; i < 50; i++) {
+            controller.releaseBoot(TimeUnit.SECONDS.toNanos(1));
+        }
+        assertTrue(controller.getBootRate() < 2.1);
+    }
+
+    @Test
+    void spreadsRetriesAtRandomOnceTheSlotsPassTheMaximum() {
+        OcppAdmissionController controller = new OcppAdmissionController(meterRegistry, 0, 1, 1, 5, 6);
+        for (int i = 0; i < 200; i++) {
+            int interval = controller.bootRetryInterval();
+            assertTrue(interval >= 5 && interval <= 6, "interval " + interval);
+        }
+    }
+
+    private static boolean handshake(OcppAdmissionController controller, ServerHttpResponse response) {
+        return controller.beforeHandshake(mock(ServerHttpRequest.class), response, null, new HashMap<>());
+    }
+}
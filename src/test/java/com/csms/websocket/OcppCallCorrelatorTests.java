@@ -0,0 +1,101 @@
+package com.csms.websocket;
+
+import com.csms.config.JacksonConfig;
+import com.csms.dto.ocpp.ChangeConfigurationResponse;
+import com.csms.dto.ocpp.ResetResponse;
+import com.csms.exception.ChargePointUnavailableException;
+import com.csms.exception.OcppCallException;
+import com.csms.metrics.OcppMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OcppCallCorrelatorTests {
+
+    private static final String CP = "CP-1";
+
+    private final ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+    private final OcppJsonCodec codec = new OcppJsonCodec(objectMapper);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OcppSessionRegistry sessionRegistry = mock(OcppSessionRegistry.class);
+    private final List<OcppFrame> sent = new CopyOnWriteArrayList<>();
+    private final OcppCallCorrelator correlator = new OcppCallCorrelator(
+            sessionRegistry, codec, objectMapper, new OcppMetrics(meterRegistry), meterRegistry, 1, 2);
+
+    OcppCallCorrelatorTests() throws Exception {
+        when(sessionRegistry.isConnected(CP)).thenReturn(true);
+        doAnswer(invocation -> sent.add(codec.decode(invocation.getArgument(1))))
+                .when(sessionRegistry).sendMessage(anyString(), anyString());
+    }
+
+    @AfterEach
+    void shutdown() {
+        correlator.shutdown();
+    }
+
+    @Test
+    void sendsOneCallAtATimeAndBindsTypedResults() throws Exception {
+        CompletableFuture<ResetResponse> reset = correlator.call(CP, "Reset", Map.of("type", "Soft"), ResetResponse.class);
+        CompletableFuture<ChangeConfigurationResponse> change = correlator.call(CP, "ChangeConfiguration",
+                Map.of("key", "HeartbeatInterval", "value", "60"), ChangeConfigurationResponse.class);
+        assertEquals(1, sent.size());
+        assertEquals("Reset", sent.get(0).getAction());
+
+        correlator.onResult(CP, sent.get(0).getMessageId(), objectMapper.readTree("{\"status\":\"Accepted\"}"));
+        assertEquals("Accepted", reset.get().getStatus());
+        assertEquals(2, sent.size());
+        assertEquals("ChangeConfiguration", sent.get(1).getAction());
+
+        correlator.onError(CP, sent.get(1).getMessageId(), "NotSupported", "Unknown key");
+        ExecutionException error = assertThrows(ExecutionException.class, change::get);
+        assertEquals("NotSupported", assertInstanceOf(OcppCallException.class, error.getCause()).getErrorCode());
+        assertEquals(0, correlator.getPending(CP));
+    }
+
+    @Test
+    void timesOutAndMovesOnToTheNextCall() throws Exception {
+        CompletableFuture<ResetResponse> first = correlator.call(CP, "Reset", Map.of("type", "Soft"), ResetResponse.class);
+        CompletableFuture<ResetResponse> second = correlator.call(CP, "Reset", Map.of("type", "Hard"), ResetResponse.class);
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertEquals(2, sent.size());
+
+        // A late answer to the expired call must not complete the one now in flight
+        correlator.onResult(CP, sent.get(0).getMessageId(), objectMapper.readTree("{\"status\":\"Accepted\"}"));
+        assertFalse(second.isDone());
+    }
+
+    @Test
+    void failsQueuedCallsWhenTheStationDisconnects() {
+        CompletableFuture<ResetResponse> inFlight = correlator.call(CP, "Reset", Map.of("type", "Soft"), ResetResponse.class);
+        CompletableFuture<ResetResponse> queued = correlator.call(CP, "Reset", Map.of("type", "Hard"), ResetResponse.class);
+
+        correlator.onDisconnect(CP);
+
+        for (CompletableFuture<ResetResponse> future : List.of(inFlight, queued)) {
+            ExecutionException error = assertThrows(ExecutionException.class, future::get);
+            assertInstanceOf(ChargePointUnavailableException.class, error.getCause());
+        }
+        assertEquals(1, sent.size());
+        assertEquals(0, meterRegistry.get("ocpp.remote.pending").gauge().value());
+    }
+}
@@ -0,0 +1,74 @@
+package com.csms.websocket;
+
+import com.csms.config.JacksonConfig;
+import com.csms.dto.ocpp.BootNotificationRequest;
+import com.csms.dto.ocpp.HeartbeatResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OcppJsonCodecTests {
+
+    private final OcppJsonCodec codec = new OcppJsonCodec(new JacksonConfig().objectMapper());
+
+    @Test
+    void decodesCallIntoRequestDto() throws Exception {
+        OcppFrame frame = codec.decode(
+                "[2,\"19223201\",\"BootNotification\",{\"chargePointVendor\":\"VendorX\",\"chargePointModel\":\"SingleSocketCharger\"}]");
+
+        assertEquals(OcppJsonCodec.CALL, frame.getMessageTypeId());
+        assertEquals("19223201", frame.getMessageId());
+        assertEquals("BootNotification", frame.getAction());
+        BootNotificationRequest request = assertInstanceOf(BootNotificationRequest.class, frame.getPayload());
+        assertEquals("VendorX", request.getChargePointVendor());
+    }
+
+    @Test
+    void keepsUnmappedPayloadsAsTree() throws Exception {
+        OcppFrame call = codec.decode("[2,\"1\",\"DataTransfer\",{\"vendorId\":\"acme\"}]");
+        assertEquals("acme", assertInstanceOf(JsonNode.class, call.getPayload()).get("vendorId").asText());
+
+        OcppFrame error = codec.decode("[4,\"2\",\"NotSupported\",\"Unknown action\",{}]");
+        assertEquals("NotSupported", error.getErrorCode());
+        assertEquals("Unknown action", error.getErrorDescription());
+    }
+
+    @Test
+    void reportsMessageIdForInvalidPayload() {
+        OcppCodecException e = assertThrows(OcppCodecException.class,
+                () -> codec.decode("[2,\"42\",\"StartTransaction\",{\"connectorId\":\"one\"}]"));
+        assertEquals("42", e.getMessageId());
+        assertEquals("TypeConstraintViolation", e.getErrorCode());
+
+        OcppCodecException malformed = assertThrows(OcppCodecException.class, () -> codec.decode("{\"not\":\"a frame\"}"));
+        assertNull(malformed.getMessageId());
+        assertEquals("FormationViolation", malformed.getErrorCode());
+    }
+
+    @Test
+    void encodesFramesWithEscapedStrings() throws Exception {
+        assertEquals("[3,\"a\\\"b\",{\"status\":\"Accepted\"}]",
+                codec.encodeCallResult("a\"b", Map.of("status", "Accepted")));
+        assertEquals("[4,\"1\",\"GenericError\",\"bad \\\"input\\\"\",{}]",
+                codec.encodeCallError("1", "GenericError", "bad \"input\""));
+        assertEquals("[2,\"1\",\"Heartbeat\",{\"currentTime\":\"2024-01-01T00:00:00\"}]",
+                codec.encodeCall("1", "Heartbeat", new HeartbeatResponse(LocalDateTime.of(2024, 1, 1, 0, 0))));
+    }
+
+    @Test
+    void writesAnEmptyDescriptionForACallErrorWithoutOne() throws Exception {
+        String frame = codec.encodeCallError("1", "InternalError", null);
+        assertEquals("[4,\"1\",\"InternalError\",\"\",{}]", frame);
+
+        OcppFrame decoded = codec.decode(frame);
+        assertEquals("InternalError", decoded.getErrorCode());
+        assertEquals("", decoded.getErrorDescription());
+    }
+}
@@ -0,0 +1,82 @@
+package com.csms.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OcppMessageDispatcherTests {
+
+    private final OcppMessageDispatcher dispatcher = new OcppMessageDispatcher(true, false, 4, 10);
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void runsMessagesQueuedBeforeADisconnectAheadOfTheReconnectsMessages() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        List<Integer> order = new CopyOnWriteArrayList<>();
+
+        dispatcher.dispatch("CP-1", () -> {
+            started.countDown();
+            await(release);
+            order.add(1);
+            done.countDown();
+        });
+        dispatcher.dispatch("CP-1", () -> {
+            order.add(2);
+            done.countDown();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        dispatcher.remove("CP-1");
+        CountDownLatch reconnected = new CountDownLatch(1);
+        dispatcher.dispatch("CP-1", () -> {
+            order.add(3);
+            reconnected.countDown();
+            done.countDown();
+        });
+        assertFalse(reconnected.await(200, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2, 3), order);
+    }
+
+    @Test
+    void dropsTheMailboxOfARemovedStationOnceItIsDrained() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        dispatcher.dispatch("CP-1", () -> await(release));
+        dispatcher.dispatch("CP-2", () -> {
+        });
+        dispatcher.remove("CP-1");
+        // Kept while it still has a message to run
+        assertEquals(2, dispatcher.getMailboxCount());
+
+        release.countDown();
+        for (int i = 0; i < 500 && dispatcher.getMailboxCount() > 1; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, dispatcher.getMailboxCount());
+        assertEquals(0, dispatcher.getInFlight("CP-1"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}